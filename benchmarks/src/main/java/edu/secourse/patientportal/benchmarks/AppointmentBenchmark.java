@@ -0,0 +1,128 @@
+package edu.secourse.patientportal.benchmarks;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appointment operations, called directly on the {@code AppointmentService}
+ * and through the {@code AppointmentController}.
+ * <p>
+ * Writes run against a {@link FreshPortal}:
+ * <ul>
+ *     <li>create books a random patient with a random doctor at a free time;
+ *     the batch variants book {@value #BATCH} such appointments per call and
+ *     report the time per appointment</li>
+ *     <li>cancel cancels the dataset appointments in ID order; an iteration
+ *     longer than the dataset cancels already cancelled appointments again</li>
+ *     <li>modify moves a random appointment to a free time, keeping its patient and doctor</li>
+ * </ul>
+ * Reads run against a {@link LoadedPortal} and fetch the appointments of a
+ * random patient (about 10 each) or a random doctor (about 100 each).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentBenchmark {
+
+    /** Appointments per batch in the batch benchmarks. */
+    static final int BATCH = 1000;
+
+    @Benchmark
+    public boolean serviceCreateAppointment(FreshPortal portal, Cursor cursor) {
+        return portal.appointmentService.createAppointment(newAppointment(portal, cursor));
+    }
+
+    @Benchmark
+    public boolean controllerCreateAppointment(FreshPortal portal, Cursor cursor) {
+        return portal.appointmentController.createAppointment(newAppointment(portal, cursor));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean[] serviceCreateAppointments(FreshPortal portal, Cursor cursor) {
+        return portal.appointmentService.createAppointments(newAppointments(portal, cursor));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean[] controllerCreateAppointments(FreshPortal portal, Cursor cursor) {
+        return portal.appointmentController.createAppointments(newAppointments(portal, cursor));
+    }
+
+    @Benchmark
+    public boolean serviceCancelAppointment(FreshPortal portal, Cursor cursor) {
+        return portal.appointmentService.cancelAppointment(cursor.nextIndex(portal.size) + 1);
+    }
+
+    @Benchmark
+    public boolean controllerCancelAppointment(FreshPortal portal, Cursor cursor) {
+        return portal.appointmentController.cancelAppointment(cursor.nextIndex(portal.size) + 1);
+    }
+
+    @Benchmark
+    public boolean serviceModifyAppointment(FreshPortal portal, Cursor cursor) {
+        int index = cursor.randomIndex(portal.size);
+        return portal.appointmentService.modifyAppointment(index + 1, portal.patientOf(index),
+                portal.doctorOf(index), portal.nextFreeTime());
+    }
+
+    @Benchmark
+    public boolean controllerModifyAppointment(FreshPortal portal, Cursor cursor) {
+        int index = cursor.randomIndex(portal.size);
+        return portal.appointmentController.modifyAppointment(index + 1, portal.patientOf(index),
+                portal.doctorOf(index), portal.nextFreeTime());
+    }
+
+    @Benchmark
+    public ArrayList<Appointment> serviceGetAppointmentsForPatient(LoadedPortal portal, Cursor cursor) {
+        return portal.appointmentService.getAppointmentsForUser(
+                portal.patients[cursor.randomIndex(portal.patientCount)]);
+    }
+
+    @Benchmark
+    public ArrayList<Appointment> controllerGetAppointmentsForPatient(LoadedPortal portal, Cursor cursor) {
+        return portal.appointmentController.getAppointmentsForUser(
+                portal.patients[cursor.randomIndex(portal.patientCount)]);
+    }
+
+    @Benchmark
+    public ArrayList<Appointment> serviceGetAppointmentsForDoctor(LoadedPortal portal, Cursor cursor) {
+        return portal.appointmentService.getAppointmentsForUser(
+                portal.doctors[cursor.randomIndex(portal.doctorCount)]);
+    }
+
+    @Benchmark
+    public ArrayList<Appointment> controllerGetAppointmentsForDoctor(LoadedPortal portal, Cursor cursor) {
+        return portal.appointmentController.getAppointmentsForUser(
+                portal.doctors[cursor.randomIndex(portal.doctorCount)]);
+    }
+
+    private static List<Appointment> newAppointments(PortalState portal, Cursor cursor) {
+        List<Appointment> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(newAppointment(portal, cursor));
+        }
+        return batch;
+    }
+
+    private static Appointment newAppointment(PortalState portal, Cursor cursor) {
+        Patient patient = portal.patients[cursor.randomIndex(portal.patientCount)];
+        Doctor doctor = portal.doctors[cursor.randomIndex(portal.doctorCount)];
+        return new Appointment(patient, doctor, portal.nextFreeTime());
+    }
+}
@@ -0,0 +1,55 @@
+package edu.secourse.patientportal.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+
+/**
+ * Per-thread choice of which users and appointments a benchmark touches.
+ * <p>
+ * Random picks are uniform and seeded, so every run visits the same
+ * sequence. {@link #nextIndex(int)} walks the range in order instead, so
+ * each appointment is cancelled once per iteration before any is cancelled
+ * again; it restarts at zero when an iteration begins, matching the reload
+ * done by {@link FreshPortal}.
+ */
+@State(Scope.Thread)
+public class Cursor {
+
+    private final SplittableRandom random = new SplittableRandom(427);
+    private int next;
+
+    /**
+     * Restarts the ordered walk.
+     */
+    @Setup(Level.Iteration)
+    public void rewind() {
+        next = 0;
+    }
+
+    /**
+     * Returns a uniformly random index.
+     *
+     * @param bound the exclusive upper bound
+     * @return an index in {@code [0, bound)}
+     */
+    int randomIndex(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /**
+     * Returns the next index in order, wrapping at the bound.
+     *
+     * @param bound the exclusive upper bound
+     * @return an index in {@code [0, bound)}
+     */
+    int nextIndex(int bound) {
+        if (next >= bound) {
+            next = 0;
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,140 @@
+package edu.secourse.patientportal.benchmarks;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.OffHeapAppointmentStore;
+import edu.secourse.patientportal.services.PackedAppointmentStore;
+import edu.secourse.patientportal.services.StoreBackedAppointmentService;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports the memory cost per appointment of each way of holding the
+ * calendar, measured as the change in live heap after a full GC:
+ * <ul>
+ *     <li>{@code AppointmentService}, with its objects and indexes</li>
+ *     <li>{@code AppointmentService} with a store attached as a listener,
+ *     where the store is an extra copy on top of the objects</li>
+ *     <li>{@code StoreBackedAppointmentService}, where the store is the only
+ *     copy and no object is kept per appointment</li>
+ * </ul>
+ * Each "total heap" line is everything that has to stay on the heap for
+ * that setup. Off-heap stores report their native memory on the next line,
+ * which has to be added to get the setup's whole footprint.
+ * Heap figures move by a byte or two per appointment between runs, so a
+ * setup that keeps nothing on the heap can show a small negative value.
+ * <p>
+ * The dataset has the same shape as the benchmarks' ({@code size / 10}
+ * patients and {@code size / 100} doctors), and users are created before
+ * the first measurement so only appointment storage is counted. Usage:
+ * {@code java -cp benchmarks.jar edu.secourse.patientportal.benchmarks.FootprintReport [size]},
+ * with a size of 1000000 by default.
+ */
+public class FootprintReport {
+
+    public static void main(String[] args) throws IOException {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        Patient[] patients = new Patient[Math.max(1, size / 10)];
+        Doctor[] doctors = new Doctor[Math.max(1, size / 100)];
+        for (int i = 0; i < patients.length; i++) {
+            patients[i] = new Patient("patient" + i, "hash", "Patient " + i, "patient" + i + "@example.com");
+        }
+        for (int i = 0; i < doctors.length; i++) {
+            doctors[i] = new Doctor("doctor" + i, "hash", "Doctor " + i, "doctor" + i + "@example.com");
+        }
+        List<Appointment> appointments = new ArrayList<>(size);
+        LocalDateTime base = LocalDateTime.of(2030, 1, 7, 8, 0);
+
+        long before = liveHeap();
+        for (int i = 0; i < size; i++) {
+            Appointment appointment = new Appointment(patients[i % patients.length], doctors[i % doctors.length],
+                    base.plusMinutes(30L * (i / doctors.length)));
+            appointment.setAppointmentId(i + 1);
+            appointments.add(appointment);
+        }
+        long objects = liveHeap();
+
+        AppointmentService service = new AppointmentService();
+        service.restoreAppointments(appointments);
+        long indexed = liveHeap();
+
+        PackedAppointmentStore store = new PackedAppointmentStore(size);
+        store.load(service);
+        long packed = liveHeap();
+
+        OffHeapAppointmentStore offHeap = new OffHeapAppointmentStore(size);
+        offHeap.load(service);
+        long offHeapDone = liveHeap();
+
+        StoreBackedAppointmentService packedService = new StoreBackedAppointmentService(
+                new PackedAppointmentStore(size));
+        book(packedService, patients, doctors, size, base);
+        long packedServiceDone = liveHeap();
+
+        OffHeapAppointmentStore offHeapBacking = new OffHeapAppointmentStore(size);
+        StoreBackedAppointmentService offHeapService = new StoreBackedAppointmentService(offHeapBacking);
+        book(offHeapService, patients, doctors, size, base);
+        long offHeapServiceDone = liveHeap();
+
+        System.out.printf("%,d appointments, %,d patients, %,d doctors%n", size, patients.length, doctors.length);
+        System.out.printf("%-52s %12s%n", "", "bytes/appt");
+        row("Appointment objects", objects - before, size);
+        row("AppointmentService indexes", indexed - objects, size);
+        row("AppointmentService total", indexed - before, size);
+        row("PackedAppointmentStore copy (measured)", packed - indexed, size);
+        row("PackedAppointmentStore copy (allocated arrays)", store.getFootprintBytes(), size);
+        row("AppointmentService + packed copy, total heap", packed - before, size);
+        row("StoreBackedAppointmentService, packed, total heap", packedServiceDone - offHeapDone, size);
+        row("OffHeapAppointmentStore copy (heap)", offHeapDone - packed, size);
+        row("OffHeapAppointmentStore copy (native memory)", offHeap.getFootprintBytes(), size);
+        row("AppointmentService + off-heap copy, total heap", (indexed - before) + (offHeapDone - packed), size);
+        row("StoreBackedAppointmentService, off-heap, heap", offHeapServiceDone - packedServiceDone, size);
+        row("StoreBackedAppointmentService, off-heap, native", offHeapBacking.getFootprintBytes(), size);
+        if (store.size() != size || offHeap.size() != size || service.getAllAppointments().count() != size
+                || packedService.size() != size || offHeapService.size() != size) {
+            throw new IllegalStateException("Stores lost appointments");
+        }
+        offHeap.close();
+        offHeapBacking.close();
+    }
+
+    /**
+     * Books the dataset through a store-backed service, building each
+     * appointment only for the call so that none stays reachable.
+     */
+    private static void book(StoreBackedAppointmentService service, Patient[] patients, Doctor[] doctors, int size,
+                             LocalDateTime base) {
+        for (int i = 0; i < size; i++) {
+            service.createAppointment(new Appointment(patients[i % patients.length], doctors[i % doctors.length],
+                    base.plusMinutes(30L * (i / doctors.length))));
+        }
+    }
+
+    private static void row(String label, long bytes, int size) {
+        System.out.printf("%-52s %12.1f%n", label, bytes / (double) size);
+    }
+
+    /**
+     * Returns the heap in use after collecting garbage until it stops shrinking.
+     */
+    private static long liveHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
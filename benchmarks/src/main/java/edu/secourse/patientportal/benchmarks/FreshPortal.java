@@ -0,0 +1,24 @@
+package edu.secourse.patientportal.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Portal state reloaded before every iteration, for benchmarks that write.
+ * <p>
+ * Reloading keeps the dataset at its nominal size, so bookings and new users
+ * added during one iteration do not slow down the next one.
+ */
+@State(Scope.Benchmark)
+public class FreshPortal extends PortalState {
+
+    /**
+     * Reloads the dataset.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        load();
+    }
+}
@@ -0,0 +1,21 @@
+package edu.secourse.patientportal.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Portal state loaded once per trial, for benchmarks that only read.
+ */
+@State(Scope.Benchmark)
+public class LoadedPortal extends PortalState {
+
+    /**
+     * Loads the dataset.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        load();
+    }
+}
@@ -0,0 +1,138 @@
+package edu.secourse.patientportal.benchmarks;
+
+import edu.secourse.patientportal.controllers.AppointmentController;
+import edu.secourse.patientportal.controllers.UserController;
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Services and controllers loaded with a generated dataset.
+ * <p>
+ * For a dataset of {@code size} appointments there are {@code size / 10}
+ * patients and {@code size / 100} doctors (at least one of each). Appointment
+ * {@code i} has ID {@code i + 1}, patient {@code i % patients}, doctor
+ * {@code i % doctors}, and starts at {@link #BASE_TIME} plus
+ * {@code i / doctors} half-hour slots, so no doctor or patient is double booked.
+ * <p>
+ * Times handed out by {@link #nextFreeTime()} lie after every dataset
+ * appointment and are never reused, so bookings and moves to them always
+ * pass the overlap checks. The services run in memory, without a journal.
+ */
+@State(Scope.Benchmark)
+public abstract class PortalState {
+
+    /** Start of the first dataset appointment slot. */
+    static final LocalDateTime BASE_TIME = LocalDateTime.of(2030, 1, 7, 8, 0);
+
+    /** Minutes between consecutive appointment slots. */
+    static final int SLOT_MINUTES = 30;
+
+    /** Number of appointments in the dataset. */
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    int patientCount;
+    int doctorCount;
+    Patient[] patients;
+    Doctor[] doctors;
+
+    /** Current username of every user, patients first; updated by renames. */
+    String[] usernames;
+
+    UserService userService;
+    AppointmentService appointmentService;
+    UserController userController;
+    AppointmentController appointmentController;
+
+    private final AtomicLong freeSlots = new AtomicLong();
+    private final AtomicLong newUsers = new AtomicLong();
+
+    /**
+     * Builds fresh users, services, and controllers holding the full dataset.
+     * Users are rebuilt too, since renames change the user objects in place.
+     */
+    void load() {
+        patientCount = Math.max(1, size / 10);
+        doctorCount = Math.max(1, size / 100);
+        patients = new Patient[patientCount];
+        doctors = new Doctor[doctorCount];
+        usernames = new String[patientCount + doctorCount];
+
+        userService = new UserService();
+        appointmentService = new AppointmentService();
+        for (int p = 0; p < patientCount; p++) {
+            patients[p] = new Patient("patient" + p, "hash", "Patient " + p, "patient" + p + "@example.com");
+            usernames[p] = patients[p].getUsername();
+            userService.createUser(patients[p]);
+        }
+        for (int d = 0; d < doctorCount; d++) {
+            doctors[d] = new Doctor("doctor" + d, "hash", "Doctor " + d, "doctor" + d + "@example.com");
+            usernames[patientCount + d] = doctors[d].getUsername();
+            userService.createUser(doctors[d]);
+        }
+
+        List<Appointment> appointments = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Appointment appointment = new Appointment(patients[i % patientCount], doctors[i % doctorCount],
+                    BASE_TIME.plusMinutes((long) (i / doctorCount) * SLOT_MINUTES));
+            appointment.setAppointmentId(i + 1);
+            appointments.add(appointment);
+        }
+        appointmentService.restoreAppointments(appointments);
+
+        userController = new UserController(userService);
+        appointmentController = new AppointmentController(appointmentService);
+        freeSlots.set((long) size / doctorCount + 1);
+        newUsers.set(0);
+    }
+
+    /**
+     * Returns a start time no appointment has used yet.
+     *
+     * @return a free appointment start time
+     */
+    LocalDateTime nextFreeTime() {
+        return BASE_TIME.plusMinutes(freeSlots.getAndIncrement() * SLOT_MINUTES);
+    }
+
+    /**
+     * Returns a username no user has had yet.
+     *
+     * @param prefix the start of the username
+     * @return a fresh username
+     */
+    String nextUsername(String prefix) {
+        return prefix + newUsers.getAndIncrement();
+    }
+
+    /**
+     * Returns the patient of a dataset appointment.
+     *
+     * @param index the appointment index, one less than its ID
+     * @return the patient
+     */
+    Patient patientOf(int index) {
+        return patients[index % patientCount];
+    }
+
+    /**
+     * Returns the doctor of a dataset appointment.
+     *
+     * @param index the appointment index, one less than its ID
+     * @return the doctor
+     */
+    Doctor doctorOf(int index) {
+        return doctors[index % doctorCount];
+    }
+}
@@ -0,0 +1,28 @@
+package edu.secourse.patientportal.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so every result comes
+ * with its allocation rate ({@code gc.alloc.rate.norm} is bytes per operation).
+ * <p>
+ * Accepts the usual JMH command line, for example
+ * {@code java -jar benchmarks.jar UserBenchmark -p size=1000,100000}.
+ * The 10M dataset needs a large heap: add {@code -jvmArgsAppend -Xmx16g}.
+ */
+public class RunBenchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,103 @@
+package edu.secourse.patientportal.benchmarks;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.ShardedAppointmentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Booking throughput of a {@link ShardedAppointmentService} as the shard
+ * count grows, with one benchmark thread per available processor.
+ * <p>
+ * A {@code shards} value of {@code 0} measures a single shared
+ * {@link AppointmentService} for comparison. Every booking is unique: the
+ * n-th goes to doctor {@code n % doctors} at the doctor's next half hour,
+ * with patient {@code n % patients}, so nothing is rejected. Throughput
+ * should grow with the shard count up to the number of cores; run with
+ * {@code -t} to vary the number of booking threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ShardedWriteBenchmark {
+
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2030, 1, 7, 0, 0);
+
+    @State(Scope.Benchmark)
+    public static class Shards {
+
+        @Param({"0", "1", "2", "4", "8"})
+        public int shards;
+
+        public int patientCount = 100_000;
+        public int doctorCount = 1_000;
+
+        Patient[] patients;
+        Doctor[] doctors;
+        AppointmentService single;
+        ShardedAppointmentService sharded;
+        final AtomicLong bookings = new AtomicLong();
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            patients = new Patient[patientCount];
+            doctors = new Doctor[doctorCount];
+            for (int i = 0; i < patientCount; i++) {
+                patients[i] = new Patient("patient" + i, "hash", "Patient " + i, "patient" + i + "@example.com");
+            }
+            for (int i = 0; i < doctorCount; i++) {
+                doctors[i] = new Doctor("doctor" + i, "hash", "Doctor " + i, "doctor" + i + "@example.com");
+            }
+            bookings.set(0);
+            if (shards == 0) {
+                single = new AppointmentService();
+            } else {
+                sharded = new ShardedAppointmentService(shards);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            if (sharded != null) {
+                sharded.close();
+                sharded = null;
+            }
+            single = null;
+        }
+
+        Appointment nextAppointment() {
+            long n = bookings.getAndIncrement();
+            return new Appointment(patients[(int) (n % patientCount)], doctors[(int) (n % doctorCount)],
+                    BASE_TIME.plusMinutes(30 * (n / doctorCount)));
+        }
+    }
+
+    @Benchmark
+    public boolean createAppointment(Shards state) {
+        Appointment appointment = state.nextAppointment();
+        return (state.single != null) ? state.single.createAppointment(appointment)
+                : state.sharded.createAppointment(appointment);
+    }
+}
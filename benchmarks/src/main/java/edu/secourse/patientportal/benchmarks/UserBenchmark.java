@@ -0,0 +1,79 @@
+package edu.secourse.patientportal.benchmarks;
+
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User operations, called directly on the {@code UserService} and through
+ * the {@code UserController}.
+ * <p>
+ * Lookups by username pick a random user from the same list for the service
+ * and the controller, so the two can be compared directly. Renames pick a
+ * random user and give them a username nobody has had, so every rename moves
+ * an index entry.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserBenchmark {
+
+    @Benchmark
+    public User serviceGetUser(LoadedPortal portal, Cursor cursor) {
+        return portal.userService.getUser(portal.usernames[cursor.randomIndex(portal.usernames.length)]);
+    }
+
+    @Benchmark
+    public User controllerGetUser(LoadedPortal portal, Cursor cursor) {
+        return portal.userController.getUser(portal.usernames[cursor.randomIndex(portal.usernames.length)]);
+    }
+
+    @Benchmark
+    public boolean serviceCreateUser(FreshPortal portal) {
+        return portal.userService.createUser(newPatient(portal));
+    }
+
+    @Benchmark
+    public boolean controllerCreateUser(FreshPortal portal) {
+        return portal.userController.createUser(newPatient(portal));
+    }
+
+    @Benchmark
+    public boolean serviceUpdateUser(FreshPortal portal, Cursor cursor) {
+        int index = cursor.randomIndex(portal.usernames.length);
+        String newUsername = portal.nextUsername("renamed");
+        boolean updated = portal.userService.updateUser(portal.usernames[index], newUsername, "hash2",
+                "Renamed " + index, newUsername + "@example.com");
+        if (updated) {
+            portal.usernames[index] = newUsername;
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public boolean controllerUpdateUser(FreshPortal portal, Cursor cursor) {
+        int index = cursor.randomIndex(portal.usernames.length);
+        String newUsername = portal.nextUsername("renamed");
+        boolean updated = portal.userController.updateUser(portal.usernames[index], newUsername, "hash2",
+                "Renamed " + index, newUsername + "@example.com");
+        if (updated) {
+            portal.usernames[index] = newUsername;
+        }
+        return updated;
+    }
+
+    private static Patient newPatient(PortalState portal) {
+        String username = portal.nextUsername("new");
+        return new Patient(username, "hash", "New Patient", username + "@example.com");
+    }
+}
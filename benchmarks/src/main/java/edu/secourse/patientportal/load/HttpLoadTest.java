@@ -0,0 +1,186 @@
+package edu.secourse.patientportal.load;
+
+import edu.secourse.patientportal.controllers.AppointmentController;
+import edu.secourse.patientportal.controllers.UserController;
+import edu.secourse.patientportal.http.PortalHttpServer;
+import edu.secourse.patientportal.metrics.LatencyHistogram;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Command-line load test of the HTTP API: starts a {@link PortalHttpServer}
+ * in this process and replays {@link Workload} streams against it from
+ * thousands of concurrent clients.
+ * <p>
+ * Each client is a virtual thread running one stream over a shared
+ * {@link HttpClient}, which keeps a pool of persistent connections, so every
+ * in-flight request holds an open keep-alive connection to the server. The
+ * population is registered directly through the controllers before the
+ * clients start. The report gives p50/p99/p99.9 latency per operation kind,
+ * the count of non-2xx answers (rejected bookings are {@code 409}), and
+ * overall requests per second.
+ * <p>
+ * Options, all optional, are given as {@code --name=value}:
+ * <ul>
+ *     <li>{@code clients} (default 2000): concurrent clients</li>
+ *     <li>{@code requests} (default 100): requests per client</li>
+ *     <li>{@code seed} (default 427), {@code patients} (default 100000),
+ *     {@code doctors} (default 1000), {@code days} (default 60) and
+ *     {@code zipf} (default 1.0), as for {@link LoadTest}</li>
+ * </ul>
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                System.err.println("Options are given as --name=value, not " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int clients = Integer.parseInt(options.getOrDefault("clients", "2000"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "100"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "427"));
+        int patients = Integer.parseInt(options.getOrDefault("patients", "100000"));
+        int doctors = Integer.parseInt(options.getOrDefault("doctors", "1000"));
+        int days = Integer.parseInt(options.getOrDefault("days", "60"));
+        double zipf = Double.parseDouble(options.getOrDefault("zipf", "1.0"));
+
+        Workload workload = new Workload(seed, patients, doctors, days, zipf);
+        UserController userController = new UserController(new UserService());
+        AppointmentController appointmentController = new AppointmentController(new AppointmentService());
+        new LoadDriver(workload, userController, appointmentController).registerPopulation();
+
+        Map<Operation.Kind, LatencyHistogram> latencies = new EnumMap<>(Operation.Kind.class);
+        for (Operation.Kind kind : Operation.Kind.values()) {
+            latencies.put(kind, new LatencyHistogram());
+        }
+        LongAdder rejected = new LongAdder();
+
+        try (PortalHttpServer server = new PortalHttpServer(new InetSocketAddress("127.0.0.1", 0), userController,
+                appointmentController)) {
+            server.start();
+            String base = "http://127.0.0.1:" + server.getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            System.out.printf("Seed %d, %d clients x %d requests against %s%n", seed, clients, requests, base);
+
+            CountDownLatch start = new CountDownLatch(1);
+            long started;
+            long elapsed;
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> running = new ArrayList<>();
+                for (int c = 0; c < clients; c++) {
+                    Operation[] stream = workload.stream(c, requests);
+                    running.add(pool.submit(() -> {
+                        start.await();
+                        runClient(client, base, workload, stream, latencies, rejected);
+                        return null;
+                    }));
+                }
+                started = System.nanoTime();
+                start.countDown();
+                for (Future<?> future : running) {
+                    future.get();
+                }
+                elapsed = System.nanoTime() - started;
+            }
+
+            System.out.printf("%-14s %10s %10s %10s %10s %10s%n", "operation", "requests", "p50 us", "p99 us",
+                    "p99.9 us", "max us");
+            long total = 0;
+            for (Map.Entry<Operation.Kind, LatencyHistogram> entry : latencies.entrySet()) {
+                LatencyHistogram latency = entry.getValue();
+                total += latency.getCount();
+                System.out.printf("%-14s %10d %10.1f %10.1f %10.1f %10.1f%n", entry.getKey(), latency.getCount(),
+                        latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                        latency.getValueAtPercentile(99.9) / 1e3, latency.getMaxNanos() / 1e3);
+            }
+            System.out.printf("Rejected (non-2xx): %d of %d%n", rejected.sum(), total);
+            System.out.printf("Throughput: %.0f requests/s over %.2f s with %d concurrent clients%n",
+                    total * 1e9 / elapsed, elapsed / 1e9, clients);
+        }
+    }
+
+    /**
+     * Runs one client's stream, one request at a time, and records each latency.
+     */
+    private static void runClient(HttpClient client, String base, Workload workload, Operation[] stream,
+                                  Map<Operation.Kind, LatencyHistogram> latencies, LongAdder rejected)
+            throws Exception {
+        Patient[] patients = workload.getPatients();
+        Doctor[] doctors = workload.getDoctors();
+        int[] bookedIds = new int[stream.length];
+        int bookings = 0;
+
+        for (Operation operation : stream) {
+            HttpRequest request = switch (operation.kind()) {
+                case BOOK -> post(base + "/appointments", booking(patients[operation.patient()],
+                        doctors[operation.doctor()], operation));
+                case CANCEL -> HttpRequest.newBuilder(URI.create(base + "/appointments/"
+                        + bookedIds[operation.booking()])).DELETE().build();
+                case MODIFY -> HttpRequest.newBuilder(URI.create(base + "/appointments/"
+                                + bookedIds[operation.booking()]))
+                        .PUT(HttpRequest.BodyPublishers.ofString(booking(patients[operation.patient()],
+                                doctors[operation.doctor()], operation))).build();
+                case PATIENT_VIEW -> get(base + "/users/" + patients[operation.patient()].getUsername()
+                        + "/appointments");
+                case DOCTOR_VIEW -> get(base + "/users/" + doctors[operation.doctor()].getUsername()
+                        + "/appointments");
+            };
+
+            long sent = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            latencies.get(operation.kind()).record(System.nanoTime() - sent);
+
+            if (response.statusCode() >= 300) {
+                rejected.increment();
+            }
+            if (operation.kind() == Operation.Kind.BOOK) {
+                bookedIds[bookings++] = (response.statusCode() == 201) ? appointmentId(response.body()) : 0;
+            }
+        }
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).GET().build();
+    }
+
+    private static HttpRequest post(String uri, String body) {
+        return HttpRequest.newBuilder(URI.create(uri)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static String booking(Patient patient, Doctor doctor, Operation operation) {
+        return "{\"patient\":\"" + patient.getUsername() + "\",\"doctor\":\"" + doctor.getUsername()
+                + "\",\"dateTime\":\"" + operation.time() + "\"}";
+    }
+
+    /**
+     * Reads the ID from a booking response, which starts {@code {"appointmentId":<id>,}.
+     */
+    private static int appointmentId(String body) {
+        int start = body.indexOf(':') + 1;
+        int end = body.indexOf(',', start);
+        return Integer.parseInt(body.substring(start, end));
+    }
+}
@@ -0,0 +1,192 @@
+package edu.secourse.patientportal.load;
+
+import edu.secourse.patientportal.controllers.AppointmentController;
+import edu.secourse.patientportal.controllers.UserController;
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Replays {@link Workload} streams against the controllers from several
+ * threads and measures every call.
+ * <p>
+ * Thread {@code n} runs stream {@code n}. Each thread first runs a warm-up
+ * part of its stream without measuring it, then all threads start the
+ * measured part together. Every measured call is timed on its own, and
+ * calls the controller rejects are counted as failures: bookings that
+ * overlap another appointment, and cancels or moves of bookings that were
+ * themselves rejected.
+ * <p>
+ * The operations are the same on every run with the same seed. With more
+ * than one thread, streams that book the same doctor race each other, so
+ * which of two conflicting bookings wins, and with it the failure counts,
+ * can differ slightly between runs.
+ */
+public class LoadDriver {
+
+    private final Workload workload;
+    private final UserController userController;
+    private final AppointmentController appointmentController;
+
+    /**
+     * Creates a driver.
+     *
+     * @param workload              the workload to replay
+     * @param userController        the controller the population is registered through
+     * @param appointmentController the controller the streams are replayed against
+     */
+    public LoadDriver(Workload workload, UserController userController, AppointmentController appointmentController) {
+        this.workload = workload;
+        this.userController = userController;
+        this.appointmentController = appointmentController;
+    }
+
+    /**
+     * Registers every patient and doctor of the workload.
+     *
+     * @return the number of users registered
+     */
+    public int registerPopulation() {
+        int registered = 0;
+        for (Patient patient : workload.getPatients()) {
+            if (userController.createUser(patient)) {
+                registered++;
+            }
+        }
+        for (Doctor doctor : workload.getDoctors()) {
+            if (userController.createUser(doctor)) {
+                registered++;
+            }
+        }
+        return registered;
+    }
+
+    /**
+     * Replays one stream per thread and reports on the measured part.
+     *
+     * @param threads              the number of threads
+     * @param operationsPerThread  the number of measured operations per thread
+     * @param warmupPerThread      the number of unmeasured operations each thread runs first
+     * @return the latency and throughput report
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public LoadReport run(int threads, int operationsPerThread, int warmupPerThread) throws InterruptedException {
+        CyclicBarrier measuredStart = new CyclicBarrier(threads);
+        Worker[] workers = new Worker[threads];
+        List<Thread> running = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(workload.stream(t, warmupPerThread + operationsPerThread), warmupPerThread,
+                    measuredStart);
+            Thread thread = new Thread(workers[t], "load-" + t);
+            running.add(thread);
+            thread.start();
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+
+        LoadReport.Builder report = new LoadReport.Builder();
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("Load thread failed", worker.failure);
+            }
+            report.add(worker.operations, worker.warmup, worker.latencies, worker.succeeded,
+                    worker.startNanos, worker.endNanos);
+        }
+        return report.build();
+    }
+
+    /**
+     * Runs one stream and records the latency and outcome of each measured call.
+     */
+    private final class Worker implements Runnable {
+
+        private final Operation[] operations;
+        private final int warmup;
+        private final CyclicBarrier measuredStart;
+        private final long[] latencies;
+        private final boolean[] succeeded;
+
+        /** Appointment ID of each booking of the stream, or {@code 0} if it was rejected. */
+        private final int[] bookedIds;
+
+        private long startNanos;
+        private long endNanos;
+        private Throwable failure;
+
+        Worker(Operation[] operations, int warmup, CyclicBarrier measuredStart) {
+            this.operations = operations;
+            this.warmup = warmup;
+            this.measuredStart = measuredStart;
+            this.latencies = new long[operations.length - warmup];
+            this.succeeded = new boolean[operations.length - warmup];
+            this.bookedIds = new int[operations.length];
+        }
+
+        @Override
+        public void run() {
+            try {
+                int bookings = 0;
+                for (int i = 0; i < operations.length; i++) {
+                    if (i == warmup) {
+                        measuredStart.await();
+                        startNanos = System.nanoTime();
+                    }
+                    Operation operation = operations[i];
+                    long started = System.nanoTime();
+                    boolean ok = apply(operation, bookings);
+                    long latency = System.nanoTime() - started;
+                    if (operation.kind() == Operation.Kind.BOOK) {
+                        bookings++;
+                    }
+                    if (i >= warmup) {
+                        latencies[i - warmup] = latency;
+                        succeeded[i - warmup] = ok;
+                    }
+                }
+                endNanos = System.nanoTime();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                failure = e;
+                measuredStart.reset();
+            } catch (RuntimeException e) {
+                failure = e;
+                measuredStart.reset();
+            }
+        }
+
+        private boolean apply(Operation operation, int bookings) {
+            Patient[] patients = workload.getPatients();
+            Doctor[] doctors = workload.getDoctors();
+            switch (operation.kind()) {
+                case BOOK -> {
+                    Appointment appointment = new Appointment(patients[operation.patient()],
+                            doctors[operation.doctor()], operation.time());
+                    boolean booked = appointmentController.createAppointment(appointment);
+                    bookedIds[bookings] = booked ? appointment.getAppointmentId() : 0;
+                    return booked;
+                }
+                case CANCEL -> {
+                    return appointmentController.cancelAppointment(bookedIds[operation.booking()]);
+                }
+                case MODIFY -> {
+                    return appointmentController.modifyAppointment(bookedIds[operation.booking()],
+                            patients[operation.patient()], doctors[operation.doctor()], operation.time());
+                }
+                case PATIENT_VIEW -> {
+                    return appointmentController.getAppointmentsForUser(patients[operation.patient()]) != null;
+                }
+                case DOCTOR_VIEW -> {
+                    return appointmentController.getAppointmentsForUser(doctors[operation.doctor()]) != null;
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package edu.secourse.patientportal.load;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency percentiles and throughput of a {@link LoadDriver} run.
+ * <p>
+ * Percentiles use the nearest-rank method over every measured call, so they
+ * are exact rather than estimated. Throughput is the number of measured calls
+ * divided by the time from the first thread starting its measured part to the
+ * last thread finishing.
+ *
+ * @param all          statistics over every measured call
+ * @param byKind       statistics per operation kind, for kinds that occurred
+ * @param elapsedNanos the wall-clock duration of the measured part
+ */
+public record LoadReport(Stats all, List<Stats> byKind, long elapsedNanos) {
+
+    /**
+     * Statistics of a group of calls. Latencies are in nanoseconds.
+     *
+     * @param label    the group name
+     * @param count    the number of calls
+     * @param failures the number of calls the controller rejected
+     * @param p50      the median latency
+     * @param p99      the 99th percentile latency
+     * @param p999     the 99.9th percentile latency
+     * @param max      the highest latency
+     */
+    public record Stats(String label, long count, long failures, long p50, long p99, long p999, long max) {
+
+        static Stats of(String label, long[] sortedLatencies, long failures) {
+            return new Stats(label, sortedLatencies.length, failures, percentile(sortedLatencies, 0.50),
+                    percentile(sortedLatencies, 0.99), percentile(sortedLatencies, 0.999),
+                    (sortedLatencies.length == 0) ? 0 : sortedLatencies[sortedLatencies.length - 1]);
+        }
+    }
+
+    /**
+     * Returns the throughput of the measured part.
+     *
+     * @return calls per second
+     */
+    public double throughput() {
+        return (elapsedNanos == 0) ? 0 : all.count() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Prints the report as a table, with latencies in microseconds.
+     *
+     * @param out the stream to print to
+     */
+    public void print(PrintStream out) {
+        out.printf("%-14s %10s %10s %10s %10s %10s %10s%n", "operation", "calls", "failed",
+                "p50 us", "p99 us", "p99.9 us", "max us");
+        for (Stats stats : byKind) {
+            printRow(out, stats);
+        }
+        printRow(out, all);
+        out.printf("Throughput: %.0f ops/s over %.2f s%n", throughput(), elapsedNanos / 1e9);
+    }
+
+    private static void printRow(PrintStream out, Stats stats) {
+        out.printf("%-14s %10d %10d %10.1f %10.1f %10.1f %10.1f%n", stats.label(), stats.count(), stats.failures(),
+                stats.p50() / 1e3, stats.p99() / 1e3, stats.p999() / 1e3, stats.max() / 1e3);
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Collects the measurements of each driver thread.
+     */
+    static final class Builder {
+
+        private final Map<Operation.Kind, List<long[]>> latencies = new EnumMap<>(Operation.Kind.class);
+        private final Map<Operation.Kind, Long> failures = new EnumMap<>(Operation.Kind.class);
+        private long firstStart = Long.MAX_VALUE;
+        private long lastEnd = Long.MIN_VALUE;
+
+        /**
+         * Adds one thread's measurements.
+         *
+         * @param operations the thread's stream, including the warm-up part
+         * @param warmup     the length of the warm-up part
+         * @param latency    the latency of each measured call
+         * @param succeeded  whether each measured call succeeded
+         * @param startNanos when the thread started its measured part
+         * @param endNanos   when the thread finished
+         */
+        void add(Operation[] operations, int warmup, long[] latency, boolean[] succeeded, long startNanos,
+                 long endNanos) {
+            Operation.Kind[] kinds = Operation.Kind.values();
+            int[] counts = new int[kinds.length];
+            for (int i = warmup; i < operations.length; i++) {
+                counts[operations[i].kind().ordinal()]++;
+            }
+            long[][] byKind = new long[kinds.length][];
+            for (int k = 0; k < kinds.length; k++) {
+                byKind[k] = new long[counts[k]];
+                counts[k] = 0;
+            }
+            for (int i = warmup; i < operations.length; i++) {
+                int k = operations[i].kind().ordinal();
+                byKind[k][counts[k]++] = latency[i - warmup];
+                if (!succeeded[i - warmup]) {
+                    failures.merge(kinds[k], 1L, Long::sum);
+                }
+            }
+            for (int k = 0; k < kinds.length; k++) {
+                if (byKind[k].length > 0) {
+                    latencies.computeIfAbsent(kinds[k], kind -> new ArrayList<>()).add(byKind[k]);
+                }
+            }
+            if (latency.length > 0) {
+                firstStart = Math.min(firstStart, startNanos);
+                lastEnd = Math.max(lastEnd, endNanos);
+            }
+        }
+
+        LoadReport build() {
+            List<Stats> byKind = new ArrayList<>();
+            List<long[]> every = new ArrayList<>();
+            long allFailures = 0;
+            for (Map.Entry<Operation.Kind, List<long[]>> entry : latencies.entrySet()) {
+                long[] merged = concat(entry.getValue());
+                Arrays.sort(merged);
+                long kindFailures = failures.getOrDefault(entry.getKey(), 0L);
+                byKind.add(Stats.of(entry.getKey().name(), merged, kindFailures));
+                every.add(merged);
+                allFailures += kindFailures;
+            }
+            long[] all = concat(every);
+            Arrays.sort(all);
+            long elapsed = (lastEnd >= firstStart) ? lastEnd - firstStart : 0;
+            return new LoadReport(Stats.of("ALL", all, allFailures), byKind, elapsed);
+        }
+
+        private static long[] concat(List<long[]> parts) {
+            int length = 0;
+            for (long[] part : parts) {
+                length += part.length;
+            }
+            long[] result = new long[length];
+            int at = 0;
+            for (long[] part : parts) {
+                System.arraycopy(part, 0, result, at, part.length);
+                at += part.length;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package edu.secourse.patientportal.load;
+
+import edu.secourse.patientportal.controllers.AppointmentController;
+import edu.secourse.patientportal.controllers.UserController;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line load test: generates a {@link Workload}, replays it with a
+ * {@link LoadDriver} against in-memory services, and prints the report.
+ * <p>
+ * Options, all optional, are given as {@code --name=value}:
+ * <ul>
+ *     <li>{@code seed} (default 427): the same seed replays the same operations</li>
+ *     <li>{@code threads} (default: available processors)</li>
+ *     <li>{@code operations} (default 200000): measured operations per thread</li>
+ *     <li>{@code warmup} (default 50000): unmeasured operations per thread</li>
+ *     <li>{@code patients} (default 100000) and {@code doctors} (default 1000)</li>
+ *     <li>{@code days} (default 60): weekdays bookings are spread over</li>
+ *     <li>{@code zipf} (default 1.0): skew of doctor popularity</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                System.err.println("Options are given as --name=value, not " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        long seed = Long.parseLong(options.getOrDefault("seed", "427"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int operations = Integer.parseInt(options.getOrDefault("operations", "200000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "50000"));
+        int patients = Integer.parseInt(options.getOrDefault("patients", "100000"));
+        int doctors = Integer.parseInt(options.getOrDefault("doctors", "1000"));
+        int days = Integer.parseInt(options.getOrDefault("days", "60"));
+        double zipf = Double.parseDouble(options.getOrDefault("zipf", "1.0"));
+
+        Workload workload = new Workload(seed, patients, doctors, days, zipf);
+        LoadDriver driver = new LoadDriver(workload, new UserController(new UserService()),
+                new AppointmentController(new AppointmentService()));
+        driver.registerPopulation();
+
+        System.out.printf("Seed %d, %d threads x %d operations (%d warm-up), %d patients, %d doctors, %d days, zipf %.2f%n",
+                seed, threads, operations, warmup, patients, doctors, days, zipf);
+        driver.run(threads, operations, warmup).print(System.out);
+    }
+}
@@ -0,0 +1,33 @@
+package edu.secourse.patientportal.load;
+
+import java.time.LocalDateTime;
+
+/**
+ * One step of a workload stream.
+ *
+ * @param kind    what the step does
+ * @param patient the patient index, or {@code -1} if not used
+ * @param doctor  the doctor index, or {@code -1} if not used
+ * @param time    the appointment time for bookings and moves, or {@code null}
+ * @param booking for cancels and moves, the position of the targeted booking
+ *                among the earlier {@link Kind#BOOK} steps of the same stream;
+ *                otherwise {@code -1}
+ */
+public record Operation(Kind kind, int patient, int doctor, LocalDateTime time, int booking) {
+
+    /**
+     * The kinds of workload step.
+     */
+    public enum Kind {
+        /** Book a new appointment. */
+        BOOK,
+        /** Cancel an earlier booking. */
+        CANCEL,
+        /** Move an earlier booking to a new time. */
+        MODIFY,
+        /** List a patient's appointments. */
+        PATIENT_VIEW,
+        /** List a doctor's appointments. */
+        DOCTOR_VIEW
+    }
+}
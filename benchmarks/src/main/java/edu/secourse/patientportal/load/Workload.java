@@ -0,0 +1,214 @@
+package edu.secourse.patientportal.load;
+
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * A synthetic clinic: a population of patients and doctors, and seeded
+ * streams of appointment operations against them.
+ * <p>
+ * The streams are shaped like clinic traffic:
+ * <ul>
+ *     <li>Doctors are chosen with Zipf-skewed popularity, so a few doctors
+ *     take most bookings and most booking conflicts</li>
+ *     <li>Appointment times fall on weekdays between 8:00 and 17:00 in
+ *     quarter-hour steps, weighted towards a morning peak</li>
+ *     <li>Most steps book or view; now and then a burst of cancels and moves
+ *     hits the stream's recent bookings</li>
+ * </ul>
+ * Stream {@code n} of a workload depends only on the seed, the settings,
+ * and {@code n}, so two runs with the same seed replay the same operations.
+ * Every cancel or move targets a booking made earlier in the same stream,
+ * which lets each stream run on its own thread.
+ */
+public class Workload {
+
+    /** First day of the booking horizon, a Monday. */
+    static final LocalDateTime FIRST_DAY = LocalDateTime.of(2030, 1, 7, 0, 0);
+
+    /** Relative booking weight of each clinic hour from 8:00 to 16:00. */
+    private static final double[] HOUR_WEIGHTS = {14, 18, 16, 11, 6, 8, 10, 9, 8};
+    private static final int FIRST_HOUR = 8;
+
+    /** Operation mix outside bursts, as cumulative fractions: book, patient view, doctor view, cancel, modify. */
+    private static final double BOOK = 0.60;
+    private static final double PATIENT_VIEW = 0.82;
+    private static final double DOCTOR_VIEW = 0.95;
+    private static final double CANCEL = 0.975;
+
+    /** Chance that a burst of cancels and moves starts at any given step. */
+    private static final double BURST_CHANCE = 0.002;
+    private static final int BURST_MIN = 20;
+    private static final int BURST_MAX = 200;
+
+    /** Number of most recent bookings a burst draws its targets from. */
+    private static final int BURST_WINDOW = 256;
+
+    private final long seed;
+    private final int days;
+    private final Patient[] patients;
+    private final Doctor[] doctors;
+    private final ZipfSampler doctorPopularity;
+    private final double[] hourCumulative;
+
+    /**
+     * Creates a workload and its population. Patients are named
+     * {@code patient-<n>} and doctors {@code doctor-<n>}; doctor {@code 0}
+     * is the most popular.
+     *
+     * @param seed         the seed every stream is derived from
+     * @param patientCount the number of patients
+     * @param doctorCount  the number of doctors
+     * @param days         the number of weekdays bookings are spread over
+     * @param zipfExponent the skew of doctor popularity
+     */
+    public Workload(long seed, int patientCount, int doctorCount, int days, double zipfExponent) {
+        if (patientCount <= 0 || doctorCount <= 0 || days <= 0) {
+            throw new IllegalArgumentException("patients, doctors and days must be positive");
+        }
+        this.seed = seed;
+        this.days = days;
+        this.patients = new Patient[patientCount];
+        this.doctors = new Doctor[doctorCount];
+        for (int p = 0; p < patientCount; p++) {
+            patients[p] = new Patient("patient-" + p, "hash", "Patient " + p, "patient-" + p + "@example.com");
+        }
+        for (int d = 0; d < doctorCount; d++) {
+            doctors[d] = new Doctor("doctor-" + d, "hash", "Doctor " + d, "doctor-" + d + "@example.com");
+        }
+        this.doctorPopularity = new ZipfSampler(doctorCount, zipfExponent);
+
+        this.hourCumulative = new double[HOUR_WEIGHTS.length];
+        double total = 0;
+        for (int h = 0; h < HOUR_WEIGHTS.length; h++) {
+            total += HOUR_WEIGHTS[h];
+            hourCumulative[h] = total;
+        }
+        for (int h = 0; h < HOUR_WEIGHTS.length; h++) {
+            hourCumulative[h] /= total;
+        }
+    }
+
+    /**
+     * Returns the patients of the workload.
+     *
+     * @return the patients, indexed as in {@link Operation#patient()}
+     */
+    public Patient[] getPatients() {
+        return patients;
+    }
+
+    /**
+     * Returns the doctors of the workload.
+     *
+     * @return the doctors, indexed as in {@link Operation#doctor()}
+     */
+    public Doctor[] getDoctors() {
+        return doctors;
+    }
+
+    /**
+     * Generates one stream of operations.
+     *
+     * @param stream the stream number; different numbers give independent streams
+     * @param length the number of operations
+     * @return the operations, in the order they are to be run
+     */
+    public Operation[] stream(int stream, int length) {
+        SplittableRandom random = new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (stream + 1)));
+        Operation[] operations = new Operation[length];
+        int bookings = 0;
+        int burstLeft = 0;
+
+        for (int i = 0; i < length; i++) {
+            if (burstLeft == 0 && bookings > 0 && random.nextDouble() < BURST_CHANCE) {
+                burstLeft = random.nextInt(BURST_MIN, BURST_MAX + 1);
+            }
+
+            Operation operation;
+            if (burstLeft > 0) {
+                burstLeft--;
+                int target = bookings - 1 - random.nextInt(Math.min(bookings, BURST_WINDOW));
+                operation = random.nextBoolean() ? cancel(target) : modify(random, target);
+            } else {
+                double pick = random.nextDouble();
+                if (pick < BOOK || bookings == 0) {
+                    operation = new Operation(Operation.Kind.BOOK, random.nextInt(patients.length),
+                            doctorPopularity.sample(random), nextTime(random), -1);
+                } else if (pick < PATIENT_VIEW) {
+                    operation = new Operation(Operation.Kind.PATIENT_VIEW, random.nextInt(patients.length), -1,
+                            null, -1);
+                } else if (pick < DOCTOR_VIEW) {
+                    operation = new Operation(Operation.Kind.DOCTOR_VIEW, -1, doctorPopularity.sample(random),
+                            null, -1);
+                } else if (pick < CANCEL) {
+                    operation = cancel(random.nextInt(bookings));
+                } else {
+                    operation = modify(random, random.nextInt(bookings));
+                }
+            }
+
+            if (operation.kind() == Operation.Kind.BOOK) {
+                bookings++;
+            }
+            operations[i] = operation;
+        }
+        return fillParticipants(operations);
+    }
+
+    /**
+     * Draws an appointment time: a uniform weekday in the horizon, an hour
+     * weighted towards the morning, and a quarter-hour within it.
+     */
+    private LocalDateTime nextTime(SplittableRandom random) {
+        int day = random.nextInt(days);
+        int week = day / 5;
+        int weekday = day % 5;
+
+        double pick = random.nextDouble();
+        int hour = 0;
+        while (hour < hourCumulative.length - 1 && pick >= hourCumulative[hour]) {
+            hour++;
+        }
+        int minute = 15 * random.nextInt(4);
+        return FIRST_DAY.plusDays(7L * week + weekday).plusHours(FIRST_HOUR + hour).plusMinutes(minute);
+    }
+
+    /**
+     * Builds a cancel of a booking. Its patient and doctor are filled in by
+     * {@link #fillParticipants} once the stream is complete.
+     */
+    private Operation cancel(int target) {
+        return new Operation(Operation.Kind.CANCEL, -1, -1, null, target);
+    }
+
+    /**
+     * Builds a move of a booking to a new time, keeping its patient and doctor.
+     */
+    private Operation modify(SplittableRandom random, int target) {
+        return new Operation(Operation.Kind.MODIFY, -1, -1, nextTime(random), target);
+    }
+
+    /**
+     * Fills in the patient and doctor of cancels and moves from the bookings
+     * they target.
+     */
+    private static Operation[] fillParticipants(Operation[] operations) {
+        int[] bookingPositions = new int[operations.length];
+        int bookings = 0;
+        for (int i = 0; i < operations.length; i++) {
+            Operation operation = operations[i];
+            if (operation.kind() == Operation.Kind.BOOK) {
+                bookingPositions[bookings++] = i;
+            } else if (operation.booking() >= 0) {
+                Operation booked = operations[bookingPositions[operation.booking()]];
+                operations[i] = new Operation(operation.kind(), booked.patient(), booked.doctor(), operation.time(),
+                        operation.booking());
+            }
+        }
+        return operations;
+    }
+}
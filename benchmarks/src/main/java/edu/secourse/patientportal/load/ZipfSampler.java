@@ -0,0 +1,50 @@
+package edu.secourse.patientportal.load;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Samples ranks from a Zipf distribution: rank {@code k} (from zero) is drawn
+ * with probability proportional to {@code 1 / (k + 1)^exponent}.
+ * <p>
+ * The cumulative distribution is computed once, and each sample is a binary
+ * search over it. Instances are immutable and may be shared between threads;
+ * the randomness comes from the caller.
+ */
+public class ZipfSampler {
+
+    private final double[] cumulative;
+
+    /**
+     * Creates a sampler over a number of ranks.
+     *
+     * @param ranks    the number of ranks; must be positive
+     * @param exponent the skew; {@code 0} is uniform, around {@code 1} is typical of popularity
+     */
+    public ZipfSampler(int ranks, double exponent) {
+        if (ranks <= 0) {
+            throw new IllegalArgumentException("ranks must be positive");
+        }
+        cumulative = new double[ranks];
+        double total = 0;
+        for (int k = 0; k < ranks; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < ranks; k++) {
+            cumulative[k] /= total;
+        }
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random the source of randomness
+     * @return a rank in {@code [0, ranks)}
+     */
+    public int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = (index >= 0) ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,109 @@
+package edu.patientportal.load;
+
+import edu.secourse.patientportal.load.Operation;
+import edu.secourse.patientportal.load.Workload;
+import edu.secourse.patientportal.load.ZipfSampler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link Workload} and {@link ZipfSampler}.
+ * <p>
+ * These tests verify:
+ * <ul>
+ *     <li>The same seed replays the same operations</li>
+ *     <li>Every cancel and move targets an earlier booking, with its patient and doctor filled in</li>
+ *     <li>Zipf ranks stay in range and rank 0 is drawn most often</li>
+ * </ul>
+ */
+public class WorkloadTest {
+
+    /**
+     * Generates the same stream from two workloads with one seed, and a
+     * different stream number from the first.
+     */
+    @Test
+    @DisplayName("determinismTest(): the same seed and stream give the same operations")
+    void determinismTest() {
+        // Arrange
+        Workload first = new Workload(42, 500, 20, 30, 1.0);
+        Workload second = new Workload(42, 500, 20, 30, 1.0);
+
+        // Act
+        Operation[] a = first.stream(3, 20_000);
+        Operation[] b = second.stream(3, 20_000);
+        Operation[] other = first.stream(4, 20_000);
+
+        // Assert
+        assertArrayEquals(a, b);
+        assertFalse(List.of(a).equals(List.of(other)));
+    }
+
+    /**
+     * Checks that every cancel and move points at a booking made earlier in
+     * the stream and carries that booking's patient and doctor.
+     */
+    @Test
+    @DisplayName("targetsTest(): cancels and moves target earlier bookings")
+    void targetsTest() {
+        // Arrange
+        Workload workload = new Workload(7, 300, 10, 20, 1.2);
+
+        // Act
+        Operation[] operations = workload.stream(0, 50_000);
+
+        // Assert
+        List<Operation> bookings = new ArrayList<>();
+        int targeted = 0;
+        for (Operation operation : operations) {
+            switch (operation.kind()) {
+                case BOOK -> {
+                    assertTrue(operation.patient() >= 0 && operation.doctor() >= 0);
+                    assertNotNull(operation.time());
+                    bookings.add(operation);
+                }
+                case CANCEL, MODIFY -> {
+                    assertTrue(operation.booking() >= 0 && operation.booking() < bookings.size());
+                    Operation booked = bookings.get(operation.booking());
+                    assertEquals(booked.patient(), operation.patient());
+                    assertEquals(booked.doctor(), operation.doctor());
+                    assertEquals(operation.kind() == Operation.Kind.MODIFY, operation.time() != null);
+                    targeted++;
+                }
+                default -> assertEquals(-1, operation.booking());
+            }
+        }
+        assertTrue(targeted > 0);
+    }
+
+    /**
+     * Draws many ranks and checks their range and that rank 0 is the most frequent.
+     */
+    @Test
+    @DisplayName("zipfTest(): ranks are in range and rank 0 is the most frequent")
+    void zipfTest() {
+        // Arrange
+        ZipfSampler sampler = new ZipfSampler(50, 1.0);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] counts = new int[50];
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            int rank = sampler.sample(random);
+            assertTrue(rank >= 0 && rank < 50);
+            counts[rank]++;
+        }
+
+        // Assert
+        for (int k = 1; k < counts.length; k++) {
+            assertTrue(counts[0] > counts[k]);
+        }
+        assertTrue(counts[0] > counts[49] * 10);
+    }
+}
@@ -1,11 +1,23 @@
 package edu.secourse.patientportal;
 
+import edu.secourse.patientportal.csv.BulkExporter;
+import edu.secourse.patientportal.csv.CsvImporter;
+import edu.secourse.patientportal.http.PortalHttpServer;
 import edu.secourse.patientportal.models.*;
+import edu.secourse.patientportal.persistence.PortalStorage;
+import edu.secourse.patientportal.services.UserLookupCache;
 import edu.secourse.patientportal.services.UserService;
 import edu.secourse.patientportal.controllers.UserController;
 import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.AppointmentResultCache;
+import edu.secourse.patientportal.services.BlockIdAllocator;
 import edu.secourse.patientportal.controllers.AppointmentController;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Scanner;
@@ -16,20 +28,116 @@ public class Main {
 
         boolean state = false;
 
+        // Account numbers and per-role IDs resume after the highest ever handed out, even for removed users
+        Path dataDirectory = Path.of(System.getProperty("patientportal.data", "patientportal-data"));
+        try {
+            Files.createDirectories(dataDirectory);
+            User.setAccountNumberAllocator(idAllocator(dataDirectory, "account-numbers.hwm"));
+            Patient.setPatientIdAllocator(idAllocator(dataDirectory, "patient-ids.hwm"));
+            Doctor.setDoctorIdAllocator(idAllocator(dataDirectory, "doctor-ids.hwm"));
+            Admin.setAdminIdAllocator(idAllocator(dataDirectory, "admin-ids.hwm"));
+        } catch (IOException e) {
+            System.out.println("Could not open ID files in " + dataDirectory + ": " + e.getMessage());
+        }
+
         UserService userService = new UserService();
+        UserLookupCache userCache = new UserLookupCache(userService, UserLookupCache.DEFAULT_MAXIMUM_SIZE,
+                UserLookupCache.DEFAULT_TIME_TO_LIVE);
         AppointmentService appointmentService = new AppointmentService();
         UserController userController = new UserController(userService);
-        AppointmentController appointmentController = new AppointmentController(appointmentService);
+        AppointmentResultCache resultCache =
+                new AppointmentResultCache(appointmentService, AppointmentResultCache.DEFAULT_MAXIMUM_SIZE);
+        AppointmentController appointmentController = new AppointmentController(appointmentService, resultCache);
+
+        // Restore saved data; every change from here on is journaled
+        PortalStorage storage = null;
+        try {
+            storage = PortalStorage.open(dataDirectory, userService, appointmentService, Duration.ofMinutes(5));
+            System.out.printf("Restored %d users and %d appointments in %d ms%n",
+                    userService.users.size(), appointmentService.getAllAppointments().count(),
+                    storage.getRestoreNanos() / 1_000_000);
+        } catch (IOException e) {
+            System.out.println("Could not open data directory " + dataDirectory + ": " + e.getMessage());
+            System.out.println("Changes will not be saved.");
+        }
+
+        // Bulk onboarding: --import-users=FILE and --import-appointments=FILE, users first
+        CsvImporter importer = new CsvImporter(userService, appointmentService);
+        for (String option : new String[]{"--import-users=", "--import-appointments="}) {
+            for (String arg : args) {
+                if (arg.startsWith(option)) {
+                    Path file = Path.of(arg.substring(option.length()));
+                    try {
+                        CsvImporter.Result result = option.equals("--import-users=")
+                                ? importer.importUsers(file) : importer.importAppointments(file);
+                        System.out.println("Imported " + file + ": " + result);
+                    } catch (IOException e) {
+                        System.out.println("Could not import " + file + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        // Reporting: --export-users=FILE and --export-appointments=FILE, JSON Lines for *.jsonl
+        BulkExporter exporter = new BulkExporter(userService, appointmentService);
+        for (String arg : args) {
+            if (arg.startsWith("--export-users=") || arg.startsWith("--export-appointments=")) {
+                Path file = Path.of(arg.substring(arg.indexOf('=') + 1));
+                BulkExporter.Format format = file.toString().endsWith(".jsonl")
+                        ? BulkExporter.Format.JSON_LINES : BulkExporter.Format.CSV;
+                try {
+                    BulkExporter.Result result = arg.startsWith("--export-users=")
+                            ? exporter.exportUsers(file, format) : exporter.exportAppointments(file, format);
+                    System.out.println("Exported " + file + ": " + result);
+                } catch (IOException e) {
+                    System.out.println("Could not export " + file + ": " + e.getMessage());
+                }
+            }
+        }
 
         // Demo Data
-        Patient newUser = new Patient("john123", "John Smith", "pass123", "johnsmith123@gmail.com");
-        Doctor newUser2 = new Doctor("jack123", "Jack Smith", "pass123", "jack123@gmail.com");
-        LocalDateTime time = LocalDateTime.of(2025, 12, 12, 8, 30);
-        Appointment app = new Appointment(newUser, newUser2, time);
+        if (userService.users.isEmpty()) {
+            Patient newUser = new Patient("john123", "John Smith", "pass123", "johnsmith123@gmail.com");
+            Doctor newUser2 = new Doctor("jack123", "Jack Smith", "pass123", "jack123@gmail.com");
+            LocalDateTime time = LocalDateTime.of(2025, 12, 12, 8, 30);
+            Appointment app = new Appointment(newUser, newUser2, time);
+
+            appointmentService.createAppointment(app);
+            userService.createUser(newUser);
+            userService.createUser(newUser2);
+        }
 
-        appointmentService.createAppointment(app);
-        userService.createUser(newUser);
-        userService.createUser(newUser2);
+        // Headless mode: serve the controllers over HTTP instead of the menu
+        String httpArg = null;
+        for (String arg : args) {
+            if (arg.equals("--http") || arg.startsWith("--http=")) {
+                httpArg = arg;
+            }
+        }
+        if (httpArg != null) {
+            int port = httpArg.startsWith("--http=") ? Integer.parseInt(httpArg.substring("--http=".length())) : 8080;
+            try {
+                PortalHttpServer server = new PortalHttpServer(new InetSocketAddress(port), userController,
+                        appointmentController);
+                PortalStorage openStorage = storage;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    server.close();
+                    if (openStorage != null) {
+                        try {
+                            openStorage.snapshot();
+                            openStorage.close();
+                        } catch (IOException e) {
+                            System.out.println("Error saving data: " + e.getMessage());
+                        }
+                    }
+                }));
+                server.start();
+                System.out.println("Serving the patient portal API on port " + server.getPort());
+            } catch (IOException e) {
+                System.out.println("Could not start HTTP server: " + e.getMessage());
+            }
+            return;
+        }
 
         while (!state) {
 
@@ -46,7 +154,8 @@ public class Main {
             System.out.println("6. Modify Appointment");
             System.out.println("7. Cancel Appointment");
             System.out.println("8. Find Appointment");
-            System.out.println("9. Exit");
+            System.out.println("9. Show Metrics");
+            System.out.println("10. Exit");
             System.out.println("********************************");
             System.out.print("Enter your choice: ");
 
@@ -109,8 +218,13 @@ public class Main {
                     String confirm = input.nextLine().trim();
 
                     if (confirm.equals(username)) {
-                        userService.removeUser(user);
-                        System.out.println("User removed successfully");
+                        int cancelled = appointmentService.removeUser(userService, user);
+                        if (cancelled >= 0) {
+                            System.out.println("User removed successfully; " + cancelled
+                                    + " appointment(s) cancelled");
+                        } else {
+                            System.out.println("User could not be removed.");
+                        }
                     } else {
                         System.out.println("Deletion cancelled");
                     }
@@ -146,11 +260,11 @@ public class Main {
                     try {
                         System.out.print("Please enter patient username: ");
                         String patientUsername = input.nextLine().trim();
-                        User patientUser = userService.getUser(patientUsername);
+                        User patientUser = userCache.getUser(patientUsername);
 
                         System.out.print("Please enter doctor username: ");
                         String doctorUsername = input.nextLine().trim();
-                        User doctorUser = userService.getUser(doctorUsername);
+                        User doctorUser = userCache.getUser(doctorUsername);
 
                         if (!(patientUser instanceof Patient)) {
                             System.out.println("Invalid patient username.");
@@ -199,11 +313,11 @@ public class Main {
 
                         System.out.print("Please enter patient username: ");
                         String pUser = input.nextLine().trim();
-                        User patientUser = userService.getUser(pUser);
+                        User patientUser = userCache.getUser(pUser);
 
                         System.out.print("Please enter doctor username: ");
                         String dUser = input.nextLine().trim();
-                        User doctorUser = userService.getUser(dUser);
+                        User doctorUser = userCache.getUser(dUser);
 
                         if (!(patientUser instanceof Patient)) {
                             System.out.println("Invalid patient username.");
@@ -250,7 +364,7 @@ public class Main {
                     System.out.print("Enter username: ");
                     username = input.nextLine().trim();
 
-                    user = userService.getUser(username);
+                    user = userCache.getUser(username);
 
                     if (user != null) {
                         List<Appointment> appointments =
@@ -270,7 +384,28 @@ public class Main {
                     break;
 
                 case 9:
+                    userController.getMetrics().dump(System.out);
+                    appointmentController.getMetrics().dump(System.out);
+                    UserLookupCache.Stats userCacheStats = userCache.getStats();
+                    System.out.printf("User cache: %d hits (%d negative), %d misses, %d evictions, %d entries%n",
+                            userCacheStats.hits(), userCacheStats.negativeHits(), userCacheStats.misses(),
+                            userCacheStats.evictions(), userCacheStats.size());
+                    AppointmentResultCache.Stats cacheStats = resultCache.getStats();
+                    System.out.printf("Result cache: %d hits, %d misses, %d evictions, %d entries (%.1f%% hit rate)%n",
+                            cacheStats.hits(), cacheStats.misses(), cacheStats.evictions(), cacheStats.size(),
+                            cacheStats.hitRate() * 100);
+                    break;
+
+                case 10:
                     state = true;
+                    if (storage != null) {
+                        try {
+                            storage.snapshot();
+                            storage.close();
+                        } catch (IOException e) {
+                            System.out.println("Error saving data: " + e.getMessage());
+                        }
+                    }
                     return;
 
                 default:
@@ -278,4 +413,11 @@ public class Main {
             }
         }
     }
+
+    /**
+     * Opens an ID allocator whose high-water mark is kept in the data directory.
+     */
+    private static BlockIdAllocator idAllocator(Path dataDirectory, String fileName) throws IOException {
+        return new BlockIdAllocator(dataDirectory.resolve(fileName), BlockIdAllocator.DEFAULT_BLOCK_SIZE);
+    }
 }
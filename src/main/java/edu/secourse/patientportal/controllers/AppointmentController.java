@@ -1,10 +1,14 @@
 package edu.secourse.patientportal.controllers;
 
+import edu.secourse.patientportal.metrics.ControllerMetrics;
+import edu.secourse.patientportal.metrics.OperationMetrics;
 import edu.secourse.patientportal.models.*;
+import edu.secourse.patientportal.services.AppointmentResultCache;
 import edu.secourse.patientportal.services.AppointmentService;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 
 /**
  * Controller responsible for handling appointment-related operations.
@@ -13,6 +17,9 @@ import java.util.ArrayList;
  * (CLI/UI) and the {@link AppointmentService}. It performs basic validation,
  * catches exceptions from the service layer, and ensures that invalid input
  * does not crash the program.
+ * <p>
+ * Every call is counted and timed in the controller's {@link ControllerMetrics},
+ * including calls whose exceptions are swallowed.
  */
 public class AppointmentController {
 
@@ -21,6 +28,25 @@ public class AppointmentController {
      */
     private AppointmentService appointmentService = new AppointmentService();
 
+    /**
+     * Optional cache of per-user results; {@code null} to always ask the service.
+     */
+    private AppointmentResultCache resultCache;
+
+    /**
+     * Outcome counts and latencies of this controller's operations.
+     */
+    private final ControllerMetrics metrics = new ControllerMetrics("AppointmentController",
+            "createAppointment", "cancelAppointment", "modifyAppointment", "getAppointmentsForUser",
+            "createAppointments", "cancelAppointments", "modifyAppointments");
+    private final OperationMetrics createMetrics = metrics.getOperation("createAppointment");
+    private final OperationMetrics cancelMetrics = metrics.getOperation("cancelAppointment");
+    private final OperationMetrics modifyMetrics = metrics.getOperation("modifyAppointment");
+    private final OperationMetrics getForUserMetrics = metrics.getOperation("getAppointmentsForUser");
+    private final OperationMetrics createBatchMetrics = metrics.getOperation("createAppointments");
+    private final OperationMetrics cancelBatchMetrics = metrics.getOperation("cancelAppointments");
+    private final OperationMetrics modifyBatchMetrics = metrics.getOperation("modifyAppointments");
+
     /**
      * Creates a new controller instance using the provided service.
      *
@@ -36,6 +62,17 @@ public class AppointmentController {
         }
     }
 
+    /**
+     * Creates a new controller instance that answers per-user lookups from a cache.
+     *
+     * @param appointmentService the service to use; if {@code null}, a default service is used.
+     * @param resultCache        the cache in front of {@code appointmentService}; if {@code null}, none is used.
+     */
+    public AppointmentController(AppointmentService appointmentService, AppointmentResultCache resultCache) {
+        this(appointmentService);
+        this.resultCache = resultCache;
+    }
+
     /**
      * Attempts to create an appointment using the underlying service.
      *
@@ -43,13 +80,15 @@ public class AppointmentController {
      * @return {@code true} if creation succeeded, {@code false} otherwise.
      */
     public boolean createAppointment(Appointment appointment) {
+        long started = System.nanoTime();
         boolean success = false;
         try {
             if (appointment != null) {
                 success = appointmentService.createAppointment(appointment);
             }
+            createMetrics.record(started, success);
         } catch (Exception e_) {
-
+            createMetrics.recordError(started);
         }
         return success;
     }
@@ -61,11 +100,13 @@ public class AppointmentController {
      * @return {@code true} if cancellation succeeded, {@code false} if no such appointment exists.
      */
     public boolean cancelAppointment(int appointmentId) {
+        long started = System.nanoTime();
         boolean success = false;
         try {
             success = appointmentService.cancelAppointment(appointmentId);
+            cancelMetrics.record(started, success);
         } catch (Exception e_) {
-
+            cancelMetrics.recordError(started);
         }
         return success;
     }
@@ -80,37 +121,127 @@ public class AppointmentController {
      * @return {@code true} if modification succeeded, {@code false} otherwise.
      */
     public boolean modifyAppointment(int appointmentId, Patient patient, Doctor doctor, LocalDateTime newDateTime) {
+        long started = System.nanoTime();
         boolean success = false;
         try {
             if (patient != null && doctor != null && newDateTime != null) {
                 success = appointmentService.modifyAppointment(appointmentId, patient, doctor, newDateTime);
             }
+            modifyMetrics.record(started, success);
         } catch (Exception e_) {
-
+            modifyMetrics.recordError(started);
         }
         return success;
     }
 
+    /**
+     * Creates a batch of appointments in one pass of the underlying service.
+     * <p>
+     * The batch is recorded in the metrics as one call, successful only if
+     * every item was created.
+     *
+     * @param appointments the appointments to create; null items are rejected.
+     * @return for each item in iteration order, {@code true} if it was created; never {@code null}.
+     */
+    public boolean[] createAppointments(Collection<Appointment> appointments) {
+        long started = System.nanoTime();
+        boolean[] results = new boolean[0];
+        try {
+            if (appointments != null) {
+                results = appointmentService.createAppointments(appointments);
+            }
+            createBatchMetrics.record(started, allSucceeded(results));
+        } catch (Exception e_) {
+            createBatchMetrics.recordError(started);
+        }
+        return results;
+    }
+
+    /**
+     * Cancels a batch of appointments by ID in one pass of the underlying service.
+     *
+     * @param appointmentIds the IDs of the appointments to cancel.
+     * @return for each ID in order, {@code true} if it was cancelled; never {@code null}.
+     */
+    public boolean[] cancelAppointments(int[] appointmentIds) {
+        long started = System.nanoTime();
+        boolean[] results = new boolean[0];
+        try {
+            if (appointmentIds != null) {
+                results = appointmentService.cancelAppointments(appointmentIds);
+            }
+            cancelBatchMetrics.record(started, allSucceeded(results));
+        } catch (Exception e_) {
+            cancelBatchMetrics.recordError(started);
+        }
+        return results;
+    }
+
+    /**
+     * Modifies a batch of appointments in one pass of the underlying service.
+     *
+     * @param changes the changes to apply, in order.
+     * @return for each change in iteration order, {@code true} if it was applied; never {@code null}.
+     */
+    public boolean[] modifyAppointments(Collection<AppointmentService.AppointmentChange> changes) {
+        long started = System.nanoTime();
+        boolean[] results = new boolean[0];
+        try {
+            if (changes != null) {
+                results = appointmentService.modifyAppointments(changes);
+            }
+            modifyBatchMetrics.record(started, allSucceeded(results));
+        } catch (Exception e_) {
+            modifyBatchMetrics.recordError(started);
+        }
+        return results;
+    }
+
     /**
      * Retrieves all appointments associated with a specific user.
      * <p>
      * A patient receives all their own appointments; a doctor receives appointments they are assigned to.
+     * When the controller has a result cache, the list comes from the cache.
      *
      * @param user the user whose appointments are requested.
      * @return a list of appointments for the given user; never {@code null}.
      */
     public ArrayList<Appointment> getAppointmentsForUser(User user) {
+        long started = System.nanoTime();
         ArrayList<Appointment> userAppointments = new ArrayList<>();
         try {
             if (user != null) {
-                userAppointments = appointmentService.getAppointmentsForUser(user);
+                if (resultCache != null) {
+                    userAppointments = new ArrayList<>(resultCache.getAppointmentsForUser(user));
+                } else {
+                    userAppointments = appointmentService.getAppointmentsForUser(user);
+                }
             }
+            getForUserMetrics.record(started, user != null);
         } catch (Exception e_) {
-
+            getForUserMetrics.recordError(started);
         }
         return userAppointments;
     }
 
+    /**
+     * Returns the outcome counts and latencies of this controller's operations.
+     *
+     * @return the controller metrics
+     */
+    public ControllerMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static boolean allSucceeded(boolean[] results) {
+        for (boolean result : results) {
+            if (!result) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Prints a textual representation of the appointment using {@code toString()}.
      *
@@ -1,5 +1,7 @@
 package edu.secourse.patientportal.controllers;
 
+import edu.secourse.patientportal.metrics.ControllerMetrics;
+import edu.secourse.patientportal.metrics.OperationMetrics;
 import edu.secourse.patientportal.models.User;
 import edu.secourse.patientportal.services.UserService;
 
@@ -9,11 +11,21 @@ import edu.secourse.patientportal.services.UserService;
  * This class serves as the interface between the UI layer and the UserService.
  * All method calls are wrapped in try-catch blocks to prevent program crashes
  * caused by unexpected user input or invalid service states.
+ * <p>
+ * Every call is counted and timed in the controller's {@link ControllerMetrics},
+ * including calls whose exceptions are swallowed.
  */
 public class UserController {
 
     private UserService userService = new UserService();
 
+    private final ControllerMetrics metrics = new ControllerMetrics("UserController",
+            "createUser", "updateUser", "getUser", "validateUser");
+    private final OperationMetrics createMetrics = metrics.getOperation("createUser");
+    private final OperationMetrics updateMetrics = metrics.getOperation("updateUser");
+    private final OperationMetrics lookupMetrics = metrics.getOperation("getUser");
+    private final OperationMetrics validateMetrics = metrics.getOperation("validateUser");
+
     /**
      * Default constructor that initializes a new UserService instance.
      */
@@ -44,13 +56,15 @@ public class UserController {
      * @return true if creation succeeded, false otherwise
      */
     public boolean createUser(User user) {
+        long started = System.nanoTime();
         boolean success = false;
         try {
             if (user != null) {
                 success = userService.createUser(user);
             }
+            createMetrics.record(started, success);
         } catch (Exception e_) {
-
+            createMetrics.recordError(started);
         }
         return success;
     }
@@ -66,15 +80,44 @@ public class UserController {
      * @return true if update succeeded, false otherwise
      */
     public boolean updateUser(String oldUsername, String newUsername, String hashedPassword, String name, String email) {
+        long started = System.nanoTime();
         boolean success = false;
         try {
             success = userService.updateUser(oldUsername, newUsername, hashedPassword, name, email);
+            updateMetrics.record(started, success);
         } catch (Exception e_) {
-
+            updateMetrics.recordError(started);
         }
         return success;
     }
 
+    /**
+     * Looks up a user by username using the UserService.
+     *
+     * @param username the username to look up
+     * @return the matching user, or null if none exists or the username is null
+     */
+    public User getUser(String username) {
+        long started = System.nanoTime();
+        User user = null;
+        try {
+            user = userService.getUser(username);
+            lookupMetrics.record(started, user != null);
+        } catch (Exception e_) {
+            lookupMetrics.recordError(started);
+        }
+        return user;
+    }
+
+    /**
+     * Returns the outcome counts and latencies of this controller's operations.
+     *
+     * @return the controller metrics
+     */
+    public ControllerMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Validates whether a given user exists in the UserService.
      *
@@ -82,6 +125,7 @@ public class UserController {
      * @return true if the user exists and matches, false otherwise
      */
     public boolean validateUser(User user) {
+        long started = System.nanoTime();
         boolean isValid = false;
         try {
             if (user != null) {
@@ -89,8 +133,9 @@ public class UserController {
                     isValid = true;
                 }
             }
+            validateMetrics.record(started, isValid);
         } catch (Exception e_) {
-
+            validateMetrics.recordError(started);
         }
         return isValid;
     }
@@ -0,0 +1,443 @@
+package edu.secourse.patientportal.csv;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.User;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+
+/**
+ * Streaming export of users and appointments to CSV or JSON Lines, for reporting.
+ * <p>
+ * The exporter walks the services' stores directly, without copying them
+ * into a list, and encodes each row as UTF-8 into one reused direct buffer.
+ * The buffer is written to a {@link FileChannel} whenever it fills, so no more
+ * than one chunk of output is held in memory. Like a snapshot, an export runs
+ * alongside writers and may see a record changed during the export in its
+ * old or its new state.
+ * <p>
+ * CSV files start with a header row. The columns are:
+ * <ul>
+ *     <li>Users: {@code role,username,name,email,accountNumber}, or
+ *     {@code role,username,hashedPassword,name,email,accountNumber} when
+ *     password hashes are asked for</li>
+ *     <li>Appointments: {@code patient,doctor,dateTime,durationMinutes,appointmentId,status},
+ *     naming users by username</li>
+ * </ul>
+ * Password hashes are left out unless asked for, so a report can be shared
+ * without handing out credentials. A users export with hashes and an
+ * appointments export are in the column order the {@link CsvImporter} reads,
+ * and import again as the active records: the importer skips cancelled
+ * appointments, and account numbers and appointment IDs are assigned afresh.
+ * <p>
+ * JSON Lines files hold one object per line with the same names as keys.
+ */
+public class BulkExporter {
+
+    /** Default size of the output buffer, in bytes. */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Output file formats.
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    private static final String[] USER_COLUMNS =
+            {"role", "username", "name", "email", "accountNumber"};
+    private static final String[] USER_COLUMNS_WITH_HASHES =
+            {"role", "username", "hashedPassword", "name", "email", "accountNumber"};
+    private static final String[] APPOINTMENT_COLUMNS =
+            {"patient", "doctor", "dateTime", "durationMinutes", "appointmentId", "status"};
+
+    private final UserService userService;
+    private final AppointmentService appointmentService;
+    private final int chunkSize;
+
+    /**
+     * Outcome of exporting one file.
+     *
+     * @param rows  the number of records written, not counting a header
+     * @param bytes the size of the written file
+     * @param nanos the time taken, in nanoseconds
+     */
+    public record Result(long rows, long bytes, long nanos) {
+
+        /**
+         * Returns the export rate.
+         *
+         * @return records written per second
+         */
+        public double rowsPerSecond() {
+            return (nanos > 0) ? rows * 1e9 / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows (%d bytes) in %d ms, %.0f rows/s",
+                    rows, bytes, nanos / 1_000_000, rowsPerSecond());
+        }
+    }
+
+    /**
+     * Creates an exporter with the default chunk size.
+     *
+     * @param userService        the service users are exported from
+     * @param appointmentService the service appointments are exported from
+     */
+    public BulkExporter(UserService userService, AppointmentService appointmentService) {
+        this(userService, appointmentService, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an exporter.
+     *
+     * @param userService        the service users are exported from
+     * @param appointmentService the service appointments are exported from
+     * @param chunkSize          the size of the output buffer, in bytes; at least 64
+     * @throws IllegalArgumentException if the chunk size is too small
+     */
+    public BulkExporter(UserService userService, AppointmentService appointmentService, int chunkSize) {
+        if (chunkSize < 64) {
+            throw new IllegalArgumentException("Chunk size must be at least 64 bytes");
+        }
+        this.userService = userService;
+        this.appointmentService = appointmentService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes every user to a file, without password hashes, replacing it if it exists.
+     *
+     * @param file   the output file
+     * @param format the output format
+     * @return the outcome of the export
+     * @throws IOException if the file cannot be written
+     */
+    public Result exportUsers(Path file, Format format) throws IOException {
+        return exportUsers(file, format, false);
+    }
+
+    /**
+     * Writes every user to a file, replacing it if it exists.
+     *
+     * @param file                  the output file
+     * @param format                the output format
+     * @param includePasswordHashes whether to write each user's password hash,
+     *                              as the {@link CsvImporter} needs
+     * @return the outcome of the export
+     * @throws IOException if the file cannot be written
+     */
+    public Result exportUsers(Path file, Format format, boolean includePasswordHashes) throws IOException {
+        long started = System.nanoTime();
+        long rows = 0;
+        String[] columns = includePasswordHashes ? USER_COLUMNS_WITH_HASHES : USER_COLUMNS;
+        RowWriter out = new RowWriter(file, format, chunkSize, columns);
+        try (out) {
+            for (User user : userService.users) {
+                out.beginRow();
+                out.text(user.getRole());
+                out.text(user.getUsername());
+                if (includePasswordHashes) {
+                    out.text(user.getHashedPassword());
+                }
+                out.text(user.getName());
+                out.text(user.getEmail());
+                out.number(user.getAccountNumber());
+                out.endRow();
+                rows++;
+            }
+        }
+        return new Result(rows, out.bytesWritten(), System.nanoTime() - started);
+    }
+
+    /**
+     * Writes every appointment, active or cancelled, to a file, replacing it if it exists.
+     *
+     * @param file   the output file
+     * @param format the output format
+     * @return the outcome of the export
+     * @throws IOException if the file cannot be written
+     */
+    public Result exportAppointments(Path file, Format format) throws IOException {
+        long started = System.nanoTime();
+        long rows = 0;
+        RowWriter out = new RowWriter(file, format, chunkSize, APPOINTMENT_COLUMNS);
+        try (out) {
+            Iterator<Appointment> all = appointmentService.getAllAppointments().iterator();
+            while (all.hasNext()) {
+                Appointment appointment = all.next();
+                Duration duration = appointment.getDuration();
+                out.beginRow();
+                out.text((appointment.getPatient() != null) ? appointment.getPatient().getUsername() : null);
+                out.text((appointment.getDoctor() != null) ? appointment.getDoctor().getUsername() : null);
+                out.dateTime(appointment.getAppointmentDateTime());
+                out.number((duration != null) ? duration.toMinutes() : 0);
+                out.number(appointment.getAppointmentId());
+                out.text((appointment.getStatus() != null) ? appointment.getStatus().name() : null);
+                out.endRow();
+                rows++;
+            }
+        }
+        return new Result(rows, out.bytesWritten(), System.nanoTime() - started);
+    }
+
+    /**
+     * Encodes rows into a reused direct buffer and writes it to a file channel
+     * whenever it fills.
+     * <p>
+     * Each value makes sure there is room for its longest possible encoding
+     * before it is written, so the buffer never overflows; text too long to
+     * fit in one chunk is written a character at a time.
+     */
+    private static final class RowWriter implements Closeable {
+
+        /** Longest UTF-8 or escaped JSON encoding of one {@code char}. */
+        private static final int MAX_BYTES_PER_CHAR = 6;
+
+        /** Room for a separator, a quoted JSON key, and the longest number or date/time. */
+        private static final int MAX_FIELD_OVERHEAD = 48;
+
+        private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final boolean json;
+        private final byte[][] keys;
+        private int column;
+        private long bytesWritten;
+        private boolean closed;
+
+        RowWriter(Path file, Format format, int chunkSize, String[] columns) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.buffer = ByteBuffer.allocateDirect(chunkSize);
+            this.json = format == Format.JSON_LINES;
+            this.keys = new byte[columns.length][];
+            for (int i = 0; i < columns.length; i++) {
+                keys[i] = ("\"" + columns[i] + "\":").getBytes();
+            }
+            if (!json) {
+                beginRow();
+                for (String name : columns) {
+                    text(name);
+                }
+                endRow();
+            }
+        }
+
+        long bytesWritten() {
+            return bytesWritten;
+        }
+
+        void beginRow() throws IOException {
+            column = 0;
+            if (json) {
+                ensure(1);
+                buffer.put((byte) '{');
+            }
+        }
+
+        void endRow() throws IOException {
+            ensure(2);
+            if (json) {
+                buffer.put((byte) '}');
+            }
+            buffer.put((byte) '\n');
+        }
+
+        void text(String value) throws IOException {
+            startField();
+            if (value == null) {
+                if (json) {
+                    putAscii("null");
+                }
+                return;
+            }
+            boolean quote = json || needsCsvQuotes(value);
+            if (quote) {
+                buffer.put((byte) '"');
+            }
+            int length = value.length();
+            boolean fits = (long) length * MAX_BYTES_PER_CHAR + 1 <= buffer.remaining();
+            for (int i = 0; i < length; i++) {
+                if (!fits) {
+                    ensure(MAX_BYTES_PER_CHAR * 2);
+                }
+                char c = value.charAt(i);
+                if (c == '"') {
+                    buffer.put(json ? (byte) '\\' : (byte) '"').put((byte) '"');
+                } else if (json && c == '\\') {
+                    buffer.put((byte) '\\').put((byte) '\\');
+                } else if (json && c < 0x20) {
+                    putControl(c);
+                } else if (c < 0x80) {
+                    buffer.put((byte) c);
+                } else if (c < 0x800) {
+                    buffer.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)))
+                            .put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                            .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                            .put((byte) (0x80 | (codePoint & 0x3F)));
+                } else if (Character.isSurrogate(c)) {
+                    buffer.put((byte) '?');
+                } else {
+                    buffer.put((byte) (0xE0 | (c >> 12)))
+                            .put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                            .put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+            if (quote) {
+                ensure(1);
+                buffer.put((byte) '"');
+            }
+        }
+
+        void number(long value) throws IOException {
+            startField();
+            putDecimal(value);
+        }
+
+        /**
+         * Writes an ISO-8601 local date/time in the form {@link LocalDateTime#toString()} uses.
+         */
+        void dateTime(LocalDateTime value) throws IOException {
+            if (value == null || value.getYear() < 0 || value.getYear() > 9999 || value.getNano() != 0) {
+                text((value != null) ? value.toString() : null);
+                return;
+            }
+            startField();
+            if (json) {
+                buffer.put((byte) '"');
+            }
+            putDigits(value.getYear(), 4);
+            buffer.put((byte) '-');
+            putDigits(value.getMonthValue(), 2);
+            buffer.put((byte) '-');
+            putDigits(value.getDayOfMonth(), 2);
+            buffer.put((byte) 'T');
+            putDigits(value.getHour(), 2);
+            buffer.put((byte) ':');
+            putDigits(value.getMinute(), 2);
+            if (value.getSecond() != 0) {
+                buffer.put((byte) ':');
+                putDigits(value.getSecond(), 2);
+            }
+            if (json) {
+                buffer.put((byte) '"');
+            }
+        }
+
+        /**
+         * Writes the separator and, for JSON, the key of the next field, and
+         * makes room for a number or date/time.
+         */
+        private void startField() throws IOException {
+            ensure(MAX_FIELD_OVERHEAD + (json ? keys[column].length : 0));
+            if (column > 0) {
+                buffer.put((byte) ',');
+            }
+            if (json) {
+                buffer.put(keys[column]);
+            }
+            column++;
+        }
+
+        private static boolean needsCsvQuotes(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void putControl(char c) {
+            buffer.put((byte) '\\');
+            switch (c) {
+                case '\n' -> buffer.put((byte) 'n');
+                case '\r' -> buffer.put((byte) 'r');
+                case '\t' -> buffer.put((byte) 't');
+                default -> buffer.put((byte) 'u').put((byte) '0').put((byte) '0')
+                        .put(HEX[c >> 4]).put(HEX[c & 0xF]);
+            }
+        }
+
+        private void putAscii(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                buffer.put((byte) text.charAt(i));
+            }
+        }
+
+        private void putDecimal(long value) {
+            if (value == Long.MIN_VALUE) {
+                putAscii(Long.toString(value));
+                return;
+            }
+            if (value < 0) {
+                buffer.put((byte) '-');
+                value = -value;
+            }
+            long divisor = 1;
+            while (divisor <= value / 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                buffer.put((byte) ('0' + (value / divisor) % 10));
+            }
+        }
+
+        private void putDigits(int value, int width) {
+            for (int divisor = (width == 4) ? 1000 : 10; divisor > 0; divisor /= 10) {
+                buffer.put((byte) ('0' + (value / divisor) % 10));
+            }
+        }
+
+        /**
+         * Writes out the buffer if it has less than the given room left.
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                bytesWritten += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes out what is left in the buffer and closes the file. Closing twice has no effect.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    drain();
+                } finally {
+                    channel.close();
+                }
+            }
+        }
+    }
+}
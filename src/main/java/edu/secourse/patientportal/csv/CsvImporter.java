@@ -0,0 +1,275 @@
+package edu.secourse.patientportal.csv;
+
+import edu.secourse.patientportal.models.Admin;
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming import of users and appointments from CSV files, for onboarding
+ * clinics with existing records.
+ * <p>
+ * Files are read row by row with a {@link CsvReader}, and users and
+ * appointments are handed to {@link UserService#createUsers} and
+ * {@link AppointmentService#createAppointments} in fixed-size batches, so
+ * the importer's own memory use does not grow with the file, and a journaled
+ * service waits for the disk once per batch rather than once per row.
+ * A first row whose leading field is the column name is treated as a header
+ * and skipped, and blank lines are ignored. The formats are:
+ * <ul>
+ *     <li>Users: {@code role,username,hashedPassword,name,email}, where the
+ *     role is {@code patient}, {@code doctor} or {@code admin}</li>
+ *     <li>Appointments: {@code patient,doctor,dateTime[,durationMinutes[,appointmentId[,status]]]},
+ *     naming users by username, with an ISO-8601 local date/time such as
+ *     {@code 2030-01-07T09:30}; the duration defaults to
+ *     {@link Appointment#DEFAULT_DURATION}. The appointment ID is ignored,
+ *     since the service assigns its own, and a row whose status is
+ *     {@code CANCELLED} is skipped, so a {@link BulkExporter} file brings
+ *     back only the appointments that were active</li>
+ * </ul>
+ * Users must be imported before the appointments that refer to them.
+ */
+public class CsvImporter {
+
+    /** Default number of users or appointments handed to a service in one batch. */
+    public static final int DEFAULT_BATCH_SIZE = 5_000;
+
+    private final UserService userService;
+    private final AppointmentService appointmentService;
+    private final int batchSize;
+
+    /**
+     * Outcome of importing one file.
+     *
+     * @param rows      the number of data rows read, not counting a header or blank lines
+     * @param imported  the number of rows stored
+     * @param rejected  the number of well-formed rows the service refused,
+     *                  such as duplicate usernames or clashing appointments
+     * @param malformed the number of rows that could not be parsed or that
+     *                  name an unknown user
+     * @param skipped   the number of rows left out on purpose, such as cancelled appointments
+     * @param nanos     the time taken, in nanoseconds
+     */
+    public record Result(long rows, long imported, long rejected, long malformed, long skipped, long nanos) {
+
+        /**
+         * Returns the import rate.
+         *
+         * @return data rows read per second
+         */
+        public double rowsPerSecond() {
+            return (nanos > 0) ? rows * 1e9 / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows (%d imported, %d rejected, %d malformed, %d skipped) in %d ms, %.0f rows/s",
+                    rows, imported, rejected, malformed, skipped, nanos / 1_000_000, rowsPerSecond());
+        }
+    }
+
+    /**
+     * Creates an importer with the default batch size.
+     *
+     * @param userService        the service users are imported into
+     * @param appointmentService the service appointments are imported into
+     */
+    public CsvImporter(UserService userService, AppointmentService appointmentService) {
+        this(userService, appointmentService, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates an importer.
+     *
+     * @param userService        the service users are imported into
+     * @param appointmentService the service appointments are imported into
+     * @param batchSize          the number of users or appointments handed to a service at a time
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public CsvImporter(UserService userService, AppointmentService appointmentService, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.userService = userService;
+        this.appointmentService = appointmentService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports users from a CSV file through {@link UserService#createUsers},
+     * a batch at a time.
+     *
+     * @param file the users file
+     * @return the outcome of the import
+     * @throws IOException if the file cannot be read
+     */
+    public Result importUsers(Path file) throws IOException {
+        long started = System.nanoTime();
+        long rows = 0;
+        long imported = 0;
+        long malformed = 0;
+        List<User> batch = new ArrayList<>(batchSize);
+
+        try (CsvReader reader = CsvReader.open(file)) {
+            while (reader.nextRow()) {
+                if (reader.isBlankRow() || isHeader(reader, "role")) {
+                    continue;
+                }
+                rows++;
+                User user = readUser(reader);
+                if (user == null) {
+                    malformed++;
+                    continue;
+                }
+                batch.add(user);
+                if (batch.size() == batchSize) {
+                    imported += flushUsers(batch);
+                }
+            }
+        }
+        imported += flushUsers(batch);
+        return new Result(rows, imported, rows - imported - malformed, malformed, 0, System.nanoTime() - started);
+    }
+
+    /**
+     * Imports appointments from a CSV file through
+     * {@link AppointmentService#createAppointments}, a batch at a time.
+     *
+     * @param file the appointments file
+     * @return the outcome of the import
+     * @throws IOException if the file cannot be read
+     */
+    public Result importAppointments(Path file) throws IOException {
+        long started = System.nanoTime();
+        long rows = 0;
+        long imported = 0;
+        long malformed = 0;
+        long skipped = 0;
+        List<Appointment> batch = new ArrayList<>(batchSize);
+
+        try (CsvReader reader = CsvReader.open(file)) {
+            while (reader.nextRow()) {
+                if (reader.isBlankRow() || isHeader(reader, "patient")) {
+                    continue;
+                }
+                rows++;
+                if (reader.getFieldCount() > 5 && reader.fieldEqualsIgnoreCase(5, "CANCELLED")) {
+                    skipped++;
+                    continue;
+                }
+                Appointment appointment = readAppointment(reader);
+                if (appointment == null) {
+                    malformed++;
+                    continue;
+                }
+                batch.add(appointment);
+                if (batch.size() == batchSize) {
+                    imported += flushAppointments(batch);
+                }
+            }
+        }
+        imported += flushAppointments(batch);
+        return new Result(rows, imported, rows - imported - malformed - skipped, malformed, skipped,
+                System.nanoTime() - started);
+    }
+
+    /**
+     * Creates a batch of users and empties the batch.
+     *
+     * @return the number created
+     */
+    private int flushUsers(List<User> batch) {
+        int created = 0;
+        if (!batch.isEmpty()) {
+            created = count(userService.createUsers(batch));
+            batch.clear();
+        }
+        return created;
+    }
+
+    /**
+     * Creates a batch of appointments and empties the batch.
+     *
+     * @return the number created
+     */
+    private int flushAppointments(List<Appointment> batch) {
+        int created = 0;
+        if (!batch.isEmpty()) {
+            created = count(appointmentService.createAppointments(batch));
+            batch.clear();
+        }
+        return created;
+    }
+
+    private static int count(boolean[] results) {
+        int count = 0;
+        for (boolean result : results) {
+            if (result) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isHeader(CsvReader reader, String firstColumn) {
+        return reader.getRowNumber() == 1 && reader.fieldEqualsIgnoreCase(0, firstColumn);
+    }
+
+    /**
+     * Builds a user from the current row.
+     *
+     * @return the user, or {@code null} if the row is malformed
+     */
+    private static User readUser(CsvReader reader) {
+        if (reader.getFieldCount() < 5 || reader.isEmpty(1)) {
+            return null;
+        }
+        String username = reader.field(1);
+        String hashedPassword = reader.field(2);
+        String name = reader.field(3);
+        String email = reader.field(4);
+        if (reader.fieldEqualsIgnoreCase(0, "patient")) {
+            return new Patient(username, hashedPassword, name, email);
+        } else if (reader.fieldEqualsIgnoreCase(0, "doctor")) {
+            return new Doctor(username, hashedPassword, name, email);
+        } else if (reader.fieldEqualsIgnoreCase(0, "admin")) {
+            return new Admin(username, hashedPassword, name, email);
+        }
+        return null;
+    }
+
+    /**
+     * Builds an appointment from the current row.
+     *
+     * @return the appointment, or {@code null} if the row is malformed or names an unknown user
+     */
+    private Appointment readAppointment(CsvReader reader) {
+        if (reader.getFieldCount() < 3) {
+            return null;
+        }
+        try {
+            if (!(userService.getUser(reader.field(0)) instanceof Patient patient)
+                    || !(userService.getUser(reader.field(1)) instanceof Doctor doctor)) {
+                return null;
+            }
+            LocalDateTime dateTime = reader.dateTimeField(2);
+            if (reader.isEmpty(3)) {
+                return new Appointment(patient, doctor, dateTime);
+            }
+            long minutes = reader.longField(3);
+            return (minutes > 0) ? new Appointment(patient, doctor, dateTime, Duration.ofMinutes(minutes)) : null;
+        } catch (RuntimeException e_) {
+            return null;
+        }
+    }
+}
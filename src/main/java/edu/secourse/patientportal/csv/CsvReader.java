@@ -0,0 +1,344 @@
+package edu.secourse.patientportal.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+/**
+ * Streaming reader for UTF-8 CSV files, one row at a time.
+ * <p>
+ * Bytes are read from a channel into a fixed direct buffer and decoded into a
+ * fixed character buffer, so memory use does not depend on the file size. A
+ * row's fields are parsed into one reused character array with the end of
+ * each field noted; nothing is split and no string is made until a field is
+ * asked for. Numbers and ISO date/times are parsed straight from the array.
+ * <p>
+ * Fields are separated by commas and rows by {@code \n} or {@code \r\n}.
+ * A field that starts with a double quote runs to the matching closing
+ * quote and may contain commas, line breaks, and doubled quotes ({@code ""})
+ * standing for one quote. Invalid UTF-8 is replaced, not rejected.
+ */
+public final class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private boolean endOfInput;
+    private boolean flushed;
+
+    private char[] row = new char[256];
+    private int rowLength;
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+    private long rowNumber;
+
+    /**
+     * Creates a reader over a channel, which is closed with the reader.
+     *
+     * @param channel the channel to read from
+     */
+    public CsvReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.bytes.flip();
+        this.chars.flip();
+    }
+
+    /**
+     * Opens a reader over a file.
+     *
+     * @param file the CSV file
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     */
+    public static CsvReader open(Path file) throws IOException {
+        return new CsvReader(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return true if a row was read, false at the end of the input
+     * @throws IOException if the input cannot be read
+     */
+    public boolean nextRow() throws IOException {
+        rowLength = 0;
+        fieldCount = 0;
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        rowNumber++;
+        int fieldStart = 0;
+        boolean quoted = false;
+        while (true) {
+            if (c < 0) {
+                endField();
+                return true;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                append((char) c);
+            } else if (c == '"' && rowLength == fieldStart) {
+                quoted = true;
+            } else if (c == ',') {
+                endField();
+                fieldStart = rowLength;
+            } else if (c == '\n') {
+                endField();
+                return true;
+            } else if (c != '\r') {
+                append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * Returns the number of the current row, counting from 1. A row with a
+     * quoted line break counts once.
+     *
+     * @return the row number, or {@code 0} before the first row
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * Returns the number of fields in the current row. A blank line has one empty field.
+     *
+     * @return the field count
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Checks whether the current row is a blank line.
+     *
+     * @return true if the row has a single empty field
+     */
+    public boolean isBlankRow() {
+        return fieldCount == 1 && rowLength == 0;
+    }
+
+    /**
+     * Returns a field of the current row as a string.
+     *
+     * @param index the field index, from 0
+     * @return the field text, or {@code null} if the row has no such field
+     */
+    public String field(int index) {
+        if (index < 0 || index >= fieldCount) {
+            return null;
+        }
+        int start = fieldStart(index);
+        return new String(row, start, fieldEnds[index] - start);
+    }
+
+    /**
+     * Checks whether a field of the current row matches a text, ignoring case,
+     * without creating a string.
+     *
+     * @param index the field index, from 0
+     * @param text  the text to compare with
+     * @return true if the field exists and matches
+     */
+    public boolean fieldEqualsIgnoreCase(int index, String text) {
+        if (index < 0 || index >= fieldCount) {
+            return false;
+        }
+        int start = fieldStart(index);
+        int length = fieldEnds[index] - start;
+        if (length != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toLowerCase(row[start + i]) != Character.toLowerCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a field of the current row is missing or empty.
+     *
+     * @param index the field index, from 0
+     * @return true if the row has no such field or it is empty
+     */
+    public boolean isEmpty(int index) {
+        return index < 0 || index >= fieldCount || fieldEnds[index] == fieldStart(index);
+    }
+
+    /**
+     * Parses a field of the current row as a decimal {@code long}.
+     *
+     * @param index the field index, from 0
+     * @return the value
+     * @throws NumberFormatException if the field is missing, empty, or not a number
+     */
+    public long longField(int index) {
+        if (isEmpty(index)) {
+            throw new NumberFormatException("Field " + index + " is empty");
+        }
+        int start = fieldStart(index);
+        int end = fieldEnds[index];
+        boolean negative = row[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 18) {
+            return Long.parseLong(new String(row, start, end - start));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = row[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Field " + index + " is not a number");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a field of the current row as an ISO-8601 local date/time, such
+     * as {@code 2030-01-07T09:30} or {@code 2030-01-07T09:30:00}. Those two
+     * forms are read straight from the row; any other text goes through
+     * {@link LocalDateTime#parse}.
+     *
+     * @param index the field index, from 0
+     * @return the date/time
+     * @throws java.time.format.DateTimeParseException if the field is not a date/time
+     * @throws java.time.DateTimeException             if the date/time is out of range
+     */
+    public LocalDateTime dateTimeField(int index) {
+        int start = fieldStart(index);
+        int length = (index < fieldCount) ? fieldEnds[index] - start : 0;
+        if ((length == 16 || length == 19) && row[start + 4] == '-' && row[start + 7] == '-'
+                && row[start + 10] == 'T' && row[start + 13] == ':' && (length == 16 || row[start + 16] == ':')) {
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            int hour = digits(start + 11, 2);
+            int minute = digits(start + 14, 2);
+            int second = (length == 19) ? digits(start + 17, 2) : 0;
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            }
+        }
+        return LocalDateTime.parse((index < fieldCount) ? field(index) : "");
+    }
+
+    /**
+     * Closes the underlying channel.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int fieldStart(int index) {
+        return (index == 0) ? 0 : fieldEnds[index - 1];
+    }
+
+    /**
+     * Reads a run of decimal digits.
+     *
+     * @return the value, or {@code -1} if any character is not a digit
+     */
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = row[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private void append(char c) {
+        if (rowLength == row.length) {
+            char[] grown = new char[row.length * 2];
+            System.arraycopy(row, 0, grown, 0, rowLength);
+            row = grown;
+        }
+        row[rowLength++] = c;
+    }
+
+    private void endField() {
+        if (fieldCount == fieldEnds.length) {
+            int[] grown = new int[fieldEnds.length * 2];
+            System.arraycopy(fieldEnds, 0, grown, 0, fieldCount);
+            fieldEnds = grown;
+        }
+        fieldEnds[fieldCount++] = rowLength;
+    }
+
+    /**
+     * Returns the next decoded character, or {@code -1} at the end of the input.
+     */
+    private int read() throws IOException {
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return chars.get();
+    }
+
+    /**
+     * Decodes more characters into the character buffer, reading from the
+     * channel as needed.
+     *
+     * @return false if the input is exhausted
+     */
+    private boolean fill() throws IOException {
+        if (flushed) {
+            return false;
+        }
+        chars.clear();
+        while (true) {
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (endOfInput) {
+                decoder.flush(chars);
+                flushed = true;
+                break;
+            }
+            if (chars.position() > 0) {
+                break;
+            }
+            bytes.compact();
+            if (channel.read(bytes) < 0) {
+                endOfInput = true;
+            }
+            bytes.flip();
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+}
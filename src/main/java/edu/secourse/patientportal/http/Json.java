@@ -0,0 +1,187 @@
+package edu.secourse.patientportal.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The small part of JSON the HTTP API needs: reading flat objects and
+ * quoting strings for responses.
+ * <p>
+ * Request bodies are single objects whose values are strings, numbers,
+ * booleans, or {@code null}. Nested objects and arrays are rejected.
+ * Values are returned as text: strings unescaped, other values as written,
+ * and {@code null} as a Java {@code null}.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Parses a flat JSON object.
+     *
+     * @param text the JSON text
+     * @return the members in document order
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> members = parser.object();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw new IllegalArgumentException("Unexpected text after JSON object");
+        }
+        return members;
+    }
+
+    /**
+     * Appends a string as a quoted, escaped JSON string, or {@code null}.
+     *
+     * @param out   the builder to append to
+     * @param value the string, or {@code null}
+     * @return the builder
+     */
+    static StringBuilder quote(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Recursive-descent reader over the request text.
+     */
+    private static final class Parser {
+
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> object() {
+            Map<String, String> members = new LinkedHashMap<>();
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return members;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                members.put(name, value());
+                skipWhitespace();
+                char next = next();
+                if (next == '}') {
+                    return members;
+                }
+                if (next != ',') {
+                    throw new IllegalArgumentException("Expected ',' or '}' at " + (position - 1));
+                }
+            }
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Nested values are not supported at " + position);
+            }
+            int start = position;
+            while (position < text.length() && ",}] \t\r\n".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw new IllegalArgumentException("Invalid value at " + start);
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"', '\\', '/' -> out.append(escaped);
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'n' -> out.append('\n');
+                    case 'r' -> out.append('\r');
+                    case 't' -> out.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("Truncated escape at " + position);
+                        }
+                        out.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> throw new IllegalArgumentException("Invalid escape at " + (position - 1));
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw new IllegalArgumentException("Expected '" + expected + "' at " + (position - 1));
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("Unexpected end of JSON");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+    }
+}
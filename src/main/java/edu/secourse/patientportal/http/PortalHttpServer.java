@@ -0,0 +1,355 @@
+package edu.secourse.patientportal.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.secourse.patientportal.controllers.AppointmentController;
+import edu.secourse.patientportal.controllers.UserController;
+import edu.secourse.patientportal.models.Admin;
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP/JSON API in front of a {@link UserController} and an
+ * {@link AppointmentController}, built on the JDK's {@link HttpServer}.
+ * <p>
+ * Every request runs on its own virtual thread, so a request that waits, for
+ * example on a journal flush, does not hold up the others. Connections are
+ * HTTP/1.1 and kept alive between requests.
+ * <p>
+ * Routes:
+ * <ul>
+ *     <li>{@code POST /users}: create a user from {@code role} ({@code patient},
+ *     {@code doctor} or {@code admin}), {@code username}, {@code hashedPassword},
+ *     {@code name} and {@code email}</li>
+ *     <li>{@code GET /users/{username}}: fetch a user</li>
+ *     <li>{@code PUT /users/{username}}: update a user from {@code username}
+ *     (to rename), {@code hashedPassword}, {@code name} and {@code email}; a
+ *     field left out keeps its current value</li>
+ *     <li>{@code GET /users/{username}/appointments}: list a patient's or doctor's appointments</li>
+ *     <li>{@code POST /appointments}: book from {@code patient} and {@code doctor}
+ *     usernames, an ISO {@code dateTime}, and optional {@code durationMinutes}</li>
+ *     <li>{@code PUT /appointments/{id}}: move an appointment, with the same fields as booking</li>
+ *     <li>{@code DELETE /appointments/{id}}: cancel an appointment</li>
+ *     <li>{@code GET /metrics}: the controllers' metrics as a text table</li>
+ * </ul>
+ * Malformed requests, including a {@code durationMinutes} that is not a
+ * positive whole number, get {@code 400}, unknown users or appointments
+ * {@code 404}, writes that clash with an existing username or booking
+ * {@code 409}, and writes that could not be saved {@code 500}.
+ */
+public class PortalHttpServer implements Closeable {
+
+    /** Pending connection queue length; the OS may cap it lower. */
+    private static final int BACKLOG = 4096;
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String TEXT = "text/plain; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final UserController users;
+    private final AppointmentController appointments;
+
+    /**
+     * Creates a server bound to an address. It does not accept requests
+     * until {@link #start()} is called.
+     *
+     * @param address      the address to bind; port {@code 0} picks a free port
+     * @param users        the user controller to expose
+     * @param appointments the appointment controller to expose
+     * @throws IOException if the address cannot be bound
+     */
+    public PortalHttpServer(InetSocketAddress address, UserController users, AppointmentController appointments)
+            throws IOException {
+        this.users = users;
+        this.appointments = appointments;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, BACKLOG);
+        this.server.setExecutor(executor);
+        this.server.createContext("/users", exchange -> handle(exchange, "users", this::routeUsers));
+        this.server.createContext("/appointments", exchange -> handle(exchange, "appointments",
+                this::routeAppointments));
+        this.server.createContext("/metrics", exchange -> handle(exchange, "metrics", this::routeMetrics));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, waits briefly for requests in progress, and
+     * shuts down the request threads.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    /**
+     * A route's answer: status code, content type, and body.
+     */
+    private record Response(int status, String contentType, String body) {
+
+        static Response json(int status, String body) {
+            return new Response(status, JSON, body);
+        }
+
+        static Response error(int status, String message) {
+            return json(status, Json.quote(new StringBuilder("{\"error\":"), message).append('}').toString());
+        }
+    }
+
+    /**
+     * A handler for the requests under one path prefix.
+     */
+    private interface Route {
+        Response route(String method, String[] path, HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Runs a route and sends its response. Bad input becomes a {@code 400};
+     * anything unexpected becomes a {@code 500}, so one broken request never
+     * takes down the connection handling.
+     */
+    private void handle(HttpExchange exchange, String prefix, Route route) {
+        try (exchange) {
+            Response response;
+            try {
+                String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+                response = path[0].equals(prefix)
+                        ? route.route(exchange.getRequestMethod(), path, exchange)
+                        : Response.error(404, "Unknown path");
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                response = Response.error(400, e.getMessage());
+            } catch (Exception e) {
+                response = Response.error(500, "Internal error");
+            }
+            byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", response.contentType());
+            exchange.sendResponseHeaders(response.status(), (body.length == 0) ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } catch (IOException e_) {
+
+        }
+    }
+
+    /**
+     * Routes {@code /users} and {@code /users/{username}[/appointments]}.
+     */
+    private Response routeUsers(String method, String[] path, HttpExchange exchange) throws IOException {
+        if (path.length == 1) {
+            if (!method.equals("POST")) {
+                return Response.error(405, "Use POST to create a user");
+            }
+            return createUser(readBody(exchange));
+        }
+
+        User user = users.getUser(path[1]);
+        if (user == null) {
+            return Response.error(404, "No such user");
+        }
+        if (path.length == 3 && path[2].equals("appointments") && method.equals("GET")) {
+            return listAppointments(user);
+        }
+        if (path.length == 2 && method.equals("GET")) {
+            return Response.json(200, userJson(new StringBuilder(), user).toString());
+        }
+        if (path.length == 2 && method.equals("PUT")) {
+            return updateUser(user, readBody(exchange));
+        }
+        return Response.error(405, "Unsupported method or path");
+    }
+
+    /**
+     * Routes {@code /appointments} and {@code /appointments/{id}}.
+     */
+    private Response routeAppointments(String method, String[] path, HttpExchange exchange) throws IOException {
+        if (path.length == 1 && method.equals("POST")) {
+            return createAppointment(readBody(exchange));
+        }
+        if (path.length == 2) {
+            int id = Integer.parseInt(path[1]);
+            if (method.equals("DELETE")) {
+                return appointments.cancelAppointment(id)
+                        ? Response.json(200, "{\"cancelled\":" + id + "}")
+                        : Response.error(404, "No such appointment");
+            }
+            if (method.equals("PUT")) {
+                return modifyAppointment(id, readBody(exchange));
+            }
+        }
+        return Response.error(405, "Unsupported method or path");
+    }
+
+    /**
+     * Routes {@code /metrics}.
+     */
+    private Response routeMetrics(String method, String[] path, HttpExchange exchange) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        users.getMetrics().dump(out);
+        appointments.getMetrics().dump(out);
+        return new Response(200, TEXT, buffer.toString(StandardCharsets.UTF_8));
+    }
+
+    private Response createUser(Map<String, String> body) {
+        String role = required(body, "role");
+        String username = required(body, "username");
+        String password = body.get("hashedPassword");
+        String name = body.get("name");
+        String email = body.get("email");
+        User user = switch (role) {
+            case "patient" -> new Patient(username, password, name, email);
+            case "doctor" -> new Doctor(username, password, name, email);
+            case "admin" -> new Admin(username, password, name, email);
+            default -> throw new IllegalArgumentException("role must be patient, doctor or admin");
+        };
+        if (!users.createUser(user)) {
+            return Response.error(409, "Username already taken");
+        }
+        return Response.json(201, userJson(new StringBuilder(), user).toString());
+    }
+
+    private Response updateUser(User user, Map<String, String> body) {
+        String oldUsername = user.getUsername();
+        String newUsername = body.getOrDefault("username", oldUsername);
+        if (!users.updateUser(oldUsername, newUsername,
+                body.getOrDefault("hashedPassword", user.getHashedPassword()),
+                body.getOrDefault("name", user.getName()),
+                body.getOrDefault("email", user.getEmail()))) {
+            User holder = users.getUser(newUsername);
+            if (holder != null && holder != user) {
+                return Response.error(409, "Username already taken");
+            }
+            return Response.error(500, "Could not save the change");
+        }
+        return Response.json(200, userJson(new StringBuilder(), user).toString());
+    }
+
+    private Response listAppointments(User user) {
+        List<Appointment> found = appointments.getAppointmentsForUser(user);
+        StringBuilder out = new StringBuilder(64 + 160 * found.size()).append('[');
+        for (int i = 0; i < found.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appointmentJson(out, found.get(i));
+        }
+        return Response.json(200, out.append(']').toString());
+    }
+
+    private Response createAppointment(Map<String, String> body) {
+        User patient = users.getUser(required(body, "patient"));
+        User doctor = users.getUser(required(body, "doctor"));
+        if (!(patient instanceof Patient) || !(doctor instanceof Doctor)) {
+            return Response.error(404, "No such patient or doctor");
+        }
+        LocalDateTime dateTime = LocalDateTime.parse(required(body, "dateTime"));
+        String minutes = body.get("durationMinutes");
+        Appointment appointment = (minutes == null)
+                ? new Appointment((Patient) patient, (Doctor) doctor, dateTime)
+                : new Appointment((Patient) patient, (Doctor) doctor, dateTime, durationMinutes(minutes));
+        if (!appointments.createAppointment(appointment)) {
+            return Response.error(409, "Slot is not available");
+        }
+        return Response.json(201, appointmentJson(new StringBuilder(), appointment).toString());
+    }
+
+    private Response modifyAppointment(int id, Map<String, String> body) {
+        User patient = users.getUser(required(body, "patient"));
+        User doctor = users.getUser(required(body, "doctor"));
+        if (!(patient instanceof Patient) || !(doctor instanceof Doctor)) {
+            return Response.error(404, "No such patient or doctor");
+        }
+        LocalDateTime dateTime = LocalDateTime.parse(required(body, "dateTime"));
+        if (!appointments.modifyAppointment(id, (Patient) patient, (Doctor) doctor, dateTime)) {
+            return Response.error(409, "No such appointment, or slot is not available");
+        }
+        return Response.json(200, "{\"modified\":" + id + "}");
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String required(Map<String, String> body, String name) {
+        String value = body.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return value;
+    }
+
+    /**
+     * Parses a duration given in minutes, rejecting anything but a positive
+     * whole number, as the CSV importer does.
+     */
+    private static Duration durationMinutes(String minutes) {
+        long value;
+        try {
+            value = Long.parseLong(minutes);
+        } catch (NumberFormatException e) {
+            value = 0;
+        }
+        if (value <= 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("durationMinutes must be a positive whole number");
+        }
+        return Duration.ofMinutes(value);
+    }
+
+    private static StringBuilder userJson(StringBuilder out, User user) {
+        out.append("{\"accountNumber\":").append(user.getAccountNumber());
+        Json.quote(out.append(",\"username\":"), user.getUsername());
+        Json.quote(out.append(",\"name\":"), user.getName());
+        Json.quote(out.append(",\"email\":"), user.getEmail());
+        Json.quote(out.append(",\"role\":"), user.getRole());
+        return out.append('}');
+    }
+
+    private static StringBuilder appointmentJson(StringBuilder out, Appointment appointment) {
+        out.append("{\"appointmentId\":").append(appointment.getAppointmentId());
+        Json.quote(out.append(",\"patient\":"), appointment.getPatient().getUsername());
+        Json.quote(out.append(",\"doctor\":"), appointment.getDoctor().getUsername());
+        Json.quote(out.append(",\"dateTime\":"), appointment.getAppointmentDateTime().toString());
+        out.append(",\"durationMinutes\":").append(appointment.getDuration().toMinutes());
+        Json.quote(out.append(",\"status\":"), appointment.getStatus().name());
+        return out.append('}');
+    }
+}
@@ -0,0 +1,89 @@
+package edu.secourse.patientportal.metrics;
+
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@link OperationMetrics} of every operation of one controller.
+ * <p>
+ * The set of operations is fixed when the metrics are created, so lookups
+ * never change the map and need no locking. Controllers keep a reference to
+ * each operation's metrics and record into it directly.
+ */
+public class ControllerMetrics {
+
+    private final String name;
+    private final Map<String, OperationMetrics> operations = new LinkedHashMap<>();
+
+    /**
+     * Creates empty metrics for a controller.
+     *
+     * @param name       the controller name, used in dumps
+     * @param operations the names of the controller's operations
+     */
+    public ControllerMetrics(String name, String... operations) {
+        this.name = name;
+        for (String operation : operations) {
+            this.operations.put(operation, new OperationMetrics(operation));
+        }
+    }
+
+    /**
+     * Returns the controller name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the metrics of one operation.
+     *
+     * @param operation the operation name
+     * @return the operation's metrics, or {@code null} if there is no such operation
+     */
+    public OperationMetrics getOperation(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * Returns the metrics of every operation, in the order they were declared.
+     *
+     * @return an unmodifiable view of the operation metrics
+     */
+    public Collection<OperationMetrics> getOperations() {
+        return Collections.unmodifiableCollection(operations.values());
+    }
+
+    /**
+     * Clears the metrics of every operation.
+     */
+    public void reset() {
+        for (OperationMetrics operation : operations.values()) {
+            operation.reset();
+        }
+    }
+
+    /**
+     * Prints a table of every operation's outcome counts and latency
+     * percentiles, in microseconds.
+     *
+     * @param out the stream to print to
+     */
+    public void dump(PrintStream out) {
+        out.println(name);
+        out.printf("  %-24s %10s %10s %8s %10s %10s %10s %10s%n", "operation", "success", "failure", "error",
+                "p50 us", "p99 us", "p99.9 us", "max us");
+        for (OperationMetrics operation : operations.values()) {
+            LatencyHistogram latency = operation.getLatency();
+            out.printf("  %-24s %10d %10d %8d %10.1f %10.1f %10.1f %10.1f%n", operation.getName(),
+                    operation.getSuccesses(), operation.getFailures(), operation.getErrors(),
+                    latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                    latency.getValueAtPercentile(99.9) / 1e3, latency.getMaxNanos() / 1e3);
+        }
+    }
+}
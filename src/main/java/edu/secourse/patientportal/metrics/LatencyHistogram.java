@@ -0,0 +1,140 @@
+package edu.secourse.patientportal.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, laid out like an
+ * HdrHistogram.
+ * <p>
+ * Values below 128 get a bucket each. Above that, every power-of-two range
+ * is split into 64 equal buckets, so a value is stored to within 1/64 (about
+ * 1.6%) of itself across the whole {@code long} range, in a fixed array of
+ * under 4,000 counters. Recording a value computes its bucket with a few
+ * shifts and increments one atomic counter; it never locks or allocates, so
+ * it is safe to call from any number of threads on a hot path.
+ * <p>
+ * Queries read the counters without stopping writers, so a query that runs
+ * during recording sees some of the concurrent values and not others.
+ */
+public class LatencyHistogram {
+
+    /** Bits of precision kept for each value. */
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one latency. Negative values are recorded as zero.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.increment();
+        totalNanos.add(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     *
+     * @return the maximum in nanoseconds, or {@code 0} if nothing was recorded
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the mean recorded latency.
+     *
+     * @return the mean in nanoseconds, or {@code 0} if nothing was recorded
+     */
+    public double getMeanNanos() {
+        long count = totalCount.sum();
+        return (count == 0) ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns the latency at a percentile: the smallest value that at least
+     * that share of recorded latencies is less than or equal to, rounded up
+     * to the top of its bucket and capped at the maximum.
+     *
+     * @param percentile the percentile, from {@code 0} to {@code 100}
+     * @return the latency in nanoseconds, or {@code 0} if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        double fraction = Math.min(100, Math.max(0, percentile)) / 100;
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Clears every recorded latency. Values recorded while the reset runs may
+     * be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * Returns the bucket holding a non-negative value.
+     */
+    static int bucketOf(long value) {
+        int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift == 0) ? (int) value : shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the highest value stored in a bucket.
+     */
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKET_HALF - 1;
+        long subBucket = bucket - (long) shift * SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,114 @@
+package edu.secourse.patientportal.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome counters and a latency histogram for one controller operation.
+ * <p>
+ * Every call ends in one of three outcomes:
+ * <ul>
+ *     <li>Success: the operation did what was asked</li>
+ *     <li>Failure: the operation was rejected, for example a booking that
+ *     overlaps another appointment</li>
+ *     <li>Error: an exception was thrown and swallowed by the controller</li>
+ * </ul>
+ * The latency of every call is recorded, whatever its outcome. Recording
+ * does not lock or allocate.
+ */
+public class OperationMetrics {
+
+    private final String name;
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Creates empty metrics for an operation.
+     *
+     * @param name the operation name
+     */
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a call that completed normally.
+     *
+     * @param startNanos the {@link System#nanoTime()} when the call started
+     * @param success    whether the operation succeeded
+     */
+    public void record(long startNanos, boolean success) {
+        latency.record(System.nanoTime() - startNanos);
+        if (success) {
+            successes.increment();
+        } else {
+            failures.increment();
+        }
+    }
+
+    /**
+     * Records a call that ended in an exception.
+     *
+     * @param startNanos the {@link System#nanoTime()} when the call started
+     */
+    public void recordError(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+        errors.increment();
+    }
+
+    /**
+     * Returns the operation name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of successful calls.
+     *
+     * @return the success count
+     */
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    /**
+     * Returns the number of rejected calls.
+     *
+     * @return the failure count
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the number of calls that ended in an exception.
+     *
+     * @return the error count
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Returns the latency histogram of all calls.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Clears the counters and the histogram.
+     */
+    public void reset() {
+        successes.reset();
+        failures.reset();
+        errors.reset();
+        latency.reset();
+    }
+}
@@ -10,7 +10,7 @@ package edu.secourse.patientportal.models;
 public class Admin extends User {
 
     private int adminId = 0;
-    private static int nextAdminId = 1;
+    private static volatile IdAllocator adminIds = new SequentialIdAllocator();
 
     /**
      * Default no-argument constructor.
@@ -33,9 +33,18 @@ public class Admin extends User {
     public Admin(String username, String hashedPassword, String name, String email) {
         super(username, hashedPassword, name, email, "admin");
 
-        this.adminId = nextAdminId;
+        this.adminId = adminIds.nextId();
+    }
 
-        nextAdminId += 1;
+    /**
+     * Replaces the allocator used to assign admin IDs to new admins.
+     *
+     * @param allocator the new allocator; ignored if {@code null}
+     */
+    public static void setAdminIdAllocator(IdAllocator allocator) {
+        if (allocator != null) {
+            adminIds = allocator;
+        }
     }
 
     /**
@@ -46,4 +55,28 @@ public class Admin extends User {
     public int getAdminId() {
         return adminId;
     }
+
+    /**
+     * Restores a previously assigned admin ID, for example when the admin is
+     * loaded from disk.
+     * <p>
+     * The shared allocator is moved past the restored ID so that admins
+     * created later never receive it again.
+     *
+     * @param adminId the ID to restore; must be positive
+     * @return true if the ID was set, false otherwise
+     */
+    public boolean setAdminId(int adminId) {
+        boolean success = false;
+        try {
+            if (adminId > 0) {
+                adminIds.advancePast(adminId);
+                this.adminId = adminId;
+                success = true;
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
 }
@@ -1,25 +1,29 @@
 package edu.secourse.patientportal.models;
 
-import edu.secourse.patientportal.services.UserService;
-
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 /**
  * Represents a scheduled appointment between a {@link Patient} and {@link Doctor}.
  * <p>
  * This class includes fields for identifying the appointment, tracking the
- * participants, storing the scheduled date and time, and the appointment status.
+ * participants, storing the scheduled date, time, and duration, and the appointment status.
  * All setter methods perform basic null/validity checks and return boolean flags
  * instead of throwing exceptions, to prevent runtime failure in the UI flow.
+ * Fields are volatile so that changes made by the service on one thread are
+ * visible to readers on other threads.
  */
 public class Appointment {
 
-    private int appointmentId = 0;
-    private Patient patient = new Patient();
-    private Doctor doctor = new Doctor();
-    private LocalDateTime appointmentDateTime = LocalDateTime.MIN;
-    private Status status = Status.UNSPECIFIED;
-    private UserService userService = new UserService();
+    private volatile int appointmentId = 0;
+    private volatile Patient patient;
+    private volatile Doctor doctor;
+    private volatile LocalDateTime appointmentDateTime = LocalDateTime.MIN;
+    private volatile Status status = Status.UNSPECIFIED;
+    private volatile Duration duration = DEFAULT_DURATION;
+
+    /** Duration given to appointments created without an explicit one. */
+    public static final Duration DEFAULT_DURATION = Duration.ofMinutes(30);
 
     /**
      * Enumeration representing possible appointment states.
@@ -31,7 +35,8 @@ public class Appointment {
     }
 
     /**
-     * Constructs an Appointment given a patient, doctor, and scheduled time.
+     * Constructs an Appointment given a patient, doctor, and scheduled time,
+     * lasting {@link #DEFAULT_DURATION}.
      * If any argument is null, the default values are retained.
      *
      * @param patient             the patient associated with the appointment
@@ -39,6 +44,20 @@ public class Appointment {
      * @param appointmentDateTime the date and time the appointment occurs
      */
     public Appointment(Patient patient, Doctor doctor, LocalDateTime appointmentDateTime) {
+        this(patient, doctor, appointmentDateTime, DEFAULT_DURATION);
+    }
+
+    /**
+     * Constructs an Appointment given a patient, doctor, scheduled time, and duration.
+     * If any argument is null, the default values are retained; an invalid
+     * duration falls back to {@link #DEFAULT_DURATION}.
+     *
+     * @param patient             the patient associated with the appointment
+     * @param doctor              the doctor associated with the appointment
+     * @param appointmentDateTime the date and time the appointment occurs
+     * @param duration            how long the appointment lasts; must be positive
+     */
+    public Appointment(Patient patient, Doctor doctor, LocalDateTime appointmentDateTime, Duration duration) {
         try {
             if (patient != null && doctor != null && appointmentDateTime != null) {
                 this.patient = patient;
@@ -46,6 +65,9 @@ public class Appointment {
                 this.appointmentDateTime = appointmentDateTime;
                 this.status = Status.ACTIVE;
             }
+            if (isValidDuration(duration)) {
+                this.duration = duration;
+            }
         } catch (Exception e) {
 
         }
@@ -192,6 +214,53 @@ public class Appointment {
         return success;
     }
 
+    /**
+     * Gets how long the appointment lasts.
+     *
+     * @return the appointment duration
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Attempts to update how long the appointment lasts.
+     *
+     * @param duration the new duration; must be positive
+     * @return true if updated successfully, false otherwise
+     */
+    public boolean setDuration(Duration duration) {
+        boolean success = false;
+        try {
+            if (isValidDuration(duration)) {
+                this.duration = duration;
+                success = true;
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Checks whether a duration can be used for an appointment.
+     *
+     * @param duration the duration to check
+     * @return true if the duration is present and positive, false otherwise
+     */
+    private static boolean isValidDuration(Duration duration) {
+        return duration != null && !duration.isNegative() && !duration.isZero();
+    }
+
+    /**
+     * Gets the date and time the appointment ends.
+     *
+     * @return the appointment start plus its duration
+     */
+    public LocalDateTime getEndDateTime() {
+        return appointmentDateTime.plus(duration);
+    }
+
     /**
      * Cancels the appointment by setting its status to {@link Status#CANCELLED}.
      */
@@ -220,6 +289,7 @@ public class Appointment {
                 ", Patient='" + patientName + '\'' +
                 ", Doctor='" + doctorName + '\'' +
                 ", DateTime=" + time +
+                ", Duration=" + duration.toMinutes() + "min" +
                 ", Status=" + status +
                 '}';
     }
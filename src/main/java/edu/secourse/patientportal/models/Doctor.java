@@ -11,7 +11,7 @@ package edu.secourse.patientportal.models;
 public class Doctor extends User {
 
     private int doctorId = 0;
-    private static int nextDoctorId = 1;
+    private static volatile IdAllocator doctorIds = new SequentialIdAllocator();
 
     /**
      * Default no-argument constructor.
@@ -26,7 +26,7 @@ public class Doctor extends User {
      * Creates a doctor user by setting the base user attributes and assigning
      * a unique incremented doctor ID.
      * <p>
-     * Integer overflow checks ensure safe incrementing of {@code nextDoctorId}.
+     * IDs come from a shared {@link IdAllocator}, so concurrent construction is safe.
      *
      * @param username       the doctor's username
      * @param hashedPassword the doctor's hashed password
@@ -36,9 +36,18 @@ public class Doctor extends User {
     public Doctor(String username, String hashedPassword, String name, String email) {
         super(username, hashedPassword, name, email, "doctor");
 
-        this.doctorId = nextDoctorId;
+        this.doctorId = doctorIds.nextId();
+    }
 
-        nextDoctorId += 1;
+    /**
+     * Replaces the allocator used to assign doctor IDs to new doctors.
+     *
+     * @param allocator the new allocator; ignored if {@code null}
+     */
+    public static void setDoctorIdAllocator(IdAllocator allocator) {
+        if (allocator != null) {
+            doctorIds = allocator;
+        }
     }
 
     /**
@@ -49,5 +58,28 @@ public class Doctor extends User {
     public int getDoctorId() {
         return doctorId;
     }
-}
 
+    /**
+     * Restores a previously assigned doctor ID, for example when the doctor is
+     * loaded from disk.
+     * <p>
+     * The shared allocator is moved past the restored ID so that doctors
+     * created later never receive it again.
+     *
+     * @param doctorId the ID to restore; must be positive
+     * @return true if the ID was set, false otherwise
+     */
+    public boolean setDoctorId(int doctorId) {
+        boolean success = false;
+        try {
+            if (doctorId > 0) {
+                doctorIds.advancePast(doctorId);
+                this.doctorId = doctorId;
+                success = true;
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+}
@@ -0,0 +1,32 @@
+package edu.secourse.patientportal.models;
+
+/**
+ * Source of unique integer identifiers for users and appointments.
+ * <p>
+ * Implementations must be safe to call from multiple threads and must never
+ * return the same ID twice. IDs are positive but need not be contiguous.
+ */
+@FunctionalInterface
+public interface IdAllocator {
+
+    /**
+     * Returns the next unused ID.
+     *
+     * @return a positive ID that has not been returned before
+     * @throws IllegalStateException if the ID space is exhausted or the
+     *                               high-water mark cannot be persisted
+     */
+    int nextId();
+
+    /**
+     * Ensures that no ID at or below {@code id} is handed out from now on.
+     * <p>
+     * Used when records with existing IDs are restored from disk. The default
+     * implementation does nothing, which suits allocators whose IDs are
+     * already known to be above any restored one.
+     *
+     * @param id the highest ID already in use
+     */
+    default void advancePast(int id) {
+    }
+}
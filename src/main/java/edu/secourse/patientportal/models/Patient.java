@@ -10,7 +10,7 @@ package edu.secourse.patientportal.models;
 public class Patient extends User {
 
     private int patientId = 0;
-    private static int nextPatientId = 1;
+    private static volatile IdAllocator patientIds = new SequentialIdAllocator();
 
     /**
      * Default no-argument constructor.
@@ -25,7 +25,7 @@ public class Patient extends User {
      * Constructs a Patient using provided identifying information and assigns
      * a safe auto-incrementing patient ID.
      * <p>
-     * Integer overflow checks ensure safe incrementing of {@code nextPatientId}.
+     * IDs come from a shared {@link IdAllocator}, so concurrent construction is safe.
      *
      * @param username       the patient's username
      * @param hashedPassword the patient's hashed password
@@ -35,9 +35,18 @@ public class Patient extends User {
     public Patient(String username, String hashedPassword, String name, String email) {
         super(username, hashedPassword, name, email, "patient");
 
-        this.patientId = nextPatientId;
+        this.patientId = patientIds.nextId();
+    }
 
-        nextPatientId += 1;
+    /**
+     * Replaces the allocator used to assign patient IDs to new patients.
+     *
+     * @param allocator the new allocator; ignored if {@code null}
+     */
+    public static void setPatientIdAllocator(IdAllocator allocator) {
+        if (allocator != null) {
+            patientIds = allocator;
+        }
     }
 
     /**
@@ -48,6 +57,28 @@ public class Patient extends User {
     public int getPatientId() {
         return patientId;
     }
-}
 
+    /**
+     * Restores a previously assigned patient ID, for example when the patient is
+     * loaded from disk.
+     * <p>
+     * The shared allocator is moved past the restored ID so that patients
+     * created later never receive it again.
+     *
+     * @param patientId the ID to restore; must be positive
+     * @return true if the ID was set, false otherwise
+     */
+    public boolean setPatientId(int patientId) {
+        boolean success = false;
+        try {
+            if (patientId > 0) {
+                patientIds.advancePast(patientId);
+                this.patientId = patientId;
+                success = true;
+            }
+        } catch (Exception e_) {
 
+        }
+        return success;
+    }
+}
@@ -0,0 +1,27 @@
+package edu.secourse.patientportal.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory {@link IdAllocator} handing out consecutive IDs from 1.
+ * <p>
+ * Used by the model classes until a persistent allocator is installed.
+ */
+final class SequentialIdAllocator implements IdAllocator {
+
+    private final AtomicLong next = new AtomicLong(1);
+
+    @Override
+    public int nextId() {
+        long id = next.getAndIncrement();
+        if (id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("ID space exhausted");
+        }
+        return (int) id;
+    }
+
+    @Override
+    public void advancePast(int id) {
+        next.accumulateAndGet((long) id + 1, Math::max);
+    }
+}
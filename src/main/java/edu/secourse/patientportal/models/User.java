@@ -9,13 +9,16 @@ import java.util.Objects;
  * role, and an auto-incrementing account number. Subclasses include
  * {@link Patient}, {@link Doctor}, and {@link Admin}.
  * <p>
+ * Account numbers come from a shared {@link IdAllocator}, which can be
+ * replaced (for example with a persistent one) before any users are created.
+ * <p>
  * All setters and logic blocks are wrapped in try-catch blocks to prevent UI
  * crashes, matching the defensive coding style used across the project.
  */
 public abstract class User {
 
     private int accountNumber = 0;
-    public static int nextAccountNumber = 1;
+    private static volatile IdAllocator accountNumbers = new SequentialIdAllocator();
     public String username = "";
     private String hashedPassword = "";
     private String name = "";
@@ -43,7 +46,7 @@ public abstract class User {
      */
     public User(String username, String hashedPassword, String name, String email, String role) {
         try {
-            this.accountNumber = nextAccountNumber++;
+            this.accountNumber = accountNumbers.nextId();
             this.username = username;
             this.hashedPassword = hashedPassword;
             this.name = name;
@@ -54,6 +57,17 @@ public abstract class User {
         }
     }
 
+    /**
+     * Replaces the allocator used to assign account numbers to new users.
+     *
+     * @param allocator the new allocator; ignored if {@code null}
+     */
+    public static void setAccountNumberAllocator(IdAllocator allocator) {
+        if (allocator != null) {
+            accountNumbers = allocator;
+        }
+    }
+
     /**
      * Retrieves the unique account number assigned to this user.
      *
@@ -63,6 +77,30 @@ public abstract class User {
         return accountNumber;
     }
 
+    /**
+     * Restores a previously assigned account number, for example when the
+     * user is loaded from disk.
+     * <p>
+     * The shared allocator is moved past the restored number so that users
+     * created later never receive it again.
+     *
+     * @param accountNumber the account number to restore; must be positive
+     * @return true if the account number was set, false otherwise
+     */
+    public boolean setAccountNumber(int accountNumber) {
+        boolean success = false;
+        try {
+            if (accountNumber > 0) {
+                accountNumbers.advancePast(accountNumber);
+                this.accountNumber = accountNumber;
+                success = true;
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
     /**
      * Retrieves the user's username.
      *
@@ -0,0 +1,723 @@
+package edu.secourse.patientportal.persistence;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+import edu.secourse.patientportal.services.AppointmentListener;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserListener;
+import edu.secourse.patientportal.services.UserService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, write-ahead journal of every change made to a {@link UserService}
+ * and an {@link AppointmentService}.
+ * <p>
+ * The journal listens to both services. Each change is encoded as a compact
+ * binary record while the service still holds its lock, so records are in the
+ * order the changes happened. The change is only reported as successful once
+ * its record has been forced to disk.
+ * <p>
+ * Disk flushes use group commit: records are appended to an in-memory batch,
+ * and a single flusher thread repeatedly writes the whole batch and forces it
+ * with one {@code fsync}. Writers that arrive while a flush is in progress
+ * join the next batch, so under load many changes share one flush and write
+ * throughput is not capped at one flush per change.
+ * <p>
+ * The journal is a series of segment files, {@code journal-<n>.bin}, in one
+ * directory. Changes are appended to the newest segment; {@link #roll()}
+ * starts a new one, which lets a snapshot mark the point from which the
+ * journal must be replayed and lets older segments be deleted.
+ * <p>
+ * Segment layout: an 8-byte header (magic number and format version) followed by
+ * records. Each record is its body length (int), a CRC-32C of the body (int),
+ * and the body: a type byte followed by the fields described in
+ * {@link RecordCodec}. A record cut short by a crash fails its length or
+ * checksum test; {@link #replay} stops there and truncates the segment.
+ */
+public class Journal implements UserListener, AppointmentListener, Closeable {
+
+    /** File magic number, "PJNL". */
+    private static final int MAGIC = 0x504A4E4C;
+
+    /** Current file format version; version 1 segments are still replayed. */
+    private static final int VERSION = 2;
+
+    /** Bytes in the file header. */
+    static final int FILE_HEADER_BYTES = 8;
+
+    /** Bytes before each record body: length and checksum. */
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /** Largest body accepted on replay, to reject garbage lengths quickly. */
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final Thread flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private final Condition batchFlushed = lock.newCondition();
+
+    /** Records waiting for the next flush; guarded by {@link #lock}. */
+    private RecordBuffer pending = new RecordBuffer();
+    /** Batch owned by the flusher while it writes; swapped with {@link #pending}. */
+    private RecordBuffer flushing = new RecordBuffer();
+    /** Sequence number of the last appended record; guarded by {@link #lock}. */
+    private long appended;
+    /** Sequence number of the last record known to be on disk; guarded by {@link #lock}. */
+    private long durable;
+    /** Number of flushes completed; guarded by {@link #lock}. */
+    private long flushes;
+    /** First write failure; once set, every later change fails; guarded by {@link #lock}. */
+    private IOException failure;
+    /** Whether {@link #close()} was called; guarded by {@link #lock}. */
+    private boolean closed;
+    /** Number of the segment being written; guarded by {@link #lock}. */
+    private long segment;
+    /** Open segment file; replaced only by the flusher, under {@link #lock}. */
+    private FileChannel channel;
+    /** Whether a {@link #roll()} is in progress; guarded by {@link #lock}. */
+    private boolean rollRequested;
+    /** Offset in {@link #pending} where the next segment starts, or -1; guarded by {@link #lock}. */
+    private int rollBoundary = -1;
+
+    /** Sequence number of the last record appended by each thread, for {@link #writeCompleted()}. */
+    private final ThreadLocal<long[]> lastAppended = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Opens a journal for appending to the newest segment in a directory,
+     * creating the first segment if there is none.
+     * <p>
+     * Existing segments should have been passed to {@link #replay} first,
+     * which also removes any torn record at their end. If the newest segment
+     * was written by an older format version, a new segment is started
+     * instead, so no file mixes record formats.
+     *
+     * @param directory the journal directory; must exist
+     * @throws IOException if the segment cannot be opened or has a bad header
+     */
+    public Journal(Path directory) throws IOException {
+        this.directory = directory;
+        List<Long> segments = segments(directory);
+        long newest = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        FileChannel opened = openSegment(segmentFile(directory, newest));
+        if (opened == null) {
+            newest++;
+            opened = openSegment(segmentFile(directory, newest));
+        }
+        this.segment = newest;
+        this.channel = opened;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Returns the file holding a journal segment.
+     *
+     * @param directory the journal directory
+     * @param segment   the segment number
+     * @return the segment file
+     */
+    public static Path segmentFile(Path directory, long segment) {
+        return directory.resolve(String.format("journal-%08d.bin", segment));
+    }
+
+    /**
+     * Lists the segment numbers present in a directory, in ascending order.
+     *
+     * @param directory the journal directory
+     * @return the segment numbers (empty if none or if the directory does not exist)
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Long> segments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.bin")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    try {
+                        segments.add(Long.parseLong(name.substring("journal-".length(), name.length() - ".bin".length())));
+                    } catch (NumberFormatException e_) {
+
+                    }
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Deletes every segment numbered below {@code segment}.
+     *
+     * @param directory the journal directory
+     * @param segment   the oldest segment to keep
+     * @throws IOException if a segment cannot be deleted
+     */
+    public static void deleteSegmentsBefore(Path directory, long segment) throws IOException {
+        for (long existing : segments(directory)) {
+            if (existing < segment) {
+                Files.deleteIfExists(segmentFile(directory, existing));
+            }
+        }
+    }
+
+    /**
+     * Replays every journal segment in a directory into a pair of services and
+     * truncates any torn record at the end of a segment.
+     * <p>
+     * Must be called before the journal is attached to the services, so the
+     * replayed changes are not journaled again.
+     *
+     * @param directory    the journal directory
+     * @param users        the user service to restore into
+     * @param appointments the appointment service to restore into
+     * @return the number of records replayed
+     * @throws IOException if a segment cannot be read or has a bad header
+     */
+    public static long replay(Path directory, UserService users, AppointmentService appointments) throws IOException {
+        return replay(directory, 0, new StateRestorer(users, appointments));
+    }
+
+    /**
+     * Replays every journal segment numbered {@code fromSegment} or higher.
+     *
+     * @param directory   the journal directory
+     * @param fromSegment the first segment to replay; earlier segments are ignored
+     * @param restorer    the restorer to apply records with
+     * @return the number of records replayed
+     * @throws IOException if a segment cannot be read or has a bad header
+     */
+    static long replay(Path directory, long fromSegment, StateRestorer restorer) throws IOException {
+        long replayed = 0;
+        for (long existing : segments(directory)) {
+            if (existing >= fromSegment) {
+                replayed += replaySegment(segmentFile(directory, existing), restorer);
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Replays the records of one segment file, truncating a torn record at its end.
+     *
+     * @param file     the segment file
+     * @param restorer the restorer to apply records with
+     * @return the number of records replayed
+     * @throws IOException if the file cannot be read or has a bad header
+     */
+    private static long replaySegment(Path file, StateRestorer restorer) throws IOException {
+        long replayed = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (in.size() < FILE_HEADER_BYTES) {
+                in.truncate(0);
+                return 0;
+            }
+            restorer.setFormatVersion(checkHeader(in, file));
+
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            ByteBuffer body = ByteBuffer.allocate(4096);
+            CRC32C crc = new CRC32C();
+            long offset = FILE_HEADER_BYTES;
+            long size = in.size();
+
+            while (offset + RECORD_HEADER_BYTES <= size) {
+                header.clear();
+                readFully(in, header, offset);
+                int length = header.getInt(0);
+                int checksum = header.getInt(4);
+                if (length <= 0 || length > MAX_RECORD_BYTES || offset + RECORD_HEADER_BYTES + length > size) {
+                    break;
+                }
+                if (body.capacity() < length) {
+                    body = ByteBuffer.allocate(Integer.highestOneBit(length) << 1);
+                }
+                body.clear().limit(length);
+                readFully(in, body, offset + RECORD_HEADER_BYTES);
+                crc.reset();
+                crc.update(body.array(), 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body.array(), 0, length));
+                try {
+                    restorer.apply(record.readByte(), record);
+                } catch (EOFException e) {
+                    throw new IOException("Malformed record at offset " + offset + " in " + file, e);
+                }
+                replayed++;
+                offset += RECORD_HEADER_BYTES + length;
+            }
+            if (offset < size) {
+                in.truncate(offset);
+                in.force(true);
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void userCreated(User user) {
+        append(RecordCodec.USER_CREATED, out -> RecordCodec.writeUser(out, user));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void userUpdated(String oldUsername, User user) {
+        append(RecordCodec.USER_UPDATED, out -> {
+            out.writeUTF(oldUsername);
+            RecordCodec.writeUser(out, user);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void userRemoved(User user) {
+        append(RecordCodec.USER_REMOVED, out -> out.writeUTF(user.getUsername()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void appointmentCreated(Appointment appointment) {
+        append(RecordCodec.APPOINTMENT_CREATED, out -> RecordCodec.writeAppointment(out, appointment));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void appointmentModified(Appointment appointment, Patient previousPatient, Doctor previousDoctor) {
+        append(RecordCodec.APPOINTMENT_MODIFIED, out -> RecordCodec.writeAppointment(out, appointment));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void appointmentCancelled(Appointment appointment) {
+        append(RecordCodec.APPOINTMENT_CANCELLED, out -> out.writeInt(appointment.getAppointmentId()));
+    }
+
+    /**
+     * Waits until the last record appended by the calling thread is on disk.
+     *
+     * @throws IllegalStateException if the journal failed to write, or the wait was interrupted
+     */
+    @Override
+    public void writeCompleted() {
+        long[] last = lastAppended.get();
+        if (last[0] != 0) {
+            awaitDurable(last[0]);
+            last[0] = 0;
+        }
+    }
+
+    /**
+     * Waits until every record appended so far, by any thread, is on disk.
+     *
+     * @throws IllegalStateException if the journal failed to write, or the wait was interrupted
+     */
+    public void sync() {
+        long target;
+        lock.lock();
+        try {
+            target = appended;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(target);
+    }
+
+    /**
+     * Returns the number of records appended since the journal was opened.
+     *
+     * @return the number of appended records
+     */
+    public long appendedRecords() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of flushes completed since the journal was opened.
+     * Together with {@link #appendedRecords()} this shows how well group
+     * commit is batching changes.
+     *
+     * @return the number of completed flushes
+     */
+    public long flushCount() {
+        lock.lock();
+        try {
+            return flushes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new segment. Every change whose record was appended before the
+     * call is in an older segment; every later change is in the new one or after.
+     * <p>
+     * Returns once the previous segment is complete on disk and the new one exists.
+     *
+     * @return the number of the new segment
+     * @throws IllegalStateException if the journal is closed or has failed, or the wait was interrupted
+     */
+    public long roll() {
+        lock.lock();
+        try {
+            while (rollRequested) {
+                batchFlushed.await();
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Journal in " + directory + " failed", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Journal in " + directory + " is closed");
+            }
+            long target = segment + 1;
+            rollRequested = true;
+            rollBoundary = pending.size();
+            batchReady.signal();
+            try {
+                while (segment < target) {
+                    if (failure != null) {
+                        throw new IllegalStateException("Journal in " + directory + " failed", failure);
+                    }
+                    batchFlushed.await();
+                }
+            } finally {
+                rollRequested = false;
+                batchFlushed.signalAll();
+            }
+            return target;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rolling the journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of the segment currently being written.
+     *
+     * @return the current segment number
+     */
+    public long currentSegment() {
+        lock.lock();
+        try {
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the file of the segment currently being written.
+     *
+     * @return the current segment file
+     */
+    public Path getFile() {
+        return segmentFile(directory, currentSegment());
+    }
+
+    /**
+     * Flushes every appended record, stops the flusher thread, and closes the file.
+     * Later changes to the services fail until the journal is detached from them.
+     *
+     * @throws IOException if the final flush failed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            batchReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encodes one record into the pending batch and wakes the flusher.
+     *
+     * @param type the record type
+     * @param body writes the record body
+     * @throws IllegalStateException if the journal is closed or has failed
+     */
+    private void append(byte type, BodyWriter body) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new IllegalStateException("Journal in " + directory + " failed", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Journal in " + directory + " is closed");
+            }
+            pending.append(type, body);
+            lastAppended.get()[0] = ++appended;
+            batchReady.signal();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is on disk.
+     */
+    private void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durable < sequence) {
+                if (failure != null) {
+                    throw new IllegalStateException("Journal in " + directory + " failed", failure);
+                }
+                batchFlushed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Body of the flusher thread: takes the whole pending batch, writes it,
+     * forces it to disk, and wakes every writer whose record it contained.
+     */
+    private void flushLoop() {
+        while (true) {
+            RecordBuffer batch;
+            long target;
+            int boundary;
+            FileChannel current;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && rollBoundary < 0 && !closed) {
+                    batchReady.awaitUninterruptibly();
+                }
+                if (pending.size() == 0 && rollBoundary < 0) {
+                    return;
+                }
+                batch = pending;
+                pending = flushing;
+                flushing = batch;
+                target = appended;
+                boundary = rollBoundary;
+                rollBoundary = -1;
+                current = channel;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            FileChannel next = null;
+            try {
+                if (boundary < 0) {
+                    batch.writeTo(current, 0, batch.size());
+                    current.force(false);
+                } else {
+                    batch.writeTo(current, 0, boundary);
+                    current.force(false);
+                    next = openSegment(segmentFile(directory, segment + 1));
+                    batch.writeTo(next, boundary, batch.size());
+                    next.force(false);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            batch.reset();
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    if (next != null) {
+                        channel = next;
+                        segment++;
+                        try {
+                            current.close();
+                        } catch (IOException e_) {
+
+                        }
+                    }
+                    durable = target;
+                    flushes++;
+                }
+                batchFlushed.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Opens a segment for appending, writing its header if it is new.
+     *
+     * @return the open segment, or {@code null} if it was written by an older format version
+     */
+    private static FileChannel openSegment(Path file) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (segmentChannel.size() < FILE_HEADER_BYTES) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+                segmentChannel.truncate(0);
+                segmentChannel.write(header, 0);
+                segmentChannel.force(true);
+            } else if (checkHeader(segmentChannel, file) != VERSION) {
+                segmentChannel.close();
+                return null;
+            }
+            segmentChannel.position(segmentChannel.size());
+        } catch (IOException e) {
+            segmentChannel.close();
+            throw e;
+        }
+        return segmentChannel;
+    }
+
+    /**
+     * Checks the magic number and version at the start of a journal file.
+     *
+     * @return the file's format version
+     */
+    private static int checkHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        readFully(channel, header, 0);
+        int version = header.getInt(4);
+        if (header.getInt(0) != MAGIC || version < 1 || version > VERSION) {
+            throw new IOException(file + " is not a version 1 to " + VERSION + " journal");
+        }
+        return version;
+    }
+
+    /**
+     * Fills a buffer from a channel, starting at the given file offset.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+    }
+
+    /** Writes the body of one record. */
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Growable buffer of framed records, reused from batch to batch.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        private final DataOutputStream out = new DataOutputStream(this);
+        private final CRC32C crc = new CRC32C();
+
+        private RecordBuffer() {
+            super(8192);
+        }
+
+        /**
+         * Appends one framed record; on failure the buffer is left as it was.
+         */
+        private void append(byte type, BodyWriter body) throws IOException {
+            int start = count;
+            try {
+                out.writeLong(0);
+                out.writeByte(type);
+                body.write(out);
+            } catch (IOException | RuntimeException e) {
+                count = start;
+                throw e;
+            }
+            int length = count - start - RECORD_HEADER_BYTES;
+            crc.reset();
+            crc.update(buf, start + RECORD_HEADER_BYTES, length);
+            ByteBuffer.wrap(buf, start, RECORD_HEADER_BYTES).putInt(length).putInt((int) crc.getValue());
+        }
+
+        /**
+         * Writes bytes {@code from} to {@code to} of the buffer at the channel's current position.
+         */
+        private void writeTo(FileChannel channel, int from, int to) throws IOException {
+            ByteBuffer data = ByteBuffer.wrap(buf, from, to - from);
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+}
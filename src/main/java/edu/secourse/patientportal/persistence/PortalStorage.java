@@ -0,0 +1,219 @@
+package edu.secourse.patientportal.persistence;
+
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable storage for a {@link UserService} and an {@link AppointmentService},
+ * kept in a data directory.
+ * <p>
+ * Opening the storage restores the services and then attaches a
+ * {@link Journal} to both, so every later change is on disk before the
+ * service call that made it returns. Restoring loads the newest valid
+ * {@link Snapshot} and replays only the journal segments written after it;
+ * without a snapshot, the whole journal is replayed. The time taken is
+ * recorded and available from {@link #getRestoreNanos()}.
+ * <p>
+ * Snapshots are taken on demand with {@link #snapshot()} or periodically,
+ * without pausing writers. The two newest snapshots are kept, together with
+ * the journal segments needed to replay from the older one, so a damaged
+ * newest snapshot can still be recovered from. Closing detaches the journal
+ * and flushes it.
+ * <p>
+ * The services should be empty when the storage is opened, and must not be
+ * changed by other threads until {@link #open} returns.
+ */
+public class PortalStorage implements Closeable {
+
+    /** Number of snapshots kept in the data directory. */
+    private static final int SNAPSHOTS_KEPT = 2;
+
+    private final Path directory;
+    private final UserService users;
+    private final AppointmentService appointments;
+    private final Journal journal;
+    private final Snapshot.Result loadedSnapshot;
+    private final long replayedRecords;
+    private final long restoreNanos;
+    private final ScheduledExecutorService scheduler;
+
+    private PortalStorage(Path directory, UserService users, AppointmentService appointments, Journal journal,
+                          Snapshot.Result loadedSnapshot, long replayedRecords, long restoreNanos,
+                          Duration snapshotInterval) {
+        this.directory = directory;
+        this.users = users;
+        this.appointments = appointments;
+        this.journal = journal;
+        this.loadedSnapshot = loadedSnapshot;
+        this.replayedRecords = replayedRecords;
+        this.restoreNanos = restoreNanos;
+
+        if (snapshotInterval != null && !snapshotInterval.isNegative() && !snapshotInterval.isZero()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = snapshotInterval.toMillis();
+            this.scheduler.scheduleWithFixedDelay(this::periodicSnapshot, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Restores the services from a data directory and starts journaling their
+     * changes, without periodic snapshots.
+     *
+     * @param directory    the data directory; created if it does not exist
+     * @param users        the user service to restore and journal
+     * @param appointments the appointment service to restore and journal
+     * @return the open storage
+     * @throws IOException if the directory, snapshot, or journal cannot be read or written
+     */
+    public static PortalStorage open(Path directory, UserService users, AppointmentService appointments)
+            throws IOException {
+        return open(directory, users, appointments, null);
+    }
+
+    /**
+     * Restores the services from a data directory and starts journaling their changes.
+     *
+     * @param directory        the data directory; created if it does not exist
+     * @param users            the user service to restore and journal
+     * @param appointments     the appointment service to restore and journal
+     * @param snapshotInterval the time between periodic snapshots, or {@code null} for none
+     * @return the open storage
+     * @throws IOException if the directory, snapshot, or journal cannot be read or written
+     */
+    public static PortalStorage open(Path directory, UserService users, AppointmentService appointments,
+                                     Duration snapshotInterval) throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(directory);
+        StateRestorer restorer = new StateRestorer(users, appointments);
+
+        Snapshot.Result snapshot = null;
+        List<Long> snapshots = Snapshot.snapshots(directory);
+        for (int i = snapshots.size() - 1; i >= 0 && snapshot == null; i--) {
+            snapshot = Snapshot.load(Snapshot.snapshotFile(directory, snapshots.get(i)), restorer);
+        }
+        long fromSegment = (snapshot != null) ? snapshot.journalSegment() : 0;
+        long replayed = Journal.replay(directory, fromSegment, restorer);
+        long restoreNanos = System.nanoTime() - started;
+
+        Journal journal = new Journal(directory);
+        users.addListener(journal);
+        appointments.addListener(journal);
+        return new PortalStorage(directory, users, appointments, journal, snapshot, replayed, restoreNanos,
+                snapshotInterval);
+    }
+
+    /**
+     * Writes a snapshot of both services without pausing writers, then deletes
+     * snapshots and journal segments that are no longer needed.
+     *
+     * @return a summary of the written snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized Snapshot.Result snapshot() throws IOException {
+        long segment = journal.roll();
+        Snapshot.Result result = Snapshot.write(directory, segment, users, appointments);
+
+        List<Long> snapshots = Snapshot.snapshots(directory);
+        int firstKept = Math.max(0, snapshots.size() - SNAPSHOTS_KEPT);
+        for (int i = 0; i < firstKept; i++) {
+            Files.deleteIfExists(Snapshot.snapshotFile(directory, snapshots.get(i)));
+        }
+        Journal.deleteSegmentsBefore(directory, snapshots.get(firstKept));
+        return result;
+    }
+
+    /**
+     * Returns the data directory.
+     *
+     * @return the data directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the journal attached to the services.
+     *
+     * @return the journal
+     */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Returns the snapshot loaded when the storage was opened.
+     *
+     * @return the loaded snapshot, or {@code null} if none was found
+     */
+    public Snapshot.Result getLoadedSnapshot() {
+        return loadedSnapshot;
+    }
+
+    /**
+     * Returns the number of journal records replayed when the storage was opened.
+     *
+     * @return the number of replayed records
+     */
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * Returns the time taken to restore the services when the storage was
+     * opened, covering both the snapshot load and the journal replay.
+     *
+     * @return the restore time in nanoseconds
+     */
+    public long getRestoreNanos() {
+        return restoreNanos;
+    }
+
+    /**
+     * Stops periodic snapshots, detaches the journal from the services,
+     * flushes it, and closes it.
+     *
+     * @throws IOException if the final flush failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        users.removeListener(journal);
+        appointments.removeListener(journal);
+        journal.close();
+    }
+
+    /**
+     * Scheduled snapshot task. A failed snapshot leaves the previous ones in
+     * place, so the error is dropped and the next run tries again.
+     */
+    private void periodicSnapshot() {
+        try {
+            snapshot();
+        } catch (Exception e_) {
+
+        }
+    }
+}
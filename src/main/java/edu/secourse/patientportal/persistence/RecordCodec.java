@@ -0,0 +1,154 @@
+package edu.secourse.patientportal.persistence;
+
+import edu.secourse.patientportal.models.Admin;
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.ZoneOffset;
+
+/**
+ * Binary encoding of users and appointments shared by the journal and snapshots.
+ * <p>
+ * Every record carries the full state of the user or appointment it
+ * describes, so applying a record twice has the same effect as applying it
+ * once. Appointments refer to their patient and doctor by account number,
+ * with the username kept alongside so a participant that was never
+ * registered can still be rebuilt.
+ * <p>
+ * Layout, all integers big-endian:
+ * <ul>
+ *     <li>User: kind byte, account number int, patient, doctor, or admin ID int,
+ *     then username, hashed password, name, email, and role as nullable strings.
+ *     Files written before format version 2 have no patient, doctor, or admin ID.</li>
+ *     <li>Appointment: ID int, patient account int and username, doctor account
+ *     int and username, start as UTC epoch second long and nano int, duration
+ *     seconds long, status byte</li>
+ *     <li>Nullable string: a presence byte followed by modified UTF-8</li>
+ * </ul>
+ */
+final class RecordCodec {
+
+    /** A user was created; followed by a user. */
+    static final byte USER_CREATED = 1;
+
+    /** A user was updated; followed by the old username and the user. */
+    static final byte USER_UPDATED = 2;
+
+    /** A user was removed; followed by the username. */
+    static final byte USER_REMOVED = 3;
+
+    /** An appointment was created; followed by an appointment. */
+    static final byte APPOINTMENT_CREATED = 4;
+
+    /** An appointment was modified; followed by an appointment. */
+    static final byte APPOINTMENT_MODIFIED = 5;
+
+    /** An appointment was cancelled; followed by the appointment ID. */
+    static final byte APPOINTMENT_CANCELLED = 6;
+
+    /** User kinds, one per concrete {@link User} subclass. */
+    static final byte KIND_PATIENT = 1;
+    static final byte KIND_DOCTOR = 2;
+    static final byte KIND_ADMIN = 3;
+
+    /** First journal and snapshot format version whose user records carry the per-role ID. */
+    static final int ROLE_ID_VERSION = 2;
+
+    private RecordCodec() {
+    }
+
+    /**
+     * Writes a user's full state.
+     */
+    static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeByte(kindOf(user));
+        out.writeInt(user.getAccountNumber());
+        out.writeInt(roleIdOf(user));
+        writeString(out, user.getUsername());
+        writeString(out, user.getHashedPassword());
+        writeString(out, user.getName());
+        writeString(out, user.getEmail());
+        writeString(out, user.getRole());
+    }
+
+    /**
+     * Writes an appointment's full state.
+     */
+    static void writeAppointment(DataOutput out, Appointment appointment) throws IOException {
+        Patient patient = appointment.getPatient();
+        Doctor doctor = appointment.getDoctor();
+        out.writeInt(appointment.getAppointmentId());
+        out.writeInt(patient.getAccountNumber());
+        writeString(out, patient.getUsername());
+        out.writeInt(doctor.getAccountNumber());
+        writeString(out, doctor.getUsername());
+        out.writeLong(appointment.getAppointmentDateTime().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(appointment.getAppointmentDateTime().getNano());
+        out.writeLong(appointment.getDuration().getSeconds());
+        out.writeByte(appointment.getStatus().ordinal());
+    }
+
+    /**
+     * Writes a string that may be {@code null}.
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     */
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Skips over a string written by {@link #writeString} without decoding it.
+     */
+    static void skipString(DataInput in) throws IOException {
+        if (in.readBoolean()) {
+            int length = in.readUnsignedShort();
+            if (in.skipBytes(length) != length) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * Returns a user's patient, doctor, or admin ID, matching its kind.
+     */
+    static int roleIdOf(User user) {
+        if (user instanceof Doctor doctor) {
+            return doctor.getDoctorId();
+        }
+        if (user instanceof Admin admin) {
+            return admin.getAdminId();
+        }
+        if (user instanceof Patient patient) {
+            return patient.getPatientId();
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the kind byte for a user's class.
+     */
+    static byte kindOf(User user) {
+        if (user instanceof Doctor) {
+            return KIND_DOCTOR;
+        }
+        if (user instanceof Admin) {
+            return KIND_ADMIN;
+        }
+        return KIND_PATIENT;
+    }
+}
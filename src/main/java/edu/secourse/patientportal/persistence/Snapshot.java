@@ -0,0 +1,257 @@
+package edu.secourse.patientportal.persistence;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.User;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time binary snapshots of a {@link UserService} and an {@link AppointmentService}.
+ * <p>
+ * A snapshot is written while writers keep running: it is fuzzy, so an
+ * appointment changed during the write may be stored in its old or its new
+ * state. This is safe because the journal is rolled to a new segment just
+ * before the write starts, and every record carries full state. Loading the
+ * snapshot and then replaying the journal from that segment on ends in the
+ * same state as replaying the whole journal.
+ * <p>
+ * Snapshots are named {@code snapshot-<n>.bin}, where {@code n} is the first
+ * journal segment to replay after loading. They are written to a temporary
+ * file, forced to disk, and renamed into place, so a crash never leaves a
+ * half-written snapshot under the final name.
+ * <p>
+ * Layout, all integers big-endian:
+ * <ul>
+ *     <li>Header: magic number int, format version int, journal segment long</li>
+ *     <li>Entries: a tag byte ({@code 1} user, {@code 2} appointment) followed
+ *     by the record described in {@link RecordCodec}; users come first</li>
+ *     <li>End: a {@code 0} tag byte, the user count int, the appointment count
+ *     int, and a CRC-32C of every preceding byte</li>
+ * </ul>
+ * Loading maps the file into memory and reads it sequentially in place.
+ */
+public final class Snapshot {
+
+    /** File magic number, "PSNP". */
+    private static final int MAGIC = 0x50534E50;
+
+    /** Current file format version; version 1 snapshots can still be loaded. */
+    private static final int VERSION = 2;
+
+    private static final byte TAG_END = 0;
+    private static final byte TAG_USER = 1;
+    private static final byte TAG_APPOINTMENT = 2;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int TRAILER_BYTES = 9;
+    private static final int CHECKSUM_BYTES = 4;
+
+    /**
+     * Summary of a written or loaded snapshot.
+     *
+     * @param journalSegment the first journal segment to replay after the snapshot
+     * @param users          the number of users in the snapshot
+     * @param appointments   the number of appointments in the snapshot
+     * @param bytes          the size of the snapshot file
+     * @param nanos          the time taken to write or load the snapshot, in nanoseconds
+     */
+    public record Result(long journalSegment, int users, int appointments, long bytes, long nanos) {
+    }
+
+    private Snapshot() {
+    }
+
+    /**
+     * Returns the file holding the snapshot taken at a journal segment.
+     *
+     * @param directory      the data directory
+     * @param journalSegment the first journal segment to replay after the snapshot
+     * @return the snapshot file
+     */
+    public static Path snapshotFile(Path directory, long journalSegment) {
+        return directory.resolve(String.format("snapshot-%08d.bin", journalSegment));
+    }
+
+    /**
+     * Lists the journal segments of the snapshots present in a directory, in ascending order.
+     *
+     * @param directory the data directory
+     * @return the snapshot segment numbers (empty if none or if the directory does not exist)
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Long> snapshots(Path directory) throws IOException {
+        List<Long> snapshots = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    try {
+                        snapshots.add(Long.parseLong(name.substring("snapshot-".length(), name.length() - ".bin".length())));
+                    } catch (NumberFormatException e_) {
+
+                    }
+                }
+            }
+        }
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+
+    /**
+     * Writes a snapshot of both services without blocking their writers.
+     * <p>
+     * The journal must already have been rolled to {@code journalSegment}, so
+     * that every change the snapshot might miss is in that segment or later.
+     *
+     * @param directory      the data directory
+     * @param journalSegment the segment the journal was rolled to
+     * @param users          the user service to snapshot
+     * @param appointments   the appointment service to snapshot
+     * @return a summary of the written snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static Result write(Path directory, long journalSegment, UserService users,
+                               AppointmentService appointments) throws IOException {
+        long started = System.nanoTime();
+        Path file = snapshotFile(directory, journalSegment);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        int userCount = 0;
+        int appointmentCount = 0;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalSegment);
+
+            for (User user : users.users) {
+                out.writeByte(TAG_USER);
+                RecordCodec.writeUser(out, user);
+                userCount++;
+            }
+            Iterator<Appointment> all = appointments.getAllAppointments().iterator();
+            while (all.hasNext()) {
+                out.writeByte(TAG_APPOINTMENT);
+                RecordCodec.writeAppointment(out, all.next());
+                appointmentCount++;
+            }
+
+            out.writeByte(TAG_END);
+            out.writeInt(userCount);
+            out.writeInt(appointmentCount);
+            out.flush();
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(directory);
+        return new Result(journalSegment, userCount, appointmentCount, Files.size(file), System.nanoTime() - started);
+    }
+
+    /**
+     * Loads a snapshot into a restorer's services.
+     * <p>
+     * Users are registered as they are read. Appointments are read first and
+     * then handed to {@link AppointmentService#restoreAppointments} in one
+     * batch, so an empty service can build its indexes in bulk.
+     *
+     * The checksum is verified before anything is applied, so a damaged file
+     * leaves the services untouched.
+     *
+     * @param file     the snapshot file
+     * @param restorer the restorer to load into
+     * @return a summary of the loaded snapshot, or {@code null} if the file is
+     *         incomplete or fails its checksum
+     * @throws IOException if the file cannot be read, or passes its checksum but is malformed
+     */
+    static Result load(Path file, StateRestorer restorer) throws IOException {
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = checkedMap(channel);
+            if (map == null) {
+                return null;
+            }
+            BufferDataInput in = new BufferDataInput(map);
+            restorer.setFormatVersion(map.getInt(4));
+            map.position(8);
+            long journalSegment = in.readLong();
+
+            int userCount = 0;
+            List<Appointment> loaded = new ArrayList<>();
+            byte tag;
+            while ((tag = in.readByte()) != TAG_END) {
+                if (tag == TAG_USER) {
+                    restorer.users().createUser(restorer.readUser(in));
+                    userCount++;
+                } else if (tag == TAG_APPOINTMENT) {
+                    loaded.add(restorer.readAppointment(in));
+                } else {
+                    throw new IOException("Unknown entry tag " + tag + " in " + file);
+                }
+            }
+            if (in.readInt() != userCount || in.readInt() != loaded.size()) {
+                throw new IOException("Entry counts do not match in " + file);
+            }
+
+            restorer.appointments().restoreAppointments(loaded);
+            return new Result(journalSegment, userCount, loaded.size(), channel.size(), System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Maps a snapshot file and verifies its header and checksum.
+     *
+     * @return the mapped file, or {@code null} if it is not a valid snapshot
+     */
+    private static MappedByteBuffer checkedMap(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES + TRAILER_BYTES + CHECKSUM_BYTES || size > Integer.MAX_VALUE) {
+            return null;
+        }
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (map.getInt(0) != MAGIC || map.getInt(4) < 1 || map.getInt(4) > VERSION) {
+            return null;
+        }
+        int checksumAt = (int) size - CHECKSUM_BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(map.slice(0, checksumAt));
+        if ((int) crc.getValue() != map.getInt(checksumAt)) {
+            return null;
+        }
+        map.limit(checksumAt);
+        return map;
+    }
+
+    /**
+     * Forces a directory entry change, such as a rename, to disk where the platform allows it.
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e_) {
+
+        }
+    }
+}
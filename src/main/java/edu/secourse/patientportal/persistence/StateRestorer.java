@@ -0,0 +1,236 @@
+package edu.secourse.patientportal.persistence;
+
+import edu.secourse.patientportal.models.Admin;
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies records written by {@link RecordCodec} to a pair of services.
+ * <p>
+ * Users are tracked by account number while restoring, so every appointment
+ * that names an account shares one user object with the registry. An
+ * appointment may name an account that is registered later, or never; such a
+ * participant is rebuilt from the appointment record and, if a user record for
+ * the account follows, filled in and registered in place.
+ * <p>
+ * Restoring must happen before listeners are attached to the services,
+ * otherwise every restored change would be written to the journal again.
+ */
+final class StateRestorer {
+
+    private final UserService users;
+    private final AppointmentService appointments;
+    /** Users by account number, for accounts below {@link #DENSE_ACCOUNTS}; grown as needed. */
+    private User[] denseUsers = new User[1024];
+    /** Users with larger account numbers. */
+    private final Map<Integer, User> sparseUsers = new HashMap<>();
+
+    /** Account numbers below this are tracked in an array, since allocators hand them out densely. */
+    private static final int DENSE_ACCOUNTS = 1 << 24;
+
+    /** Whether user records being read carry a patient, doctor, or admin ID. */
+    private boolean roleIds = true;
+
+    StateRestorer(UserService users, AppointmentService appointments) {
+        this.users = users;
+        this.appointments = appointments;
+    }
+
+    /**
+     * Sets the format version of the file being read, so records written by
+     * older versions are decoded correctly.
+     *
+     * @param version the journal or snapshot format version
+     */
+    void setFormatVersion(int version) {
+        roleIds = version >= RecordCodec.ROLE_ID_VERSION;
+    }
+
+    /**
+     * Reads the body of one journal record and applies it.
+     *
+     * @param type the record type, one of the {@link RecordCodec} constants
+     * @param in   the record body
+     * @throws IOException if the body is malformed or the type is unknown
+     */
+    void apply(byte type, DataInput in) throws IOException {
+        switch (type) {
+            case RecordCodec.USER_CREATED:
+                users.createUser(readUser(in));
+                break;
+            case RecordCodec.USER_UPDATED:
+                String oldUsername = in.readUTF();
+                User user = readUser(in);
+                users.updateUser(oldUsername, user.getUsername(), user.getHashedPassword(),
+                        user.getName(), user.getEmail());
+                break;
+            case RecordCodec.USER_REMOVED:
+                users.removeUser(users.getUser(in.readUTF()));
+                break;
+            case RecordCodec.APPOINTMENT_CREATED:
+            case RecordCodec.APPOINTMENT_MODIFIED:
+                appointments.restoreAppointment(readAppointment(in));
+                break;
+            case RecordCodec.APPOINTMENT_CANCELLED:
+                appointments.cancelAppointment(in.readInt());
+                break;
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    /**
+     * Reads a user and returns the object tracked for its account, updated to
+     * the stored state. The user is not registered.
+     *
+     * @param in the input positioned at a user
+     * @return the restored user
+     * @throws IOException if the input is malformed
+     */
+    User readUser(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        int accountNumber = in.readInt();
+        int roleId = roleIds ? in.readInt() : 0;
+        User user = participant(kind, accountNumber, null);
+        if (roleId > 0) {
+            if (user instanceof Doctor doctor) {
+                doctor.setDoctorId(roleId);
+            } else if (user instanceof Admin admin) {
+                admin.setAdminId(roleId);
+            } else if (user instanceof Patient patient) {
+                patient.setPatientId(roleId);
+            }
+        }
+        user.setUsername(RecordCodec.readString(in));
+        user.setHashedPassword(RecordCodec.readString(in));
+        user.setName(RecordCodec.readString(in));
+        user.setEmail(RecordCodec.readString(in));
+        user.setRole(RecordCodec.readString(in));
+        return user;
+    }
+
+    /**
+     * Reads an appointment, linked to the users tracked for its accounts. The
+     * appointment is not stored.
+     *
+     * @param in the input positioned at an appointment
+     * @return the restored appointment
+     * @throws IOException if the input is malformed
+     */
+    Appointment readAppointment(DataInput in) throws IOException {
+        int appointmentId = in.readInt();
+        Patient patient = (Patient) participant(RecordCodec.KIND_PATIENT, in);
+        Doctor doctor = (Doctor) participant(RecordCodec.KIND_DOCTOR, in);
+        long epochSecond = in.readLong();
+        int nano = in.readInt();
+        long durationSeconds = in.readLong();
+        int status = in.readUnsignedByte();
+        if (status >= Appointment.Status.values().length) {
+            throw new IOException("Unknown appointment status " + status);
+        }
+
+        Duration duration = (durationSeconds == Appointment.DEFAULT_DURATION.getSeconds())
+                ? Appointment.DEFAULT_DURATION : Duration.ofSeconds(durationSeconds);
+        Appointment appointment = new Appointment(patient, doctor,
+                LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC), duration);
+        appointment.setAppointmentId(appointmentId);
+        appointment.setStatus(Appointment.Status.values()[status]);
+        return appointment;
+    }
+
+    /**
+     * Returns the user tracked for an account, or {@code null}.
+     */
+    private User tracked(int accountNumber) {
+        if (accountNumber >= 0 && accountNumber < DENSE_ACCOUNTS) {
+            return (accountNumber < denseUsers.length) ? denseUsers[accountNumber] : null;
+        }
+        return sparseUsers.get(accountNumber);
+    }
+
+    /**
+     * Tracks a user under an account number.
+     */
+    private void track(int accountNumber, User user) {
+        if (accountNumber >= 0 && accountNumber < DENSE_ACCOUNTS) {
+            if (accountNumber >= denseUsers.length) {
+                denseUsers = Arrays.copyOf(denseUsers, Math.min(DENSE_ACCOUNTS,
+                        Math.max(denseUsers.length * 2, accountNumber + 1)));
+            }
+            denseUsers[accountNumber] = user;
+        } else {
+            sparseUsers.put(accountNumber, user);
+        }
+    }
+
+    /**
+     * Returns the user service being restored.
+     *
+     * @return the user service
+     */
+    UserService users() {
+        return users;
+    }
+
+    /**
+     * Returns the appointment service being restored.
+     *
+     * @return the appointment service
+     */
+    AppointmentService appointments() {
+        return appointments;
+    }
+
+    /**
+     * Reads an appointment participant's account number and username and
+     * returns the user tracked for the account. The username is only decoded
+     * if the account is not tracked yet.
+     */
+    private User participant(byte kind, DataInput in) throws IOException {
+        int accountNumber = in.readInt();
+        User user = tracked(accountNumber);
+        if (user != null && RecordCodec.kindOf(user) == kind) {
+            RecordCodec.skipString(in);
+            return user;
+        }
+        return participant(kind, accountNumber, RecordCodec.readString(in));
+    }
+
+    /**
+     * Returns the user tracked for an account, creating one of the right kind if needed.
+     *
+     * @param kind          the expected user kind
+     * @param accountNumber the account number
+     * @param username      the username to give a newly created user, or {@code null}
+     * @return the tracked user
+     */
+    private User participant(byte kind, int accountNumber, String username) {
+        User user = tracked(accountNumber);
+        if (user == null || RecordCodec.kindOf(user) != kind) {
+            if (kind == RecordCodec.KIND_DOCTOR) {
+                user = new Doctor();
+            } else if (kind == RecordCodec.KIND_ADMIN) {
+                user = new Admin();
+            } else {
+                user = new Patient();
+            }
+            user.setAccountNumber(accountNumber);
+            user.setUsername(username);
+            track(accountNumber, user);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,164 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable version of the whole appointment book at one point in time,
+ * from {@link AppointmentService#getSnapshot()}.
+ * <p>
+ * A version holds an {@link AppointmentView} of every appointment, indexed
+ * by ID, patient account, and doctor account in persistent tries. Writers
+ * derive the next version by copying only the O(log n) trie nodes that
+ * change and sharing the rest, so taking a version is free and reading one
+ * never blocks a booking. Reads see every change published before the
+ * version and none after: an appointment moved between two doctors is
+ * never seen under both, or under neither.
+ */
+public final class AppointmentBook {
+
+    /** The version with no appointments. */
+    static final AppointmentBook EMPTY = new AppointmentBook(0, PersistentIntMap.empty(),
+            PersistentIntMap.empty(), PersistentIntMap.empty());
+
+    private static final Comparator<AppointmentView> BY_ID = Comparator.comparingInt(AppointmentView::appointmentId);
+
+    private final long version;
+    private final PersistentIntMap<AppointmentView> byId;
+    private final PersistentIntMap<PersistentIntMap<AppointmentView>> byPatient;
+    private final PersistentIntMap<PersistentIntMap<AppointmentView>> byDoctor;
+
+    private AppointmentBook(long version, PersistentIntMap<AppointmentView> byId,
+                            PersistentIntMap<PersistentIntMap<AppointmentView>> byPatient,
+                            PersistentIntMap<PersistentIntMap<AppointmentView>> byDoctor) {
+        this.version = version;
+        this.byId = byId;
+        this.byPatient = byPatient;
+        this.byDoctor = byDoctor;
+    }
+
+    /**
+     * Returns the version number, which grows by one with every published change.
+     *
+     * @return the version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of appointments, active or cancelled.
+     *
+     * @return the appointment count
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Looks up an appointment by ID.
+     *
+     * @param appointmentId the appointment ID
+     * @return the appointment, or {@code null} if not in this version
+     */
+    public AppointmentView get(int appointmentId) {
+        return byId.get(appointmentId);
+    }
+
+    /**
+     * Returns a patient's appointments in ID order.
+     *
+     * @param patientAccount the patient's account number
+     * @return the appointments (empty if none)
+     */
+    public List<AppointmentView> getAppointmentsForPatient(int patientAccount) {
+        return sorted(byPatient.get(patientAccount));
+    }
+
+    /**
+     * Returns a doctor's appointments in ID order.
+     *
+     * @param doctorAccount the doctor's account number
+     * @return the appointments (empty if none)
+     */
+    public List<AppointmentView> getAppointmentsForDoctor(int doctorAccount) {
+        return sorted(byDoctor.get(doctorAccount));
+    }
+
+    /**
+     * Returns a user's appointments in ID order: a doctor's bookings for a
+     * {@link Doctor}, otherwise the user's bookings as a patient.
+     *
+     * @param user the user
+     * @return the appointments (empty if none or if the user is null)
+     */
+    public List<AppointmentView> getAppointmentsForUser(User user) {
+        if (user == null) {
+            return List.of();
+        }
+        return (user instanceof Doctor) ? getAppointmentsForDoctor(user.getAccountNumber())
+                : getAppointmentsForPatient(user.getAccountNumber());
+    }
+
+    /**
+     * Passes every appointment in this version to an action, in no particular order.
+     *
+     * @param action the action to run for each appointment
+     */
+    public void forEach(Consumer<? super AppointmentView> action) {
+        byId.forEachValue(action);
+    }
+
+    /**
+     * Returns the next version, with an appointment added or replaced.
+     *
+     * @param view the appointment's new state
+     * @return the next version
+     */
+    AppointmentBook with(AppointmentView view) {
+        int id = view.appointmentId();
+        AppointmentView previous = byId.get(id);
+        PersistentIntMap<PersistentIntMap<AppointmentView>> patients = byPatient;
+        PersistentIntMap<PersistentIntMap<AppointmentView>> doctors = byDoctor;
+        if (previous != null && previous.patientAccount() != view.patientAccount()) {
+            patients = without(patients, previous.patientAccount(), id);
+        }
+        if (previous != null && previous.doctorAccount() != view.doctorAccount()) {
+            doctors = without(doctors, previous.doctorAccount(), id);
+        }
+        return new AppointmentBook(version + 1, byId.put(id, view), with(patients, view.patientAccount(), view),
+                with(doctors, view.doctorAccount(), view));
+    }
+
+    private static PersistentIntMap<PersistentIntMap<AppointmentView>> with(
+            PersistentIntMap<PersistentIntMap<AppointmentView>> index, int account, AppointmentView view) {
+        PersistentIntMap<AppointmentView> bucket = index.get(account);
+        return index.put(account, ((bucket != null) ? bucket : PersistentIntMap.<AppointmentView>empty())
+                .put(view.appointmentId(), view));
+    }
+
+    private static PersistentIntMap<PersistentIntMap<AppointmentView>> without(
+            PersistentIntMap<PersistentIntMap<AppointmentView>> index, int account, int appointmentId) {
+        PersistentIntMap<AppointmentView> bucket = index.get(account);
+        if (bucket == null) {
+            return index;
+        }
+        PersistentIntMap<AppointmentView> remaining = bucket.remove(appointmentId);
+        return (remaining.size() == 0) ? index.remove(account) : index.put(account, remaining);
+    }
+
+    private static List<AppointmentView> sorted(PersistentIntMap<AppointmentView> bucket) {
+        if (bucket == null) {
+            return List.of();
+        }
+        List<AppointmentView> result = new ArrayList<>(bucket.size());
+        bucket.forEachValue(result::add);
+        result.sort(BY_ID);
+        return result;
+    }
+}
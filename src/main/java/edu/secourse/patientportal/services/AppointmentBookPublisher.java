@@ -0,0 +1,58 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Listener that keeps the current {@link AppointmentBook} of an
+ * {@link AppointmentService} and publishes a new version for every change.
+ * <p>
+ * Publishing is a compare-and-set of the version reference, retried if
+ * another writer published first, so writers to different users never
+ * wait for each other and readers never wait at all. Changes to the same
+ * appointment are published in order, because the service calls listeners
+ * while holding that appointment's locks.
+ */
+final class AppointmentBookPublisher implements AppointmentListener {
+
+    private final AtomicReference<AppointmentBook> current = new AtomicReference<>(AppointmentBook.EMPTY);
+
+    /**
+     * Returns the latest published version.
+     *
+     * @return the current version
+     */
+    AppointmentBook current() {
+        return current.get();
+    }
+
+    /**
+     * Publishes an appointment's current state.
+     *
+     * @param appointment the appointment; ignored if it cannot be viewed
+     */
+    void publish(Appointment appointment) {
+        AppointmentView view = AppointmentView.of(appointment);
+        if (view != null) {
+            current.updateAndGet(book -> book.with(view));
+        }
+    }
+
+    @Override
+    public void appointmentCreated(Appointment appointment) {
+        publish(appointment);
+    }
+
+    @Override
+    public void appointmentModified(Appointment appointment, Patient previousPatient, Doctor previousDoctor) {
+        publish(appointment);
+    }
+
+    @Override
+    public void appointmentCancelled(Appointment appointment) {
+        publish(appointment);
+    }
+}
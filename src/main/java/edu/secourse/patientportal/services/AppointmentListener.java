@@ -0,0 +1,53 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+
+/**
+ * Callback for changes made through an {@link AppointmentService}.
+ * <p>
+ * Change callbacks run after the change is applied, while the service still
+ * holds the write locks of the affected patient and doctor, so changes to the
+ * same appointment are observed in order. They must be quick.
+ * {@link #writeCompleted()} runs after the locks are released, on the thread
+ * that made the change, before the service call returns; it is the place to
+ * wait for slow work such as a disk flush.
+ */
+public interface AppointmentListener {
+
+    /**
+     * Called after an appointment is created and given its ID.
+     *
+     * @param appointment the new appointment
+     */
+    default void appointmentCreated(Appointment appointment) {
+    }
+
+    /**
+     * Called after an appointment is modified.
+     *
+     * @param appointment     the modified appointment
+     * @param previousPatient the patient before the change
+     * @param previousDoctor  the doctor before the change
+     */
+    default void appointmentModified(Appointment appointment, Patient previousPatient, Doctor previousDoctor) {
+    }
+
+    /**
+     * Called after an appointment is cancelled.
+     *
+     * @param appointment the cancelled appointment
+     */
+    default void appointmentCancelled(Appointment appointment) {
+    }
+
+    /**
+     * Called once after each successful change, outside the service's locks.
+     * <p>
+     * Throwing makes the service report the change as failed, although it
+     * has already been applied in memory.
+     */
+    default void writeCompleted() {
+    }
+}
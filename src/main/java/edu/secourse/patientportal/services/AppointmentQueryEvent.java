@@ -0,0 +1,36 @@
+package edu.secourse.patientportal.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one per-user read on the {@link AppointmentService}:
+ * a user's appointments or a doctor's free slots.
+ */
+@Name("edu.secourse.patientportal.AppointmentQuery")
+@Label("Appointment Query")
+@Category({"Patient Portal", "Appointments"})
+@Description("Per-user read on the appointment service")
+@StackTrace(false)
+final class AppointmentQueryEvent extends Event {
+
+    static final String FOR_USER = "appointmentsForUser";
+    static final String FREE_SLOTS = "freeSlots";
+
+    @Label("Query")
+    String query;
+
+    @Label("Account")
+    int account;
+
+    @Label("Doctor")
+    @Description("Whether the account is a doctor's rather than a patient's")
+    boolean doctor;
+
+    @Label("Result Size")
+    int resultSize;
+}
@@ -0,0 +1,246 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of {@link AppointmentService#getAppointmentsForUser} results, one entry per user.
+ * <p>
+ * The cache listens to the service it fronts. Every create, modify, or
+ * cancel drops only the entries of the users it touches: the patient and
+ * doctor of the appointment, and for a modify also the previous patient and
+ * doctor. Entries for everyone else stay warm.
+ * <p>
+ * Entries are spread by user over up to {@value #MAXIMUM_STRIPES} stripes,
+ * each a small least-recently-used map with its own lock and an equal share
+ * of the maximum size, so lookups of different users rarely wait on each
+ * other. When a stripe is full, its least recently used entry is evicted.
+ * The cache is only split while each stripe keeps at least
+ * {@value #MINIMUM_STRIPE_SIZE} entries, so a small cache has a single
+ * stripe and evicts in exact LRU order.
+ * <p>
+ * Cached lists are unmodifiable. They hold the service's live
+ * {@link Appointment} objects, like an uncached call does.
+ * <p>
+ * A lookup that misses reserves the user's slot before asking the service,
+ * and stores the answer only if the slot was not invalidated in the meantime.
+ * A change that races with the lookup therefore never leaves a stale list
+ * behind. Restores bypass listeners, so the cache should be created before
+ * the service is restored or after it, never while a cached user is being
+ * restored.
+ */
+public final class AppointmentResultCache implements AppointmentListener {
+
+    /** Default number of users kept. */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    /** Largest number of stripes; a power of two. */
+    static final int MAXIMUM_STRIPES = 16;
+
+    /** Smallest share of the maximum size given to one stripe. */
+    static final int MINIMUM_STRIPE_SIZE = 64;
+
+    /**
+     * Hit, miss, and eviction counts of a cache.
+     *
+     * @param hits      lookups answered from the cache
+     * @param misses    lookups passed to the service
+     * @param evictions entries dropped to stay within the size bound
+     * @param size      entries currently held
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        /**
+         * Returns the fraction of lookups answered from the cache.
+         *
+         * @return the hit rate, or {@code 0} if there were no lookups
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return (lookups == 0) ? 0 : (double) hits / lookups;
+        }
+    }
+
+    /**
+     * A cached slot; {@code result} is {@code null} while the first lookup is still running.
+     */
+    private static final class Slot {
+        List<Appointment> result;
+    }
+
+    /**
+     * One share of the cache: an access-order map, guarded by the stripe's own monitor.
+     */
+    private final class Stripe {
+
+        final Map<Long, Slot> entries;
+
+        Stripe(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Slot> eldest) {
+                    boolean evict = size() > capacity;
+                    if (evict) {
+                        evictions.increment();
+                    }
+                    return evict;
+                }
+            };
+        }
+    }
+
+    private final AppointmentService service;
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache in front of a service and starts listening to it.
+     *
+     * @param service     the service to cache results of
+     * @param maximumSize the maximum number of users kept; must be positive
+     * @throws IllegalArgumentException if {@code service} is {@code null} or {@code maximumSize} is not positive
+     */
+    public AppointmentResultCache(AppointmentService service, int maximumSize) {
+        if (service == null || maximumSize <= 0) {
+            throw new IllegalArgumentException("A service and a positive maximum size are required");
+        }
+        this.service = service;
+        int count = 1;
+        while (count < MAXIMUM_STRIPES && (long) count * 2 * MINIMUM_STRIPE_SIZE <= maximumSize) {
+            count *= 2;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(maximumSize / count + ((i < maximumSize % count) ? 1 : 0));
+        }
+        service.addListener(this);
+    }
+
+    /**
+     * Returns a user's appointments, from the cache if present.
+     *
+     * @param user the patient or doctor whose appointments should be returned
+     * @return an unmodifiable list of matching appointments (empty if none or if user is invalid)
+     */
+    public List<Appointment> getAppointmentsForUser(User user) {
+        if (!(user instanceof Patient) && !(user instanceof Doctor)) {
+            return List.of();
+        }
+        Long key = key(user);
+        Stripe stripe = stripeOf(key);
+        Slot slot;
+        synchronized (stripe) {
+            Slot cached = stripe.entries.get(key);
+            if (cached != null && cached.result != null) {
+                hits.increment();
+                return cached.result;
+            }
+            misses.increment();
+            slot = (cached == null) ? new Slot() : null;
+            if (slot != null) {
+                stripe.entries.put(key, slot);
+            }
+        }
+
+        List<Appointment> result = Collections.unmodifiableList(service.getAppointmentsForUser(user));
+        if (slot != null) {
+            synchronized (stripe) {
+                if (stripe.entries.get(key) == slot) {
+                    slot.result = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops a user's cached result.
+     *
+     * @param user the user to drop; ignored if {@code null}
+     */
+    public void invalidate(User user) {
+        if (user instanceof Patient || user instanceof Doctor) {
+            Long key = key(user);
+            Stripe stripe = stripeOf(key);
+            synchronized (stripe) {
+                stripe.entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Drops every cached result, keeping the statistics.
+     */
+    public void invalidateAll() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the cache's hit, miss, and eviction counts.
+     *
+     * @return the current statistics
+     */
+    public Stats getStats() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * Stops listening to the service and drops every cached result.
+     */
+    public void close() {
+        service.removeListener(this);
+        invalidateAll();
+    }
+
+    @Override
+    public void appointmentCreated(Appointment appointment) {
+        invalidate(appointment.getPatient());
+        invalidate(appointment.getDoctor());
+    }
+
+    @Override
+    public void appointmentModified(Appointment appointment, Patient previousPatient, Doctor previousDoctor) {
+        invalidate(appointment.getPatient());
+        invalidate(appointment.getDoctor());
+        invalidate(previousPatient);
+        invalidate(previousDoctor);
+    }
+
+    @Override
+    public void appointmentCancelled(Appointment appointment) {
+        invalidate(appointment.getPatient());
+        invalidate(appointment.getDoctor());
+    }
+
+    private Stripe stripeOf(Long key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * Keys patients and doctors apart, since their account numbers may coincide.
+     */
+    private static Long key(User user) {
+        return ((long) user.getAccountNumber() << 1) | (user instanceof Doctor ? 1 : 0);
+    }
+}
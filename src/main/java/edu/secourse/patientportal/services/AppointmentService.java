@@ -3,9 +3,23 @@ package edu.secourse.patientportal.services;
 import edu.secourse.patientportal.models.Appointment;
 import edu.secourse.patientportal.models.*;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 /**
  * Service layer responsible for managing {@link Appointment} objects.
@@ -13,17 +27,156 @@ import java.util.ArrayList;
  * This class performs storage, lookup, creation, modification, and cancellation
  * of appointments. All operations are wrapped in try-catch blocks to protect
  * the UI layer from runtime crashes.
+ * <p>
+ * Appointments are stored in an id-keyed index, with secondary indexes by
+ * patient and by doctor account number. Lookups by id are constant time and
+ * per-user queries cost time proportional to the number of results.
+ * Duplicate detection probes a set of (patient, doctor, minute) keys held by
+ * active appointments instead of comparing against every stored appointment.
+ * Active appointments are also kept in start-time order, clinic-wide and per
+ * doctor, so time-window queries read only the requested slice.
+ * <p>
+ * Each doctor and each patient has an {@link IntervalIndex} of their active
+ * appointments. A booking that would overlap another active appointment of
+ * the same doctor or the same patient is rejected, using an O(log n) check.
+ * The same indexes answer free-slot searches by jumping from one booking to
+ * the next instead of testing every candidate minute.
+ * <p>
+ * The service is safe to share between threads. All indexes are concurrent
+ * maps, so reads never block. Writes lock only the stripes that own the
+ * affected doctor and patient, so bookings for different doctors proceed in
+ * parallel. IDs come from a pluggable {@link IdAllocator}.
+ * <p>
+ * Registered {@link AppointmentListener}s are told about every successful
+ * change, which is how the journal keeps a durable copy of the appointments.
+ * Readers that need a consistent picture of the whole book, such as reports,
+ * can take an immutable {@link AppointmentBook} from {@link #getSnapshot()}.
+ * <p>
+ * Writes, per-user reads, and index maintenance emit Java Flight Recorder
+ * events ({@link AppointmentWriteEvent}, {@link AppointmentQueryEvent},
+ * {@link IndexUpdateEvent}). Outside a recording they cost a flag check.
  */
 public class AppointmentService {
 
-    /** Internal list storing all appointments created in the system. */
-    private final ArrayList<Appointment> appointments = new ArrayList<>();
+    /** Number of write lock stripes; a power of two so a stripe is picked with a mask. */
+    private static final int LOCK_STRIPES = 64;
+
+    /** Minutes in one day, used to apply working hours to epoch minutes. */
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    /** Primary index of all appointments created in the system, keyed by appointment ID. */
+    private final Map<Integer, Entry> appointmentsById = new ConcurrentHashMap<>();
+
+    /** Secondary index: patient account number to that patient's appointments, in ID order. */
+    private final ConcurrentMap<Integer, NavigableMap<Integer, Appointment>> appointmentsByPatient = new ConcurrentHashMap<>();
+
+    /** Secondary index: doctor account number to that doctor's appointments, in ID order. */
+    private final ConcurrentMap<Integer, NavigableMap<Integer, Appointment>> appointmentsByDoctor = new ConcurrentHashMap<>();
+
+    /** (patient, doctor, minute) keys of all active appointments, used for duplicate detection. */
+    private final Set<SlotKey> activeSlots = ConcurrentHashMap.newKeySet();
+
+    /** Time index of all active appointments, ordered by start minute and then ID; replaced only by a bulk restore. */
+    private volatile IntervalIndex appointmentsByTime = new IntervalIndex();
+
+    /** Per-doctor interval index of active appointments, keyed by doctor account number. */
+    private final ConcurrentMap<Integer, IntervalIndex> doctorSchedules = new ConcurrentHashMap<>();
+
+    /** Per-patient interval index of active appointments, keyed by patient account number. */
+    private final ConcurrentMap<Integer, IntervalIndex> patientSchedules = new ConcurrentHashMap<>();
+
+    /** Write locks, striped by user account number. */
+    private final ReentrantLock[] writeLocks = new ReentrantLock[LOCK_STRIPES];
+
+    /** Source of IDs for newly created appointments. */
+    private final IdAllocator idAllocator;
+
+    /** Listeners told about every successful change. */
+    private final List<AppointmentListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Publisher of immutable versions for {@link #getSnapshot()}; {@code null} until the first call. */
+    private volatile AppointmentBookPublisher bookPublisher;
+
+    /**
+     * Default constructor. Initializes an empty appointment store that numbers
+     * appointments from 1 using an in-memory {@link BlockIdAllocator}.
+     */
+    public AppointmentService() {
+        this(null);
+    }
+
+    /**
+     * Creates an empty appointment store that takes appointment IDs from the given allocator.
+     *
+     * @param idAllocator the allocator to use; if {@code null}, an in-memory {@link BlockIdAllocator} is used
+     */
+    public AppointmentService(IdAllocator idAllocator) {
+        this.idAllocator = (idAllocator != null) ? idAllocator : new BlockIdAllocator();
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * An indexed appointment together with the keys it is currently filed under.
+     * <p>
+     * The keys are captured when the appointment is indexed so it can always be
+     * removed from the secondary indexes, even if the appointment object itself
+     * was changed outside this service. Keys only change while the lock stripes
+     * of {@link #patientAccount} and {@link #doctorAccount} are held.
+     */
+    private static final class Entry {
+        private final int appointmentId;
+        private final Appointment appointment;
+        private volatile int patientAccount;
+        private volatile int doctorAccount;
+        /** Duplicate-detection key while the appointment is active, otherwise {@code null}. */
+        private SlotKey slot;
+        /** Interval index key while the appointment is active, otherwise {@code null}. */
+        private IntervalIndex.Key timeKey;
+        /** Exclusive end minute of the indexed interval. */
+        private long endMinute;
+
+        private Entry(Appointment appointment) {
+            this.appointmentId = appointment.getAppointmentId();
+            this.appointment = appointment;
+        }
+    }
+
+    /**
+     * Duplicate-detection key: the patient and doctor account numbers and the
+     * appointment start, truncated to whole minutes since the epoch.
+     */
+    private record SlotKey(int patientAccount, int doctorAccount, long epochMinute) {
+
+        private static SlotKey of(Patient patient, Doctor doctor, LocalDateTime dateTime) {
+            return new SlotKey(patient.getAccountNumber(), doctor.getAccountNumber(), AppointmentService.epochMinute(dateTime));
+        }
+    }
+
+    /**
+     * A doctor and the start of a free slot in their schedule.
+     *
+     * @param doctor the available doctor
+     * @param start  the start of the free slot
+     */
+    public record AvailableSlot(Doctor doctor, LocalDateTime start) {
+    }
 
-    /** Auto-incrementing ID counter for newly created appointments. */
-    private int nextId = 1;
+    /**
+     * One item of a {@link #modifyAppointments} batch: the same arguments as
+     * {@link #modifyAppointment}.
+     *
+     * @param appointmentId the ID of the appointment to modify
+     * @param patient       the new patient
+     * @param doctor        the new doctor
+     * @param newDateTime   the new appointment date/time
+     */
+    public record AppointmentChange(int appointmentId, Patient patient, Doctor doctor, LocalDateTime newDateTime) {
+    }
 
     /**
-     * Creates a new appointment if it does not duplicate an existing one.
+     * Creates a new appointment if it does not duplicate or overlap an existing one.
      * <p>
      * Two appointments are considered duplicates if they share:
      * <ul>
@@ -31,32 +184,287 @@ public class AppointmentService {
      *     <li>Same doctor</li>
      *     <li>Same date/time (down to the minute)</li>
      * </ul>
+     * The appointment is also rejected if its time range overlaps another
+     * active appointment of the same doctor or the same patient.
+     * Cancelled appointments do not block a new booking of the same slot.
      *
      * @param appointment the appointment to be added
      * @return true if appointment was successfully created, false otherwise
      */
     public boolean createAppointment(Appointment appointment) {
+        AppointmentWriteEvent event = new AppointmentWriteEvent();
+        event.begin();
+        boolean success = false;
+        try {
+            SlotKey slot = SlotKey.of(appointment.getPatient(), appointment.getDoctor(),
+                    appointment.getAppointmentDateTime());
+            long endMinute = slot.epochMinute() + durationMinutes(appointment.getDuration());
+
+            int[] stripes = lock(slot.patientAccount(), slot.doctorAccount());
+            try {
+                if (event.isEnabled()) {
+                    describeConflict(event, slot, endMinute, null);
+                }
+                success = insertLocked(appointment, slot, endMinute);
+            } finally {
+                unlock(stripes);
+            }
+            if (success) {
+                success = completeWrite();
+            }
+            commit(event, AppointmentWriteEvent.CREATE, appointment.getAppointmentId(), slot, success);
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Stores an appointment under the ID it already has, replacing any
+     * appointment stored under that ID. Used to reload appointments from disk.
+     * <p>
+     * No duplicate or overlap checks are made and no listeners are told, since
+     * the appointment was validated when it was first booked. If an appointment
+     * is already stored under the ID, that object is updated in place so that
+     * existing references to it stay valid. The ID allocator is moved past the
+     * restored ID.
+     *
+     * @param appointment the appointment to restore; its ID must be positive
+     * @return true if the appointment was stored, false otherwise
+     */
+    public boolean restoreAppointment(Appointment appointment) {
         boolean success = false;
         try {
-            boolean exists = false;
+            if (appointment != null && appointment.getAppointmentId() > 0) {
+                idAllocator.advancePast(appointment.getAppointmentId());
+                SlotKey slot = SlotKey.of(appointment.getPatient(), appointment.getDoctor(),
+                        appointment.getAppointmentDateTime());
+                long endMinute = slot.epochMinute() + durationMinutes(appointment.getDuration());
+                Entry entry = appointmentsById.computeIfAbsent(appointment.getAppointmentId(),
+                        id -> new Entry(appointment));
+
+                int[] stripes = lockEntry(entry, slot.patientAccount(), slot.doctorAccount());
+                try {
+                    deactivate(entry);
+                    unindex(entry);
+                    Appointment value = entry.appointment;
+                    if (value != appointment) {
+                        value.setPatient(appointment.getPatient());
+                        value.setDoctor(appointment.getDoctor());
+                        value.setAppointmentDateTime(appointment.getAppointmentDateTime());
+                        value.setDuration(appointment.getDuration());
+                        value.setStatus(appointment.getStatus());
+                    }
+                    index(entry);
+                    if (value.getStatus() == Appointment.Status.ACTIVE) {
+                        activate(entry, slot, endMinute);
+                    }
+                    AppointmentBookPublisher publisher = bookPublisher;
+                    if (publisher != null) {
+                        publisher.publish(value);
+                    }
+                    success = true;
+                } finally {
+                    unlock(stripes);
+                }
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Stores many appointments under the IDs they already have. Used to load a snapshot.
+     * <p>
+     * When the service is empty, every index is built in bulk: the
+     * appointments are ordered with primitive sorts and each skip list is
+     * built from a sorted run in linear time, instead of searching it once
+     * per appointment. Otherwise, or if any appointment is unsuitable for the
+     * bulk path, each one is restored with {@link #restoreAppointment}.
+     * <p>
+     * All write lock stripes are held during a bulk build, so concurrent
+     * writers wait, but readers may observe the indexes while they fill.
+     *
+     * @param appointments the appointments to restore; each ID must be positive and unique
+     * @return the number of appointments stored
+     */
+    public int restoreAppointments(Collection<Appointment> appointments) {
+        int restored = -1;
+        try {
+            if (appointments != null) {
+                int[] stripes = lockAll();
+                try {
+                    if (appointmentsById.isEmpty()) {
+                        IndexUpdateEvent event = new IndexUpdateEvent();
+                        event.begin();
+                        restored = bulkRestore(appointments.toArray(new Appointment[0]));
+                        if (event.shouldCommit()) {
+                            event.action = IndexUpdateEvent.REBUILD;
+                            event.count = restored;
+                            event.commit();
+                        }
+                        AppointmentBookPublisher publisher = bookPublisher;
+                        if (publisher != null && restored > 0) {
+                            getAllAppointments().forEach(publisher::publish);
+                        }
+                    }
+                } finally {
+                    unlock(stripes);
+                }
+                if (restored < 0) {
+                    restored = 0;
+                    for (Appointment appointment : appointments) {
+                        if (restoreAppointment(appointment)) {
+                            restored++;
+                        }
+                    }
+                }
+            }
+        } catch (Exception e_) {
 
-            for (Appointment existingAppointment : appointments) {
-                boolean samePatient = existingAppointment.getPatient().equals(appointment.getPatient());
-                boolean sameDoctor = existingAppointment.getDoctor().equals(appointment.getDoctor());
-                boolean sameTime = existingAppointment.getAppointmentDateTime()
-                        .truncatedTo(ChronoUnit.MINUTES)
-                        .equals(appointment.getAppointmentDateTime().truncatedTo(ChronoUnit.MINUTES));
+        }
+        return Math.max(restored, 0);
+    }
 
-                if (samePatient && sameDoctor && sameTime) {
-                    exists = true;
-                    break;
+    /**
+     * Builds every index from scratch for an empty service.
+     * <p>
+     * Appointments are first ranked by ID with a sort of packed
+     * {@code (id, position)} longs. Per-user buckets come from a sort of
+     * {@code (account, rank)} and schedules from a sort of
+     * {@code (account, time position)}, so each bucket or schedule is a
+     * contiguous, already ordered run. Nothing is changed until every
+     * appointment has been validated.
+     * <p>
+     * The caller must hold every lock stripe.
+     *
+     * @param all the appointments to store
+     * @return the number stored, or -1 if the bulk path cannot be used
+     */
+    private int bulkRestore(Appointment[] all) {
+        int count = all.length;
+        long[] byId = new long[count];
+        for (int i = 0; i < count; i++) {
+            Appointment appointment = all[i];
+            if (appointment == null || appointment.getAppointmentId() <= 0 || appointment.getPatient() == null
+                    || appointment.getDoctor() == null || appointment.getAppointmentDateTime() == null) {
+                return -1;
+            }
+            byId[i] = ((long) appointment.getAppointmentId() << 32) | i;
+        }
+        Arrays.parallelSort(byId);
+
+        Entry[] entries = new Entry[count];
+        Integer[] ids = new Integer[count];
+        Appointment[] ranked = new Appointment[count];
+        long[] byStart = new long[count];
+        int active = 0;
+        for (int rank = 0; rank < count; rank++) {
+            if (rank > 0 && (byId[rank] >>> 32) == (byId[rank - 1] >>> 32)) {
+                return -1;
+            }
+            Appointment appointment = all[(int) byId[rank]];
+            Entry entry = new Entry(appointment);
+            entry.patientAccount = appointment.getPatient().getAccountNumber();
+            entry.doctorAccount = appointment.getDoctor().getAccountNumber();
+            if (entry.patientAccount < 0 || entry.doctorAccount < 0) {
+                return -1;
+            }
+            entries[rank] = entry;
+            ids[rank] = entry.appointmentId;
+            ranked[rank] = appointment;
+            if (appointment.getStatus() == Appointment.Status.ACTIVE) {
+                long start = epochMinute(appointment.getAppointmentDateTime());
+                if (start != (int) start) {
+                    return -1;
                 }
+                byStart[active++] = (start << 32) | rank;
+            }
+        }
+
+        // putAll presizes the table once instead of resizing it repeatedly
+        appointmentsById.putAll(new SortedRun<>(ids, entries, null, 0, count));
+        buildBuckets(appointmentsByPatient, ids, ranked, entries, true);
+        buildBuckets(appointmentsByDoctor, ids, ranked, entries, false);
+
+        Arrays.parallelSort(byStart, 0, active);
+        IntervalIndex.Key[] keys = new IntervalIndex.Key[active];
+        IntervalIndex.Booking[] bookings = new IntervalIndex.Booking[active];
+        int[] rankAt = new int[active];
+        for (int i = 0; i < active; i++) {
+            int rank = (int) byStart[i];
+            long start = byStart[i] >> 32;
+            Entry entry = entries[rank];
+            long endMinute = start + durationMinutes(entry.appointment.getDuration());
+            entry.slot = new SlotKey(entry.patientAccount, entry.doctorAccount, start);
+            entry.timeKey = new IntervalIndex.Key(start, entry.appointmentId);
+            entry.endMinute = endMinute;
+            activeSlots.add(entry.slot);
+            keys[i] = entry.timeKey;
+            bookings[i] = new IntervalIndex.Booking(endMinute, entry.appointment);
+            rankAt[i] = rank;
+        }
+        appointmentsByTime = new IntervalIndex(new SortedRun<>(keys, bookings, null, 0, active));
+        buildSchedules(doctorSchedules, keys, bookings, rankAt, entries, false);
+        buildSchedules(patientSchedules, keys, bookings, rankAt, entries, true);
+        return count;
+    }
+
+    /**
+     * Builds the per-user ID-ordered buckets from entries in ID order.
+     */
+    private static void buildBuckets(ConcurrentMap<Integer, NavigableMap<Integer, Appointment>> index,
+                                     Integer[] ids, Appointment[] ranked, Entry[] entries, boolean byPatient) {
+        long[] order = new long[entries.length];
+        for (int rank = 0; rank < entries.length; rank++) {
+            Entry entry = entries[rank];
+            order[rank] = ((long) (byPatient ? entry.patientAccount : entry.doctorAccount) << 32) | rank;
+        }
+        Arrays.parallelSort(order);
+        for (int from = 0, to; from < order.length; from = to) {
+            long account = order[from] >>> 32;
+            to = from + 1;
+            while (to < order.length && (order[to] >>> 32) == account) {
+                to++;
+            }
+            index.put((int) account, new ConcurrentSkipListMap<>(new SortedRun<>(ids, ranked, order, from, to)));
+        }
+    }
+
+    /**
+     * Builds the per-user interval indexes from active intervals in time order.
+     */
+    private static void buildSchedules(ConcurrentMap<Integer, IntervalIndex> schedules, IntervalIndex.Key[] keys,
+                                       IntervalIndex.Booking[] bookings, int[] rankAt, Entry[] entries,
+                                       boolean byPatient) {
+        long[] order = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            Entry entry = entries[rankAt[i]];
+            order[i] = ((long) (byPatient ? entry.patientAccount : entry.doctorAccount) << 32) | i;
+        }
+        Arrays.parallelSort(order);
+        for (int from = 0, to; from < order.length; from = to) {
+            long account = order[from] >>> 32;
+            to = from + 1;
+            while (to < order.length && (order[to] >>> 32) == account) {
+                to++;
             }
+            schedules.put((int) account, new IntervalIndex(new SortedRun<>(keys, bookings, order, from, to)));
+        }
+    }
 
-            if (!exists) {
-                appointment.setAppointmentId(nextId++);
-                appointments.add(appointment);
-                success = true;
+    /**
+     * Registers a listener to be told about every later change.
+     *
+     * @param listener the listener to add
+     * @return true if the listener was added, false otherwise
+     */
+    public boolean addListener(AppointmentListener listener) {
+        boolean success = false;
+        try {
+            if (listener != null) {
+                success = listeners.add(listener);
             }
         } catch (Exception e_) {
 
@@ -64,6 +472,16 @@ public class AppointmentService {
         return success;
     }
 
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to remove
+     * @return true if the listener was registered, false otherwise
+     */
+    public boolean removeListener(AppointmentListener listener) {
+        return listeners.remove(listener);
+    }
+
     /**
      * Cancels an existing appointment by ID by marking its status as CANCELLED.
      *
@@ -71,18 +489,29 @@ public class AppointmentService {
      * @return true if cancellation succeeded, false if not found
      */
     public boolean cancelAppointment(int appointmentId) {
+        AppointmentWriteEvent event = new AppointmentWriteEvent();
+        event.begin();
         boolean success = false;
         try {
-            for (int i = 0; i < appointments.size(); i++) {
-                if (appointments.get(i) != null) {
-                    Appointment appointment = appointments.get(i);
-
-                    if (appointment.getAppointmentId() == appointmentId) {
-                        appointment.setStatus(Appointment.Status.CANCELLED);
-                        success = true;
+            Entry entry = appointmentsById.get(appointmentId);
+            if (entry != null) {
+                int[] stripes = lockEntry(entry);
+                try {
+                    if (event.isEnabled()) {
+                        event.patientAccount = entry.patientAccount;
+                        event.doctorAccount = entry.doctorAccount;
+                        event.startMinute = (entry.timeKey != null) ? entry.timeKey.start() : 0;
                     }
+                    cancelLocked(entry);
+                    success = true;
+                } finally {
+                    unlock(stripes);
+                }
+                if (success) {
+                    success = completeWrite();
                 }
             }
+            commit(event, AppointmentWriteEvent.CANCEL, appointmentId, null, success);
         } catch (Exception e_) {
 
         }
@@ -91,6 +520,13 @@ public class AppointmentService {
 
     /**
      * Modifies an existing appointment by updating its patient, doctor, and date/time.
+     * <p>
+     * If the patient or doctor changes, the appointment is moved to the new
+     * user's index so per-user queries stay correct. The modification is
+     * rejected if another active appointment already holds the same patient,
+     * doctor, and minute, or if the new time range, with the appointment's
+     * current duration, overlaps another active appointment of the new doctor
+     * or the new patient.
      *
      * @param appointmentId the ID of the appointment to modify
      * @param patient       the new patient object
@@ -99,25 +535,262 @@ public class AppointmentService {
      * @return true if the appointment was modified, false otherwise
      */
     public boolean modifyAppointment(int appointmentId, Patient patient, Doctor doctor, LocalDateTime newDateTime) {
+        AppointmentWriteEvent event = new AppointmentWriteEvent();
+        event.begin();
         boolean success = false;
         try {
-            for (Appointment value : appointments) {
-                if (value != null) {
-                    if (value.getAppointmentId() == appointmentId) {
-                        value.setPatient(patient);
-                        value.setDoctor(doctor);
-                        value.setAppointmentDateTime(newDateTime);
-                        value.setStatus(Appointment.Status.ACTIVE);
-                        success = true;
+            SlotKey slot = null;
+            Entry entry = appointmentsById.get(appointmentId);
+            if (entry != null && patient != null && doctor != null && newDateTime != null) {
+                slot = SlotKey.of(patient, doctor, newDateTime);
+                long endMinute = slot.epochMinute() + durationMinutes(entry.appointment.getDuration());
+
+                int[] stripes = lockEntry(entry, slot.patientAccount(), slot.doctorAccount());
+                try {
+                    if (event.isEnabled()) {
+                        describeConflict(event, slot, endMinute, entry);
                     }
+                    success = moveLocked(entry, patient, doctor, newDateTime, slot, endMinute);
+                } finally {
+                    unlock(stripes);
+                }
+                if (success) {
+                    success = completeWrite();
                 }
             }
+            commit(event, AppointmentWriteEvent.MODIFY, appointmentId, slot, success);
         } catch (Exception e_) {
 
         }
         return success;
     }
 
+    /**
+     * Creates a batch of appointments, with the same checks as
+     * {@link #createAppointment} for each one.
+     * <p>
+     * Every item is validated first, without locking. The valid items are then
+     * applied in order under a single acquisition of every lock stripe, so
+     * each item is checked against the stored appointments and against the
+     * items before it: a batch that books the same slot twice gets the first
+     * booking and a rejection for the second. Listeners hear about each
+     * booking as it is applied, and the batch waits for them to finish
+     * writing once, at the end.
+     * <p>
+     * Other writers wait while a batch is applied, so very large imports are
+     * best split into batches of some thousands of items.
+     *
+     * @param appointments the appointments to create, in the order to apply them
+     * @return for each item in iteration order, true if it was created (empty if the batch is null)
+     */
+    public boolean[] createAppointments(Collection<Appointment> appointments) {
+        if (appointments == null) {
+            return new boolean[0];
+        }
+        Appointment[] items = appointments.toArray(new Appointment[0]);
+        boolean[] results = new boolean[items.length];
+        try {
+            SlotKey[] slots = new SlotKey[items.length];
+            long[] endMinutes = new long[items.length];
+            for (int i = 0; i < items.length; i++) {
+                try {
+                    slots[i] = SlotKey.of(items[i].getPatient(), items[i].getDoctor(),
+                            items[i].getAppointmentDateTime());
+                    endMinutes[i] = slots[i].epochMinute() + durationMinutes(items[i].getDuration());
+                } catch (Exception e_) {
+                    slots[i] = null;
+                }
+            }
+
+            int[] stripes = lockAll();
+            try {
+                for (int i = 0; i < items.length; i++) {
+                    if (slots[i] != null) {
+                        AppointmentWriteEvent event = new AppointmentWriteEvent();
+                        event.begin();
+                        if (event.isEnabled()) {
+                            describeConflict(event, slots[i], endMinutes[i], null);
+                        }
+                        results[i] = insertLocked(items[i], slots[i], endMinutes[i]);
+                        commit(event, AppointmentWriteEvent.CREATE, items[i].getAppointmentId(), slots[i], results[i]);
+                    }
+                }
+            } finally {
+                unlock(stripes);
+            }
+            completeBatch(results);
+        } catch (Exception e_) {
+
+        }
+        return results;
+    }
+
+    /**
+     * Cancels a batch of appointments by ID, under a single acquisition of
+     * every lock stripe. Listeners finish writing once, at the end.
+     *
+     * @param appointmentIds the IDs of the appointments to cancel
+     * @return for each ID in order, true if it was cancelled, false if not found
+     *         (empty if the batch is null)
+     */
+    public boolean[] cancelAppointments(int[] appointmentIds) {
+        if (appointmentIds == null) {
+            return new boolean[0];
+        }
+        boolean[] results = new boolean[appointmentIds.length];
+        try {
+            int[] stripes = lockAll();
+            try {
+                for (int i = 0; i < appointmentIds.length; i++) {
+                    Entry entry = appointmentsById.get(appointmentIds[i]);
+                    if (entry != null) {
+                        AppointmentWriteEvent event = new AppointmentWriteEvent();
+                        event.begin();
+                        if (event.isEnabled()) {
+                            event.patientAccount = entry.patientAccount;
+                            event.doctorAccount = entry.doctorAccount;
+                            event.startMinute = (entry.timeKey != null) ? entry.timeKey.start() : 0;
+                        }
+                        cancelLocked(entry);
+                        results[i] = true;
+                        commit(event, AppointmentWriteEvent.CANCEL, appointmentIds[i], null, true);
+                    }
+                }
+            } finally {
+                unlock(stripes);
+            }
+            completeBatch(results);
+        } catch (Exception e_) {
+
+        }
+        return results;
+    }
+
+    /**
+     * Removes a user from a {@link UserService} and cancels every active
+     * appointment they hold, as one step.
+     * <p>
+     * The user's appointments are found through the per-patient or per-doctor
+     * index, so the work is proportional to their own k appointments, not to
+     * every stored one. The lock stripes of the user and of every counterpart
+     * on those appointments are held while the user is removed and the
+     * appointments are cancelled, so no booking for the user can slip in
+     * between. If the user is not registered, nothing is cancelled.
+     * <p>
+     * Appointments are cancelled rather than deleted, so the history stays
+     * visible and each change reaches the journal like any other cancellation.
+     * Listeners of both services are waited on once, after the locks are
+     * released, so a slow disk flush does not hold up other bookings.
+     * <p>
+     * A result of -1 means either that the user was not registered, in which
+     * case nothing changed, or that a listener failed to finish writing. In
+     * the second case the user has already been removed and the appointments
+     * cancelled in memory, as with any other failed write.
+     *
+     * @param userService the service the user is registered with
+     * @param user        the user to remove
+     * @return the number of appointments cancelled, or -1 if the user was not
+     *         registered or the change could not be completed
+     */
+    public int removeUser(UserService userService, User user) {
+        int cancelled = -1;
+        try {
+            if (userService != null && user != null) {
+                ConcurrentMap<Integer, NavigableMap<Integer, Appointment>> index = null;
+                if (user instanceof Patient) {
+                    index = appointmentsByPatient;
+                } else if (user instanceof Doctor) {
+                    index = appointmentsByDoctor;
+                }
+                int account = user.getAccountNumber();
+
+                int[] stripes = lockUser(index, account);
+                try {
+                    if (userService.removeUserWithoutWaiting(user)) {
+                        cancelled = 0;
+                        NavigableMap<Integer, Appointment> held = (index != null) ? index.get(account) : null;
+                        if (held != null) {
+                            for (Integer appointmentId : held.keySet()) {
+                                Entry entry = appointmentsById.get(appointmentId);
+                                if (entry != null && entry.slot != null) {
+                                    AppointmentWriteEvent event = new AppointmentWriteEvent();
+                                    event.begin();
+                                    if (event.isEnabled()) {
+                                        event.patientAccount = entry.patientAccount;
+                                        event.doctorAccount = entry.doctorAccount;
+                                        event.startMinute = (entry.timeKey != null) ? entry.timeKey.start() : 0;
+                                    }
+                                    cancelLocked(entry);
+                                    cancelled++;
+                                    commit(event, AppointmentWriteEvent.CANCEL, appointmentId, null, true);
+                                }
+                            }
+                        }
+                    }
+                } finally {
+                    unlock(stripes);
+                }
+                if (cancelled >= 0) {
+                    boolean completed = userService.completeWrite();
+                    if (cancelled > 0) {
+                        completed &= completeWrite();
+                    }
+                    if (!completed) {
+                        cancelled = -1;
+                    }
+                }
+            }
+        } catch (Exception e_) {
+
+        }
+        return cancelled;
+    }
+
+    /**
+     * Modifies a batch of appointments, with the same checks as
+     * {@link #modifyAppointment} for each one. Changes are applied in order
+     * under a single acquisition of every lock stripe, so each is checked
+     * against the changes before it. Listeners finish writing once, at the end.
+     *
+     * @param changes the changes to apply, in order
+     * @return for each change in iteration order, true if it was applied (empty if the batch is null)
+     */
+    public boolean[] modifyAppointments(Collection<AppointmentChange> changes) {
+        if (changes == null) {
+            return new boolean[0];
+        }
+        AppointmentChange[] items = changes.toArray(new AppointmentChange[0]);
+        boolean[] results = new boolean[items.length];
+        try {
+            int[] stripes = lockAll();
+            try {
+                for (int i = 0; i < items.length; i++) {
+                    AppointmentChange change = items[i];
+                    Entry entry = (change != null) ? appointmentsById.get(change.appointmentId()) : null;
+                    if (entry != null && change.patient() != null && change.doctor() != null
+                            && change.newDateTime() != null) {
+                        SlotKey slot = SlotKey.of(change.patient(), change.doctor(), change.newDateTime());
+                        long endMinute = slot.epochMinute() + durationMinutes(entry.appointment.getDuration());
+                        AppointmentWriteEvent event = new AppointmentWriteEvent();
+                        event.begin();
+                        if (event.isEnabled()) {
+                            describeConflict(event, slot, endMinute, entry);
+                        }
+                        results[i] = moveLocked(entry, change.patient(), change.doctor(), change.newDateTime(),
+                                slot, endMinute);
+                        commit(event, AppointmentWriteEvent.MODIFY, change.appointmentId(), slot, results[i]);
+                    }
+                }
+            } finally {
+                unlock(stripes);
+            }
+            completeBatch(results);
+        } catch (Exception e_) {
+
+        }
+        return results;
+    }
+
     /**
      * Retrieves all appointments associated with a specific user.
      * <p>
@@ -126,25 +799,792 @@ public class AppointmentService {
      *     <li>If user is a Patient → return all appointments in which they are the patient</li>
      *     <li>If user is a Doctor → return all appointments in which they are the doctor</li>
      * </ul>
+     * Users are matched by account number, which is stable across username changes.
      *
      * @param user the user whose appointments should be returned
      * @return a list of matching appointments (empty if none or if user is invalid)
      */
     public ArrayList<Appointment> getAppointmentsForUser(User user) {
+        AppointmentQueryEvent event = new AppointmentQueryEvent();
+        event.begin();
         ArrayList<Appointment> result = new ArrayList<>();
         try {
-            if (user != null) {
-                for (Appointment appointment : appointments) {
-                    if (user instanceof Patient && appointment.getPatient().equals(user)) {
-                        result.add(appointment);
-                    } else if (user instanceof Doctor && appointment.getDoctor().equals(user)) {
-                        result.add(appointment);
+            NavigableMap<Integer, Appointment> matches = null;
+            if (user instanceof Patient) {
+                matches = appointmentsByPatient.get(user.getAccountNumber());
+            } else if (user instanceof Doctor) {
+                matches = appointmentsByDoctor.get(user.getAccountNumber());
+            }
+            if (matches != null) {
+                result.addAll(matches.values());
+            }
+            if (event.shouldCommit() && user != null) {
+                event.query = AppointmentQueryEvent.FOR_USER;
+                event.account = user.getAccountNumber();
+                event.doctor = user instanceof Doctor;
+                event.resultSize = result.size();
+                event.commit();
+            }
+        } catch (Exception e) {
+
+        }
+        return result;
+    }
+
+    /**
+     * Returns every stored appointment, active or cancelled, in no particular order.
+     * <p>
+     * The stream is produced lazily and does not block writers. It reflects
+     * each appointment as it is when the stream reaches it, so appointments
+     * changed while the stream is read may appear in either state.
+     *
+     * @return a stream of all stored appointments
+     */
+    public Stream<Appointment> getAllAppointments() {
+        return appointmentsById.values().stream().map(entry -> entry.appointment);
+    }
+
+    /**
+     * Returns a consistent, immutable view of every appointment at a single point in time.
+     * <p>
+     * Unlike {@link #getAppointmentsForUser}, which returns live objects that
+     * may change while they are read, a snapshot never changes: reports can
+     * walk it at leisure without blocking bookings and without seeing a
+     * half-applied move. Taking a snapshot is a single volatile read.
+     * <p>
+     * The first call turns on snapshot-read mode: the current appointments are
+     * copied into a first version while writers are held off, and from then on
+     * every change also publishes a new version, at a cost of O(log n).
+     *
+     * @return the latest published version of the appointment book
+     */
+    public AppointmentBook getSnapshot() {
+        AppointmentBookPublisher publisher = bookPublisher;
+        if (publisher == null) {
+            publisher = enableSnapshots();
+        }
+        return publisher.current();
+    }
+
+    /**
+     * Creates the snapshot publisher and seeds it, once, with every write lock
+     * held so no change is missed or published twice.
+     */
+    private synchronized AppointmentBookPublisher enableSnapshots() {
+        if (bookPublisher == null) {
+            int[] stripes = lockAll();
+            try {
+                AppointmentBookPublisher publisher = new AppointmentBookPublisher();
+                getAllAppointments().forEach(publisher::publish);
+                listeners.add(publisher);
+                bookPublisher = publisher;
+            } finally {
+                unlock(stripes);
+            }
+        }
+        return bookPublisher;
+    }
+
+    /**
+     * Returns all active appointments starting within a time window, in start-time order.
+     * <p>
+     * The window is half-open and measured in whole minutes: an appointment is
+     * included if its start minute is at or after {@code from} and before {@code to}.
+     * Results are produced lazily from the time index, so callers that stop early
+     * only pay for the appointments they read.
+     *
+     * @param from the inclusive start of the window
+     * @param to   the exclusive end of the window
+     * @return a stream of matching appointments (empty if the window is invalid)
+     */
+    public Stream<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        Stream<Appointment> result = Stream.empty();
+        try {
+            if (from != null && to != null) {
+                result = appointmentsByTime.startingBetween(epochMinute(from), epochMinute(to));
+            }
+        } catch (Exception e_) {
+
+        }
+        return result;
+    }
+
+    /**
+     * Returns a doctor's active appointments starting within a time window, in start-time order.
+     * <p>
+     * Uses the same half-open, minute-based window as {@link #getAppointmentsBetween}.
+     *
+     * @param doctor the doctor whose schedule is read
+     * @param from   the inclusive start of the window
+     * @param to     the exclusive end of the window
+     * @return a stream of matching appointments (empty if the doctor or window is invalid)
+     */
+    public Stream<Appointment> getAppointmentsForDoctorBetween(Doctor doctor, LocalDateTime from, LocalDateTime to) {
+        Stream<Appointment> result = Stream.empty();
+        try {
+            if (doctor != null && from != null && to != null) {
+                IntervalIndex schedule = doctorSchedules.get(doctor.getAccountNumber());
+                if (schedule != null) {
+                    result = schedule.startingBetween(epochMinute(from), epochMinute(to));
+                }
+            }
+        } catch (Exception e_) {
+
+        }
+        return result;
+    }
+
+    /**
+     * Finds up to {@code count} free slots in a doctor's schedule within a time window.
+     * <p>
+     * Candidate slots start at the opening of each working day, and each slot
+     * begins where the previous free slot or conflicting booking ends. Every
+     * step is a single O(log n) lookup in the doctor's interval index, so the
+     * cost grows with the number of bookings skipped, not with minutes searched.
+     * Results reflect the schedule at the time of the call; a later
+     * {@link #createAppointment} remains the authority on whether a slot is still free.
+     *
+     * @param doctor     the doctor whose schedule is searched
+     * @param from       the inclusive start of the search window
+     * @param to         the exclusive end of the search window; slots must end by then
+     * @param dayStart   the start of working hours on each day
+     * @param dayEnd     the end of working hours on each day; must be after {@code dayStart}
+     * @param slotLength the length of each slot; must be positive
+     * @param count      the maximum number of slots to return
+     * @return the start times of free slots in time order (empty if none or if input is invalid)
+     */
+    public ArrayList<LocalDateTime> findFreeSlots(Doctor doctor, LocalDateTime from, LocalDateTime to,
+                                                  LocalTime dayStart, LocalTime dayEnd,
+                                                  Duration slotLength, int count) {
+        AppointmentQueryEvent event = new AppointmentQueryEvent();
+        event.begin();
+        ArrayList<LocalDateTime> result = new ArrayList<>();
+        try {
+            if (doctor != null && isValidSearch(from, to, dayStart, dayEnd, slotLength)) {
+                IntervalIndex schedule = doctorSchedules.get(doctor.getAccountNumber());
+                long length = durationMinutes(slotLength);
+                long end = epochMinute(to);
+                long cursor = epochMinute(from);
+
+                while (result.size() < count) {
+                    long start = nextFreeStart(schedule, cursor, end, length, dayStart, dayEnd);
+                    if (start == Long.MIN_VALUE) {
+                        break;
                     }
+                    result.add(fromEpochMinute(start));
+                    cursor = start + length;
+                }
+                if (event.shouldCommit()) {
+                    event.query = AppointmentQueryEvent.FREE_SLOTS;
+                    event.account = doctor.getAccountNumber();
+                    event.doctor = true;
+                    event.resultSize = result.size();
+                    event.commit();
                 }
             }
-        } catch (Exception e) {
+        } catch (Exception e_) {
+
+        }
+        return result;
+    }
+
+    /**
+     * Finds the doctor who is free the earliest, at or after {@code from}, for a slot of the given length.
+     * <p>
+     * Each doctor's next free slot is found with the same booking-to-booking
+     * jumps as {@link #findFreeSlots}; the search stops early if a doctor is
+     * free at {@code from} itself.
+     *
+     * @param doctors    the doctors to consider
+     * @param from       the inclusive start of the search window
+     * @param to         the exclusive end of the search window; the slot must end by then
+     * @param dayStart   the start of working hours on each day
+     * @param dayEnd     the end of working hours on each day; must be after {@code dayStart}
+     * @param slotLength the length of the slot; must be positive
+     * @return the earliest available doctor and slot start, or {@code null} if none is free
+     */
+    public AvailableSlot findEarliestAvailableDoctor(Collection<? extends Doctor> doctors,
+                                                     LocalDateTime from, LocalDateTime to,
+                                                     LocalTime dayStart, LocalTime dayEnd,
+                                                     Duration slotLength) {
+        AvailableSlot result = null;
+        try {
+            if (doctors != null && isValidSearch(from, to, dayStart, dayEnd, slotLength)) {
+                long length = durationMinutes(slotLength);
+                long begin = epochMinute(from);
+                long end = epochMinute(to);
+                Doctor bestDoctor = null;
+                long bestStart = Long.MAX_VALUE;
+
+                for (Doctor doctor : doctors) {
+                    if (doctor == null) {
+                        continue;
+                    }
+                    IntervalIndex schedule = doctorSchedules.get(doctor.getAccountNumber());
+                    // Only a start before the best so far can win, so stop searching there.
+                    long limit = (bestDoctor == null) ? end : Math.min(end, bestStart - 1 + length);
+                    long start = nextFreeStart(schedule, begin, limit, length, dayStart, dayEnd);
+                    if (start != Long.MIN_VALUE && start < bestStart) {
+                        bestDoctor = doctor;
+                        bestStart = start;
+                        if (start == begin) {
+                            break;
+                        }
+                    }
+                }
+                if (bestDoctor != null) {
+                    result = new AvailableSlot(bestDoctor, fromEpochMinute(bestStart));
+                }
+            }
+        } catch (Exception e_) {
 
         }
         return result;
     }
+
+    /**
+     * Waits for listeners to finish writing a batch. If they fail, every
+     * applied item is reported as failed, as a single write would be.
+     *
+     * @param results the per-item results, updated in place
+     */
+    private void completeBatch(boolean[] results) {
+        for (boolean result : results) {
+            if (result) {
+                if (!completeWrite()) {
+                    Arrays.fill(results, false);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells every listener that a change has been applied, outside the locks.
+     *
+     * @return true if every listener accepted the change, false otherwise
+     */
+    private boolean completeWrite() {
+        boolean success = true;
+        for (AppointmentListener listener : listeners) {
+            try {
+                listener.writeCompleted();
+            } catch (Exception e_) {
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Validates the arguments shared by the free-slot searches.
+     */
+    private static boolean isValidSearch(LocalDateTime from, LocalDateTime to, LocalTime dayStart,
+                                         LocalTime dayEnd, Duration slotLength) {
+        return from != null && to != null && from.isBefore(to)
+                && dayStart != null && dayEnd != null && dayStart.isBefore(dayEnd)
+                && slotLength != null && !slotLength.isNegative() && !slotLength.isZero();
+    }
+
+    /**
+     * Finds the first free start at or after {@code cursor} that fits within
+     * working hours and ends by {@code end}.
+     * <p>
+     * Alternates between moving the candidate into working hours and jumping
+     * past the booking that conflicts with it, until a candidate fits.
+     *
+     * @param schedule the doctor's interval index, or {@code null} if they have no bookings
+     * @param cursor   the earliest candidate start minute
+     * @param end      the exclusive minute by which the slot must end
+     * @param length   the slot length in minutes
+     * @param dayStart the start of working hours
+     * @param dayEnd   the end of working hours
+     * @return the free start minute, or {@link Long#MIN_VALUE} if none fits
+     */
+    private static long nextFreeStart(IntervalIndex schedule, long cursor, long end, long length,
+                                      LocalTime dayStart, LocalTime dayEnd) {
+        long open = dayStart.toSecondOfDay() / 60;
+        long close = dayEnd.toSecondOfDay() / 60;
+
+        while (cursor + length <= end) {
+            long day = Math.floorDiv(cursor, MINUTES_PER_DAY);
+            long minuteOfDay = cursor - day * MINUTES_PER_DAY;
+            if (minuteOfDay < open) {
+                cursor = day * MINUTES_PER_DAY + open;
+                continue;
+            }
+            if (minuteOfDay + length > close) {
+                cursor = (day + 1) * MINUTES_PER_DAY + open;
+                continue;
+            }
+
+            long conflictEnd = (schedule != null) ? schedule.conflictEnd(cursor, cursor + length) : Long.MIN_VALUE;
+            if (conflictEnd == Long.MIN_VALUE) {
+                return cursor;
+            }
+            cursor = conflictEnd;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Checks that a booking neither duplicates an active appointment nor
+     * overlaps one of the same doctor or patient.
+     * <p>
+     * The caller must hold the lock stripes of the slot's patient and doctor.
+     *
+     * @param slot      the booking's duplicate-detection key
+     * @param endMinute the booking's exclusive end minute
+     * @param self      the entry being modified, which never conflicts with itself,
+     *                  or {@code null} for a new booking
+     * @return true if the booking can be made
+     */
+    private boolean isFree(SlotKey slot, long endMinute, Entry self) {
+        int excludeId = (self != null) ? self.appointmentId : 0;
+        if (activeSlots.contains(slot) && (self == null || !slot.equals(self.slot))) {
+            return false;
+        }
+        IntervalIndex doctorSchedule = doctorSchedules.get(slot.doctorAccount());
+        if (doctorSchedule != null && doctorSchedule.overlaps(slot.epochMinute(), endMinute, excludeId)) {
+            return false;
+        }
+        IntervalIndex patientSchedule = patientSchedules.get(slot.patientAccount());
+        return patientSchedule == null || !patientSchedule.overlaps(slot.epochMinute(), endMinute, excludeId);
+    }
+
+    /**
+     * Looks up a stored appointment by ID.
+     *
+     * @param appointmentId the appointment ID
+     * @return the appointment, or {@code null} if not found
+     */
+    Appointment findAppointment(int appointmentId) {
+        Entry entry = appointmentsById.get(appointmentId);
+        return (entry != null) ? entry.appointment : null;
+    }
+
+    /**
+     * Checks whether a patient has an active appointment overlapping a time
+     * range. Used by {@link ShardedAppointmentService} to check a patient's
+     * bookings held by other shards; the answer may be stale unless the
+     * caller keeps the patient from booking elsewhere meanwhile.
+     *
+     * @param patientAccount the patient's account number
+     * @param startMinute    the inclusive start, in epoch minutes
+     * @param endMinute      the exclusive end, in epoch minutes
+     * @return true if an active appointment of the patient overlaps the range
+     */
+    boolean patientOverlaps(int patientAccount, long startMinute, long endMinute) {
+        IntervalIndex patientSchedule = patientSchedules.get(patientAccount);
+        return patientSchedule != null && patientSchedule.overlaps(startMinute, endMinute, 0);
+    }
+
+    /**
+     * Books a new appointment if its slot is free. The caller must hold the
+     * lock stripes of the slot's patient and doctor.
+     *
+     * @return true if the appointment was stored
+     */
+    private boolean insertLocked(Appointment appointment, SlotKey slot, long endMinute) {
+        if (isStored(appointment) || !isFree(slot, endMinute, null)) {
+            return false;
+        }
+        appointment.setAppointmentId(idAllocator.nextId());
+        Entry entry = new Entry(appointment);
+        appointmentsById.put(entry.appointmentId, entry);
+        index(entry);
+        activate(entry, slot, endMinute);
+        for (AppointmentListener listener : listeners) {
+            listener.appointmentCreated(appointment);
+        }
+        return true;
+    }
+
+    /**
+     * Cancels a stored appointment. The caller must hold the lock stripes of
+     * its patient and doctor.
+     */
+    private void cancelLocked(Entry entry) {
+        entry.appointment.setStatus(Appointment.Status.CANCELLED);
+        deactivate(entry);
+        for (AppointmentListener listener : listeners) {
+            listener.appointmentCancelled(entry.appointment);
+        }
+    }
+
+    /**
+     * Moves a stored appointment to a new patient, doctor, and time if the
+     * new slot is free. The caller must hold the lock stripes of the entry's
+     * current patient and doctor and of the new ones.
+     *
+     * @return true if the appointment was moved
+     */
+    private boolean moveLocked(Entry entry, Patient patient, Doctor doctor, LocalDateTime newDateTime, SlotKey slot,
+                               long endMinute) {
+        if (!isFree(slot, endMinute, entry)) {
+            return false;
+        }
+        Appointment value = entry.appointment;
+        Patient previousPatient = value.getPatient();
+        Doctor previousDoctor = value.getDoctor();
+        deactivate(entry);
+        unindex(entry);
+        value.setPatient(patient);
+        value.setDoctor(doctor);
+        value.setAppointmentDateTime(newDateTime);
+        value.setStatus(Appointment.Status.ACTIVE);
+        index(entry);
+        activate(entry, slot, endMinute);
+        for (AppointmentListener listener : listeners) {
+            listener.appointmentModified(value, previousPatient, previousDoctor);
+        }
+        return true;
+    }
+
+    /**
+     * Records on a write event whether a booking would be rejected as a
+     * duplicate or as an overlap, using the same checks as {@link #isFree}.
+     * Only called while a recording is running.
+     * <p>
+     * The caller must hold the lock stripes of the slot's patient and doctor.
+     */
+    private void describeConflict(AppointmentWriteEvent event, SlotKey slot, long endMinute, Entry self) {
+        int excludeId = (self != null) ? self.appointmentId : 0;
+        event.duplicate = activeSlots.contains(slot) && (self == null || !slot.equals(self.slot));
+        IntervalIndex doctorSchedule = doctorSchedules.get(slot.doctorAccount());
+        IntervalIndex patientSchedule = patientSchedules.get(slot.patientAccount());
+        event.overlap = !event.duplicate
+                && ((doctorSchedule != null && doctorSchedule.overlaps(slot.epochMinute(), endMinute, excludeId))
+                || (patientSchedule != null && patientSchedule.overlaps(slot.epochMinute(), endMinute, excludeId)));
+    }
+
+    /**
+     * Ends and commits a write event, if a recording wants it.
+     *
+     * @param slot the requested slot, or {@code null} to keep the accounts already set
+     */
+    private static void commit(AppointmentWriteEvent event, String operation, int appointmentId, SlotKey slot,
+                               boolean success) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.appointmentId = appointmentId;
+            if (slot != null) {
+                event.patientAccount = slot.patientAccount();
+                event.doctorAccount = slot.doctorAccount();
+                event.startMinute = slot.epochMinute();
+            }
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    /**
+     * Ends and commits an index maintenance event, if a recording wants it.
+     */
+    private static void commit(IndexUpdateEvent event, String action, Entry entry) {
+        if (event.shouldCommit()) {
+            event.action = action;
+            event.appointmentId = entry.appointmentId;
+            event.patientAccount = entry.patientAccount;
+            event.doctorAccount = entry.doctorAccount;
+            event.count = 1;
+            event.commit();
+        }
+    }
+
+    /**
+     * Locks the stripes of the given user accounts, always in stripe order so
+     * that concurrent writers cannot deadlock. Accounts sharing a stripe lock it once.
+     *
+     * @param accounts the patient and doctor account numbers to lock
+     * @return the sorted stripes taken, to be passed to {@link #unlock(int[])}
+     */
+    private int[] lock(int... accounts) {
+        int[] stripes = new int[accounts.length];
+        for (int i = 0; i < accounts.length; i++) {
+            stripes[i] = accounts[i] & (LOCK_STRIPES - 1);
+        }
+        Arrays.sort(stripes);
+        for (int i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                writeLocks[stripes[i]].lock();
+            }
+        }
+        return stripes;
+    }
+
+    /**
+     * Locks every stripe, in stripe order.
+     *
+     * @return the stripes taken, to be passed to {@link #unlock(int[])}
+     */
+    private int[] lockAll() {
+        int[] stripes = new int[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = i;
+            writeLocks[i].lock();
+        }
+        return stripes;
+    }
+
+    /**
+     * Releases the stripes taken by {@link #lock(int...)}.
+     *
+     * @param stripes the sorted stripes returned by {@link #lock(int...)}
+     */
+    private void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                writeLocks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Locks the stripes of an entry's current patient and doctor, plus any extra accounts.
+     * <p>
+     * The entry's patient and doctor can change until their stripes are held,
+     * so the lock is retried until the accounts read before locking are still current.
+     *
+     * @param entry    the entry about to be changed
+     * @param accounts additional accounts to lock, such as a new patient and doctor
+     * @return the stripes taken, to be passed to {@link #unlock(int[])}
+     */
+    private int[] lockEntry(Entry entry, int... accounts) {
+        int[] all = Arrays.copyOf(accounts, accounts.length + 2);
+        while (true) {
+            int patientAccount = entry.patientAccount;
+            int doctorAccount = entry.doctorAccount;
+            all[accounts.length] = patientAccount;
+            all[accounts.length + 1] = doctorAccount;
+
+            int[] stripes = lock(all);
+            if (patientAccount == entry.patientAccount && doctorAccount == entry.doctorAccount) {
+                return stripes;
+            }
+            unlock(stripes);
+        }
+    }
+
+    /**
+     * Locks the stripes of a user and of every counterpart on the appointments
+     * filed under them in a per-user index.
+     * <p>
+     * The counterparts are read before locking, so the lock is retried until
+     * every account on the user's appointments falls in a stripe already held.
+     * Once the user's stripe is held, no appointment can join or leave their
+     * index, so the set is stable.
+     *
+     * @param index   the per-patient or per-doctor index, or {@code null} for a user with no appointments
+     * @param account the user's account number
+     * @return the stripes taken, to be passed to {@link #unlock(int[])}
+     */
+    private int[] lockUser(ConcurrentMap<Integer, NavigableMap<Integer, Appointment>> index, int account) {
+        while (true) {
+            NavigableMap<Integer, Appointment> held = (index != null) ? index.get(account) : null;
+            int[] accounts = new int[1 + 2 * ((held != null) ? held.size() : 0)];
+            int count = 0;
+            accounts[count++] = account;
+            if (held != null) {
+                for (Integer appointmentId : held.keySet()) {
+                    Entry entry = appointmentsById.get(appointmentId);
+                    if (entry != null && count + 2 <= accounts.length) {
+                        accounts[count++] = entry.patientAccount;
+                        accounts[count++] = entry.doctorAccount;
+                    }
+                }
+            }
+
+            int[] stripes = lock(Arrays.copyOf(accounts, count));
+            if (coversUser(index, account, stripes)) {
+                return stripes;
+            }
+            unlock(stripes);
+        }
+    }
+
+    /**
+     * Checks whether held stripes cover every account on a user's indexed appointments.
+     */
+    private boolean coversUser(ConcurrentMap<Integer, NavigableMap<Integer, Appointment>> index, int account,
+                               int[] stripes) {
+        NavigableMap<Integer, Appointment> held = (index != null) ? index.get(account) : null;
+        if (held != null) {
+            for (Integer appointmentId : held.keySet()) {
+                Entry entry = appointmentsById.get(appointmentId);
+                if (entry != null && (Arrays.binarySearch(stripes, entry.patientAccount & (LOCK_STRIPES - 1)) < 0
+                        || Arrays.binarySearch(stripes, entry.doctorAccount & (LOCK_STRIPES - 1)) < 0)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether this exact appointment object is already stored in the service.
+     *
+     * @param appointment the appointment to look for
+     * @return true if the object is already stored under its ID
+     */
+    private boolean isStored(Appointment appointment) {
+        Entry entry = appointmentsById.get(appointment.getAppointmentId());
+        return entry != null && entry.appointment == appointment;
+    }
+
+    /**
+     * Adds an active appointment to the duplicate-detection set and interval indexes.
+     * <p>
+     * Must be called after {@link #index(Entry)} so the patient and doctor accounts are known.
+     *
+     * @param entry     the entry to activate
+     * @param slot      the entry's duplicate-detection key
+     * @param endMinute the entry's exclusive end minute
+     */
+    private void activate(Entry entry, SlotKey slot, long endMinute) {
+        IndexUpdateEvent event = new IndexUpdateEvent();
+        event.begin();
+        activeSlots.add(slot);
+        entry.slot = slot;
+        entry.timeKey = new IntervalIndex.Key(slot.epochMinute(), entry.appointmentId);
+        entry.endMinute = endMinute;
+
+        appointmentsByTime.add(entry.timeKey, endMinute, entry.appointment);
+        schedule(doctorSchedules, entry.doctorAccount, entry);
+        schedule(patientSchedules, entry.patientAccount, entry);
+        commit(event, IndexUpdateEvent.ACTIVATE, entry);
+    }
+
+    /**
+     * Removes an appointment from the duplicate-detection set and interval indexes, if present.
+     *
+     * @param entry the entry to deactivate
+     */
+    private void deactivate(Entry entry) {
+        IndexUpdateEvent event = new IndexUpdateEvent();
+        event.begin();
+        if (entry.slot != null) {
+            activeSlots.remove(entry.slot);
+            entry.slot = null;
+        }
+        if (entry.timeKey != null) {
+            appointmentsByTime.remove(entry.timeKey);
+            unschedule(doctorSchedules, entry.doctorAccount, entry.timeKey);
+            unschedule(patientSchedules, entry.patientAccount, entry.timeKey);
+            entry.timeKey = null;
+        }
+        commit(event, IndexUpdateEvent.DEACTIVATE, entry);
+    }
+
+    /**
+     * Converts a date/time to whole minutes since the epoch, treating it as UTC.
+     *
+     * @param dateTime the date/time to convert
+     * @return the number of minutes since 1970-01-01T00:00
+     */
+    static long epochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * Converts whole minutes since the epoch back to a date/time, treating it as UTC.
+     *
+     * @param epochMinute the number of minutes since 1970-01-01T00:00
+     * @return the corresponding date/time
+     */
+    static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Converts an appointment duration to whole minutes, rounding up, with a minimum of one.
+     *
+     * @param duration the duration to convert
+     * @return the duration in minutes
+     */
+    static long durationMinutes(Duration duration) {
+        return Math.max(1, Math.floorDiv(duration.getSeconds() + 59, 60));
+    }
+
+    /**
+     * Files an appointment under its current patient and doctor.
+     *
+     * @param entry the entry to index
+     */
+    private void index(Entry entry) {
+        IndexUpdateEvent event = new IndexUpdateEvent();
+        event.begin();
+        Appointment appointment = entry.appointment;
+        entry.patientAccount = appointment.getPatient().getAccountNumber();
+        entry.doctorAccount = appointment.getDoctor().getAccountNumber();
+
+        addTo(appointmentsByPatient, entry.patientAccount, entry.appointmentId, appointment);
+        addTo(appointmentsByDoctor, entry.doctorAccount, entry.appointmentId, appointment);
+        commit(event, IndexUpdateEvent.INDEX, entry);
+    }
+
+    /**
+     * Removes an appointment from the patient and doctor indexes it was filed under.
+     *
+     * @param entry the entry to remove
+     */
+    private void unindex(Entry entry) {
+        IndexUpdateEvent event = new IndexUpdateEvent();
+        event.begin();
+        removeFrom(appointmentsByPatient, entry.patientAccount, entry.appointmentId);
+        removeFrom(appointmentsByDoctor, entry.doctorAccount, entry.appointmentId);
+        commit(event, IndexUpdateEvent.UNINDEX, entry);
+    }
+
+    /**
+     * Adds an appointment to one user's bucket, creating the bucket if needed.
+     * <p>
+     * The update runs atomically per account, so it cannot race with another
+     * writer dropping the same bucket.
+     */
+    private static void addTo(ConcurrentMap<Integer, NavigableMap<Integer, Appointment>> index,
+                              int account, int appointmentId, Appointment appointment) {
+        index.compute(account, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = new ConcurrentSkipListMap<>();
+            }
+            bucket.put(appointmentId, appointment);
+            return bucket;
+        });
+    }
+
+    /**
+     * Removes an appointment from one user's bucket, dropping the bucket once empty.
+     */
+    private static void removeFrom(ConcurrentMap<Integer, NavigableMap<Integer, Appointment>> index,
+                                   int account, int appointmentId) {
+        index.computeIfPresent(account, (k, bucket) -> {
+            bucket.remove(appointmentId);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    /**
+     * Adds an active appointment's interval to one user's schedule, creating the schedule if needed.
+     */
+    private static void schedule(ConcurrentMap<Integer, IntervalIndex> schedules, int account, Entry entry) {
+        schedules.compute(account, (k, schedule) -> {
+            if (schedule == null) {
+                schedule = new IntervalIndex();
+            }
+            schedule.add(entry.timeKey, entry.endMinute, entry.appointment);
+            return schedule;
+        });
+    }
+
+    /**
+     * Removes an interval from one user's schedule, dropping the schedule once empty.
+     */
+    private static void unschedule(ConcurrentMap<Integer, IntervalIndex> schedules, int account,
+                                   IntervalIndex.Key key) {
+        schedules.computeIfPresent(account, (k, schedule) -> {
+            schedule.remove(key);
+            return schedule.isEmpty() ? null : schedule;
+        });
+    }
 }
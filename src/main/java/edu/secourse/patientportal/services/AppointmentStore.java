@@ -0,0 +1,190 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Compact storage for appointment records, keyed by appointment ID and
+ * searchable by patient and doctor account.
+ * <p>
+ * A store holds each appointment as fixed-width primitive fields rather
+ * than as an {@link Appointment} object graph, and hands out
+ * {@link AppointmentView}s on demand. It does no validation of its own; a
+ * store is used in one of two ways:
+ * <ul>
+ *     <li>As the only copy of the calendar, behind a
+ *     {@link StoreBackedAppointmentService}, which validates every change
+ *     with {@link #overlaps} and keeps no object per appointment</li>
+ *     <li>As a compact mirror of an {@link AppointmentService}, for example
+ *     for reporting. A store is an {@link AppointmentListener}, so
+ *     registering it with {@link AppointmentService#addListener} keeps it in
+ *     step with the service, and {@link #load} copies what the service
+ *     already holds. The service still keeps its own objects, so the store
+ *     adds to the heap rather than saving any</li>
+ * </ul>
+ * <p>
+ * Implementations are safe to share between threads.
+ */
+public interface AppointmentStore extends AppointmentListener {
+
+    /**
+     * Adds an appointment record, or replaces the record with the same ID.
+     *
+     * @param appointmentId   the appointment ID; must be positive
+     * @param patientAccount  the patient's account number; must not be negative
+     * @param doctorAccount   the doctor's account number; must not be negative
+     * @param startMinute     the start, in whole minutes since the epoch (UTC)
+     * @param durationMinutes the length in minutes; must be positive
+     * @param status          the appointment status
+     * @return true if the record was stored, false if an argument is invalid
+     */
+    boolean put(int appointmentId, int patientAccount, int doctorAccount, long startMinute, int durationMinutes,
+                Appointment.Status status);
+
+    /**
+     * Changes the status of a stored appointment.
+     *
+     * @param appointmentId the appointment ID
+     * @param status        the new status
+     * @return true if the appointment was found
+     */
+    boolean setStatus(int appointmentId, Appointment.Status status);
+
+    /**
+     * Returns a view of a stored appointment.
+     *
+     * @param appointmentId the appointment ID
+     * @return the view, or {@code null} if not found
+     */
+    AppointmentView get(int appointmentId);
+
+    /**
+     * Returns the number of stored appointments, active or cancelled.
+     *
+     * @return the appointment count
+     */
+    int size();
+
+    /**
+     * Returns views of every appointment of a patient, in ID order.
+     *
+     * @param patientAccount the patient's account number
+     * @return the patient's appointments (empty if none)
+     */
+    List<AppointmentView> getAppointmentsForPatient(int patientAccount);
+
+    /**
+     * Returns views of every appointment of a doctor, in ID order.
+     *
+     * @param doctorAccount the doctor's account number
+     * @return the doctor's appointments (empty if none)
+     */
+    List<AppointmentView> getAppointmentsForDoctor(int doctorAccount);
+
+    /**
+     * Checks whether an active appointment of a patient or of a doctor
+     * overlaps a time range.
+     * <p>
+     * The default walks {@link #getAppointmentsForPatient} and
+     * {@link #getAppointmentsForDoctor}; implementations may check their
+     * records in place instead.
+     *
+     * @param patientAccount the patient's account number
+     * @param doctorAccount  the doctor's account number
+     * @param startMinute    the inclusive start, in epoch minutes
+     * @param endMinute      the exclusive end, in epoch minutes
+     * @param excludeId      an appointment ID to ignore, such as the one being moved
+     * @return true if an overlapping active appointment exists
+     */
+    default boolean overlaps(int patientAccount, int doctorAccount, long startMinute, long endMinute, int excludeId) {
+        return anyOverlaps(getAppointmentsForPatient(patientAccount), startMinute, endMinute, excludeId)
+                || anyOverlaps(getAppointmentsForDoctor(doctorAccount), startMinute, endMinute, excludeId);
+    }
+
+    /**
+     * Passes a view of every stored appointment to an action, in no particular order.
+     * <p>
+     * Writers are not held up for the whole walk, so a record changed during
+     * it may be seen in its old or its new state.
+     *
+     * @param action the action to run for each appointment
+     */
+    void forEach(Consumer<? super AppointmentView> action);
+
+    /**
+     * Returns the memory the store has allocated for records and indexes.
+     *
+     * @return the footprint in bytes
+     */
+    long getFootprintBytes();
+
+    /**
+     * Adds or replaces the record of an appointment object.
+     *
+     * @param appointment the appointment to store
+     * @return true if it was stored, false if it is null or incomplete
+     */
+    default boolean put(Appointment appointment) {
+        boolean success = false;
+        try {
+            AppointmentView view = AppointmentView.of(appointment);
+            if (view != null) {
+                success = put(view.appointmentId(), view.patientAccount(), view.doctorAccount(), view.startMinute(),
+                        view.durationMinutes(), view.status());
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Copies every appointment held by a service into this store.
+     * <p>
+     * To keep the store current afterwards, register it as a listener before
+     * loading, while no writes are in progress.
+     *
+     * @param service the service to copy from
+     * @return the number of appointments stored
+     */
+    default int load(AppointmentService service) {
+        int loaded = 0;
+        Iterator<Appointment> all = service.getAllAppointments().iterator();
+        while (all.hasNext()) {
+            if (put(all.next())) {
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    private static boolean anyOverlaps(List<AppointmentView> views, long startMinute, long endMinute, int excludeId) {
+        for (AppointmentView view : views) {
+            if (view.appointmentId() != excludeId && view.isActive() && view.startMinute() < endMinute
+                    && view.startMinute() + view.durationMinutes() > startMinute) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    default void appointmentCreated(Appointment appointment) {
+        put(appointment);
+    }
+
+    @Override
+    default void appointmentModified(Appointment appointment, Patient previousPatient, Doctor previousDoctor) {
+        put(appointment);
+    }
+
+    @Override
+    default void appointmentCancelled(Appointment appointment) {
+        setStatus(appointment.getAppointmentId(), Appointment.Status.CANCELLED);
+    }
+}
@@ -0,0 +1,78 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only copy of one appointment held in an {@link AppointmentStore}.
+ * <p>
+ * Users are named by account number and times by epoch minute, so a view is
+ * a few primitive fields; {@code LocalDateTime} and {@code Duration} objects
+ * are only created when asked for.
+ *
+ * @param appointmentId   the appointment ID
+ * @param patientAccount  the patient's account number
+ * @param doctorAccount   the doctor's account number
+ * @param startMinute     the start, in whole minutes since the epoch (UTC)
+ * @param durationMinutes the length in minutes
+ * @param status          the appointment status
+ */
+public record AppointmentView(int appointmentId, int patientAccount, int doctorAccount, long startMinute,
+                              int durationMinutes, Appointment.Status status) {
+
+    /**
+     * Captures the current state of an appointment object.
+     *
+     * @param appointment the appointment
+     * @return the view, or {@code null} if the appointment is null or has no
+     *         patient, doctor, date/time, or status
+     */
+    public static AppointmentView of(Appointment appointment) {
+        if (appointment == null || appointment.getPatient() == null || appointment.getDoctor() == null
+                || appointment.getAppointmentDateTime() == null || appointment.getStatus() == null) {
+            return null;
+        }
+        return new AppointmentView(appointment.getAppointmentId(), appointment.getPatient().getAccountNumber(),
+                appointment.getDoctor().getAccountNumber(),
+                AppointmentService.epochMinute(appointment.getAppointmentDateTime()),
+                (int) AppointmentService.durationMinutes(appointment.getDuration()), appointment.getStatus());
+    }
+
+    /**
+     * Returns the start of the appointment.
+     *
+     * @return the start date/time
+     */
+    public LocalDateTime getStart() {
+        return AppointmentService.fromEpochMinute(startMinute);
+    }
+
+    /**
+     * Returns the end of the appointment.
+     *
+     * @return the end date/time
+     */
+    public LocalDateTime getEnd() {
+        return AppointmentService.fromEpochMinute(startMinute + durationMinutes);
+    }
+
+    /**
+     * Returns the length of the appointment.
+     *
+     * @return the duration
+     */
+    public Duration getDuration() {
+        return Duration.ofMinutes(durationMinutes);
+    }
+
+    /**
+     * Checks whether the appointment is active.
+     *
+     * @return true if the status is {@link Appointment.Status#ACTIVE}
+     */
+    public boolean isActive() {
+        return status == Appointment.Status.ACTIVE;
+    }
+}
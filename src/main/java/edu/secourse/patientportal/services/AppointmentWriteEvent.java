@@ -0,0 +1,54 @@
+package edu.secourse.patientportal.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one create, modify, or cancel call on the
+ * {@link AppointmentService}, timed from the start of the call to its return.
+ * <p>
+ * A rejected write says why: {@code duplicate} if the same patient, doctor,
+ * and minute were already booked, otherwise {@code overlap} if the time
+ * range clashed with another appointment of the doctor or patient. The
+ * reason is worked out only while a recording is running.
+ */
+@Name("edu.secourse.patientportal.AppointmentWrite")
+@Label("Appointment Write")
+@Category({"Patient Portal", "Appointments"})
+@Description("Create, modify, or cancel call on the appointment service")
+@StackTrace(false)
+final class AppointmentWriteEvent extends Event {
+
+    static final String CREATE = "create";
+    static final String MODIFY = "modify";
+    static final String CANCEL = "cancel";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Appointment ID")
+    int appointmentId;
+
+    @Label("Patient Account")
+    int patientAccount;
+
+    @Label("Doctor Account")
+    int doctorAccount;
+
+    @Label("Start Minute")
+    @Description("Requested start, in minutes since 1970-01-01T00:00 UTC")
+    long startMinute;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Duplicate Check Hit")
+    boolean duplicate;
+
+    @Label("Overlap")
+    boolean overlap;
+}
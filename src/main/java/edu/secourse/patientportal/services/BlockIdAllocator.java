@@ -0,0 +1,155 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.IdAllocator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link IdAllocator} that hands out IDs from one shared atomic counter and
+ * reserves its persisted high-water mark in blocks.
+ * <p>
+ * Every thread draws from the same counter, so no IDs are stranded when a
+ * thread ends; short-lived request threads use exactly the IDs they need.
+ * An allocation is a single atomic increment.
+ * <p>
+ * When created with a file, the allocator persists a high-water mark: every
+ * ID it has handed out, or ever will before the next write, is below the
+ * stored mark. On restart, allocation resumes at the mark, so IDs stay unique
+ * across restarts. The mark is advanced a whole block at a time, so the file
+ * is written once per block of IDs rather than once per ID.
+ */
+public class BlockIdAllocator implements IdAllocator {
+
+    /** Default number of IDs reserved by each write of the high-water mark. */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final AtomicLong nextUnreserved;
+    private final int blockSize;
+    private final Path highWaterFile;
+    private volatile long persistedMark;
+
+    /**
+     * Creates an in-memory allocator starting at 1 with the default block size.
+     */
+    public BlockIdAllocator() {
+        this(1, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates an in-memory allocator.
+     *
+     * @param firstId   the first ID to hand out; must be positive
+     * @param blockSize the number of IDs reserved by each write of the high-water mark; must be positive
+     */
+    public BlockIdAllocator(int firstId, int blockSize) {
+        if (firstId <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("firstId and blockSize must be positive");
+        }
+        this.nextUnreserved = new AtomicLong(firstId);
+        this.blockSize = blockSize;
+        this.highWaterFile = null;
+        this.persistedMark = Long.MAX_VALUE;
+    }
+
+    /**
+     * Creates an allocator that persists its high-water mark to a file.
+     * <p>
+     * If the file exists, allocation resumes at the stored mark; otherwise it
+     * starts at 1 and the file is created on first use.
+     *
+     * @param highWaterFile the file holding the high-water mark
+     * @param blockSize     the number of IDs reserved by each write of the mark; must be positive
+     * @throws IOException if an existing file cannot be read or parsed
+     */
+    public BlockIdAllocator(Path highWaterFile, int blockSize) throws IOException {
+        if (highWaterFile == null || blockSize <= 0) {
+            throw new IllegalArgumentException("a file and a positive blockSize are required");
+        }
+        long mark = 1;
+        if (Files.exists(highWaterFile)) {
+            try {
+                mark = Math.max(1, Long.parseLong(Files.readString(highWaterFile, StandardCharsets.UTF_8).trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt high-water mark in " + highWaterFile, e);
+            }
+        }
+        this.nextUnreserved = new AtomicLong(mark);
+        this.blockSize = blockSize;
+        this.highWaterFile = highWaterFile;
+        this.persistedMark = mark;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int nextId() {
+        long id = nextUnreserved.getAndIncrement();
+        if (id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("ID space exhausted");
+        }
+        if (id >= persistedMark) {
+            persistMark(id + 1);
+        }
+        return (int) id;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The shared counter is raised past {@code id}, so no thread receives it
+     * or any lower ID afterwards.
+     */
+    @Override
+    public void advancePast(int id) {
+        long required = (long) id + 1;
+        nextUnreserved.accumulateAndGet(required, Math::max);
+        if (required > persistedMark) {
+            persistMark(required);
+        }
+    }
+
+    /**
+     * Returns the high-water mark: no ID at or above it has been handed out.
+     *
+     * @return the current high-water mark
+     */
+    public long highWaterMark() {
+        return nextUnreserved.get();
+    }
+
+    /**
+     * Advances the persisted mark to cover {@code required}, plus one block of headroom.
+     * <p>
+     * The file is replaced atomically and forced to disk before any ID below
+     * the new mark is handed out.
+     *
+     * @param required the exclusive upper bound of IDs that must be covered
+     */
+    private synchronized void persistMark(long required) {
+        if (required <= persistedMark) {
+            return;
+        }
+        long mark = required + blockSize;
+        try {
+            Path temp = highWaterFile.resolveSibling(highWaterFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(Long.toString(mark).getBytes(StandardCharsets.UTF_8)));
+                channel.force(true);
+            }
+            Files.move(temp, highWaterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot persist high-water mark to " + highWaterFile, e);
+        }
+        persistedMark = mark;
+    }
+}
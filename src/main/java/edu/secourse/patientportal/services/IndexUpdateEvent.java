@@ -0,0 +1,47 @@
+package edu.secourse.patientportal.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one step of index maintenance in the
+ * {@link AppointmentService}.
+ * <p>
+ * The steps are filing an appointment under its patient and doctor
+ * ({@code index}) or removing it ({@code unindex}), and adding an active
+ * appointment to the duplicate set and schedules ({@code activate}) or
+ * removing it ({@code deactivate}). A bulk rebuild of every index reports
+ * {@code rebuild} with the number of appointments in {@code count}.
+ */
+@Name("edu.secourse.patientportal.IndexUpdate")
+@Label("Appointment Index Update")
+@Category({"Patient Portal", "Appointments"})
+@Description("Index maintenance step in the appointment service")
+@StackTrace(false)
+final class IndexUpdateEvent extends Event {
+
+    static final String INDEX = "index";
+    static final String UNINDEX = "unindex";
+    static final String ACTIVATE = "activate";
+    static final String DEACTIVATE = "deactivate";
+    static final String REBUILD = "rebuild";
+
+    @Label("Action")
+    String action;
+
+    @Label("Appointment ID")
+    int appointmentId;
+
+    @Label("Patient Account")
+    int patientAccount;
+
+    @Label("Doctor Account")
+    int doctorAccount;
+
+    @Label("Count")
+    int count;
+}
@@ -0,0 +1,124 @@
+package edu.secourse.patientportal.services;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code int} keys to non-negative {@code int}
+ * values, stored in two primitive arrays with linear probing.
+ * <p>
+ * Keys must not be {@link Integer#MIN_VALUE}, which marks empty cells.
+ * Entries cannot be removed; callers overwrite a value instead. The map is
+ * not thread-safe.
+ */
+final class IntIntHashMap {
+
+    /** Marks an empty cell. */
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    /** Value returned for a missing key. */
+    static final int MISSING = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int shift;
+
+    /**
+     * Creates an empty map.
+     */
+    IntIntHashMap() {
+        allocate(16);
+    }
+
+    /**
+     * Looks up a key.
+     *
+     * @param key the key
+     * @return the value, or {@link #MISSING} if the key is not present
+     */
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int cell = hash(key); ; cell = (cell + 1) & mask) {
+            int found = keys[cell];
+            if (found == key) {
+                return values[cell];
+            }
+            if (found == EMPTY) {
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * Adds a key or replaces its value.
+     *
+     * @param key   the key; must not be {@link Integer#MIN_VALUE}
+     * @param value the value
+     * @throws IllegalArgumentException if the key is the reserved empty marker
+     */
+    void put(int key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Reserved key");
+        }
+        int mask = keys.length - 1;
+        int cell = hash(key);
+        while (keys[cell] != EMPTY && keys[cell] != key) {
+            cell = (cell + 1) & mask;
+        }
+        if (keys[cell] == EMPTY) {
+            keys[cell] = key;
+            if (++size * 2 > keys.length) {
+                values[cell] = value;
+                grow();
+                return;
+            }
+        }
+        values[cell] = value;
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return the key count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bytes held by the key and value arrays.
+     *
+     * @return the array footprint in bytes
+     */
+    long footprintBytes() {
+        return 8L * keys.length;
+    }
+
+    private int hash(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        shift = Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int cell = hash(oldKeys[i]);
+                while (keys[cell] != EMPTY) {
+                    cell = (cell + 1) & mask;
+                }
+                keys[cell] = oldKeys[i];
+                values[cell] = oldValues[i];
+            }
+        }
+    }
+}
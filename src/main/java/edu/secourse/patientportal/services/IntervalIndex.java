@@ -0,0 +1,150 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Start-ordered index of appointment intervals, measured in epoch minutes.
+ * <p>
+ * {@link AppointmentService} keeps one index per doctor and one per patient,
+ * and never lets two active appointments in the same index overlap. For
+ * disjoint intervals, ordering by start also orders them by end, so this
+ * skip list works as an interval tree: an overlap query is a single
+ * predecessor lookup, O(log n), instead of a scan. A clinic-wide index is also
+ * kept for time-window queries; its intervals may overlap, so
+ * {@link #overlaps(long, long, int)} must not be used on it.
+ * <p>
+ * The index is backed by a {@link ConcurrentSkipListMap}, so reads, adds,
+ * and removes are each thread-safe and may run at the same time. Concurrent
+ * writers are safe as long as they touch distinct keys, which holds because
+ * every key carries a unique appointment ID; the clinic-wide index is written
+ * this way by callers holding different doctors' locks. What the index does
+ * not do is make a check and an add atomic: keeping a per-user index free of
+ * overlaps relies on the caller holding that user's lock from
+ * {@link #overlaps(long, long, int)} through {@link #add(Key, long, Appointment)}.
+ */
+final class IntervalIndex {
+
+    /**
+     * Index key: the interval start, with the appointment ID breaking ties
+     * between appointments that start in the same minute.
+     */
+    record Key(long start, int appointmentId) implements Comparable<Key> {
+
+        @Override
+        public int compareTo(Key other) {
+            int byStart = Long.compare(start, other.start);
+            return byStart != 0 ? byStart : Integer.compare(appointmentId, other.appointmentId);
+        }
+    }
+
+    /**
+     * Index value: the exclusive end minute of the interval and its appointment.
+     */
+    record Booking(long end, Appointment appointment) {
+    }
+
+    private final NavigableMap<Key, Booking> intervals;
+
+    /**
+     * Creates an empty index.
+     */
+    IntervalIndex() {
+        this.intervals = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Creates an index holding intervals that are already in key order, in linear time.
+     *
+     * @param sorted the intervals, in ascending key order
+     */
+    IntervalIndex(SortedMap<Key, Booking> sorted) {
+        this.intervals = new ConcurrentSkipListMap<>(sorted);
+    }
+
+    /**
+     * Adds an interval.
+     *
+     * @param key         the interval start and appointment ID
+     * @param end         the exclusive end minute
+     * @param appointment the appointment occupying the interval
+     */
+    void add(Key key, long end, Appointment appointment) {
+        intervals.put(key, new Booking(end, appointment));
+    }
+
+    /**
+     * Removes an interval.
+     *
+     * @param key the key the interval was added under
+     */
+    void remove(Key key) {
+        intervals.remove(key);
+    }
+
+    /**
+     * Checks whether the index is empty.
+     *
+     * @return true if no intervals are stored
+     */
+    boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    /**
+     * Checks whether any interval other than {@code excludeId} overlaps {@code [start, end)}.
+     * <p>
+     * Only the last interval starting before {@code end} can overlap: among
+     * disjoint intervals it has the latest end of all that start before {@code end}.
+     *
+     * @param start     the inclusive start minute
+     * @param end       the exclusive end minute
+     * @param excludeId an appointment ID to ignore, such as the one being modified
+     * @return true if an overlapping interval exists
+     */
+    boolean overlaps(long start, long end, int excludeId) {
+        Map.Entry<Key, Booking> candidate = intervals.lowerEntry(new Key(end, Integer.MIN_VALUE));
+        while (candidate != null && candidate.getKey().appointmentId() == excludeId) {
+            candidate = intervals.lowerEntry(candidate.getKey());
+        }
+        return candidate != null && candidate.getValue().end() > start;
+    }
+
+    /**
+     * Returns the end of the interval that overlaps {@code [start, end)}, if any.
+     * <p>
+     * For disjoint intervals this is the latest end among all overlapping
+     * intervals, so a free-slot search can jump straight to it.
+     *
+     * @param start the inclusive start minute
+     * @param end   the exclusive end minute
+     * @return the exclusive end minute of the overlapping interval, or {@link Long#MIN_VALUE} if none
+     */
+    long conflictEnd(long start, long end) {
+        Map.Entry<Key, Booking> candidate = intervals.lowerEntry(new Key(end, Integer.MIN_VALUE));
+        if (candidate != null && candidate.getValue().end() > start) {
+            return candidate.getValue().end();
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Lazily streams the appointments whose start falls within {@code [from, to)}, in start order.
+     *
+     * @param from the inclusive start minute
+     * @param to   the exclusive end minute
+     * @return a stream of matching appointments
+     */
+    Stream<Appointment> startingBetween(long from, long to) {
+        if (from >= to) {
+            return Stream.empty();
+        }
+        return intervals.subMap(new Key(from, Integer.MIN_VALUE), true, new Key(to, Integer.MIN_VALUE), false)
+                .values().stream().map(Booking::appointment);
+    }
+}
@@ -0,0 +1,593 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link AppointmentStore} that keeps fixed-width appointment records outside
+ * the Java heap, through the Foreign Function and Memory API.
+ * <p>
+ * Records are 32 bytes, laid out after a 32-byte header:
+ * <ul>
+ *     <li>{@code long} start in epoch minutes, at offset 0</li>
+ *     <li>{@code int} appointment ID, patient account, and doctor account, at 8, 12, and 16</li>
+ *     <li>{@code int} next record of the same patient and of the same doctor, at 20 and 24</li>
+ *     <li>{@code int} duration in minutes in the low 24 bits and status ordinal in the high 8, at 28</li>
+ * </ul>
+ * The ID, patient, and doctor indexes are open-addressing hash tables, also
+ * off the heap, that map a key to a record number; a record's offset is the
+ * header size plus its number times the record size. Patient and doctor
+ * indexes point at the newest record of each user, and older ones are
+ * chained through the link fields. The store itself holds only a handful of
+ * heap objects however many appointments it stores.
+ * <p>
+ * Behind a {@link StoreBackedAppointmentService} the store is the only copy
+ * of the calendar, so the heap, and with it the garbage collector's work,
+ * does not grow with the number of appointments. Attached to an
+ * {@link AppointmentService} as a listener it is only a mirror: the service
+ * still keeps its own objects on the heap, and the native copy comes on top.
+ * <p>
+ * The records may be backed by a memory-mapped file (see {@link #open}), in
+ * which case they survive a restart: reopening the file rebuilds the indexes
+ * from the records. The file is forced to disk when the store is closed.
+ * <p>
+ * Reads share a read lock and writes take the write lock. Growing a region
+ * allocates a larger one in a new {@link Arena} and closes the old arena, so
+ * memory is returned at once. The store must be closed to free its memory.
+ */
+public class OffHeapAppointmentStore implements AppointmentStore, Closeable {
+
+    /** Size of one record, and of the header before the first record. */
+    private static final long RECORD_BYTES = 32;
+
+    private static final long START = 0;
+    private static final long ID = 8;
+    private static final long PATIENT = 12;
+    private static final long DOCTOR = 16;
+    private static final long NEXT_FOR_PATIENT = 20;
+    private static final long NEXT_FOR_DOCTOR = 24;
+    private static final long DURATION_AND_STATUS = 28;
+
+    /** File magic number, "PAPS". */
+    private static final int MAGIC = 0x50415053;
+    private static final int VERSION = 1;
+    private static final long HEADER_COUNT = 8;
+
+    /** Longest duration that fits in the 24-bit field. */
+    private static final int MAX_DURATION = (1 << 24) - 1;
+
+    /** End of a patient or doctor chain. */
+    private static final int NONE = -1;
+
+    private static final Appointment.Status[] STATUSES = Appointment.Status.values();
+
+    private static final int ACTIVE = Appointment.Status.ACTIVE.ordinal();
+
+    /** Number of records copied per read-lock hold in {@link #forEach}. */
+    private static final int WALK_CHUNK = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel channel;
+    private Arena recordArena;
+    private MemorySegment records;
+    private int capacity;
+    private int size;
+    private boolean closed;
+
+    private final OffHeapIndex slotsById = new OffHeapIndex();
+    private final OffHeapIndex patientHeads = new OffHeapIndex();
+    private final OffHeapIndex doctorHeads = new OffHeapIndex();
+
+    /**
+     * Creates an empty store in native memory with room for a few thousand appointments.
+     */
+    public OffHeapAppointmentStore() {
+        this(1024);
+    }
+
+    /**
+     * Creates an empty store in native memory.
+     *
+     * @param initialCapacity the number of appointments to allocate room for before growing
+     */
+    public OffHeapAppointmentStore(int initialCapacity) {
+        this.channel = null;
+        this.capacity = Math.max(16, initialCapacity);
+        this.recordArena = Arena.ofShared();
+        this.records = recordArena.allocate(RECORD_BYTES * (capacity + 1L), RECORD_BYTES);
+        writeHeader();
+    }
+
+    private OffHeapAppointmentStore(FileChannel channel, int capacity) throws IOException {
+        this.channel = channel;
+        this.capacity = capacity;
+        this.recordArena = Arena.ofShared();
+        this.records = channel.map(FileChannel.MapMode.READ_WRITE, 0, RECORD_BYTES * (capacity + 1L), recordArena);
+    }
+
+    /**
+     * Opens a store whose records live in a memory-mapped file, creating the
+     * file if it does not exist. Records already in the file are loaded and
+     * indexed.
+     *
+     * @param file the backing file
+     * @return the open store
+     * @throws IOException if the file cannot be mapped, or exists but is not a store file
+     */
+    public static OffHeapAppointmentStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long fileSize = channel.size();
+            if (fileSize == 0) {
+                OffHeapAppointmentStore store = new OffHeapAppointmentStore(channel, 1024);
+                store.writeHeader();
+                return store;
+            }
+            if (fileSize % RECORD_BYTES != 0 || fileSize / RECORD_BYTES - 1 > Integer.MAX_VALUE) {
+                throw new IOException("Not an appointment store file: " + file);
+            }
+            OffHeapAppointmentStore store = new OffHeapAppointmentStore(channel, (int) (fileSize / RECORD_BYTES - 1));
+            MemorySegment header = store.records;
+            int count = header.get(ValueLayout.JAVA_INT, HEADER_COUNT);
+            if (header.get(ValueLayout.JAVA_INT, 0) != MAGIC || header.get(ValueLayout.JAVA_INT, 4) != VERSION
+                    || count < 0 || count > store.capacity) {
+                store.close();
+                throw new IOException("Not an appointment store file: " + file);
+            }
+            store.reindex(count);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean put(int appointmentId, int patientAccount, int doctorAccount, long startMinute,
+                       int durationMinutes, Appointment.Status status) {
+        if (appointmentId <= 0 || patientAccount < 0 || doctorAccount < 0 || durationMinutes <= 0
+                || durationMinutes > MAX_DURATION || status == null) {
+            return false;
+        }
+        boolean success = false;
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                int slot = slotsById.get(appointmentId);
+                boolean added = slot == IntIntHashMap.MISSING;
+                if (added) {
+                    if (size == capacity) {
+                        grow();
+                    }
+                    slot = size;
+                    long at = offset(slot);
+                    records.set(ValueLayout.JAVA_INT, at + ID, appointmentId);
+                    slotsById.put(appointmentId, slot);
+                    link(patientHeads, NEXT_FOR_PATIENT, patientAccount, slot);
+                    link(doctorHeads, NEXT_FOR_DOCTOR, doctorAccount, slot);
+                } else {
+                    long at = offset(slot);
+                    int previousPatient = records.get(ValueLayout.JAVA_INT, at + PATIENT);
+                    int previousDoctor = records.get(ValueLayout.JAVA_INT, at + DOCTOR);
+                    if (previousPatient != patientAccount) {
+                        unlink(patientHeads, NEXT_FOR_PATIENT, previousPatient, slot);
+                        link(patientHeads, NEXT_FOR_PATIENT, patientAccount, slot);
+                    }
+                    if (previousDoctor != doctorAccount) {
+                        unlink(doctorHeads, NEXT_FOR_DOCTOR, previousDoctor, slot);
+                        link(doctorHeads, NEXT_FOR_DOCTOR, doctorAccount, slot);
+                    }
+                }
+                long at = offset(slot);
+                records.set(ValueLayout.JAVA_INT, at + PATIENT, patientAccount);
+                records.set(ValueLayout.JAVA_INT, at + DOCTOR, doctorAccount);
+                records.set(ValueLayout.JAVA_LONG, at + START, startMinute);
+                records.set(ValueLayout.JAVA_INT, at + DURATION_AND_STATUS, (status.ordinal() << 24) | durationMinutes);
+                if (added) {
+                    // Publish the record only once all of its fields are written, so a
+                    // process crash in between leaves it outside the count reindex loads.
+                    size++;
+                    records.set(ValueLayout.JAVA_INT, HEADER_COUNT, size);
+                }
+                success = true;
+            }
+        } catch (Exception e_) {
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return success;
+    }
+
+    @Override
+    public boolean setStatus(int appointmentId, Appointment.Status status) {
+        if (status == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = closed ? IntIntHashMap.MISSING : slotsById.get(appointmentId);
+            if (slot == IntIntHashMap.MISSING) {
+                return false;
+            }
+            long at = offset(slot) + DURATION_AND_STATUS;
+            int duration = records.get(ValueLayout.JAVA_INT, at) & MAX_DURATION;
+            records.set(ValueLayout.JAVA_INT, at, (status.ordinal() << 24) | duration);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public AppointmentView get(int appointmentId) {
+        lock.readLock().lock();
+        try {
+            int slot = closed ? IntIntHashMap.MISSING : slotsById.get(appointmentId);
+            return (slot == IntIntHashMap.MISSING) ? null : view(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<AppointmentView> getAppointmentsForPatient(int patientAccount) {
+        return chain(patientHeads, NEXT_FOR_PATIENT, patientAccount);
+    }
+
+    @Override
+    public List<AppointmentView> getAppointmentsForDoctor(int doctorAccount) {
+        return chain(doctorHeads, NEXT_FOR_DOCTOR, doctorAccount);
+    }
+
+    /**
+     * Checks the patient's and the doctor's chains in place, without building views.
+     */
+    @Override
+    public boolean overlaps(int patientAccount, int doctorAccount, long startMinute, long endMinute, int excludeId) {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            return chainOverlaps(patientHeads.get(patientAccount), NEXT_FOR_PATIENT, startMinute, endMinute,
+                    excludeId)
+                    || chainOverlaps(doctorHeads.get(doctorAccount), NEXT_FOR_DOCTOR, startMinute, endMinute,
+                    excludeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super AppointmentView> action) {
+        AppointmentView[] chunk = new AppointmentView[WALK_CHUNK];
+        for (int from = 0; ; from += WALK_CHUNK) {
+            int count;
+            lock.readLock().lock();
+            try {
+                count = closed ? 0 : Math.max(0, Math.min(WALK_CHUNK, size - from));
+                for (int i = 0; i < count; i++) {
+                    chunk[i] = view(from + i);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (int i = 0; i < count; i++) {
+                action.accept(chunk[i]);
+            }
+            if (count < WALK_CHUNK) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the native memory held by records and indexes; none of it is on the Java heap.
+     *
+     * @return the footprint in bytes
+     */
+    @Override
+    public long getFootprintBytes() {
+        lock.readLock().lock();
+        try {
+            return closed ? 0 : records.byteSize() + slotsById.byteSize() + patientHeads.byteSize()
+                    + doctorHeads.byteSize();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether the records are kept in a memory-mapped file.
+     *
+     * @return true if the store was opened on a file
+     */
+    public boolean isMapped() {
+        return channel != null;
+    }
+
+    /**
+     * Frees the store's memory. For a mapped store, the records are first
+     * forced to disk and the file is closed. Closing twice has no effect.
+     *
+     * @throws IOException if the file cannot be forced or closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                try {
+                    if (channel != null) {
+                        records.force();
+                    }
+                } finally {
+                    recordArena.close();
+                    slotsById.close();
+                    patientHeads.close();
+                    doctorHeads.close();
+                    if (channel != null) {
+                        channel.close();
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long offset(int slot) {
+        return RECORD_BYTES * (slot + 1L);
+    }
+
+    private void writeHeader() {
+        records.set(ValueLayout.JAVA_INT, 0, MAGIC);
+        records.set(ValueLayout.JAVA_INT, 4, VERSION);
+        records.set(ValueLayout.JAVA_INT, HEADER_COUNT, size);
+    }
+
+    /**
+     * Rebuilds every index from the first {@code count} records of a reopened file.
+     */
+    private void reindex(int count) {
+        for (int slot = 0; slot < count; slot++) {
+            long at = offset(slot);
+            slotsById.put(records.get(ValueLayout.JAVA_INT, at + ID), slot);
+            link(patientHeads, NEXT_FOR_PATIENT, records.get(ValueLayout.JAVA_INT, at + PATIENT), slot);
+            link(doctorHeads, NEXT_FOR_DOCTOR, records.get(ValueLayout.JAVA_INT, at + DOCTOR), slot);
+        }
+        size = count;
+    }
+
+    /**
+     * Builds a view of a record. The caller must hold a lock.
+     */
+    private AppointmentView view(int slot) {
+        long at = offset(slot);
+        int durationAndStatus = records.get(ValueLayout.JAVA_INT, at + DURATION_AND_STATUS);
+        return new AppointmentView(records.get(ValueLayout.JAVA_INT, at + ID),
+                records.get(ValueLayout.JAVA_INT, at + PATIENT), records.get(ValueLayout.JAVA_INT, at + DOCTOR),
+                records.get(ValueLayout.JAVA_LONG, at + START), durationAndStatus & MAX_DURATION,
+                STATUSES[durationAndStatus >>> 24]);
+    }
+
+    /**
+     * Collects views of a chain, sorted by ID.
+     */
+    private List<AppointmentView> chain(OffHeapIndex heads, long nextField, int account) {
+        List<AppointmentView> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (!closed) {
+                for (int slot = heads.get(account); slot != NONE; slot = next(slot, nextField)) {
+                    result.add(view(slot));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingInt(AppointmentView::appointmentId));
+        return result;
+    }
+
+    /**
+     * Checks whether an active record of a chain overlaps a time range. The caller must hold a lock.
+     */
+    private boolean chainOverlaps(int slot, long nextField, long startMinute, long endMinute, int excludeId) {
+        for (; slot != NONE; slot = next(slot, nextField)) {
+            long at = offset(slot);
+            int durationAndStatus = records.get(ValueLayout.JAVA_INT, at + DURATION_AND_STATUS);
+            long start = records.get(ValueLayout.JAVA_LONG, at + START);
+            if (records.get(ValueLayout.JAVA_INT, at + ID) != excludeId && (durationAndStatus >>> 24) == ACTIVE
+                    && start < endMinute && start + (durationAndStatus & MAX_DURATION) > startMinute) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int next(int slot, long nextField) {
+        return records.get(ValueLayout.JAVA_INT, offset(slot) + nextField);
+    }
+
+    /**
+     * Puts a record at the head of an account's chain. The caller must hold the write lock.
+     */
+    private void link(OffHeapIndex heads, long nextField, int account, int slot) {
+        records.set(ValueLayout.JAVA_INT, offset(slot) + nextField, heads.get(account));
+        heads.put(account, slot);
+    }
+
+    /**
+     * Removes a record from an account's chain. The caller must hold the write lock.
+     */
+    private void unlink(OffHeapIndex heads, long nextField, int account, int slot) {
+        int current = heads.get(account);
+        if (current == slot) {
+            heads.put(account, next(slot, nextField));
+            return;
+        }
+        while (current != NONE) {
+            int following = next(current, nextField);
+            if (following == slot) {
+                records.set(ValueLayout.JAVA_INT, offset(current) + nextField, next(slot, nextField));
+                return;
+            }
+            current = following;
+        }
+    }
+
+    /**
+     * Grows the record region by half, remapping the file if there is one.
+     * The caller must hold the write lock.
+     */
+    private void grow() throws IOException {
+        int grown = (int) Math.min(Integer.MAX_VALUE - 1L, capacity + (long) (capacity >> 1));
+        if (grown == capacity) {
+            throw new IllegalStateException("Store is full");
+        }
+        long bytes = RECORD_BYTES * (grown + 1L);
+        Arena arena = Arena.ofShared();
+        MemorySegment larger;
+        if (channel != null) {
+            larger = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes, arena);
+        } else {
+            larger = arena.allocate(bytes, RECORD_BYTES);
+            MemorySegment.copy(records, 0, larger, 0, records.byteSize());
+        }
+        recordArena.close();
+        recordArena = arena;
+        records = larger;
+        capacity = grown;
+    }
+
+    /**
+     * Open-addressing hash table from {@code int} keys to record numbers, in
+     * native memory. Each 8-byte cell holds the key and the record number plus
+     * two, so zeroed memory reads as empty while an emptied chain ({@code -1})
+     * keeps its cell. Entries are overwritten, never removed. Callers
+     * serialize writers.
+     */
+    private static final class OffHeapIndex implements Closeable {
+
+        private static final long CELL_BYTES = 8;
+
+        private Arena arena;
+        private MemorySegment cells;
+        private int size;
+        private int shift;
+
+        OffHeapIndex() {
+            allocate(1 << 10);
+        }
+
+        /**
+         * Looks up a key.
+         *
+         * @return the record number, or {@link IntIntHashMap#MISSING} if absent
+         */
+        int get(int key) {
+            long mask = cells.byteSize() / CELL_BYTES - 1;
+            for (long cell = hash(key); ; cell = (cell + 1) & mask) {
+                int value = cells.get(ValueLayout.JAVA_INT, cell * CELL_BYTES + 4);
+                if (value == 0) {
+                    return IntIntHashMap.MISSING;
+                }
+                if (cells.get(ValueLayout.JAVA_INT, cell * CELL_BYTES) == key) {
+                    return value - 2;
+                }
+            }
+        }
+
+        /**
+         * Adds a key or replaces its record number. A record number of
+         * {@code -1} marks an empty chain.
+         */
+        void put(int key, int slot) {
+            long mask = cells.byteSize() / CELL_BYTES - 1;
+            long cell = hash(key);
+            while (true) {
+                int value = cells.get(ValueLayout.JAVA_INT, cell * CELL_BYTES + 4);
+                if (value == 0) {
+                    cells.set(ValueLayout.JAVA_INT, cell * CELL_BYTES, key);
+                    cells.set(ValueLayout.JAVA_INT, cell * CELL_BYTES + 4, slot + 2);
+                    if (++size * 2L > mask + 1) {
+                        grow();
+                    }
+                    return;
+                }
+                if (cells.get(ValueLayout.JAVA_INT, cell * CELL_BYTES) == key) {
+                    cells.set(ValueLayout.JAVA_INT, cell * CELL_BYTES + 4, slot + 2);
+                    return;
+                }
+                cell = (cell + 1) & mask;
+            }
+        }
+
+        long byteSize() {
+            return cells.byteSize();
+        }
+
+        private long hash(int key) {
+            return (key * 0x9E3779B9) >>> shift;
+        }
+
+        private void allocate(int cellCount) {
+            arena = Arena.ofShared();
+            cells = arena.allocate(CELL_BYTES * cellCount, CELL_BYTES);
+            shift = Integer.numberOfLeadingZeros(cellCount - 1);
+        }
+
+        private void grow() {
+            Arena oldArena = arena;
+            MemorySegment old = cells;
+            long oldCells = old.byteSize() / CELL_BYTES;
+            allocate((int) (oldCells * 2));
+            long mask = oldCells * 2 - 1;
+            for (long i = 0; i < oldCells; i++) {
+                int value = old.get(ValueLayout.JAVA_INT, i * CELL_BYTES + 4);
+                if (value != 0) {
+                    int key = old.get(ValueLayout.JAVA_INT, i * CELL_BYTES);
+                    long cell = hash(key);
+                    while (cells.get(ValueLayout.JAVA_INT, cell * CELL_BYTES + 4) != 0) {
+                        cell = (cell + 1) & mask;
+                    }
+                    cells.set(ValueLayout.JAVA_INT, cell * CELL_BYTES, key);
+                    cells.set(ValueLayout.JAVA_INT, cell * CELL_BYTES + 4, value);
+                }
+            }
+            oldArena.close();
+        }
+
+        @Override
+        public void close() {
+            arena.close();
+        }
+    }
+}
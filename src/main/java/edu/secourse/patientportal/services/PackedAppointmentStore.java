@@ -0,0 +1,306 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link AppointmentStore} that keeps appointments in parallel primitive arrays.
+ * <p>
+ * Each appointment occupies one slot across these columns:
+ * <ul>
+ *     <li>{@code int} appointment ID, patient account, doctor account, and duration in minutes</li>
+ *     <li>{@code long} start, in epoch minutes</li>
+ *     <li>{@code byte} status ordinal</li>
+ *     <li>{@code int} links to the next slot of the same patient and of the same doctor</li>
+ * </ul>
+ * Open-addressing maps of primitives find the slot of an ID and the first
+ * slot of each patient and doctor, whose slots are then chained through
+ * the link columns. No object is kept per appointment, so the footprint is
+ * a few dozen bytes each and the garbage collector has no references to
+ * trace. Columns grow by half when full. Behind a
+ * {@link StoreBackedAppointmentService} these columns are the whole
+ * calendar; as a listener of an {@link AppointmentService} they are an
+ * extra copy next to the service's objects.
+ * <p>
+ * Reads share a read lock and writes take the write lock; both are short.
+ */
+public class PackedAppointmentStore implements AppointmentStore {
+
+    /** End of a patient or doctor chain. */
+    private static final int NONE = -1;
+
+    private static final Appointment.Status[] STATUSES = Appointment.Status.values();
+
+    private static final byte ACTIVE = (byte) Appointment.Status.ACTIVE.ordinal();
+
+    /** Number of slots copied per read-lock hold in {@link #forEach}. */
+    private static final int WALK_CHUNK = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] ids;
+    private int[] patients;
+    private int[] doctors;
+    private int[] durations;
+    private long[] starts;
+    private byte[] statuses;
+    private int[] nextForPatient;
+    private int[] nextForDoctor;
+    private int size;
+
+    /** Appointment ID to slot. */
+    private final IntIntHashMap slotsById = new IntIntHashMap();
+
+    /** Patient account to the first slot of its chain. */
+    private final IntIntHashMap patientHeads = new IntIntHashMap();
+
+    /** Doctor account to the first slot of its chain. */
+    private final IntIntHashMap doctorHeads = new IntIntHashMap();
+
+    /**
+     * Creates an empty store with room for a few appointments.
+     */
+    public PackedAppointmentStore() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty store with room for a given number of appointments before it grows.
+     *
+     * @param initialCapacity the number of appointments to allocate room for
+     */
+    public PackedAppointmentStore(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ids = new int[capacity];
+        patients = new int[capacity];
+        doctors = new int[capacity];
+        durations = new int[capacity];
+        starts = new long[capacity];
+        statuses = new byte[capacity];
+        nextForPatient = new int[capacity];
+        nextForDoctor = new int[capacity];
+    }
+
+    @Override
+    public boolean put(int appointmentId, int patientAccount, int doctorAccount, long startMinute,
+                       int durationMinutes, Appointment.Status status) {
+        if (appointmentId <= 0 || patientAccount < 0 || doctorAccount < 0 || durationMinutes <= 0 || status == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(appointmentId);
+            if (slot == IntIntHashMap.MISSING) {
+                if (size == ids.length) {
+                    grow();
+                }
+                slot = size++;
+                ids[slot] = appointmentId;
+                slotsById.put(appointmentId, slot);
+                link(patientHeads, nextForPatient, patientAccount, slot);
+                link(doctorHeads, nextForDoctor, doctorAccount, slot);
+            } else {
+                if (patients[slot] != patientAccount) {
+                    unlink(patientHeads, nextForPatient, patients[slot], slot);
+                    link(patientHeads, nextForPatient, patientAccount, slot);
+                }
+                if (doctors[slot] != doctorAccount) {
+                    unlink(doctorHeads, nextForDoctor, doctors[slot], slot);
+                    link(doctorHeads, nextForDoctor, doctorAccount, slot);
+                }
+            }
+            patients[slot] = patientAccount;
+            doctors[slot] = doctorAccount;
+            starts[slot] = startMinute;
+            durations[slot] = durationMinutes;
+            statuses[slot] = (byte) status.ordinal();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean setStatus(int appointmentId, Appointment.Status status) {
+        if (status == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = slotsById.get(appointmentId);
+            if (slot == IntIntHashMap.MISSING) {
+                return false;
+            }
+            statuses[slot] = (byte) status.ordinal();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public AppointmentView get(int appointmentId) {
+        lock.readLock().lock();
+        try {
+            int slot = slotsById.get(appointmentId);
+            return (slot == IntIntHashMap.MISSING) ? null : view(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<AppointmentView> getAppointmentsForPatient(int patientAccount) {
+        return chain(patientHeads, nextForPatient, patientAccount);
+    }
+
+    @Override
+    public List<AppointmentView> getAppointmentsForDoctor(int doctorAccount) {
+        return chain(doctorHeads, nextForDoctor, doctorAccount);
+    }
+
+    /**
+     * Checks the patient's and the doctor's chains in place, without building views.
+     */
+    @Override
+    public boolean overlaps(int patientAccount, int doctorAccount, long startMinute, long endMinute, int excludeId) {
+        lock.readLock().lock();
+        try {
+            return chainOverlaps(patientHeads.get(patientAccount), nextForPatient, startMinute, endMinute, excludeId)
+                    || chainOverlaps(doctorHeads.get(doctorAccount), nextForDoctor, startMinute, endMinute, excludeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super AppointmentView> action) {
+        AppointmentView[] chunk = new AppointmentView[WALK_CHUNK];
+        for (int from = 0; ; from += WALK_CHUNK) {
+            int count;
+            lock.readLock().lock();
+            try {
+                count = Math.max(0, Math.min(WALK_CHUNK, size - from));
+                for (int i = 0; i < count; i++) {
+                    chunk[i] = view(from + i);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (int i = 0; i < count; i++) {
+                action.accept(chunk[i]);
+            }
+            if (count < WALK_CHUNK) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        lock.readLock().lock();
+        try {
+            long perSlot = 4L * 6 + 8 + 1;
+            return perSlot * ids.length + slotsById.footprintBytes() + patientHeads.footprintBytes()
+                    + doctorHeads.footprintBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a view of a slot. The caller must hold a lock.
+     */
+    private AppointmentView view(int slot) {
+        return new AppointmentView(ids[slot], patients[slot], doctors[slot], starts[slot], durations[slot],
+                STATUSES[statuses[slot]]);
+    }
+
+    /**
+     * Collects views of a chain, sorted by ID.
+     */
+    private List<AppointmentView> chain(IntIntHashMap heads, int[] next, int account) {
+        List<AppointmentView> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int slot = heads.get(account); slot != NONE; slot = next[slot]) {
+                result.add(view(slot));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingInt(AppointmentView::appointmentId));
+        return result;
+    }
+
+    /**
+     * Checks whether an active slot of a chain overlaps a time range. The caller must hold a lock.
+     */
+    private boolean chainOverlaps(int slot, int[] next, long startMinute, long endMinute, int excludeId) {
+        for (; slot != NONE; slot = next[slot]) {
+            if (ids[slot] != excludeId && statuses[slot] == ACTIVE && starts[slot] < endMinute
+                    && starts[slot] + durations[slot] > startMinute) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Puts a slot at the head of an account's chain. The caller must hold the write lock.
+     */
+    private static void link(IntIntHashMap heads, int[] next, int account, int slot) {
+        int head = heads.get(account);
+        next[slot] = (head == IntIntHashMap.MISSING) ? NONE : head;
+        heads.put(account, slot);
+    }
+
+    /**
+     * Removes a slot from an account's chain. The caller must hold the write lock.
+     */
+    private static void unlink(IntIntHashMap heads, int[] next, int account, int slot) {
+        int current = heads.get(account);
+        if (current == slot) {
+            heads.put(account, next[slot]);
+            return;
+        }
+        while (current != NONE && current != IntIntHashMap.MISSING) {
+            if (next[current] == slot) {
+                next[current] = next[slot];
+                return;
+            }
+            current = next[current];
+        }
+    }
+
+    /**
+     * Grows every column by half. The caller must hold the write lock.
+     */
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        patients = Arrays.copyOf(patients, capacity);
+        doctors = Arrays.copyOf(doctors, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        nextForPatient = Arrays.copyOf(nextForPatient, capacity);
+        nextForDoctor = Arrays.copyOf(nextForDoctor, capacity);
+    }
+}
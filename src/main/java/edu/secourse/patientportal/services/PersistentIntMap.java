@@ -0,0 +1,248 @@
+package edu.secourse.patientportal.services;
+
+import java.util.function.Consumer;
+
+/**
+ * Immutable map from {@code int} keys to values, stored as a 32-way
+ * bitmap-compressed trie over the key bits, lowest bits first.
+ * <p>
+ * {@link #put} and {@link #remove} return a new map and leave this one
+ * unchanged. They copy only the nodes on the path to the key, at most seven,
+ * and share everything else with the old map, so a new version costs
+ * O(log n) time and space and any number of versions can be read at once
+ * without locks. A key sits in the shallowest node where its bits part from
+ * every other key's, so a map of sequential IDs is a few levels deep.
+ *
+ * @param <V> the value type
+ */
+final class PersistentIntMap<V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0);
+
+    /** A key and its value, stored in the slot of a node. */
+    private record Leaf<V>(int key, V value) {
+    }
+
+    /**
+     * Trie node: a bitmap of the occupied slots among the 32, and one entry
+     * per set bit, each a {@link Leaf} or a child {@code Node}. Never modified
+     * after construction.
+     */
+    private static final class Node {
+        private final int bitmap;
+        private final Object[] entries;
+
+        private Node(int bitmap, Object[] entries) {
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private PersistentIntMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @param <V> the value type
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return the key count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Looks up a key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        Node node = root;
+        for (int shift = 0; node != null; shift += BITS) {
+            int bit = 1 << ((key >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object entry = node.entries[node.index(bit)];
+            if (entry instanceof Leaf<?> leaf) {
+                return (leaf.key == key) ? (V) leaf.value : null;
+            }
+            node = (Node) entry;
+        }
+        return null;
+    }
+
+    /**
+     * Returns a map with a key added or its value replaced.
+     *
+     * @param key   the key
+     * @param value the value; must not be {@code null}
+     * @return the new map, or this map if the key already has this value
+     */
+    PersistentIntMap<V> put(int key, V value) {
+        Node base = (root != null) ? root : new Node(0, new Object[0]);
+        boolean[] added = new boolean[1];
+        Node updated = put(base, 0, new Leaf<>(key, value), added);
+        return (updated == root) ? this : new PersistentIntMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without a key.
+     *
+     * @param key the key
+     * @return the new map, or this map if the key is not present
+     */
+    PersistentIntMap<V> remove(int key) {
+        if (root == null) {
+            return this;
+        }
+        Object updated = remove(root, 0, key);
+        if (updated == root) {
+            return this;
+        }
+        if (updated instanceof Leaf<?> leaf) {
+            updated = new Node(1 << (leaf.key & MASK), new Object[]{leaf});
+        }
+        return (size == 1) ? empty() : new PersistentIntMap<>((Node) updated, size - 1);
+    }
+
+    /**
+     * Passes every value to an action, in key-bit order rather than key order.
+     *
+     * @param action the action to run for each value
+     */
+    void forEachValue(Consumer<? super V> action) {
+        if (root != null) {
+            forEachValue(root, action);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEachValue(Node node, Consumer<? super V> action) {
+        for (Object entry : node.entries) {
+            if (entry instanceof Leaf<?> leaf) {
+                action.accept((V) leaf.value);
+            } else {
+                forEachValue((Node) entry, action);
+            }
+        }
+    }
+
+    private static Node put(Node node, int shift, Leaf<?> leaf, boolean[] added) {
+        int bit = 1 << ((leaf.key >>> shift) & MASK);
+        int index = node.index(bit);
+        if ((node.bitmap & bit) == 0) {
+            added[0] = true;
+            Object[] entries = new Object[node.entries.length + 1];
+            System.arraycopy(node.entries, 0, entries, 0, index);
+            entries[index] = leaf;
+            System.arraycopy(node.entries, index, entries, index + 1, node.entries.length - index);
+            return new Node(node.bitmap | bit, entries);
+        }
+        Object current = node.entries[index];
+        Object replacement;
+        if (current instanceof Leaf<?> existing) {
+            if (existing.key == leaf.key) {
+                if (existing.value == leaf.value) {
+                    return node;
+                }
+                replacement = leaf;
+            } else {
+                added[0] = true;
+                replacement = split(existing, leaf, shift + BITS);
+            }
+        } else {
+            Node child = (Node) current;
+            replacement = put(child, shift + BITS, leaf, added);
+            if (replacement == child) {
+                return node;
+            }
+        }
+        Object[] entries = node.entries.clone();
+        entries[index] = replacement;
+        return new Node(node.bitmap, entries);
+    }
+
+    /**
+     * Builds the smallest subtree holding two leaves whose keys agree on
+     * every bit below {@code shift}.
+     */
+    private static Node split(Leaf<?> first, Leaf<?> second, int shift) {
+        int firstSlot = (first.key >>> shift) & MASK;
+        int secondSlot = (second.key >>> shift) & MASK;
+        if (firstSlot == secondSlot) {
+            return new Node(1 << firstSlot, new Object[]{split(first, second, shift + BITS)});
+        }
+        Object[] entries = (firstSlot < secondSlot) ? new Object[]{first, second} : new Object[]{second, first};
+        return new Node((1 << firstSlot) | (1 << secondSlot), entries);
+    }
+
+    /**
+     * Removes a key below a node.
+     *
+     * @return the node unchanged if the key is absent; otherwise the replacement
+     *         node, a single remaining leaf to pull up, or {@code null} if empty
+     */
+    private static Object remove(Node node, int shift, int key) {
+        int bit = 1 << ((key >>> shift) & MASK);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        int index = node.index(bit);
+        Object current = node.entries[index];
+        Object replacement;
+        if (current instanceof Leaf<?> leaf) {
+            if (leaf.key != key) {
+                return node;
+            }
+            replacement = null;
+        } else {
+            replacement = remove((Node) current, shift + BITS, key);
+            if (replacement == current) {
+                return node;
+            }
+        }
+        if (replacement != null) {
+            if (node.entries.length == 1 && replacement instanceof Leaf<?>) {
+                return replacement;
+            }
+            Object[] entries = node.entries.clone();
+            entries[index] = replacement;
+            return new Node(node.bitmap, entries);
+        }
+        if (node.entries.length == 1) {
+            return null;
+        }
+        if (node.entries.length == 2 && node.entries[1 - index] instanceof Leaf<?> remaining) {
+            return remaining;
+        }
+        Object[] entries = new Object[node.entries.length - 1];
+        System.arraycopy(node.entries, 0, entries, 0, index);
+        System.arraycopy(node.entries, index + 1, entries, index, entries.length - index);
+        return new Node(node.bitmap & ~bit, entries);
+    }
+}
@@ -0,0 +1,397 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.IdAllocator;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Appointment store partitioned by doctor into shards, each changed by a
+ * single writer thread.
+ * <p>
+ * Every shard is an {@link AppointmentService} holding the appointments of
+ * the doctors that hash to it. Writes are queued on the shard's lock-free
+ * request queue and applied one at a time by the shard's writer thread, so
+ * shards never contend with each other and a shard's own locks are never
+ * contended. The calling thread waits for its request to be applied.
+ * <p>
+ * A doctor's overlap checks are local to one shard, but a patient may have
+ * bookings in every shard. Before a booking or move is queued, the other
+ * shards are checked for an overlapping booking of the same patient, under
+ * a lock striped by patient account so the patient cannot book elsewhere in
+ * the meantime. Only bookings for the same patient stripe wait on each other.
+ * <p>
+ * Appointment IDs encode their shard: shard {@code s} of {@code n} hands out
+ * IDs {@code s + 1}, {@code s + 1 + n}, and so on, so cancels and moves are
+ * routed without a lookup table. Reads go straight to the shards' lock-free
+ * indexes; a patient's appointments are gathered from every shard and merged.
+ * <p>
+ * Limitations compared with a single {@link AppointmentService}:
+ * <ul>
+ *     <li>An appointment cannot be moved to a doctor in another shard; cancel
+ *     it and book again instead</li>
+ *     <li>Listeners run on the writer threads, so a listener that waits in
+ *     {@link AppointmentListener#writeCompleted()} holds up its shard</li>
+ *     <li>IDs are allocated in memory and are not persisted</li>
+ * </ul>
+ * The service must be closed to stop its writer threads.
+ */
+public class ShardedAppointmentService implements Closeable {
+
+    /** Number of patient lock stripes; a power of two so a stripe is picked with a mask. */
+    private static final int PATIENT_STRIPES = 256;
+
+    private final Shard[] shards;
+    private final ReentrantLock[] patientLocks = new ReentrantLock[PATIENT_STRIPES];
+
+    /**
+     * Creates a service with one shard per available processor.
+     */
+    public ShardedAppointmentService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a service with a given number of shards.
+     *
+     * @param shardCount the number of shards, each with its own writer thread
+     * @throws IllegalArgumentException if the shard count is not positive
+     */
+    public ShardedAppointmentService(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(new AppointmentService(new ShardIdAllocator(i, shardCount)), i);
+        }
+        for (int i = 0; i < patientLocks.length; i++) {
+            patientLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Creates a new appointment in its doctor's shard, with the same rules as
+     * {@link AppointmentService#createAppointment}, and also rejecting it if the
+     * patient has an overlapping booking in another shard.
+     *
+     * @param appointment the appointment to be added
+     * @return true if the appointment was created
+     */
+    public boolean createAppointment(Appointment appointment) {
+        boolean success = false;
+        try {
+            Patient patient = appointment.getPatient();
+            Doctor doctor = appointment.getDoctor();
+            LocalDateTime dateTime = appointment.getAppointmentDateTime();
+            if (patient != null && doctor != null && dateTime != null) {
+                Shard shard = shardFor(doctor);
+                success = bookForPatient(patient, dateTime, appointment.getDuration(), shard,
+                        () -> shard.service.createAppointment(appointment));
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Cancels an appointment in the shard that holds it.
+     *
+     * @param appointmentId the ID of the appointment to cancel
+     * @return true if it was cancelled, false if not found
+     */
+    public boolean cancelAppointment(int appointmentId) {
+        boolean success = false;
+        try {
+            Shard shard = shardFor(appointmentId);
+            if (shard != null) {
+                success = shard.call(() -> shard.service.cancelAppointment(appointmentId));
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Modifies an appointment, with the same rules as
+     * {@link AppointmentService#modifyAppointment}. The new doctor must be in
+     * the same shard as the old one.
+     *
+     * @param appointmentId the ID of the appointment to modify
+     * @param patient       the new patient
+     * @param doctor        the new doctor
+     * @param newDateTime   the new appointment date/time
+     * @return true if the appointment was modified
+     */
+    public boolean modifyAppointment(int appointmentId, Patient patient, Doctor doctor, LocalDateTime newDateTime) {
+        boolean success = false;
+        try {
+            Shard shard = shardFor(appointmentId);
+            if (shard != null && patient != null && doctor != null && newDateTime != null
+                    && shardFor(doctor) == shard) {
+                Appointment current = shard.service.findAppointment(appointmentId);
+                Duration duration = (current != null) ? current.getDuration() : Appointment.DEFAULT_DURATION;
+                success = bookForPatient(patient, newDateTime, duration, shard,
+                        () -> shard.service.modifyAppointment(appointmentId, patient, doctor, newDateTime));
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Returns a user's appointments in ID order: a doctor's from their shard,
+     * and a patient's gathered from every shard.
+     *
+     * @param user the patient or doctor whose appointments to return
+     * @return the user's appointments (empty if none or if the user is null)
+     */
+    public ArrayList<Appointment> getAppointmentsForUser(User user) {
+        ArrayList<Appointment> result = new ArrayList<>();
+        if (user instanceof Doctor doctor) {
+            result.addAll(shardFor(doctor).service.getAppointmentsForUser(doctor));
+        } else if (user != null) {
+            for (Shard shard : shards) {
+                result.addAll(shard.service.getAppointmentsForUser(user));
+            }
+            result.sort(Comparator.comparingInt(Appointment::getAppointmentId));
+        }
+        return result;
+    }
+
+    /**
+     * Returns every stored appointment from every shard, in no particular order.
+     *
+     * @return a stream of all stored appointments
+     */
+    public Stream<Appointment> getAllAppointments() {
+        return Arrays.stream(shards).flatMap(shard -> shard.service.getAllAppointments());
+    }
+
+    /**
+     * Finds free slots in a doctor's schedule; see {@link AppointmentService#findFreeSlots}.
+     *
+     * @param doctor     the doctor whose schedule is searched
+     * @param from       the inclusive start of the search window
+     * @param to         the exclusive end of the search window
+     * @param dayStart   the start of working hours on each day
+     * @param dayEnd     the end of working hours on each day
+     * @param slotLength the length of each slot
+     * @param count      the maximum number of slots to return
+     * @return the start times of free slots in time order
+     */
+    public ArrayList<LocalDateTime> findFreeSlots(Doctor doctor, LocalDateTime from, LocalDateTime to,
+                                                  LocalTime dayStart, LocalTime dayEnd, Duration slotLength,
+                                                  int count) {
+        if (doctor == null) {
+            return new ArrayList<>();
+        }
+        return shardFor(doctor).service.findFreeSlots(doctor, from, to, dayStart, dayEnd, slotLength, count);
+    }
+
+    /**
+     * Registers a listener with every shard. Its callbacks run on the shards' writer threads.
+     *
+     * @param listener the listener to add
+     * @return true if it was added
+     */
+    public boolean addListener(AppointmentListener listener) {
+        boolean success = listener != null;
+        for (Shard shard : shards) {
+            success &= shard.service.addListener(listener);
+        }
+        return success;
+    }
+
+    /**
+     * Unregisters a listener from every shard.
+     *
+     * @param listener the listener to remove
+     * @return true if it was registered
+     */
+    public boolean removeListener(AppointmentListener listener) {
+        boolean success = true;
+        for (Shard shard : shards) {
+            success &= shard.service.removeListener(listener);
+        }
+        return success;
+    }
+
+    /**
+     * Applies the queued requests, then stops the writer threads.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.writer);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Applies a booking for a patient in one shard, provided no other shard
+     * holds an overlapping booking of the same patient. The patient's lock
+     * stripe is held from the check until the shard has applied the change.
+     */
+    private boolean bookForPatient(Patient patient, LocalDateTime dateTime, Duration duration, Shard target,
+                                   Callable<Boolean> change) throws Exception {
+        if (shards.length == 1) {
+            return target.call(change);
+        }
+        long start = AppointmentService.epochMinute(dateTime);
+        long end = start + AppointmentService.durationMinutes(duration);
+        int account = patient.getAccountNumber();
+        ReentrantLock lock = patientLocks[Integer.hashCode(account) & (PATIENT_STRIPES - 1)];
+        lock.lock();
+        try {
+            for (Shard shard : shards) {
+                if (shard != target && shard.service.patientOverlaps(account, start, end)) {
+                    return false;
+                }
+            }
+            return target.call(change);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Shard shardFor(Doctor doctor) {
+        return shards[Math.floorMod(mix(doctor.getAccountNumber()), shards.length)];
+    }
+
+    /**
+     * Finds the shard that handed out an appointment ID.
+     *
+     * @return the shard, or {@code null} if the ID is not positive
+     */
+    private Shard shardFor(int appointmentId) {
+        return (appointmentId > 0) ? shards[(appointmentId - 1) % shards.length] : null;
+    }
+
+    /**
+     * Spreads consecutive account numbers across shards.
+     */
+    private static int mix(int account) {
+        int h = account * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * One partition: a service and the single thread that changes it.
+     */
+    private static final class Shard implements Runnable {
+
+        private final AppointmentService service;
+        private final ConcurrentLinkedQueue<FutureTask<?>> requests = new ConcurrentLinkedQueue<>();
+        private final Thread writer;
+        private volatile boolean running = true;
+
+        private Shard(AppointmentService service, int index) {
+            this.service = service;
+            this.writer = new Thread(this, "appointment-shard-" + index);
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+
+        /**
+         * Queues a request for the writer thread and waits for its result.
+         */
+        private <T> T call(Callable<T> request) throws Exception {
+            if (!running) {
+                throw new IllegalStateException("Service is closed");
+            }
+            FutureTask<T> task = new FutureTask<>(request);
+            requests.offer(task);
+            LockSupport.unpark(writer);
+            if (!running) {
+                // Closed meanwhile: once the writer has exited, a request still queued will never run
+                writer.join();
+                if (requests.remove(task)) {
+                    throw new IllegalStateException("Service is closed");
+                }
+            }
+            return task.get();
+        }
+
+        /**
+         * Writer loop: applies requests in arrival order, parking when the queue is empty.
+         */
+        @Override
+        public void run() {
+            while (true) {
+                FutureTask<?> task = requests.poll();
+                if (task != null) {
+                    task.run();
+                } else if (running) {
+                    LockSupport.park(this);
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands out the IDs of one shard: {@code shard + 1 + k * shardCount} for
+     * {@code k = 0, 1, 2, ...}, drawing {@code k} from an in-memory allocator.
+     */
+    private static final class ShardIdAllocator implements IdAllocator {
+
+        private final IdAllocator sequence = new BlockIdAllocator();
+        private final int shard;
+        private final int shardCount;
+
+        private ShardIdAllocator(int shard, int shardCount) {
+            this.shard = shard;
+            this.shardCount = shardCount;
+        }
+
+        @Override
+        public int nextId() {
+            long id = (sequence.nextId() - 1L) * shardCount + shard + 1;
+            if (id > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Appointment IDs exhausted in shard " + shard);
+            }
+            return (int) id;
+        }
+
+        @Override
+        public void advancePast(int id) {
+            sequence.advancePast((id - 1) / shardCount + 1);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package edu.secourse.patientportal.services;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Unmodifiable {@link SortedMap} view of key/value arrays that are already in
+ * natural key order.
+ * <p>
+ * It exists to feed {@link java.util.concurrent.ConcurrentSkipListMap}'s
+ * sorted-map constructor, which builds the skip list in linear time without
+ * comparing keys. Inserting the same entries one at a time costs a search per
+ * entry, which dominates a bulk restore. The rest of the sorted-map contract
+ * is also honoured: range views are a binary search plus a narrower run over
+ * the same arrays.
+ * <p>
+ * Entry {@code p} of the run is element {@code (int) order[from + p]} of the
+ * arrays, or element {@code from + p} if no order is given.
+ */
+final class SortedRun<K, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+
+    private final K[] keys;
+    private final V[] values;
+    private final long[] order;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param keys   keys, in key order when read through {@code order}
+     * @param values values matching {@code keys}
+     * @param order  positions into the arrays in their low 32 bits, or {@code null} for array order
+     * @param from   first position of the run, inclusive
+     * @param to     last position of the run, exclusive
+     */
+    SortedRun(K[] keys, V[] values, long[] order, int from, int to) {
+        this.keys = keys;
+        this.values = values;
+        this.order = order;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<>() {
+                    private int position = from;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < to;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (position >= to) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = (order != null) ? (int) order[position] : position;
+                        position++;
+                        return new SimpleImmutableEntry<>(keys[index], values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return null;
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        if (compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new SortedRun<>(keys, values, order, lowerBound(fromKey), lowerBound(toKey));
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return new SortedRun<>(keys, values, order, from, lowerBound(toKey));
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return new SortedRun<>(keys, values, order, lowerBound(fromKey), to);
+    }
+
+    @Override
+    public K firstKey() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(from);
+    }
+
+    @Override
+    public K lastKey() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(to - 1);
+    }
+
+    /**
+     * Returns the key at a position of the run.
+     */
+    private K keyAt(int position) {
+        return keys[(order != null) ? (int) order[position] : position];
+    }
+
+    /**
+     * Returns the first position in the run whose key is not less than {@code key}.
+     */
+    private int lowerBound(K key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> int compare(K left, K right) {
+        return ((Comparable<? super K>) left).compareTo(right);
+    }
+}
@@ -0,0 +1,207 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.IdAllocator;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Appointment service whose only record of the calendar is an {@link AppointmentStore}.
+ * <p>
+ * {@link AppointmentService} keeps every {@link Appointment} object and
+ * several object indexes on the heap, so its footprint and the garbage
+ * collector's work grow with the calendar. This service keeps nothing per
+ * appointment: bookings are checked and written straight into the store,
+ * and reads are answered from the store with {@link AppointmentView}s built
+ * on demand. The heap cost per appointment is therefore the store's:
+ * <ul>
+ *     <li>{@link PackedAppointmentStore}: a few dozen bytes of primitive arrays</li>
+ *     <li>{@link OffHeapAppointmentStore}: none, with the records in native
+ *     memory or a memory-mapped file</li>
+ * </ul>
+ * The booking rules are those of {@link AppointmentService}: a booking or
+ * move is rejected if it overlaps an active appointment of the same patient
+ * or doctor, and cancelled appointments do not block a slot. The check walks
+ * the patient's and the doctor's records in the store, so it takes time
+ * linear in their number of appointments rather than logarithmic.
+ * <p>
+ * Writes are serialized on the service; reads go to the store, which is
+ * thread-safe, without waiting for them. The service does not journal, take
+ * snapshots, or tell listeners; a store opened on a file is its persistence.
+ * An appointment passed to {@link #createAppointment} is given its ID but is
+ * not kept, so later changes to the object are not seen.
+ */
+public class StoreBackedAppointmentService {
+
+    private final AppointmentStore store;
+
+    /** Source of IDs for newly created appointments. */
+    private final IdAllocator idAllocator;
+
+    /**
+     * Creates a service over a store that numbers new appointments using an
+     * in-memory {@link BlockIdAllocator}.
+     *
+     * @param store the store holding the calendar; it may already hold appointments
+     * @throws IllegalArgumentException if {@code store} is {@code null}
+     */
+    public StoreBackedAppointmentService(AppointmentStore store) {
+        this(store, null);
+    }
+
+    /**
+     * Creates a service over a store. The allocator is moved past every ID
+     * already in the store.
+     *
+     * @param store       the store holding the calendar; it may already hold appointments
+     * @param idAllocator the allocator to use; if {@code null}, an in-memory {@link BlockIdAllocator} is used
+     * @throws IllegalArgumentException if {@code store} is {@code null}
+     */
+    public StoreBackedAppointmentService(AppointmentStore store, IdAllocator idAllocator) {
+        if (store == null) {
+            throw new IllegalArgumentException("A store is required");
+        }
+        IdAllocator allocator = (idAllocator != null) ? idAllocator : new BlockIdAllocator();
+        store.forEach(view -> allocator.advancePast(view.appointmentId()));
+        this.store = store;
+        this.idAllocator = allocator;
+    }
+
+    /**
+     * Books a new appointment if it overlaps no active appointment of its
+     * patient or its doctor, and sets the new ID on the appointment.
+     *
+     * @param appointment the active appointment to book
+     * @return true if the appointment was stored, false otherwise
+     */
+    public boolean createAppointment(Appointment appointment) {
+        boolean success = false;
+        try {
+            AppointmentView view = AppointmentView.of(appointment);
+            if (view != null && view.isActive()) {
+                long endMinute = view.startMinute() + view.durationMinutes();
+                synchronized (this) {
+                    if (!store.overlaps(view.patientAccount(), view.doctorAccount(), view.startMinute(),
+                            endMinute, 0)) {
+                        int appointmentId = idAllocator.nextId();
+                        success = store.put(appointmentId, view.patientAccount(), view.doctorAccount(),
+                                view.startMinute(), view.durationMinutes(), view.status());
+                        if (success) {
+                            appointment.setAppointmentId(appointmentId);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Moves an appointment to a new patient, doctor, and date/time, keeping
+     * its duration, if the new slot overlaps no other active appointment of
+     * the new patient or doctor. A cancelled appointment becomes active again.
+     *
+     * @param appointmentId the ID of the appointment to modify
+     * @param patient       the new patient
+     * @param doctor        the new doctor
+     * @param newDateTime   the new date/time
+     * @return true if the appointment was modified, false otherwise
+     */
+    public boolean modifyAppointment(int appointmentId, Patient patient, Doctor doctor, LocalDateTime newDateTime) {
+        boolean success = false;
+        try {
+            if (patient != null && doctor != null && newDateTime != null) {
+                long startMinute = AppointmentService.epochMinute(newDateTime);
+                synchronized (this) {
+                    AppointmentView current = store.get(appointmentId);
+                    if (current != null && !store.overlaps(patient.getAccountNumber(), doctor.getAccountNumber(),
+                            startMinute, startMinute + current.durationMinutes(), appointmentId)) {
+                        success = store.put(appointmentId, patient.getAccountNumber(), doctor.getAccountNumber(),
+                                startMinute, current.durationMinutes(), Appointment.Status.ACTIVE);
+                    }
+                }
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Cancels an appointment by ID.
+     *
+     * @param appointmentId the ID of the appointment to cancel
+     * @return true if cancellation succeeded, false if not found
+     */
+    public boolean cancelAppointment(int appointmentId) {
+        boolean success = false;
+        try {
+            synchronized (this) {
+                success = store.setStatus(appointmentId, Appointment.Status.CANCELLED);
+            }
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Looks up an appointment by ID.
+     *
+     * @param appointmentId the appointment ID
+     * @return a view of the appointment, or {@code null} if not found
+     */
+    public AppointmentView getAppointment(int appointmentId) {
+        return store.get(appointmentId);
+    }
+
+    /**
+     * Retrieves the appointments of a patient or a doctor, active or cancelled, in ID order.
+     *
+     * @param user the patient or doctor whose appointments should be returned
+     * @return views of the matching appointments (empty if none or if user is invalid)
+     */
+    public List<AppointmentView> getAppointmentsForUser(User user) {
+        if (user instanceof Patient) {
+            return store.getAppointmentsForPatient(user.getAccountNumber());
+        } else if (user instanceof Doctor) {
+            return store.getAppointmentsForDoctor(user.getAccountNumber());
+        }
+        return List.of();
+    }
+
+    /**
+     * Passes a view of every stored appointment, active or cancelled, to an
+     * action, in no particular order.
+     *
+     * @param action the action to run for each appointment
+     */
+    public void forEachAppointment(Consumer<? super AppointmentView> action) {
+        store.forEach(action);
+    }
+
+    /**
+     * Returns the number of stored appointments, active or cancelled.
+     *
+     * @return the appointment count
+     */
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Returns the store holding the calendar.
+     *
+     * @return the store
+     */
+    public AppointmentStore getStore() {
+        return store;
+    }
+}
@@ -0,0 +1,49 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.User;
+
+/**
+ * Callback for changes made through a {@link UserService}.
+ * <p>
+ * Change callbacks run after the change is applied, while the service still
+ * holds its write lock, so they observe changes in the order they happened
+ * and must be quick. {@link #writeCompleted()} runs after the lock is
+ * released, on the thread that made the change, before the service call
+ * returns; it is the place to wait for slow work such as a disk flush.
+ */
+public interface UserListener {
+
+    /**
+     * Called after a user is created.
+     *
+     * @param user the new user
+     */
+    default void userCreated(User user) {
+    }
+
+    /**
+     * Called after a user's details are updated.
+     *
+     * @param oldUsername the username before the update
+     * @param user        the updated user
+     */
+    default void userUpdated(String oldUsername, User user) {
+    }
+
+    /**
+     * Called after a user is removed.
+     *
+     * @param user the removed user
+     */
+    default void userRemoved(User user) {
+    }
+
+    /**
+     * Called once after each successful change, outside the service's lock.
+     * <p>
+     * Throwing makes the service report the change as failed, although it
+     * has already been applied in memory.
+     */
+    default void writeCompleted() {
+    }
+}
@@ -0,0 +1,198 @@
+package edu.secourse.patientportal.services;
+
+import edu.secourse.patientportal.models.User;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded near cache of {@link UserService#getUser} results, including misses.
+ * <p>
+ * Both found users and "no such user" answers are kept for a short time to
+ * live, so a username typed again and again is answered from memory even if
+ * the service behind the cache is slow. A hit is a hash lookup and a clock
+ * read, with no locking.
+ * <p>
+ * The cache listens to the service it fronts and drops entries precisely:
+ * <ul>
+ *     <li>{@code createUser} drops the new username, clearing a cached miss</li>
+ *     <li>{@code updateUser} drops both the old and the new username</li>
+ *     <li>{@code removeUser} drops the removed username</li>
+ * </ul>
+ * A lookup that races with a change never leaves a stale entry behind: the
+ * loader stores its answer and then checks whether any change happened
+ * since it started loading; if so, it takes the answer back out.
+ * <p>
+ * When the cache is full, one pass drops entries until it is down to a
+ * low-water mark an eighth below the maximum size, so the bound holds
+ * without tracking recency and the cost of the pass is shared by the misses
+ * that fill the cache up again. The pass takes entries in table order,
+ * expired or not; an expired entry it does not reach is replaced by the next
+ * lookup of its username.
+ */
+public final class UserLookupCache implements UserListener {
+
+    /** Default number of usernames kept. */
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    /** Default time an entry stays valid. */
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofSeconds(30);
+
+    /**
+     * Hit, miss, and eviction counts of a cache.
+     *
+     * @param hits         lookups answered from the cache, found or not
+     * @param negativeHits the hits that answered "no such user"
+     * @param misses       lookups passed to the service
+     * @param evictions    entries dropped to stay within the size bound
+     * @param size         entries currently held, including expired ones not yet dropped
+     */
+    public record Stats(long hits, long negativeHits, long misses, long evictions, int size) {
+    }
+
+    /**
+     * A cached answer; {@code user} is {@code null} for a cached miss.
+     */
+    private record Entry(User user, long expiresAt) {
+    }
+
+    private final UserService service;
+    private final int maximumSize;
+    private final int lowWaterMark;
+    private final long timeToLiveNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** Number of changes seen, used to detect a change during a load. */
+    private final AtomicLong changes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache in front of a service and starts listening to it.
+     *
+     * @param service     the service to cache lookups of
+     * @param maximumSize the maximum number of usernames kept; must be positive
+     * @param timeToLive  how long an entry stays valid; must be positive
+     * @throws IllegalArgumentException if an argument is missing or not positive
+     */
+    public UserLookupCache(UserService service, int maximumSize, Duration timeToLive) {
+        if (service == null || maximumSize <= 0 || timeToLive == null
+                || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("A service, a positive maximum size, and a positive time to live are required");
+        }
+        this.service = service;
+        this.maximumSize = maximumSize;
+        this.lowWaterMark = maximumSize - Math.max(1, maximumSize / 8);
+        this.timeToLiveNanos = timeToLive.toNanos();
+        service.addListener(this);
+    }
+
+    /**
+     * Retrieves a user by their username, from the cache if present.
+     *
+     * @param username the username to search for
+     * @return the matching user, or {@code null} if none found
+     */
+    public User getUser(String username) {
+        if (username == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        Entry entry = entries.get(username);
+        if (entry != null && entry.expiresAt() - now > 0) {
+            hits.increment();
+            if (entry.user() == null) {
+                negativeHits.increment();
+            }
+            return entry.user();
+        }
+
+        misses.increment();
+        long started = changes.get();
+        User user = service.getUser(username);
+        if (entry == null && entries.size() >= maximumSize) {
+            evict();
+        }
+        Entry loaded = new Entry(user, now + timeToLiveNanos);
+        entries.put(username, loaded);
+        if (changes.get() != started) {
+            entries.remove(username, loaded);
+        }
+        return user;
+    }
+
+    /**
+     * Drops the cached answer for a username.
+     *
+     * @param username the username to drop; ignored if {@code null}
+     */
+    public void invalidate(String username) {
+        changes.incrementAndGet();
+        if (username != null) {
+            entries.remove(username);
+        }
+    }
+
+    /**
+     * Drops every cached answer, keeping the statistics.
+     */
+    public void invalidateAll() {
+        changes.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Returns the cache's hit, miss, and eviction counts.
+     *
+     * @return the current statistics
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    /**
+     * Stops listening to the service and drops every cached answer.
+     */
+    public void close() {
+        service.removeListener(this);
+        invalidateAll();
+    }
+
+    @Override
+    public void userCreated(User user) {
+        invalidate(user.getUsername());
+    }
+
+    @Override
+    public void userUpdated(String oldUsername, User user) {
+        invalidate(oldUsername);
+        invalidate(user.getUsername());
+    }
+
+    @Override
+    public void userRemoved(User user) {
+        invalidate(user.getUsername());
+    }
+
+    /**
+     * Makes room for a batch of entries by dropping entries in table order
+     * until the cache is down to its low-water mark.
+     */
+    private void evict() {
+        int excess = entries.size() - lowWaterMark;
+        Iterator<Entry> values = entries.values().iterator();
+        while (excess > 0 && values.hasNext()) {
+            values.next();
+            values.remove();
+            evictions.increment();
+            excess--;
+        }
+    }
+}
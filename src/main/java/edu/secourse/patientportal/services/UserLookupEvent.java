@@ -0,0 +1,28 @@
+package edu.secourse.patientportal.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one lookup of a user by username in the {@link UserService}.
+ */
+@Name("edu.secourse.patientportal.UserLookup")
+@Label("User Lookup")
+@Category({"Patient Portal", "Users"})
+@Description("Lookup of a user by username")
+@StackTrace(false)
+final class UserLookupEvent extends Event {
+
+    @Label("Username")
+    String username;
+
+    @Label("Found")
+    boolean found;
+
+    @Label("Account")
+    int account;
+}
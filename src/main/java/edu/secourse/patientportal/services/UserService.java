@@ -1,7 +1,13 @@
 package edu.secourse.patientportal.services;
 import edu.secourse.patientportal.models.User;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Service layer responsible for managing {@link User} objects.
@@ -9,16 +15,36 @@ import java.util.ArrayList;
  * This class stores all users in memory and provides operations for creating,
  * retrieving, printing, updating, and removing users.
  * <p>
+ * Users are indexed by username, so creating, looking up, checking, and
+ * removing a user are constant-time operations regardless of how many users
+ * are registered. Reads never lock; writes are serialized on this service so
+ * that a rename moves the index entry in a single step.
+ * <p>
+ * Registered {@link UserListener}s are told about every successful change,
+ * which is how the journal keeps a durable copy of the registry.
+ * <p>
+ * Lookups by username emit a {@link UserLookupEvent} for Java Flight Recorder.
+ * <p>
  * All methods follow a defensive design using try-catch blocks so that any
  * UI or controller interaction cannot crash the application.
  */
 public class UserService {
 
-    /** Internal list of all registered users in the system. */
-    public ArrayList<User> users = new ArrayList<>();
+    /** Primary store of all registered users, keyed by username. */
+    private final Map<String, User> usersByUsername = new ConcurrentHashMap<>();
 
     /**
-     * Default constructor. Initializes an empty user list.
+     * Read-only view of all registered users in the system.
+     * <p>
+     * Changes must go through this service so the username index stays consistent.
+     */
+    public final Collection<User> users = Collections.unmodifiableCollection(usersByUsername.values());
+
+    /** Listeners told about every successful change. */
+    private final List<UserListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Default constructor. Initializes an empty user registry.
      */
     public UserService() {
 
@@ -34,16 +60,75 @@ public class UserService {
     public boolean createUser(User user) {
         boolean success = false;
         try {
-            boolean exists = false;
-            for (User value : users) {
-                if (value.getUsername().equals(user.getUsername())) {
-                    exists = true;
-                    break;
+            if (user != null && user.getUsername() != null) {
+                synchronized (this) {
+                    success = usersByUsername.putIfAbsent(user.getUsername(), user) == null;
+                    if (success) {
+                        for (UserListener listener : listeners) {
+                            listener.userCreated(user);
+                        }
+                    }
+                }
+                if (success) {
+                    success = completeWrite();
                 }
             }
-            if (!exists) {
-                users.add(user);
-                success = true;
+        } catch (Exception e_) {
+
+        }
+        return success;
+    }
+
+    /**
+     * Creates a batch of users, with the same rule as {@link #createUser} for
+     * each one. Users are added in order, so a batch that repeats a username
+     * keeps the first. Listeners hear about each user as it is added, and the
+     * batch waits for them to finish writing once, at the end.
+     *
+     * @param users the users to create, in the order to add them
+     * @return for each item in iteration order, true if it was created (empty if the batch is null)
+     */
+    public boolean[] createUsers(Collection<? extends User> users) {
+        if (users == null) {
+            return new boolean[0];
+        }
+        User[] items = users.toArray(new User[0]);
+        boolean[] results = new boolean[items.length];
+        try {
+            boolean any = false;
+            synchronized (this) {
+                for (int i = 0; i < items.length; i++) {
+                    User user = items[i];
+                    if (user != null && user.getUsername() != null
+                            && usersByUsername.putIfAbsent(user.getUsername(), user) == null) {
+                        results[i] = true;
+                        any = true;
+                        for (UserListener listener : listeners) {
+                            listener.userCreated(user);
+                        }
+                    }
+                }
+            }
+            if (any && !completeWrite()) {
+                Arrays.fill(results, false);
+            }
+        } catch (Exception e_) {
+
+        }
+        return results;
+    }
+
+    /**
+     * Registers a listener to be told about every later change.
+     *
+     * @param listener the listener to add
+     * @return true if the listener was added, false otherwise
+     */
+    public boolean addListener(UserListener listener) {
+        boolean success = false;
+        try {
+            if (listener != null) {
+                success = listeners.add(listener);
             }
         } catch (Exception e_) {
 
@@ -51,6 +136,16 @@ public class UserService {
         return success;
     }
 
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to remove
+     * @return true if the listener was registered, false otherwise
+     */
+    public boolean removeListener(UserListener listener) {
+        return listeners.remove(listener);
+    }
+
     /**
      * Retrieves a user by their username.
      *
@@ -58,12 +153,19 @@ public class UserService {
      * @return the matching user, or {@code null} if none found
      */
     public User getUser(String username) {
-        for (User user : users) {
-            if (user.getUsername().equals(username)) {
-                return user;
-            }
+        if (username == null) {
+            return null;
+        }
+        UserLookupEvent event = new UserLookupEvent();
+        event.begin();
+        User user = usersByUsername.get(username);
+        if (event.shouldCommit()) {
+            event.username = username;
+            event.found = user != null;
+            event.account = (user != null) ? user.getAccountNumber() : 0;
+            event.commit();
         }
-        return null;
+        return user;
     }
 
     /**
@@ -75,17 +177,13 @@ public class UserService {
      */
     public void printUser(String username) {
         try {
-            boolean userExists = false;
-            for (User user : users) {
-                if (user.getUsername().equals(username)) {
-                    System.out.println("\nAccount Number: " + user.getAccountNumber());
-                    System.out.println("Username: " + user.getUsername());
-                    System.out.println("Name: " + user.getName());
-                    System.out.println("Email: " + user.getEmail());
-                    userExists = true;
-                }
-            }
-            if (!userExists) {
+            User user = getUser(username);
+            if (user != null) {
+                System.out.println("\nAccount Number: " + user.getAccountNumber());
+                System.out.println("Username: " + user.getUsername());
+                System.out.println("Name: " + user.getName());
+                System.out.println("Email: " + user.getEmail());
+            } else {
                 System.out.println("User does not exist.");
             }
         } catch (Exception e_) {
@@ -94,7 +192,7 @@ public class UserService {
     }
 
     /**
-     * Removes the given user object from the list if it exists.
+     * Removes the given user object from the registry if it exists.
      *
      * @param user the user object to remove
      * @return true if removed successfully, false otherwise
@@ -102,20 +200,43 @@ public class UserService {
     public boolean removeUser(User user) {
         boolean success = false;
         try {
-            if (user != null) {
-                if (users.contains(user)) {
-                    users.remove(user);
-                    success = true;
-                }
-            }
+            success = removeUserWithoutWaiting(user) && completeWrite();
         } catch (Exception e_) {
 
         }
         return success;
     }
 
+    /**
+     * Removes a user and tells listeners, without waiting for them to finish
+     * writing. The caller must call {@link #completeWrite()} afterwards,
+     * outside any locks it holds.
+     *
+     * @param user the user object to remove
+     * @return true if the user was removed, false otherwise
+     */
+    boolean removeUserWithoutWaiting(User user) {
+        boolean success = false;
+        if (user != null && user.getUsername() != null) {
+            synchronized (this) {
+                User removed = usersByUsername.remove(user.getUsername());
+                success = removed != null;
+                if (success) {
+                    for (UserListener listener : listeners) {
+                        listener.userRemoved(removed);
+                    }
+                }
+            }
+        }
+        return success;
+    }
+
     /**
      * Updates an existing user's username, password, name, and email.
+     * <p>
+     * A rename is rejected if the new username already belongs to another user.
+     * The index entry is moved together with the username change, so the user
+     * is always reachable under exactly one key.
      *
      * @param oldUsername   the user's current username
      * @param newUsername   the user's desired new username
@@ -127,17 +248,31 @@ public class UserService {
     public boolean updateUser(String oldUsername, String newUsername, String hashedPassword, String name, String email) {
         boolean success = false;
         try {
-            // Find matching user
-            for (User user : users) {
-                if (user.getUsername().equals(oldUsername)) {
-                    user.setUsername(newUsername);
-                    user.setHashedPassword(hashedPassword);
-                    user.setName(name);
-                    user.setEmail(email);
-
-                    success = true;
+            synchronized (this) {
+                User user = getUser(oldUsername);
+                if (user != null && newUsername != null) {
+                    boolean rename = !oldUsername.equals(newUsername);
+
+                    if (!rename || !usersByUsername.containsKey(newUsername)) {
+                        if (rename) {
+                            usersByUsername.put(newUsername, user);
+                            usersByUsername.remove(oldUsername);
+                        }
+                        user.setUsername(newUsername);
+                        user.setHashedPassword(hashedPassword);
+                        user.setName(name);
+                        user.setEmail(email);
+
+                        for (UserListener listener : listeners) {
+                            listener.userUpdated(oldUsername, user);
+                        }
+                        success = true;
+                    }
                 }
             }
+            if (success) {
+                success = completeWrite();
+            }
         } catch (Exception e_) {
 
         }
@@ -145,7 +280,7 @@ public class UserService {
     }
 
     /**
-     * Checks whether a given user exists in the internal user list.
+     * Checks whether a given user exists in the user registry.
      *
      * @param user the user object to look for
      * @return true if user exists, false otherwise
@@ -153,13 +288,29 @@ public class UserService {
     public boolean containsUser(User user) {
         boolean containsUser = false;
         try {
-            if (users.contains(user)) {
-                containsUser = true;
+            if (user != null && user.getUsername() != null) {
+                containsUser = usersByUsername.containsKey(user.getUsername());
             }
         } catch (Exception e_) {
 
         }
         return containsUser;
     }
-}
 
+    /**
+     * Tells every listener that a change has been applied, outside the lock.
+     *
+     * @return true if every listener accepted the change, false otherwise
+     */
+    boolean completeWrite() {
+        boolean success = true;
+        for (UserListener listener : listeners) {
+            try {
+                listener.writeCompleted();
+            } catch (Exception e_) {
+                success = false;
+            }
+        }
+        return success;
+    }
+}
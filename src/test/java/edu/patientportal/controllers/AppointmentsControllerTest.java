@@ -1,5 +1,6 @@
 package edu.patientportal.controllers;
 
+import edu.secourse.patientportal.metrics.OperationMetrics;
 import edu.secourse.patientportal.models.*;
 import edu.secourse.patientportal.services.AppointmentService;
 import edu.secourse.patientportal.controllers.AppointmentController;
@@ -240,8 +241,32 @@ class AppointmentControllerTest {
         // Act
         controller.printAppointment(appointment);
     }
-}
-
 
+    /**
+     * Verifies that each call is counted under its outcome and timed.
+     */
+    @Test
+    @DisplayName("metricsTest(): test success and failure counts")
+    void metricsTest() {
+        // Arrange
+        AppointmentController controller = new AppointmentController(new AppointmentService());
+        Patient patient = new Patient("mp", "pass", "Pat", "mp@mail.com");
+        Doctor doctor = new Doctor("md", "pass", "Doc", "md@mail.com");
+        LocalDateTime time = LocalDateTime.now().plusDays(1);
 
+        // Act
+        controller.createAppointment(new Appointment(patient, doctor, time));
+        controller.createAppointment(new Appointment(patient, doctor, time));
+        controller.createAppointment(null);
+        controller.getAppointmentsForUser(patient);
 
+        // Assert
+        OperationMetrics create = controller.getMetrics().getOperation("createAppointment");
+        assertEquals(1, create.getSuccesses());
+        assertEquals(2, create.getFailures());
+        assertEquals(0, create.getErrors());
+        assertEquals(3, create.getLatency().getCount());
+        assertEquals(1, controller.getMetrics().getOperation("getAppointmentsForUser").getSuccesses());
+        assertEquals(0, controller.getMetrics().getOperation("cancelAppointment").getLatency().getCount());
+    }
+}
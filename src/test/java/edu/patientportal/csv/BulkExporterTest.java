@@ -0,0 +1,115 @@
+package edu.patientportal.csv;
+
+import edu.secourse.patientportal.csv.BulkExporter;
+import edu.secourse.patientportal.csv.CsvImporter;
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link BulkExporter}.
+ * <p>
+ * These tests verify:
+ * <ul>
+ *     <li>A CSV export with password hashes imports again into empty services,
+ *     leaving out cancelled appointments</li>
+ *     <li>JSON Lines output escapes text, spans many small chunks, and has no
+ *     password hashes by default</li>
+ * </ul>
+ */
+public class BulkExporterTest {
+
+    /**
+     * Exports users and appointments to CSV through a small buffer and imports
+     * them into fresh services; the cancelled appointment is exported but not
+     * imported.
+     */
+    @Test
+    @DisplayName("roundTripTest(): an exported CSV imports back its active records")
+    void roundTripTest(@TempDir Path directory) throws Exception {
+        // Arrange
+        UserService userService = new UserService();
+        AppointmentService appointmentService = new AppointmentService();
+        Patient patient = new Patient("pat", "hash", "Smith, \"Pat\"", "pat@example.com");
+        Doctor doctor = new Doctor("doc", "hash", "Dr Zoë", "doc@example.com");
+        userService.createUser(patient);
+        userService.createUser(doctor);
+        for (int i = 0; i < 200; i++) {
+            appointmentService.createAppointment(new Appointment(patient, doctor,
+                    LocalDateTime.of(2030, 1, 7, 9, 0).plusHours(i)));
+        }
+        Appointment cancelled = new Appointment(patient, doctor, LocalDateTime.of(2031, 1, 7, 9, 0));
+        appointmentService.createAppointment(cancelled);
+        appointmentService.cancelAppointment(cancelled.getAppointmentId());
+        BulkExporter exporter = new BulkExporter(userService, appointmentService, 64);
+        Path users = directory.resolve("users.csv");
+        Path appointments = directory.resolve("appointments.csv");
+
+        // Act
+        BulkExporter.Result userResult = exporter.exportUsers(users, BulkExporter.Format.CSV, true);
+        BulkExporter.Result appointmentResult = exporter.exportAppointments(appointments, BulkExporter.Format.CSV);
+        UserService importedUsers = new UserService();
+        AppointmentService importedAppointments = new AppointmentService();
+        CsvImporter importer = new CsvImporter(importedUsers, importedAppointments);
+        CsvImporter.Result userImport = importer.importUsers(users);
+        CsvImporter.Result appointmentImport = importer.importAppointments(appointments);
+
+        // Assert
+        assertEquals(2, userResult.rows());
+        assertEquals(201, appointmentResult.rows());
+        assertEquals(Files.size(appointments), appointmentResult.bytes());
+        assertEquals(2, userImport.imported());
+        assertEquals(200, appointmentImport.imported());
+        assertEquals(1, appointmentImport.skipped());
+        assertEquals(0, appointmentImport.rejected());
+        assertEquals("Smith, \"Pat\"", importedUsers.getUser("pat").getName());
+        assertEquals("Dr Zoë", importedUsers.getUser("doc").getName());
+        assertEquals(200, importedAppointments.getAppointmentsForUser(importedUsers.getUser("pat")).size());
+    }
+
+    /**
+     * Exports to JSON Lines and checks the encoded rows.
+     */
+    @Test
+    @DisplayName("jsonLinesTest(): rows are written as escaped JSON objects without password hashes")
+    void jsonLinesTest(@TempDir Path directory) throws Exception {
+        // Arrange
+        UserService userService = new UserService();
+        AppointmentService appointmentService = new AppointmentService();
+        Patient patient = new Patient("pat", "hash", "Line\nBreak \\ \"Q\"", "pat@example.com");
+        Doctor doctor = new Doctor("doc", "hash", "Doc", "doc@example.com");
+        userService.createUser(patient);
+        Appointment appointment = new Appointment(patient, doctor, LocalDateTime.of(2030, 1, 7, 9, 30));
+        appointmentService.createAppointment(appointment);
+        BulkExporter exporter = new BulkExporter(userService, appointmentService, 64);
+        Path users = directory.resolve("users.jsonl");
+        Path appointments = directory.resolve("appointments.jsonl");
+
+        // Act
+        exporter.exportUsers(users, BulkExporter.Format.JSON_LINES);
+        exporter.exportAppointments(appointments, BulkExporter.Format.JSON_LINES);
+        List<String> userLines = Files.readAllLines(users, StandardCharsets.UTF_8);
+        List<String> appointmentLines = Files.readAllLines(appointments, StandardCharsets.UTF_8);
+
+        // Assert
+        assertEquals(List.of("{\"role\":\"patient\",\"username\":\"pat\","
+                + "\"name\":\"Line\\nBreak \\\\ \\\"Q\\\"\",\"email\":\"pat@example.com\",\"accountNumber\":"
+                + patient.getAccountNumber() + "}"), userLines);
+        assertEquals(List.of("{\"patient\":\"pat\",\"doctor\":\"doc\",\"dateTime\":\"2030-01-07T09:30\","
+                + "\"durationMinutes\":30,\"appointmentId\":" + appointment.getAppointmentId()
+                + ",\"status\":\"ACTIVE\"}"), appointmentLines);
+    }
+}
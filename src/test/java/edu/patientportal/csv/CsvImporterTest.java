@@ -0,0 +1,113 @@
+package edu.patientportal.csv;
+
+import edu.secourse.patientportal.csv.CsvImporter;
+import edu.secourse.patientportal.csv.CsvReader;
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.User;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link CsvImporter} and {@link CsvReader}.
+ * <p>
+ * These tests verify:
+ * <ul>
+ *     <li>Quoted fields, line endings, and multi-byte text across buffer boundaries</li>
+ *     <li>Importing users and appointments, with rejected and malformed rows counted</li>
+ * </ul>
+ */
+public class CsvImporterTest {
+
+    /**
+     * Reads a file large enough to span many buffers, with quoting and
+     * non-ASCII text on every row.
+     */
+    @Test
+    @DisplayName("readerTest(): fields survive quoting and buffer boundaries")
+    void readerTest(@TempDir Path directory) throws Exception {
+        // Arrange
+        Path file = directory.resolve("rows.csv");
+        StringBuilder text = new StringBuilder();
+        int rows = 20_000;
+        for (int i = 0; i < rows; i++) {
+            text.append(i).append(",\"Zoë, \"\"Dr\"\" ").append(i).append("\",2030-01-07T09:30\r\n");
+        }
+        Files.writeString(file, text.toString(), StandardCharsets.UTF_8);
+
+        // Act
+        int read = 0;
+        boolean allMatch = true;
+        try (CsvReader reader = CsvReader.open(file)) {
+            while (reader.nextRow()) {
+                allMatch &= reader.getFieldCount() == 3
+                        && reader.longField(0) == read
+                        && ("Zoë, \"Dr\" " + read).equals(reader.field(1))
+                        && LocalDateTime.of(2030, 1, 7, 9, 30).equals(reader.dateTimeField(2));
+                read++;
+            }
+        }
+
+        // Assert
+        assertEquals(rows, read);
+        assertTrue(allMatch);
+    }
+
+    /**
+     * Imports users and then appointments in small batches, with a header,
+     * blank lines, duplicates, clashes, and bad rows mixed in.
+     */
+    @Test
+    @DisplayName("importTest(): users and appointments are imported with rejects counted")
+    void importTest(@TempDir Path directory) throws Exception {
+        // Arrange
+        UserService userService = new UserService();
+        AppointmentService appointmentService = new AppointmentService();
+        CsvImporter importer = new CsvImporter(userService, appointmentService, 2);
+        Path users = directory.resolve("users.csv");
+        Path appointments = directory.resolve("appointments.csv");
+        Files.writeString(users, String.join("\n",
+                "role,username,hashedPassword,name,email",
+                "patient,pat,hash,\"Smith, Pat\",pat@example.com",
+                "doctor,doc,hash,Dr Doc,doc@example.com",
+                "",
+                "patient,pat,hash,Duplicate,dup@example.com",
+                "nurse,nina,hash,Nina,nina@example.com",
+                "admin,adm,hash,Admin,admin@example.com"));
+        Files.writeString(appointments, String.join("\n",
+                "patient,doctor,dateTime,durationMinutes",
+                "pat,doc,2030-01-07T09:00",
+                "pat,doc,2030-01-07T10:00,60",
+                "pat,doc,2030-01-07T10:30:00",
+                "pat,nobody,2030-01-07T12:00",
+                "pat,doc,not a date",
+                "pat,doc,2030-01-08T09:00,45",
+                "pat,doc,2030-01-09T09:00,30,17,CANCELLED"));
+
+        // Act
+        CsvImporter.Result userResult = importer.importUsers(users);
+        CsvImporter.Result appointmentResult = importer.importAppointments(appointments);
+
+        // Assert
+        assertEquals(new CsvImporter.Result(5, 3, 1, 1, 0, userResult.nanos()), userResult);
+        User patient = userService.getUser("pat");
+        assertEquals("Smith, Pat", patient.getName());
+
+        assertEquals(new CsvImporter.Result(7, 3, 1, 2, 1, appointmentResult.nanos()), appointmentResult);
+        List<Appointment> booked = appointmentService.getAppointmentsForUser(patient);
+        assertEquals(3, booked.size());
+        assertTrue(booked.stream().anyMatch(a -> a.getDuration().equals(Duration.ofMinutes(45))));
+        assertTrue(appointmentResult.rowsPerSecond() > 0);
+    }
+}
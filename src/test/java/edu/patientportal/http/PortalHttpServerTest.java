@@ -0,0 +1,178 @@
+package edu.patientportal.http;
+
+import edu.secourse.patientportal.controllers.AppointmentController;
+import edu.secourse.patientportal.controllers.UserController;
+import edu.secourse.patientportal.http.PortalHttpServer;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link PortalHttpServer}.
+ * <p>
+ * These tests run a real server on a free local port and verify:
+ * <ul>
+ *     <li>Creating users and booking, listing, moving, and cancelling appointments</li>
+ *     <li>Status codes for conflicts, unknown users, and malformed requests</li>
+ *     <li>Partial user updates and invalid appointment durations</li>
+ *     <li>Serving many concurrent clients</li>
+ * </ul>
+ */
+public class PortalHttpServerTest {
+
+    private static HttpResponse<String> send(HttpClient client, String method, String uri, String body)
+            throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                .method(method, (body == null) ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Walks through the main routes, including the error statuses.
+     */
+    @Test
+    @DisplayName("routesTest(): users and appointments over HTTP")
+    void routesTest() throws Exception {
+        // Arrange
+        UserService userService = new UserService();
+        AppointmentController appointmentController = new AppointmentController(new AppointmentService());
+        HttpClient client = HttpClient.newHttpClient();
+
+        try (PortalHttpServer server = new PortalHttpServer(new InetSocketAddress("127.0.0.1", 0),
+                new UserController(userService), appointmentController)) {
+            server.start();
+            String base = "http://127.0.0.1:" + server.getPort();
+
+            // Act
+            HttpResponse<String> patient = send(client, "POST", base + "/users",
+                    "{\"role\":\"patient\",\"username\":\"httpPat\",\"hashedPassword\":\"h\",\"name\":\"Pat \\\"P\\\"\",\"email\":\"p@mail.com\"}");
+            HttpResponse<String> doctor = send(client, "POST", base + "/users",
+                    "{\"role\":\"doctor\",\"username\":\"httpDoc\",\"hashedPassword\":\"h\",\"name\":\"Doc\",\"email\":\"d@mail.com\"}");
+            HttpResponse<String> takenName = send(client, "POST", base + "/users",
+                    "{\"role\":\"doctor\",\"username\":\"httpDoc\"}");
+            HttpResponse<String> booked = send(client, "POST", base + "/appointments",
+                    "{\"patient\":\"httpPat\",\"doctor\":\"httpDoc\",\"dateTime\":\"2031-05-05T09:00\"}");
+            HttpResponse<String> clash = send(client, "POST", base + "/appointments",
+                    "{\"patient\":\"httpPat\",\"doctor\":\"httpDoc\",\"dateTime\":\"2031-05-05T09:15\"}");
+            int id = appointmentController.getAppointmentsForUser(userService.getUser("httpPat")).get(0)
+                    .getAppointmentId();
+            HttpResponse<String> moved = send(client, "PUT", base + "/appointments/" + id,
+                    "{\"patient\":\"httpPat\",\"doctor\":\"httpDoc\",\"dateTime\":\"2031-05-05T11:00\"}");
+            HttpResponse<String> listed = send(client, "GET", base + "/users/httpDoc/appointments", null);
+            HttpResponse<String> cancelled = send(client, "DELETE", base + "/appointments/" + id, null);
+            HttpResponse<String> unknown = send(client, "GET", base + "/users/nobody", null);
+            HttpResponse<String> malformed = send(client, "POST", base + "/appointments", "{\"patient\":");
+            HttpResponse<String> metrics = send(client, "GET", base + "/metrics", null);
+
+            // Assert
+            assertEquals(201, patient.statusCode());
+            assertTrue(patient.body().contains("\"name\":\"Pat \\\"P\\\"\""));
+            assertEquals(201, doctor.statusCode());
+            assertEquals(409, takenName.statusCode());
+            assertEquals(201, booked.statusCode());
+            assertEquals(409, clash.statusCode());
+            assertEquals(200, moved.statusCode());
+            assertEquals(200, listed.statusCode());
+            assertTrue(listed.body().contains("\"dateTime\":\"2031-05-05T11:00\""));
+            assertEquals(200, cancelled.statusCode());
+            assertEquals(404, unknown.statusCode());
+            assertEquals(400, malformed.statusCode());
+            assertTrue(metrics.body().contains("createAppointment"));
+        }
+    }
+
+    /**
+     * Updates a user with only some fields, renames onto a taken username, and
+     * books with durations that are not positive whole numbers.
+     */
+    @Test
+    @DisplayName("updateAndDurationTest(): partial updates keep fields and bad durations are rejected")
+    void updateAndDurationTest() throws Exception {
+        // Arrange
+        UserService userService = new UserService();
+        HttpClient client = HttpClient.newHttpClient();
+
+        try (PortalHttpServer server = new PortalHttpServer(new InetSocketAddress("127.0.0.1", 0),
+                new UserController(userService), new AppointmentController(new AppointmentService()))) {
+            server.start();
+            String base = "http://127.0.0.1:" + server.getPort();
+            send(client, "POST", base + "/users",
+                    "{\"role\":\"patient\",\"username\":\"oldPat\",\"hashedPassword\":\"h1\",\"name\":\"Pat\",\"email\":\"p@mail.com\"}");
+            send(client, "POST", base + "/users",
+                    "{\"role\":\"doctor\",\"username\":\"someDoc\",\"hashedPassword\":\"h2\",\"name\":\"Doc\",\"email\":\"d@mail.com\"}");
+
+            // Act
+            HttpResponse<String> renamed = send(client, "PUT", base + "/users/oldPat", "{\"username\":\"newPat\"}");
+            HttpResponse<String> taken = send(client, "PUT", base + "/users/newPat", "{\"username\":\"someDoc\"}");
+            HttpResponse<String> zero = send(client, "POST", base + "/appointments",
+                    "{\"patient\":\"newPat\",\"doctor\":\"someDoc\",\"dateTime\":\"2031-05-05T09:00\",\"durationMinutes\":0}");
+            HttpResponse<String> notNumber = send(client, "POST", base + "/appointments",
+                    "{\"patient\":\"newPat\",\"doctor\":\"someDoc\",\"dateTime\":\"2031-05-05T09:00\",\"durationMinutes\":\"soon\"}");
+
+            // Assert
+            assertEquals(200, renamed.statusCode());
+            assertEquals("h1", userService.getUser("newPat").getHashedPassword());
+            assertEquals("Pat", userService.getUser("newPat").getName());
+            assertEquals("p@mail.com", userService.getUser("newPat").getEmail());
+            assertEquals(409, taken.statusCode());
+            assertEquals(400, zero.statusCode());
+            assertTrue(zero.body().contains("durationMinutes"));
+            assertEquals(400, notNumber.statusCode());
+        }
+    }
+
+    /**
+     * Sends bookings from many concurrent clients, each for its own slot.
+     */
+    @Test
+    @DisplayName("concurrentClientsTest(): many clients at once")
+    void concurrentClientsTest() throws Exception {
+        // Arrange
+        UserController userController = new UserController(new UserService());
+        HttpClient client = HttpClient.newHttpClient();
+        int clients = 200;
+
+        try (PortalHttpServer server = new PortalHttpServer(new InetSocketAddress("127.0.0.1", 0),
+                userController, new AppointmentController(new AppointmentService()));
+             ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.start();
+            String base = "http://127.0.0.1:" + server.getPort();
+            send(client, "POST", base + "/users", "{\"role\":\"doctor\",\"username\":\"busyDoc\"}");
+
+            // Act
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                int n = i;
+                results.add(pool.submit(() -> {
+                    send(client, "POST", base + "/users", "{\"role\":\"patient\",\"username\":\"load" + n + "\"}");
+                    return send(client, "POST", base + "/appointments", "{\"patient\":\"load" + n
+                            + "\",\"doctor\":\"busyDoc\",\"dateTime\":\"2031-06-02T08:00\",\"durationMinutes\":1}"
+                            .replace("08:00", String.format("%02d:%02d", 8 + n / 60, n % 60))).statusCode();
+                }));
+            }
+
+            // Assert
+            for (Future<Integer> result : results) {
+                assertEquals(201, result.get());
+            }
+            assertEquals(clients + 1, userController.getMetrics().getOperation("createUser").getSuccesses());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package edu.patientportal.metrics;
+
+import edu.secourse.patientportal.metrics.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link LatencyHistogram}.
+ * <p>
+ * These tests verify:
+ * <ul>
+ *     <li>Percentiles stay within the histogram's precision</li>
+ *     <li>Concurrent recording loses no values</li>
+ * </ul>
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Records the values 1 to 100,000 and checks percentiles, mean and maximum.
+     */
+    @Test
+    @DisplayName("percentileTest(): percentiles within precision")
+    void percentileTest() {
+        // Arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        // Act
+        long p50 = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        long p100 = histogram.getValueAtPercentile(100);
+
+        // Assert
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMaxNanos());
+        assertEquals(50_000.5, histogram.getMeanNanos(), 0.001);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 * 1.02, "p50 was " + p50);
+        assertTrue(p99 >= 99_000 && p99 <= 99_000 * 1.02, "p99 was " + p99);
+        assertEquals(100_000, p100);
+    }
+
+    /**
+     * Records from several threads at once and checks every value was counted.
+     */
+    @Test
+    @DisplayName("concurrentRecordTest(): concurrent recording")
+    void concurrentRecordTest() throws InterruptedException {
+        // Arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i % 1000);
+                }
+            }));
+        }
+
+        // Act
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        assertEquals(200_000, histogram.getCount());
+        assertEquals(999, histogram.getMaxNanos());
+        assertEquals(499, histogram.getValueAtPercentile(50), 499 * 0.02);
+    }
+}
@@ -0,0 +1,199 @@
+package edu.patientportal.persistence;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.models.User;
+import edu.secourse.patientportal.persistence.Journal;
+import edu.secourse.patientportal.persistence.PortalStorage;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Journal} class and {@link PortalStorage}.
+ *
+ * <p>This suite validates:
+ * <ul>
+ *     <li>Every kind of change survives a restart</li>
+ *     <li>A torn record at the end of the file is discarded</li>
+ *     <li>Concurrent writers share flushes through group commit</li>
+ * </ul>
+ */
+public class JournalTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    /**
+     * Verifies that creates, updates, renames, removals, modifications, and
+     * cancellations are all restored after the storage is reopened.
+     */
+    @Test
+    @DisplayName("replay(): restores users and appointments after restart")
+    public void replayRestoresStateTest() throws Exception {
+        // Arrange
+        UserService users = new UserService();
+        AppointmentService appointments = new AppointmentService();
+        PortalStorage storage = PortalStorage.open(dataDirectory, users, appointments);
+
+        Patient patient = new Patient("pat", "pw", "Pat", "pat@example.com");
+        Doctor doctor = new Doctor("doc", "pw", "Doc", "doc@example.com");
+        Patient leaving = new Patient("gone", "pw", "Gone", "gone@example.com");
+        LocalDateTime time = LocalDateTime.of(2030, 1, 7, 9, 0);
+        Appointment kept = new Appointment(patient, doctor, time, Duration.ofMinutes(45));
+        Appointment cancelled = new Appointment(patient, doctor, time.plusHours(2));
+
+        // Act
+        assertTrue(users.createUser(patient));
+        assertTrue(users.createUser(doctor));
+        assertTrue(users.createUser(leaving));
+        assertTrue(appointments.createAppointment(kept));
+        assertTrue(appointments.createAppointment(cancelled));
+        assertTrue(appointments.modifyAppointment(kept.getAppointmentId(), patient, doctor, time.plusDays(1)));
+        assertTrue(appointments.cancelAppointment(cancelled.getAppointmentId()));
+        assertTrue(users.updateUser("pat", "patricia", "pw2", "Patricia", "p@example.com"));
+        assertTrue(users.removeUser(leaving));
+        storage.close();
+
+        UserService restoredUsers = new UserService();
+        AppointmentService restoredAppointments = new AppointmentService();
+        PortalStorage reopened = PortalStorage.open(dataDirectory, restoredUsers, restoredAppointments);
+
+        // Assert
+        assertEquals(9, reopened.getReplayedRecords());
+        assertEquals(2, restoredUsers.users.size());
+        assertNull(restoredUsers.getUser("pat"));
+        assertNull(restoredUsers.getUser("gone"));
+
+        User restoredPatient = restoredUsers.getUser("patricia");
+        assertInstanceOf(Patient.class, restoredPatient);
+        assertEquals(patient.getAccountNumber(), restoredPatient.getAccountNumber());
+        assertEquals(patient.getPatientId(), ((Patient) restoredPatient).getPatientId());
+        assertEquals(doctor.getDoctorId(), ((Doctor) restoredUsers.getUser("doc")).getDoctorId());
+        assertEquals("Patricia", restoredPatient.getName());
+        assertEquals("pw2", restoredPatient.getHashedPassword());
+
+        List<Appointment> restored = restoredAppointments.getAppointmentsForUser(restoredPatient);
+        assertEquals(2, restored.size());
+        Appointment restoredKept = restored.get(0);
+        assertEquals(kept.getAppointmentId(), restoredKept.getAppointmentId());
+        assertEquals(time.plusDays(1), restoredKept.getAppointmentDateTime());
+        assertEquals(Duration.ofMinutes(45), restoredKept.getDuration());
+        assertSame(restoredPatient, restoredKept.getPatient());
+        assertSame(restoredUsers.getUser("doc"), restoredKept.getDoctor());
+        assertEquals(Appointment.Status.CANCELLED, restored.get(1).getStatus());
+
+        // New bookings get fresh IDs and see restored bookings as taken
+        Appointment clash = new Appointment((Patient) restoredPatient, restoredKept.getDoctor(), time.plusDays(1));
+        assertFalse(restoredAppointments.createAppointment(clash));
+        Appointment fresh = new Appointment((Patient) restoredPatient, restoredKept.getDoctor(), time.plusDays(2));
+        assertTrue(restoredAppointments.createAppointment(fresh));
+        assertTrue(fresh.getAppointmentId() > cancelled.getAppointmentId());
+        reopened.close();
+    }
+
+    /**
+     * Ensures that a partially written record at the end of the journal is
+     * dropped on replay, and that appending continues after the last good record.
+     */
+    @Test
+    @DisplayName("replay(): discards a torn final record")
+    public void tornTailTest() throws Exception {
+        // Arrange
+        UserService users = new UserService();
+        PortalStorage storage = PortalStorage.open(dataDirectory, users, new AppointmentService());
+        users.createUser(new Patient("first", "pw", "First", "first@example.com"));
+        Path journalFile = storage.getJournal().getFile();
+        storage.close();
+
+        long goodSize = Files.size(journalFile);
+        Files.write(journalFile, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // Act
+        UserService restoredUsers = new UserService();
+        storage = PortalStorage.open(dataDirectory, restoredUsers, new AppointmentService());
+        long truncatedSize = Files.size(journalFile);
+        restoredUsers.createUser(new Patient("second", "pw", "Second", "second@example.com"));
+        storage.close();
+
+        UserService finalUsers = new UserService();
+        storage = PortalStorage.open(dataDirectory, finalUsers, new AppointmentService());
+        storage.close();
+
+        // Assert
+        assertEquals(goodSize, truncatedSize);
+        assertNotNull(finalUsers.getUser("first"));
+        assertNotNull(finalUsers.getUser("second"));
+    }
+
+    /**
+     * Verifies that concurrent writers are all made durable while sharing
+     * fewer flushes than there are records.
+     */
+    @Test
+    @DisplayName("groupCommit(): concurrent writers share flushes")
+    public void groupCommitTest() throws Exception {
+        // Arrange
+        int threads = 8;
+        int perThread = 100;
+        UserService users = new UserService();
+        AppointmentService appointments = new AppointmentService();
+        PortalStorage storage = PortalStorage.open(dataDirectory, users, appointments);
+        Doctor doctor = new Doctor("doc", "pw", "Doc", "doc@example.com");
+        users.createUser(doctor);
+        LocalDateTime base = LocalDateTime.of(2031, 3, 3, 0, 0);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                boolean allCreated = true;
+                for (int i = 0; i < perThread; i++) {
+                    Patient patient = new Patient("p" + thread + "-" + i, "pw", "P", "p@example.com");
+                    LocalDateTime time = base.plusMinutes(30L * (i * threads + thread));
+                    allCreated &= users.createUser(patient);
+                    allCreated &= appointments.createAppointment(new Appointment(patient, doctor, time));
+                }
+                return allCreated;
+            }));
+        }
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get());
+        }
+        pool.shutdown();
+        long records = storage.getJournal().appendedRecords();
+        long flushes = storage.getJournal().flushCount();
+        storage.close();
+
+        UserService restoredUsers = new UserService();
+        AppointmentService restoredAppointments = new AppointmentService();
+        PortalStorage.open(dataDirectory, restoredUsers, restoredAppointments).close();
+
+        // Assert
+        assertEquals(1 + 2L * threads * perThread, records);
+        assertTrue(flushes < records, "expected batched flushes, got " + flushes + " for " + records + " records");
+        assertEquals(1 + threads * perThread, restoredUsers.users.size());
+        assertEquals(threads * perThread,
+                restoredAppointments.getAppointmentsForUser(restoredUsers.getUser("doc")).size());
+    }
+}
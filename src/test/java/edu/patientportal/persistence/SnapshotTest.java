@@ -0,0 +1,196 @@
+package edu.patientportal.persistence;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.persistence.Journal;
+import edu.secourse.patientportal.persistence.PortalStorage;
+import edu.secourse.patientportal.persistence.Snapshot;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.UserService;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Snapshot} class and snapshot handling in {@link PortalStorage}.
+ *
+ * <p>This suite validates:
+ * <ul>
+ *     <li>A restart loads the snapshot and replays only the journal after it</li>
+ *     <li>Snapshots taken while writers run still restore every change</li>
+ *     <li>A damaged newest snapshot falls back to the previous one</li>
+ * </ul>
+ */
+public class SnapshotTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2032, 5, 3, 8, 0);
+
+    /**
+     * Verifies that after a snapshot, a restart replays only the changes made
+     * after it and ends in the same state.
+     */
+    @Test
+    @DisplayName("snapshot(): restart loads snapshot plus journal tail")
+    public void snapshotRestartTest() throws Exception {
+        // Arrange
+        UserService users = new UserService();
+        AppointmentService appointments = new AppointmentService();
+        PortalStorage storage = PortalStorage.open(dataDirectory, users, appointments);
+        Patient patient = new Patient("pat", "pw", "Pat", "pat@example.com");
+        Doctor doctor = new Doctor("doc", "pw", "Doc", "doc@example.com");
+        users.createUser(patient);
+        users.createUser(doctor);
+        Appointment first = new Appointment(patient, doctor, BASE);
+        Appointment second = new Appointment(patient, doctor, BASE.plusHours(1));
+        appointments.createAppointment(first);
+        appointments.createAppointment(second);
+
+        // Act
+        Snapshot.Result written = storage.snapshot();
+        appointments.modifyAppointment(first.getAppointmentId(), patient, doctor, BASE.plusDays(1));
+        appointments.cancelAppointment(second.getAppointmentId());
+        users.createUser(new Patient("late", "pw", "Late", "late@example.com"));
+        storage.close();
+
+        UserService restoredUsers = new UserService();
+        AppointmentService restoredAppointments = new AppointmentService();
+        PortalStorage reopened = PortalStorage.open(dataDirectory, restoredUsers, restoredAppointments);
+        reopened.close();
+
+        // Assert
+        assertEquals(2, written.users());
+        assertEquals(2, written.appointments());
+        assertNotNull(reopened.getLoadedSnapshot());
+        assertEquals(written.journalSegment(), reopened.getLoadedSnapshot().journalSegment());
+        assertEquals(3, reopened.getReplayedRecords());
+        assertTrue(reopened.getRestoreNanos() > 0);
+        assertEquals(3, restoredUsers.users.size());
+        assertEquals(patient.getPatientId(), ((Patient) restoredUsers.getUser("pat")).getPatientId());
+
+        List<Appointment> restored = restoredAppointments.getAppointmentsForUser(restoredUsers.getUser("pat"));
+        assertEquals(BASE.plusDays(1), restored.get(0).getAppointmentDateTime());
+        assertEquals(Appointment.Status.CANCELLED, restored.get(1).getStatus());
+    }
+
+    /**
+     * Ensures that snapshots taken while writers are busy lose no change:
+     * the restored state matches the state at shutdown exactly.
+     */
+    @Test
+    @DisplayName("snapshot(): fuzzy snapshots during writes restore every change")
+    public void snapshotDuringWritesTest() throws Exception {
+        // Arrange
+        int threads = 4;
+        int perThread = 300;
+        UserService users = new UserService();
+        AppointmentService appointments = new AppointmentService();
+        PortalStorage storage = PortalStorage.open(dataDirectory, users, appointments);
+        Doctor doctor = new Doctor("doc", "pw", "Doc", "doc@example.com");
+        users.createUser(doctor);
+        List<Patient> patients = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Patient patient = new Patient("p" + t, "pw", "P", "p@example.com");
+            users.createUser(patient);
+            patients.add(patient);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                Patient patient = patients.get(thread);
+                for (int i = 0; i < perThread; i++) {
+                    Appointment appointment = new Appointment(patient, doctor, BASE.plusMinutes(30L * (i * threads + thread)));
+                    appointments.createAppointment(appointment);
+                    if (i % 3 == 0) {
+                        appointments.cancelAppointment(appointment.getAppointmentId());
+                    } else if (i % 3 == 1) {
+                        appointments.modifyAppointment(appointment.getAppointmentId(), patient, doctor,
+                                appointment.getAppointmentDateTime().plusYears(1));
+                    }
+                }
+            }));
+        }
+        for (int s = 0; s < 5; s++) {
+            storage.snapshot();
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        Map<Integer, String> expected = describe(appointments);
+        storage.close();
+
+        UserService restoredUsers = new UserService();
+        AppointmentService restoredAppointments = new AppointmentService();
+        PortalStorage.open(dataDirectory, restoredUsers, restoredAppointments).close();
+
+        // Assert
+        assertEquals(threads * perThread, expected.size());
+        assertEquals(expected, describe(restoredAppointments));
+        assertTrue(Snapshot.snapshots(dataDirectory).size() <= 2);
+    }
+
+    /**
+     * Verifies that a damaged newest snapshot is skipped in favour of the
+     * previous one, whose journal segments are still kept.
+     */
+    @Test
+    @DisplayName("open(): damaged snapshot falls back to the previous one")
+    public void corruptSnapshotFallbackTest() throws Exception {
+        // Arrange
+        UserService users = new UserService();
+        PortalStorage storage = PortalStorage.open(dataDirectory, users, new AppointmentService());
+        users.createUser(new Patient("one", "pw", "One", "one@example.com"));
+        Snapshot.Result older = storage.snapshot();
+        users.createUser(new Patient("two", "pw", "Two", "two@example.com"));
+        Snapshot.Result newer = storage.snapshot();
+        users.createUser(new Patient("three", "pw", "Three", "three@example.com"));
+        storage.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(
+                Snapshot.snapshotFile(dataDirectory, newer.journalSegment()).toFile(), "rw")) {
+            file.seek(20);
+            file.write(0x7F);
+        }
+
+        // Act
+        UserService restoredUsers = new UserService();
+        PortalStorage reopened = PortalStorage.open(dataDirectory, restoredUsers, new AppointmentService());
+        reopened.close();
+
+        // Assert
+        assertEquals(older.journalSegment(), reopened.getLoadedSnapshot().journalSegment());
+        assertTrue(Journal.segments(dataDirectory).contains(older.journalSegment()));
+        assertEquals(3, restoredUsers.users.size());
+    }
+
+    /**
+     * Summarizes every stored appointment as ID to state, for comparing two services.
+     */
+    private static Map<Integer, String> describe(AppointmentService service) {
+        return service.getAllAppointments().collect(Collectors.toMap(Appointment::getAppointmentId,
+                appointment -> appointment.getPatient().getUsername() + "/" + appointment.getDoctor().getUsername()
+                        + "/" + appointment.getAppointmentDateTime() + "/" + appointment.getStatus()));
+    }
+}
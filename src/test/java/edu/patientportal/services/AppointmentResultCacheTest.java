@@ -0,0 +1,127 @@
+package edu.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentResultCache;
+import edu.secourse.patientportal.services.AppointmentService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link AppointmentResultCache} class.
+ *
+ * <p>This suite validates:
+ * <ul>
+ *     <li>Hits for repeated lookups and misses after a change</li>
+ *     <li>Invalidation limited to the patients and doctors a change touches</li>
+ *     <li>Least-recently-used eviction and its statistics</li>
+ *     <li>The size bound across the stripes of a larger cache</li>
+ * </ul>
+ **/
+public class AppointmentResultCacheTest {
+
+    /**
+     * Moves an appointment between patients and doctors and checks that only
+     * the users involved are reloaded.
+     */
+    @Test
+    @DisplayName("invalidationTest(): changes drop only the affected users")
+    void invalidationTest() {
+        // Arrange
+        AppointmentService service = new AppointmentService();
+        AppointmentResultCache cache = new AppointmentResultCache(service, 16);
+        Patient patient = new Patient("pat", "hash", "Pat", "pat@example.com");
+        Patient otherPatient = new Patient("pat2", "hash", "Pat Two", "pat2@example.com");
+        Patient bystander = new Patient("pat3", "hash", "Pat Three", "pat3@example.com");
+        Doctor doctor = new Doctor("doc", "hash", "Doc", "doc@example.com");
+        Doctor otherDoctor = new Doctor("doc2", "hash", "Doc Two", "doc2@example.com");
+        LocalDateTime time = LocalDateTime.of(2030, 1, 7, 9, 0);
+        Appointment appointment = new Appointment(patient, doctor, time);
+        service.createAppointment(appointment);
+        service.createAppointment(new Appointment(bystander, otherDoctor, time.plusHours(2)));
+
+        // Act
+        List<Appointment> first = cache.getAppointmentsForUser(patient);
+        List<Appointment> repeated = cache.getAppointmentsForUser(patient);
+        cache.getAppointmentsForUser(bystander);
+        cache.getAppointmentsForUser(otherDoctor);
+        service.modifyAppointment(appointment.getAppointmentId(), otherPatient, otherDoctor, time.plusHours(1));
+        AppointmentResultCache.Stats beforeReload = cache.getStats();
+        List<Appointment> afterMove = cache.getAppointmentsForUser(patient);
+        List<Appointment> movedTo = cache.getAppointmentsForUser(otherPatient);
+        List<Appointment> doctorAfterMove = cache.getAppointmentsForUser(otherDoctor);
+        cache.getAppointmentsForUser(bystander);
+
+        // Assert
+        assertSame(first, repeated);
+        assertThrows(UnsupportedOperationException.class, () -> first.add(appointment));
+        assertEquals(1, beforeReload.size());
+        assertTrue(afterMove.isEmpty());
+        assertEquals(List.of(appointment), movedTo);
+        assertEquals(2, doctorAfterMove.size());
+        AppointmentResultCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.hits());
+        assertEquals(6, stats.misses());
+        assertEquals(0, stats.evictions());
+    }
+
+    /**
+     * Looks up more users than the cache holds and checks that the least
+     * recently used one is the one evicted.
+     */
+    @Test
+    @DisplayName("evictionTest(): the least recently used user is evicted")
+    void evictionTest() {
+        // Arrange
+        AppointmentService service = new AppointmentService();
+        AppointmentResultCache cache = new AppointmentResultCache(service, 2);
+        Patient first = new Patient("pat1", "hash", "Pat One", "pat1@example.com");
+        Patient second = new Patient("pat2", "hash", "Pat Two", "pat2@example.com");
+        Patient third = new Patient("pat3", "hash", "Pat Three", "pat3@example.com");
+
+        // Act
+        cache.getAppointmentsForUser(first);
+        cache.getAppointmentsForUser(second);
+        cache.getAppointmentsForUser(first);
+        cache.getAppointmentsForUser(third);
+        cache.getAppointmentsForUser(first);
+        cache.getAppointmentsForUser(second);
+
+        // Assert
+        AppointmentResultCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.hits());
+        assertEquals(4, stats.misses());
+        assertEquals(2, stats.evictions());
+        assertEquals(2, stats.size());
+        assertEquals(2.0 / 6, stats.hitRate(), 1e-9);
+    }
+
+    /**
+     * Looks up many more users than a striped cache holds and checks that the
+     * stripes together stay within the maximum size.
+     */
+    @Test
+    @DisplayName("stripedBoundTest(): a striped cache stays within its maximum size")
+    void stripedBoundTest() {
+        // Arrange
+        AppointmentService service = new AppointmentService();
+        AppointmentResultCache cache = new AppointmentResultCache(service, 256);
+
+        // Act
+        for (int i = 0; i < 2000; i++) {
+            cache.getAppointmentsForUser(new Patient("pat" + i, "hash", "Pat", "pat@example.com"));
+        }
+
+        // Assert
+        AppointmentResultCache.Stats stats = cache.getStats();
+        assertEquals(2000, stats.misses());
+        assertTrue(stats.size() <= 256);
+        assertEquals(stats.misses() - stats.size(), stats.evictions());
+    }
+}
@@ -3,12 +3,36 @@ package edu.patientportal.services;
 import edu.secourse.patientportal.models.Appointment;
 import edu.secourse.patientportal.models.Doctor;
 import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentBook;
 import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.AppointmentView;
+import edu.secourse.patientportal.services.UserService;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,6 +46,13 @@ import static org.junit.jupiter.api.Assertions.*;
  *     <li>Modifying appointment details</li>
  *     <li>Filtering appointments by patient or doctor</li>
  *     <li>Correct status and field updates</li>
+ *     <li>Rejecting overlapping bookings for a doctor or patient</li>
+ *     <li>Searching for free slots and available doctors</li>
+ *     <li>Consistency under concurrent writers</li>
+ *     <li>Batch create, cancel, and modify with per-item results</li>
+ *     <li>Flight Recorder events for writes and reads</li>
+ *     <li>Immutable, consistent snapshots of the whole appointment book</li>
+ *     <li>Removing a user together with their appointments</li>
  * </ul>
  **/
 public class AppointmentServiceTest {
@@ -146,5 +177,545 @@ public class AppointmentServiceTest {
         assertTrue(appointmentsService.getAppointmentsForUser(patient).contains(appointment));
         assertTrue(appointmentsService.getAppointmentsForUser(patientTwo).contains(appointmentTwo));
     }
-}
 
+    /**
+     * Verifies that modifying an appointment's patient and doctor moves it
+     * between the per-user indexes.
+     */
+    @Test
+    @DisplayName("modifyAppointmentReindex(): modify moves appointment between users")
+    public void modifyAppointmentReindexTest() {
+        // Arrange
+        AppointmentService appointmentsService = new AppointmentService();
+        Patient patient = new Patient("alice3", "23lkjsdf03j", "Alice Fiona", "alicefiona3@gmail.com");
+        Doctor doctor = new Doctor("Doctor Jones", "sljdfoj23j5l", "Raul Jones", "RaulJones@gmail.com");
+        Patient patientTwo = new Patient("bob3", "23lsljdlff03j", "Bob Bushay", "bobbybushay@gmail.com");
+        Doctor doctorTwo = new Doctor("Doctor Knoxs", "lkjldfslkoaaf", "Johnny Knoxs", "JohnnyKnoxs@gmail.com");
+        Appointment appointment = new Appointment(patient, doctor, LocalDateTime.now());
+        appointmentsService.createAppointment(appointment);
+
+        // Act
+        appointmentsService.modifyAppointment(
+                appointment.getAppointmentId(), patientTwo, doctorTwo, LocalDateTime.now().plusDays(1));
+
+        // Assert
+        assertTrue(appointmentsService.getAppointmentsForUser(patient).isEmpty());
+        assertTrue(appointmentsService.getAppointmentsForUser(doctor).isEmpty());
+        assertTrue(appointmentsService.getAppointmentsForUser(patientTwo).contains(appointment));
+        assertTrue(appointmentsService.getAppointmentsForUser(doctorTwo).contains(appointment));
+    }
+
+    /**
+     * Verifies that cancelling an appointment frees its slot for a new booking,
+     * and that a modification onto a slot held by another active appointment fails.
+     */
+    @Test
+    @DisplayName("duplicateSlotLifecycle(): duplicate check follows cancel and modify")
+    public void duplicateSlotLifecycleTest() {
+        // Arrange
+        AppointmentService appointmentsService = new AppointmentService();
+        Patient patient = new Patient("alice3", "23lkjsdf03j", "Alice Fiona", "alicefiona3@gmail.com");
+        Doctor doctor = new Doctor("Doctor Jones", "sljdfoj23j5l", "Raul Jones", "RaulJones@gmail.com");
+        LocalDateTime time = LocalDateTime.of(2025, 12, 12, 8, 30);
+        Appointment first = new Appointment(patient, doctor, time);
+        Appointment second = new Appointment(patient, doctor, time.plusSeconds(20));
+        Appointment third = new Appointment(patient, doctor, time.plusHours(1));
+
+        // Act & Assert
+        assertTrue(appointmentsService.createAppointment(first));
+        assertFalse(appointmentsService.createAppointment(second));
+
+        assertTrue(appointmentsService.cancelAppointment(first.getAppointmentId()));
+        assertTrue(appointmentsService.createAppointment(second));
+
+        assertTrue(appointmentsService.createAppointment(third));
+        assertFalse(appointmentsService.modifyAppointment(third.getAppointmentId(), patient, doctor, time));
+        assertEquals(time.plusHours(1), third.getAppointmentDateTime());
+    }
+
+    /**
+     * Verifies that time-window queries return only active appointments inside
+     * the window, in start-time order, both clinic-wide and per doctor.
+     */
+    @Test
+    @DisplayName("getAppointmentsBetween(): time window queries")
+    public void getAppointmentsBetweenTest() {
+        // Arrange
+        AppointmentService appointmentsService = new AppointmentService();
+        Patient patient = new Patient("alice3", "23lkjsdf03j", "Alice Fiona", "alicefiona3@gmail.com");
+        Doctor doctor = new Doctor("Doctor Jones", "sljdfoj23j5l", "Raul Jones", "RaulJones@gmail.com");
+        Doctor doctorTwo = new Doctor("Doctor Knoxs", "lkjldfslkoaaf", "Johnny Knoxs", "JohnnyKnoxs@gmail.com");
+        LocalDateTime tuesday = LocalDateTime.of(2025, 12, 9, 0, 0);
+        Appointment late = new Appointment(patient, doctor, tuesday.withHour(11));
+        Appointment early = new Appointment(patient, doctorTwo, tuesday.withHour(8));
+        Appointment cancelled = new Appointment(patient, doctor, tuesday.withHour(9));
+        Appointment afternoon = new Appointment(patient, doctor, tuesday.withHour(12));
+        appointmentsService.createAppointment(late);
+        appointmentsService.createAppointment(early);
+        appointmentsService.createAppointment(cancelled);
+        appointmentsService.createAppointment(afternoon);
+        appointmentsService.cancelAppointment(cancelled.getAppointmentId());
+
+        // Act
+        List<Appointment> morning = appointmentsService
+                .getAppointmentsBetween(tuesday.withHour(8), tuesday.withHour(12))
+                .collect(Collectors.toList());
+        List<Appointment> doctorMorning = appointmentsService
+                .getAppointmentsForDoctorBetween(doctor, tuesday.withHour(8), tuesday.withHour(12))
+                .collect(Collectors.toList());
+
+        // Assert
+        assertEquals(List.of(early, late), morning);
+        assertEquals(List.of(late), doctorMorning);
+    }
+
+    /**
+     * Stress test: many threads book, cancel, and re-book appointments for a
+     * shared pool of doctors while readers query. Every successful create must
+     * get a distinct ID and end up in both the patient and doctor indexes.
+     */
+    @Test
+    @DisplayName("concurrentWriters(): no lost updates or duplicate ids")
+    public void concurrentWritersTest() throws Exception {
+        // Arrange
+        AppointmentService appointmentsService = new AppointmentService();
+        int threads = 8;
+        int perThread = 2000;
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            doctors.add(new Doctor("doc" + i, "pass", "Doctor " + i, "doc" + i + "@mail.com"));
+        }
+        List<Patient> patients = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            patients.add(new Patient("pat" + t, "pass", "Patient " + t, "pat" + t + "@mail.com"));
+        }
+        LocalDateTime base = LocalDateTime.of(2026, 1, 5, 8, 0);
+        ConcurrentLinkedQueue<Appointment> created = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                Patient patient = patients.get(thread);
+                for (int i = 0; i < perThread; i++) {
+                    Doctor doctor = doctors.get(i % doctors.size());
+                    long slot = 30L * (i * threads + thread);
+                    Appointment appointment = new Appointment(patient, doctor, base.plusMinutes(slot));
+                    if (appointmentsService.createAppointment(appointment)) {
+                        created.add(appointment);
+                    }
+                    if (i % 10 == 0) {
+                        appointmentsService.cancelAppointment(appointment.getAppointmentId());
+                    }
+                    if (i % 7 == 0) {
+                        Doctor other = doctors.get((i + thread) % doctors.size());
+                        appointmentsService.modifyAppointment(
+                                appointment.getAppointmentId(), patient, other, base.plusYears(1).plusMinutes(slot));
+                    }
+                }
+                return null;
+            }));
+        }
+        futures.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; i < 500; i++) {
+                appointmentsService.getAppointmentsForUser(doctors.get(i % doctors.size()));
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        // Assert
+        assertEquals(threads * perThread, created.size());
+
+        Set<Integer> ids = new HashSet<>();
+        for (Appointment appointment : created) {
+            assertTrue(ids.add(appointment.getAppointmentId()));
+        }
+
+        int byDoctor = 0;
+        for (Doctor doctor : doctors) {
+            for (Appointment appointment : appointmentsService.getAppointmentsForUser(doctor)) {
+                assertEquals(doctor, appointment.getDoctor());
+                byDoctor++;
+            }
+        }
+        assertEquals(created.size(), byDoctor);
+    }
+
+    /**
+     * Verifies that overlapping bookings are rejected for the same doctor and
+     * for the same patient, while back-to-back bookings are accepted.
+     */
+    @Test
+    @DisplayName("overlapDetection(): overlapping bookings are rejected")
+    public void overlapDetectionTest() {
+        // Arrange
+        AppointmentService appointmentsService = new AppointmentService();
+        Patient patient = new Patient("alice3", "23lkjsdf03j", "Alice Fiona", "alicefiona3@gmail.com");
+        Patient patientTwo = new Patient("bob3", "23lsljdlff03j", "Bob Bushay", "bobbybushay@gmail.com");
+        Doctor doctor = new Doctor("Doctor Jones", "sljdfoj23j5l", "Raul Jones", "RaulJones@gmail.com");
+        Doctor doctorTwo = new Doctor("Doctor Knoxs", "lkjldfslkoaaf", "Johnny Knoxs", "JohnnyKnoxs@gmail.com");
+        LocalDateTime nine = LocalDateTime.of(2025, 12, 9, 9, 0);
+        Appointment hour = new Appointment(patient, doctor, nine, Duration.ofHours(1));
+
+        // Act & Assert
+        assertTrue(appointmentsService.createAppointment(hour));
+        assertFalse(appointmentsService.createAppointment(
+                new Appointment(patientTwo, doctor, nine.plusMinutes(45))));
+        assertFalse(appointmentsService.createAppointment(
+                new Appointment(patient, doctorTwo, nine.minusMinutes(15))));
+
+        Appointment next = new Appointment(patientTwo, doctor, nine.plusHours(1));
+        assertTrue(appointmentsService.createAppointment(next));
+        assertFalse(appointmentsService.modifyAppointment(
+                next.getAppointmentId(), patientTwo, doctor, nine.plusMinutes(30)));
+        assertTrue(appointmentsService.modifyAppointment(
+                hour.getAppointmentId(), patient, doctor, nine.minusMinutes(30)));
+
+        assertTrue(appointmentsService.cancelAppointment(hour.getAppointmentId()));
+        assertTrue(appointmentsService.modifyAppointment(
+                next.getAppointmentId(), patientTwo, doctor, nine.plusMinutes(30)));
+    }
+
+    /**
+     * Verifies that free-slot search skips bookings and respects working hours,
+     * and that the earliest available doctor is found across several doctors.
+     */
+    @Test
+    @DisplayName("findFreeSlots(): free slots and earliest available doctor")
+    public void findFreeSlotsTest() {
+        // Arrange
+        AppointmentService appointmentsService = new AppointmentService();
+        Patient patient = new Patient("alice3", "23lkjsdf03j", "Alice Fiona", "alicefiona3@gmail.com");
+        Patient patientTwo = new Patient("bob3", "23lsljdlff03j", "Bob Bushay", "bobbybushay@gmail.com");
+        Doctor doctor = new Doctor("Doctor Jones", "sljdfoj23j5l", "Raul Jones", "RaulJones@gmail.com");
+        Doctor doctorTwo = new Doctor("Doctor Knoxs", "lkjldfslkoaaf", "Johnny Knoxs", "JohnnyKnoxs@gmail.com");
+        LocalDateTime monday = LocalDateTime.of(2025, 12, 8, 0, 0);
+        appointmentsService.createAppointment(
+                new Appointment(patient, doctor, monday.withHour(9), Duration.ofMinutes(45)));
+        appointmentsService.createAppointment(
+                new Appointment(patientTwo, doctor, monday.withHour(9).withMinute(45)));
+        appointmentsService.createAppointment(
+                new Appointment(patientTwo, doctorTwo, monday.withHour(9)));
+
+        // Act
+        List<LocalDateTime> slots = appointmentsService.findFreeSlots(doctor, monday, monday.plusDays(2),
+                LocalTime.of(9, 0), LocalTime.of(11, 0), Duration.ofMinutes(30), 4);
+        AppointmentService.AvailableSlot earliest = appointmentsService.findEarliestAvailableDoctor(
+                List.of(doctor, doctorTwo), monday.withHour(9), monday.plusDays(1),
+                LocalTime.of(9, 0), LocalTime.of(17, 0), Duration.ofMinutes(30));
+
+        // Assert
+        assertEquals(List.of(
+                monday.withHour(10).withMinute(15),
+                monday.plusDays(1).withHour(9),
+                monday.plusDays(1).withHour(9).withMinute(30),
+                monday.plusDays(1).withHour(10)), slots);
+        assertEquals(doctorTwo, earliest.doctor());
+        assertEquals(monday.withHour(9).withMinute(30), earliest.start());
+    }
+
+    /**
+     * Verifies that appointments restored in bulk are indexed exactly as if
+     * they had been booked one by one: per-user lookups, time windows,
+     * duplicate and overlap checks, and free-slot search all agree.
+     */
+    @Test
+    @DisplayName("restoreAppointments(): bulk restore builds working indexes")
+    public void restoreAppointmentsTest() {
+        // Arrange
+        Patient patient = new Patient("alice4", "23lkjsdf03j", "Alice Fiona", "alicefiona4@gmail.com");
+        Patient patientTwo = new Patient("bob4", "23lsljdlff03j", "Bob Bushay", "bobbybushay4@gmail.com");
+        Doctor doctor = new Doctor("Doctor Jones", "sljdfoj23j5l", "Raul Jones", "RaulJones@gmail.com");
+        LocalDateTime monday = LocalDateTime.of(2026, 3, 2, 9, 0);
+        List<Appointment> saved = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Appointment appointment = new Appointment((i % 2 == 0) ? patient : patientTwo, doctor,
+                    monday.plusMinutes(30L * (5 - i)));
+            appointment.setAppointmentId(100 - i);
+            saved.add(appointment);
+        }
+        saved.get(2).setStatus(Appointment.Status.CANCELLED);
+        AppointmentService appointmentsService = new AppointmentService();
+
+        // Act
+        int restored = appointmentsService.restoreAppointments(saved);
+
+        // Assert
+        assertEquals(6, restored);
+        assertEquals(List.of(95, 97, 99), appointmentsService.getAppointmentsForUser(patientTwo).stream()
+                .map(Appointment::getAppointmentId).collect(Collectors.toList()));
+        assertEquals(List.of(100, 99, 97, 96, 95), appointmentsService.getAppointmentsForDoctorBetween(doctor,
+                        monday, monday.plusHours(3)).map(Appointment::getAppointmentId)
+                .sorted((a, b) -> b - a).collect(Collectors.toList()));
+        assertEquals(95, appointmentsService.getAppointmentsBetween(monday, monday.plusHours(3))
+                .findFirst().orElseThrow().getAppointmentId());
+        assertFalse(appointmentsService.createAppointment(new Appointment(patient, doctor, monday.plusMinutes(10))));
+        assertTrue(appointmentsService.createAppointment(new Appointment(patient, doctor, monday.plusMinutes(90))));
+        assertEquals(List.of(monday.plusHours(3)), appointmentsService.findFreeSlots(doctor, monday,
+                monday.plusHours(4), LocalTime.of(9, 0), LocalTime.of(17, 0), Duration.ofMinutes(30), 1));
+        assertTrue(appointmentsService.cancelAppointment(100));
+        assertTrue(appointmentsService.createAppointment(new Appointment(patient, doctor, monday.plusMinutes(150))));
+    }
+
+    /**
+     * Records a booking, a rejected duplicate, and a query with Flight
+     * Recorder and checks the events carry the expected fields.
+     */
+    @Test
+    @DisplayName("flightRecorderEventsTest(): JFR events for writes and reads")
+    void flightRecorderEventsTest(@TempDir Path directory) throws IOException {
+        // Arrange
+        Patient patient = new Patient("jfrPatient", "pw", "Jfr Patient", "jp@mail.com");
+        Doctor doctor = new Doctor("jfrDoctor", "pw", "Jfr Doctor", "jd@mail.com");
+        LocalDateTime time = LocalDateTime.of(2031, 3, 3, 10, 0);
+        AppointmentService appointmentsService = new AppointmentService();
+        Path file = directory.resolve("events.jfr");
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable("edu.secourse.patientportal.AppointmentWrite");
+            recording.enable("edu.secourse.patientportal.AppointmentQuery");
+            recording.enable("edu.secourse.patientportal.IndexUpdate");
+            recording.start();
+            appointmentsService.createAppointment(new Appointment(patient, doctor, time));
+            appointmentsService.createAppointment(new Appointment(patient, doctor, time));
+            appointmentsService.getAppointmentsForUser(doctor);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        // Assert
+        List<RecordedEvent> writes = events.stream()
+                .filter(e -> e.getEventType().getName().equals("edu.secourse.patientportal.AppointmentWrite"))
+                .collect(Collectors.toList());
+        assertEquals(2, writes.size());
+        assertTrue(writes.stream().anyMatch(e -> e.getBoolean("success") && !e.getBoolean("duplicate")));
+        assertTrue(writes.stream().anyMatch(e -> !e.getBoolean("success") && e.getBoolean("duplicate")));
+        assertTrue(writes.stream().allMatch(e -> e.getInt("doctorAccount") == doctor.getAccountNumber()));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName()
+                .equals("edu.secourse.patientportal.AppointmentQuery") && e.getInt("resultSize") == 1));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName()
+                .equals("edu.secourse.patientportal.IndexUpdate") && e.getString("action").equals("activate")));
+    }
+
+    /**
+     * Applies batches that include duplicates within the batch, clashes with
+     * stored appointments, and invalid items, and checks each item's result.
+     */
+    @Test
+    @DisplayName("batchWrites(): batch create, cancel and modify")
+    void batchWritesTest() {
+        // Arrange
+        Patient patient = new Patient("batchPatient", "pw", "Batch Patient", "bp@mail.com");
+        Patient patientTwo = new Patient("batchPatient2", "pw", "Batch Patient Two", "bp2@mail.com");
+        Doctor doctor = new Doctor("batchDoctor", "pw", "Batch Doctor", "bd@mail.com");
+        LocalDateTime monday = LocalDateTime.of(2031, 9, 1, 9, 0);
+        AppointmentService appointmentsService = new AppointmentService();
+        appointmentsService.createAppointment(new Appointment(patient, doctor, monday));
+
+        List<Appointment> batch = new ArrayList<>();
+        batch.add(new Appointment(patientTwo, doctor, monday.plusMinutes(10)));
+        batch.add(new Appointment(patient, doctor, monday.plusHours(1)));
+        batch.add(new Appointment(patientTwo, doctor, monday.plusHours(1)));
+        batch.add(null);
+        batch.add(new Appointment(patientTwo, doctor, monday.plusHours(2)));
+
+        // Act
+        boolean[] created = appointmentsService.createAppointments(batch);
+        int movedId = batch.get(4).getAppointmentId();
+        boolean[] modified = appointmentsService.modifyAppointments(List.of(
+                new AppointmentService.AppointmentChange(movedId, patientTwo, doctor, monday.plusHours(1)),
+                new AppointmentService.AppointmentChange(movedId, patientTwo, doctor, monday.plusHours(3))));
+        boolean[] cancelled = appointmentsService.cancelAppointments(new int[]{batch.get(1).getAppointmentId(), -5});
+
+        // Assert
+        assertArrayEquals(new boolean[]{false, true, false, false, true}, created);
+        assertArrayEquals(new boolean[]{false, true}, modified);
+        assertArrayEquals(new boolean[]{true, false}, cancelled);
+        assertEquals(monday.plusHours(3), batch.get(4).getAppointmentDateTime());
+        assertEquals(Appointment.Status.CANCELLED, batch.get(1).getStatus());
+        assertTrue(appointmentsService.createAppointment(new Appointment(patientTwo, doctor, monday.plusHours(1))));
+        assertEquals(0, appointmentsService.createAppointments(null).length);
+    }
+
+    /**
+     * Applies random creates, moves, and cancels, checking that each snapshot
+     * matches the live appointments and that older snapshots never change.
+     */
+    @Test
+    @DisplayName("getSnapshot(): snapshots match the live state and never change")
+    void snapshotTest() {
+        // Arrange
+        AppointmentService service = new AppointmentService();
+        Random random = new Random(22);
+        List<Patient> patients = new ArrayList<>();
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            patients.add(new Patient("pat" + i, "hash", "Pat", "pat@example.com"));
+        }
+        for (int i = 0; i < 8; i++) {
+            doctors.add(new Doctor("doc" + i, "hash", "Doc", "doc@example.com"));
+        }
+        LocalDateTime base = LocalDateTime.of(2030, 1, 7, 8, 0);
+        service.createAppointment(new Appointment(patients.get(0), doctors.get(0), base));
+        AppointmentBook first = service.getSnapshot();
+        List<Appointment> booked = new ArrayList<>(service.getAllAppointments().toList());
+
+        // Act
+        for (int i = 0; i < 3000; i++) {
+            Patient patient = patients.get(random.nextInt(patients.size()));
+            Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+            LocalDateTime time = base.plusMinutes(30L * random.nextInt(2000));
+            int choice = random.nextInt(4);
+            if (choice < 2 || booked.isEmpty()) {
+                Appointment appointment = new Appointment(patient, doctor, time);
+                if (service.createAppointment(appointment)) {
+                    booked.add(appointment);
+                }
+            } else if (choice == 2) {
+                service.modifyAppointment(booked.get(random.nextInt(booked.size())).getAppointmentId(),
+                        patient, doctor, time);
+            } else {
+                service.cancelAppointment(booked.get(random.nextInt(booked.size())).getAppointmentId());
+            }
+        }
+        AppointmentBook last = service.getSnapshot();
+
+        // Assert
+        assertEquals(1, first.size());
+        assertEquals(base, first.get(booked.get(0).getAppointmentId()).getStart());
+        assertTrue(last.getVersion() > first.getVersion());
+        assertEquals(booked.size(), last.size());
+        for (Appointment appointment : booked) {
+            assertEquals(AppointmentView.of(appointment), last.get(appointment.getAppointmentId()));
+        }
+        for (Patient patient : patients) {
+            assertEquals(service.getAppointmentsForUser(patient).stream().map(AppointmentView::of).toList(),
+                    last.getAppointmentsForUser(patient));
+        }
+        for (Doctor doctor : doctors) {
+            assertEquals(service.getAppointmentsForUser(doctor).stream().map(AppointmentView::of).toList(),
+                    last.getAppointmentsForUser(doctor));
+        }
+    }
+
+    /**
+     * Readers take snapshots while a writer keeps moving appointments between
+     * two doctors; every snapshot must show each appointment under exactly one doctor.
+     */
+    @Test
+    @DisplayName("getSnapshot(): readers never see a half-applied move")
+    void snapshotConsistencyTest() throws Exception {
+        // Arrange
+        AppointmentService service = new AppointmentService();
+        Doctor first = new Doctor("doc1", "hash", "Doc One", "doc1@example.com");
+        Doctor second = new Doctor("doc2", "hash", "Doc Two", "doc2@example.com");
+        LocalDateTime base = LocalDateTime.of(2030, 1, 7, 8, 0);
+        List<Appointment> booked = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Patient patient = new Patient("pat" + i, "hash", "Pat", "pat@example.com");
+            Appointment appointment = new Appointment(patient, first, base.plusHours(i));
+            service.createAppointment(appointment);
+            booked.add(appointment);
+        }
+        service.getSnapshot();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+
+        // Act
+        Future<?> writer = pool.submit(() -> {
+            Random random = new Random(7);
+            for (int i = 0; i < 20_000; i++) {
+                Appointment appointment = booked.get(random.nextInt(booked.size()));
+                Doctor target = (appointment.getDoctor() == first) ? second : first;
+                service.modifyAppointment(appointment.getAppointmentId(), appointment.getPatient(), target,
+                        appointment.getAppointmentDateTime());
+            }
+            running.set(false);
+        });
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(pool.submit(() -> {
+                int checked = 0;
+                while (running.get() || checked == 0) {
+                    AppointmentBook book = service.getSnapshot();
+                    List<AppointmentView> underFirst = book.getAppointmentsForDoctor(first.getAccountNumber());
+                    List<AppointmentView> underSecond = book.getAppointmentsForDoctor(second.getAccountNumber());
+                    Set<Integer> ids = new HashSet<>();
+                    underFirst.forEach(view -> ids.add(view.appointmentId()));
+                    underSecond.forEach(view -> ids.add(view.appointmentId()));
+                    if (underFirst.size() + underSecond.size() != booked.size() || ids.size() != booked.size()) {
+                        return -1;
+                    }
+                    checked++;
+                }
+                return checked;
+            }));
+        }
+        writer.get();
+
+        // Assert
+        for (Future<Integer> reader : readers) {
+            assertTrue(reader.get() > 0);
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Removes a patient and a doctor and checks that only their own active
+     * appointments are cancelled.
+     */
+    @Test
+    @DisplayName("removeUser(): removing a user cancels only their active appointments")
+    void removeUserTest() {
+        // Arrange
+        UserService users = new UserService();
+        AppointmentService service = new AppointmentService();
+        Patient patient = new Patient("pat", "hash", "Pat", "pat@example.com");
+        Patient otherPatient = new Patient("pat2", "hash", "Pat Two", "pat2@example.com");
+        Doctor doctor = new Doctor("doc", "hash", "Doc", "doc@example.com");
+        Doctor otherDoctor = new Doctor("doc2", "hash", "Doc Two", "doc2@example.com");
+        users.createUser(patient);
+        users.createUser(otherPatient);
+        users.createUser(doctor);
+        users.createUser(otherDoctor);
+        LocalDateTime time = LocalDateTime.of(2030, 1, 7, 9, 0);
+        Appointment first = new Appointment(patient, doctor, time);
+        Appointment second = new Appointment(patient, otherDoctor, time.plusHours(1));
+        Appointment alreadyCancelled = new Appointment(patient, doctor, time.plusHours(2));
+        Appointment unrelated = new Appointment(otherPatient, doctor, time.plusHours(3));
+        Appointment doctorOnly = new Appointment(otherPatient, otherDoctor, time.plusHours(4));
+        for (Appointment appointment : List.of(first, second, alreadyCancelled, unrelated, doctorOnly)) {
+            service.createAppointment(appointment);
+        }
+        service.cancelAppointment(alreadyCancelled.getAppointmentId());
+
+        // Act
+        int patientCancelled = service.removeUser(users, patient);
+        int removedAgain = service.removeUser(users, patient);
+        int doctorCancelled = service.removeUser(users, otherDoctor);
+
+        // Assert
+        assertEquals(2, patientCancelled);
+        assertEquals(-1, removedAgain);
+        assertEquals(1, doctorCancelled);
+        assertNull(users.getUser("pat"));
+        assertNull(users.getUser("doc2"));
+        assertEquals(Appointment.Status.CANCELLED, first.getStatus());
+        assertEquals(Appointment.Status.CANCELLED, second.getStatus());
+        assertEquals(Appointment.Status.ACTIVE, unrelated.getStatus());
+        assertEquals(Appointment.Status.CANCELLED, doctorOnly.getStatus());
+        assertTrue(service.createAppointment(new Appointment(otherPatient, doctor, time)));
+    }
+}
@@ -0,0 +1,120 @@
+package edu.patientportal.services;
+
+import edu.secourse.patientportal.services.BlockIdAllocator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link BlockIdAllocator} class.
+ *
+ * <p>This suite validates:
+ * <ul>
+ *     <li>Sequential IDs within a single thread</li>
+ *     <li>Uniqueness across concurrent threads, with no IDs stranded per thread</li>
+ *     <li>Uniqueness across restarts when a high-water mark file is used</li>
+ * </ul>
+ */
+public class BlockIdAllocatorTest {
+
+    /**
+     * Verifies that a single thread receives consecutive IDs starting at the first ID.
+     */
+    @Test
+    @DisplayName("sequentialIds(): single thread gets consecutive ids")
+    public void sequentialIdsTest() {
+        // Arrange
+        BlockIdAllocator allocator = new BlockIdAllocator(1, 4);
+
+        // Act & Assert
+        for (int expected = 1; expected <= 10; expected++) {
+            assertEquals(expected, allocator.nextId());
+        }
+    }
+
+    /**
+     * Ensures that IDs handed out concurrently from many threads never repeat
+     * and that no IDs are skipped when threads end.
+     */
+    @Test
+    @DisplayName("concurrentIds(): no duplicates across threads")
+    public void concurrentIdsTest() throws Exception {
+        // Arrange
+        BlockIdAllocator allocator = new BlockIdAllocator(1, 16);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    assertTrue(ids.add(allocator.nextId()));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        // Assert
+        assertEquals(80_000, ids.size());
+        assertEquals(80_000, ids.stream().mapToInt(Integer::intValue).max().getAsInt());
+    }
+
+    /**
+     * Verifies that an allocator reopened from the same file never repeats an
+     * ID handed out before the restart.
+     */
+    @Test
+    @DisplayName("restartIds(): ids stay unique after restart")
+    public void restartIdsTest(@TempDir Path dir) throws Exception {
+        // Arrange
+        Path file = dir.resolve("appointments.hwm");
+        BlockIdAllocator before = new BlockIdAllocator(file, 8);
+        int last = 0;
+        for (int i = 0; i < 100; i++) {
+            last = before.nextId();
+        }
+
+        // Act
+        BlockIdAllocator after = new BlockIdAllocator(file, 8);
+
+        // Assert
+        assertTrue(after.nextId() > last);
+    }
+
+    /**
+     * Verifies that advancing past a restored ID skips it and every lower ID.
+     */
+    @Test
+    @DisplayName("advancePast(): later ids are above the restored id")
+    public void advancePastTest() {
+        // Arrange
+        BlockIdAllocator allocator = new BlockIdAllocator(1, 8);
+        allocator.nextId();
+
+        // Act
+        allocator.advancePast(5);
+        int inBlock = allocator.nextId();
+        allocator.advancePast(100);
+        int nextBlock = allocator.nextId();
+
+        // Assert
+        assertEquals(6, inBlock);
+        assertTrue(nextBlock > 100);
+    }
+}
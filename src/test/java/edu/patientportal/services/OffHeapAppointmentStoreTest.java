@@ -0,0 +1,143 @@
+package edu.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.AppointmentView;
+import edu.secourse.patientportal.services.OffHeapAppointmentStore;
+import edu.secourse.patientportal.services.StoreBackedAppointmentService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link OffHeapAppointmentStore} class.
+ *
+ * <p>This suite validates:
+ * <ul>
+ *     <li>Following an {@link AppointmentService} as a listener</li>
+ *     <li>Growing the record region and indexes past their initial size</li>
+ *     <li>Reopening a memory-mapped store file</li>
+ *     <li>Serving as the only copy of the calendar behind a {@link StoreBackedAppointmentService}</li>
+ * </ul>
+ **/
+public class OffHeapAppointmentStoreTest {
+
+    /**
+     * Follows a service's creates, moves, and cancels.
+     */
+    @Test
+    @DisplayName("listenerTest(): the store follows creates, moves, and cancels")
+    void listenerTest() throws Exception {
+        // Arrange
+        AppointmentService service = new AppointmentService();
+        Patient patient = new Patient("pat", "hash", "Pat", "pat@example.com");
+        Doctor doctor = new Doctor("doc", "hash", "Doc", "doc@example.com");
+        Doctor otherDoctor = new Doctor("doc2", "hash", "Doc Two", "doc2@example.com");
+        LocalDateTime time = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+        try (OffHeapAppointmentStore store = new OffHeapAppointmentStore()) {
+            service.addListener(store);
+
+            // Act
+            Appointment first = new Appointment(patient, doctor, time);
+            Appointment second = new Appointment(patient, doctor, time.plusHours(1));
+            service.createAppointment(first);
+            service.createAppointment(second);
+            service.modifyAppointment(first.getAppointmentId(), patient, otherDoctor, time.plusHours(2));
+            service.cancelAppointment(second.getAppointmentId());
+
+            // Assert
+            AppointmentView moved = store.get(first.getAppointmentId());
+            AppointmentView cancelled = store.get(second.getAppointmentId());
+            assertEquals(2, store.size());
+            assertEquals(time.plusHours(2), moved.getStart());
+            assertEquals(Appointment.Status.CANCELLED, cancelled.status());
+            assertEquals(List.of(moved, cancelled), store.getAppointmentsForPatient(patient.getAccountNumber()));
+            assertEquals(List.of(cancelled), store.getAppointmentsForDoctor(doctor.getAccountNumber()));
+            assertEquals(List.of(moved), store.getAppointmentsForDoctor(otherDoctor.getAccountNumber()));
+            assertFalse(store.isMapped());
+        }
+    }
+
+    /**
+     * Fills a mapped store past its initial size, closes it, and reopens the file.
+     */
+    @Test
+    @DisplayName("reopenTest(): a mapped store keeps its records across a reopen")
+    void reopenTest(@TempDir Path directory) throws Exception {
+        // Arrange
+        Path file = directory.resolve("appointments.store");
+        int count = 5_000;
+
+        // Act
+        try (OffHeapAppointmentStore store = OffHeapAppointmentStore.open(file)) {
+            for (int id = 1; id <= count; id++) {
+                store.put(id, id % 50, id % 7, 1_000_000L + id, 30, Appointment.Status.ACTIVE);
+            }
+            store.setStatus(10, Appointment.Status.CANCELLED);
+            store.put(11, 11 % 50, 100, 2_000_000L, 60, Appointment.Status.ACTIVE);
+        }
+
+        // Assert
+        try (OffHeapAppointmentStore store = OffHeapAppointmentStore.open(file)) {
+            assertTrue(store.isMapped());
+            assertEquals(count, store.size());
+            assertEquals(new AppointmentView(11, 11, 100, 2_000_000L, 60, Appointment.Status.ACTIVE), store.get(11));
+            assertEquals(Appointment.Status.CANCELLED, store.get(10).status());
+            assertEquals(count / 50, store.getAppointmentsForPatient(3).size());
+            assertEquals(List.of(store.get(11)), store.getAppointmentsForDoctor(100));
+            assertEquals(count / 7 - 1, store.getAppointmentsForDoctor(4).size());
+        }
+    }
+
+    /**
+     * Books through a store-backed service on a mapped file, reopens the
+     * file, and checks that the bookings still block their slots and that new
+     * IDs continue after the stored ones.
+     */
+    @Test
+    @DisplayName("serviceTest(): a store-backed service keeps its calendar in the mapped file")
+    void serviceTest(@TempDir Path directory) throws Exception {
+        // Arrange
+        Path file = directory.resolve("calendar.store");
+        Patient patient = new Patient("pat", "hash", "Pat", "pat@example.com");
+        Doctor doctor = new Doctor("doc", "hash", "Doc", "doc@example.com");
+        LocalDateTime time = LocalDateTime.of(2030, 1, 7, 9, 0);
+        Appointment first = new Appointment(patient, doctor, time);
+        Appointment second = new Appointment(patient, doctor, time.plusHours(1));
+
+        // Act
+        try (OffHeapAppointmentStore store = OffHeapAppointmentStore.open(file)) {
+            StoreBackedAppointmentService service = new StoreBackedAppointmentService(store);
+            service.createAppointment(first);
+            service.createAppointment(second);
+            service.cancelAppointment(second.getAppointmentId());
+        }
+        boolean clash;
+        boolean rebooked;
+        Appointment third = new Appointment(patient, doctor, time.plusHours(1));
+        List<AppointmentView> stored;
+        try (OffHeapAppointmentStore store = OffHeapAppointmentStore.open(file)) {
+            StoreBackedAppointmentService service = new StoreBackedAppointmentService(store);
+            clash = service.createAppointment(new Appointment(patient, doctor, time.plusMinutes(15)));
+            rebooked = service.createAppointment(third);
+            stored = service.getAppointmentsForUser(doctor);
+        }
+
+        // Assert
+        assertFalse(clash);
+        assertTrue(rebooked);
+        assertTrue(third.getAppointmentId() > second.getAppointmentId());
+        assertEquals(3, stored.size());
+        assertEquals(Appointment.Status.CANCELLED, stored.get(1).status());
+        assertEquals(time.plusHours(1), stored.get(2).getStart());
+    }
+}
@@ -0,0 +1,101 @@
+package edu.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentService;
+import edu.secourse.patientportal.services.AppointmentView;
+import edu.secourse.patientportal.services.PackedAppointmentStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PackedAppointmentStore} class.
+ *
+ * <p>This suite validates:
+ * <ul>
+ *     <li>Loading from and following an {@link AppointmentService}</li>
+ *     <li>Per-patient and per-doctor lookups after appointments move</li>
+ *     <li>Growing past the initial capacity</li>
+ * </ul>
+ **/
+public class PackedAppointmentStoreTest {
+
+    /**
+     * Loads a service's appointments, then follows its changes as a listener.
+     */
+    @Test
+    @DisplayName("listenerTest(): the store follows creates, moves, and cancels")
+    void listenerTest() {
+        // Arrange
+        AppointmentService service = new AppointmentService();
+        Patient patient = new Patient("pat", "hash", "Pat", "pat@example.com");
+        Patient otherPatient = new Patient("pat2", "hash", "Pat Two", "pat2@example.com");
+        Doctor doctor = new Doctor("doc", "hash", "Doc", "doc@example.com");
+        LocalDateTime time = LocalDateTime.of(2030, 1, 7, 9, 0);
+        Appointment first = new Appointment(patient, doctor, time);
+        service.createAppointment(first);
+        PackedAppointmentStore store = new PackedAppointmentStore();
+        service.addListener(store);
+
+        // Act
+        int loaded = store.load(service);
+        Appointment second = new Appointment(patient, doctor, time.plusHours(1), Duration.ofMinutes(45));
+        service.createAppointment(second);
+        service.modifyAppointment(first.getAppointmentId(), otherPatient, doctor, time.plusHours(3));
+        service.cancelAppointment(second.getAppointmentId());
+
+        // Assert
+        assertEquals(1, loaded);
+        assertEquals(2, store.size());
+        AppointmentView moved = store.get(first.getAppointmentId());
+        assertEquals(otherPatient.getAccountNumber(), moved.patientAccount());
+        assertEquals(time.plusHours(3), moved.getStart());
+        assertTrue(moved.isActive());
+        AppointmentView cancelled = store.get(second.getAppointmentId());
+        assertEquals(Appointment.Status.CANCELLED, cancelled.status());
+        assertEquals(Duration.ofMinutes(45), cancelled.getDuration());
+        assertEquals(List.of(cancelled), store.getAppointmentsForPatient(patient.getAccountNumber()));
+        assertEquals(List.of(moved), store.getAppointmentsForPatient(otherPatient.getAccountNumber()));
+        assertEquals(List.of(moved, cancelled), store.getAppointmentsForDoctor(doctor.getAccountNumber()));
+        assertNull(store.get(999));
+    }
+
+    /**
+     * Stores more appointments than the initial capacity and moves some between doctors.
+     */
+    @Test
+    @DisplayName("growthTest(): lookups stay correct as the columns grow")
+    void growthTest() {
+        // Arrange
+        PackedAppointmentStore store = new PackedAppointmentStore();
+        int count = 10_000;
+
+        // Act
+        for (int id = 1; id <= count; id++) {
+            store.put(id, id % 100, id % 10, 1_000_000L + id, 30, Appointment.Status.ACTIVE);
+        }
+        for (int id = 1; id <= count; id += 2) {
+            store.put(id, id % 100, 10, 1_000_000L + id, 30, Appointment.Status.ACTIVE);
+        }
+        AtomicInteger walked = new AtomicInteger();
+        store.forEach(view -> walked.incrementAndGet());
+
+        // Assert
+        assertEquals(count, store.size());
+        assertEquals(count, walked.get());
+        assertEquals(count / 2, store.getAppointmentsForDoctor(10).size());
+        assertTrue(store.getAppointmentsForDoctor(1).isEmpty());
+        assertEquals(count / 10, store.getAppointmentsForDoctor(2).size());
+        assertEquals(count / 100, store.getAppointmentsForPatient(7).size());
+        assertFalse(store.put(0, 1, 1, 0, 30, Appointment.Status.ACTIVE));
+        assertTrue(store.getFootprintBytes() < 100L * count);
+    }
+}
@@ -0,0 +1,121 @@
+package edu.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.ShardedAppointmentService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ShardedAppointmentService} class.
+ *
+ * <p>This suite validates:
+ * <ul>
+ *     <li>Booking, moving, and cancelling across several shards</li>
+ *     <li>Merging a patient's appointments from every shard</li>
+ *     <li>Rejecting a patient's overlapping bookings held by different shards, under concurrency</li>
+ * </ul>
+ **/
+public class ShardedAppointmentServiceTest {
+
+    /**
+     * Books with many doctors, then moves and cancels some bookings.
+     */
+    @Test
+    @DisplayName("shardsTest(): writes are routed to their shards and reads are merged")
+    void shardsTest() {
+        // Arrange
+        Patient patient = new Patient("pat", "hash", "Pat", "pat@example.com");
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            doctors.add(new Doctor("doc" + i, "hash", "Doc " + i, "doc" + i + "@example.com"));
+        }
+        LocalDateTime time = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+        try (ShardedAppointmentService service = new ShardedAppointmentService(4)) {
+            // Act
+            List<Appointment> booked = new ArrayList<>();
+            for (int i = 0; i < doctors.size(); i++) {
+                Appointment appointment = new Appointment(patient, doctors.get(i), time.plusHours(i));
+                assertTrue(service.createAppointment(appointment));
+                booked.add(appointment);
+            }
+            boolean clash = service.createAppointment(new Appointment(patient, doctors.get(5), time.plusMinutes(15)));
+            boolean moved = service.modifyAppointment(booked.get(3).getAppointmentId(), patient, doctors.get(3),
+                    time.plusDays(1));
+            boolean cancelled = service.cancelAppointment(booked.get(7).getAppointmentId());
+
+            // Assert
+            assertFalse(clash);
+            assertTrue(moved);
+            assertTrue(cancelled);
+            assertEquals(4, service.getShardCount());
+            assertEquals(16, service.getAllAppointments().count());
+            Set<Integer> ids = new HashSet<>();
+            booked.forEach(a -> ids.add(a.getAppointmentId()));
+            assertEquals(16, ids.size());
+            List<Appointment> forPatient = service.getAppointmentsForUser(patient);
+            assertEquals(16, forPatient.size());
+            for (int i = 1; i < forPatient.size(); i++) {
+                assertTrue(forPatient.get(i - 1).getAppointmentId() < forPatient.get(i).getAppointmentId());
+            }
+            assertEquals(List.of(booked.get(3)), service.getAppointmentsForUser(doctors.get(3)));
+            assertEquals(time.plusDays(1), booked.get(3).getAppointmentDateTime());
+            assertEquals(Appointment.Status.CANCELLED, booked.get(7).getStatus());
+        }
+    }
+
+    /**
+     * Many threads book the same patient at the same time with different doctors;
+     * exactly one booking may succeed, whichever shards the doctors live in.
+     */
+    @Test
+    @DisplayName("concurrentPatientTest(): one patient cannot double-book across shards")
+    void concurrentPatientTest() throws Exception {
+        // Arrange
+        int rounds = 50;
+        int doctorsPerRound = 8;
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < doctorsPerRound; i++) {
+            doctors.add(new Doctor("doc" + i, "hash", "Doc " + i, "doc" + i + "@example.com"));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(doctorsPerRound);
+
+        try (ShardedAppointmentService service = new ShardedAppointmentService(4)) {
+            // Act
+            int successes = 0;
+            for (int round = 0; round < rounds; round++) {
+                Patient patient = new Patient("pat" + round, "hash", "Pat", "pat@example.com");
+                LocalDateTime time = LocalDateTime.of(2030, 1, 7, 9, 0).plusDays(round);
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (Doctor doctor : doctors) {
+                    results.add(pool.submit(() -> service.createAppointment(new Appointment(patient, doctor, time))));
+                }
+                int roundSuccesses = 0;
+                for (Future<Boolean> result : results) {
+                    roundSuccesses += result.get() ? 1 : 0;
+                }
+                assertEquals(1, roundSuccesses);
+                successes += roundSuccesses;
+            }
+
+            // Assert
+            assertEquals(rounds, successes);
+            assertEquals(rounds, service.getAllAppointments().count());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package edu.patientportal.services;
+
+import edu.secourse.patientportal.models.Appointment;
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.AppointmentView;
+import edu.secourse.patientportal.services.PackedAppointmentStore;
+import edu.secourse.patientportal.services.StoreBackedAppointmentService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link StoreBackedAppointmentService} class.
+ *
+ * <p>This suite validates:
+ * <ul>
+ *     <li>Overlap checks for patients and doctors, with cancelled appointments ignored</li>
+ *     <li>Moves and cancels written to the store and read back as views</li>
+ *     <li>New IDs continuing after the appointments already in a store</li>
+ * </ul>
+ **/
+public class StoreBackedAppointmentServiceTest {
+
+    /**
+     * Books, rejects overlaps, cancels, and moves appointments, checking the store after each step.
+     */
+    @Test
+    @DisplayName("bookingTest(): bookings follow the same rules as AppointmentService")
+    void bookingTest() {
+        // Arrange
+        StoreBackedAppointmentService service = new StoreBackedAppointmentService(new PackedAppointmentStore());
+        Patient patient = new Patient("pat", "hash", "Pat", "pat@example.com");
+        Patient otherPatient = new Patient("pat2", "hash", "Pat Two", "pat2@example.com");
+        Doctor doctor = new Doctor("doc", "hash", "Doc", "doc@example.com");
+        Doctor otherDoctor = new Doctor("doc2", "hash", "Doc Two", "doc2@example.com");
+        LocalDateTime time = LocalDateTime.of(2030, 1, 7, 9, 0);
+        Appointment first = new Appointment(patient, doctor, time, Duration.ofMinutes(60));
+
+        // Act
+        boolean booked = service.createAppointment(first);
+        boolean doctorClash = service.createAppointment(new Appointment(otherPatient, doctor, time.plusMinutes(30)));
+        boolean patientClash = service.createAppointment(new Appointment(patient, otherDoctor, time.plusMinutes(45)));
+        Appointment adjacent = new Appointment(otherPatient, doctor, time.plusMinutes(60));
+        boolean adjacentBooked = service.createAppointment(adjacent);
+        boolean movedOntoAdjacent = service.modifyAppointment(first.getAppointmentId(), patient, doctor,
+                time.plusMinutes(75));
+        boolean cancelled = service.cancelAppointment(adjacent.getAppointmentId());
+        boolean movedAfterCancel = service.modifyAppointment(first.getAppointmentId(), patient, otherDoctor,
+                time.plusMinutes(90));
+        boolean rebooked = service.createAppointment(new Appointment(otherPatient, doctor, time.plusMinutes(60)));
+
+        // Assert
+        assertTrue(booked);
+        assertFalse(doctorClash);
+        assertFalse(patientClash);
+        assertTrue(adjacentBooked);
+        assertFalse(movedOntoAdjacent);
+        assertTrue(cancelled);
+        assertTrue(movedAfterCancel);
+        assertTrue(rebooked);
+        assertFalse(service.cancelAppointment(999));
+        assertEquals(3, service.size());
+        AppointmentView moved = service.getAppointment(first.getAppointmentId());
+        assertEquals(time.plusMinutes(90), moved.getStart());
+        assertEquals(Duration.ofMinutes(60), moved.getDuration());
+        assertEquals(otherDoctor.getAccountNumber(), moved.doctorAccount());
+        assertEquals(List.of(moved), service.getAppointmentsForUser(otherDoctor));
+        assertEquals(Appointment.Status.CANCELLED, service.getAppointment(adjacent.getAppointmentId()).status());
+        assertEquals(2, service.getAppointmentsForUser(doctor).size());
+        assertTrue(service.getAppointmentsForUser(null).isEmpty());
+    }
+
+    /**
+     * Opens a second service on a store that already holds appointments and
+     * checks that its IDs do not collide with the stored ones.
+     */
+    @Test
+    @DisplayName("reopenTest(): new IDs continue after those already stored")
+    void reopenTest() {
+        // Arrange
+        PackedAppointmentStore store = new PackedAppointmentStore();
+        store.put(500, 1, 2, 1_000_000L, 30, Appointment.Status.ACTIVE);
+        Patient patient = new Patient("pat", "hash", "Pat", "pat@example.com");
+        Doctor doctor = new Doctor("doc", "hash", "Doc", "doc@example.com");
+
+        // Act
+        StoreBackedAppointmentService service = new StoreBackedAppointmentService(store);
+        Appointment appointment = new Appointment(patient, doctor, LocalDateTime.of(2030, 1, 7, 9, 0));
+        boolean booked = service.createAppointment(appointment);
+
+        // Assert
+        assertTrue(booked);
+        assertTrue(appointment.getAppointmentId() > 500);
+        assertEquals(2, store.size());
+    }
+}
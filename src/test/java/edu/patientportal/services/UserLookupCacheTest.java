@@ -0,0 +1,101 @@
+package edu.patientportal.services;
+
+import edu.secourse.patientportal.models.Doctor;
+import edu.secourse.patientportal.models.Patient;
+import edu.secourse.patientportal.services.UserLookupCache;
+import edu.secourse.patientportal.services.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link UserLookupCache} class.
+ *
+ * <p>This suite validates:
+ * <ul>
+ *     <li>Caching of found users and of "no such user" answers</li>
+ *     <li>Invalidation on create, rename, and removal</li>
+ *     <li>Expiry after the time to live, and the size bound</li>
+ * </ul>
+ **/
+public class UserLookupCacheTest {
+
+    /**
+     * Caches a hit and a miss, then checks that creating, renaming, and
+     * removing users is seen by the next lookup.
+     */
+    @Test
+    @DisplayName("invalidationTest(): changes to users are seen immediately")
+    void invalidationTest() {
+        // Arrange
+        UserService service = new UserService();
+        UserLookupCache cache = new UserLookupCache(service, 16, Duration.ofMinutes(5));
+        Patient patient = new Patient("pat", "hash", "Pat", "pat@example.com");
+        service.createUser(patient);
+
+        // Act
+        Patient found = (Patient) cache.getUser("pat");
+        Patient foundAgain = (Patient) cache.getUser("pat");
+        Object missing = cache.getUser("doc");
+        Object missingAgain = cache.getUser("doc");
+        Doctor doctor = new Doctor("doc", "hash", "Doc", "doc@example.com");
+        service.createUser(doctor);
+        Object created = cache.getUser("doc");
+        service.updateUser("pat", "pat2", "hash", "Pat", "pat@example.com");
+        Object oldName = cache.getUser("pat");
+        Object newName = cache.getUser("pat2");
+        service.removeUser(doctor);
+        Object removed = cache.getUser("doc");
+
+        // Assert
+        assertSame(patient, found);
+        assertSame(patient, foundAgain);
+        assertNull(missing);
+        assertNull(missingAgain);
+        assertSame(doctor, created);
+        assertNull(oldName);
+        assertSame(patient, newName);
+        assertNull(removed);
+        UserLookupCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.negativeHits());
+        assertEquals(6, stats.misses());
+    }
+
+    /**
+     * Checks that entries expire after their time to live, that the cache
+     * never holds more than its maximum size, and that a full cache drops a
+     * batch of entries at once.
+     */
+    @Test
+    @DisplayName("boundsTest(): entries expire and the size stays bounded")
+    void boundsTest() throws InterruptedException {
+        // Arrange
+        UserService service = new UserService();
+        UserLookupCache shortLived = new UserLookupCache(service, 16, Duration.ofMillis(1));
+        UserLookupCache small = new UserLookupCache(service, 4, Duration.ofMinutes(5));
+        UserLookupCache batched = new UserLookupCache(service, 16, Duration.ofMinutes(5));
+
+        // Act
+        shortLived.getUser("ghost");
+        Thread.sleep(10);
+        shortLived.getUser("ghost");
+        for (int i = 0; i < 20; i++) {
+            small.getUser("user" + i);
+        }
+        for (int i = 0; i < 17; i++) {
+            batched.getUser("user" + i);
+        }
+
+        // Assert
+        assertEquals(0, shortLived.getStats().hits());
+        assertEquals(2, shortLived.getStats().misses());
+        assertEquals(4, small.getStats().size());
+        assertEquals(16, small.getStats().evictions());
+        assertEquals(2, batched.getStats().evictions());
+        assertEquals(15, batched.getStats().size());
+    }
+}
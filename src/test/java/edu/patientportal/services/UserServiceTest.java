@@ -4,6 +4,7 @@ import edu.secourse.patientportal.models.Patient;
 import edu.secourse.patientportal.models.User;
 import edu.secourse.patientportal.models.Doctor;
 import edu.secourse.patientportal.models.Admin;
+import edu.secourse.patientportal.services.UserListener;
 import edu.secourse.patientportal.services.UserService;
 
 import org.junit.jupiter.api.DisplayName;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +26,8 @@ import static org.junit.jupiter.api.Assertions.*;
  *     <li>Fetching specific users via {@code getUser}</li>
  *     <li>Printing user details to console output</li>
  *     <li>Printing correct messages when a user does not exist</li>
+ *     <li>Keeping the username index consistent across renames</li>
+ *     <li>Creating users in batches</li>
  * </ul>
  *
  * <p>All tests follow the Arrange–Act–Assert pattern and use live instances of
@@ -151,5 +155,102 @@ public class UserServiceTest {
         assertFalse(output.contains("john@mail.com"));
         assertTrue(output.contains("User does not exist."));
     }
-}
 
+    /**
+     * Verifies that renaming a user moves its index entry, so the user is
+     * found under the new username and no longer under the old one.
+     */
+    @Test
+    @DisplayName("updateUserRename(): rename keeps username index consistent")
+    public void updateUserRenameTest() {
+        // Arrange
+        UserService userService = new UserService();
+        User patient = new Patient("jfox", "lskjdlfjsdj", "John Fox", "johnfox8@gmail.com");
+        userService.createUser(patient);
+
+        // Act
+        boolean result = userService.updateUser("jfox", "jfox2", "newPass", "John Fox", "jfox2@gmail.com");
+
+        // Assert
+        assertTrue(result);
+        assertNull(userService.getUser("jfox"));
+        assertSame(patient, userService.getUser("jfox2"));
+        assertTrue(userService.containsUser(patient));
+        assertEquals(1, userService.users.size());
+    }
+
+    /**
+     * Ensures a rename onto a username held by another user is rejected and
+     * leaves both users untouched.
+     */
+    @Test
+    @DisplayName("updateUserRenameTaken(): rename onto existing username fails")
+    public void updateUserRenameTakenTest() {
+        // Arrange
+        UserService userService = new UserService();
+        User patient = new Patient("jfox", "lskjdlfjsdj", "John Fox", "johnfox8@gmail.com");
+        User doctor  = new Doctor("rraux", "lkmlksljdioj", "Raul Rox", "raulrox23@gmail.com");
+        userService.createUser(patient);
+        userService.createUser(doctor);
+
+        // Act
+        boolean result = userService.updateUser("jfox", "rraux", "pass", "Name", "mail@mail.com");
+
+        // Assert
+        assertFalse(result);
+        assertSame(patient, userService.getUser("jfox"));
+        assertSame(doctor, userService.getUser("rraux"));
+        assertEquals("John Fox", patient.getName());
+    }
+
+    /**
+     * Confirms that the public user view cannot be modified directly.
+     */
+    @Test
+    @DisplayName("usersReadOnly(): users view is read-only")
+    public void usersReadOnlyTest() {
+        // Arrange
+        UserService userService = new UserService();
+        User patient = new Patient("jfox", "lskjdlfjsdj", "John Fox", "johnfox8@gmail.com");
+        userService.createUser(patient);
+
+        // Act & Assert
+        assertTrue(userService.users.contains(patient));
+        assertThrows(UnsupportedOperationException.class, () -> userService.users.clear());
+        assertFalse(userService.createUser(new Patient("jfox", "x", "Other", "other@mail.com")));
+    }
+
+    /**
+     * Verifies that a batch creates each new user once, rejects duplicates,
+     * and tells listeners to finish writing only once.
+     */
+    @Test
+    @DisplayName("createUsers(): create users in one batch")
+    public void createUsersTest() {
+        // Arrange
+        UserService userService = new UserService();
+        userService.createUser(new Patient("taken", "x", "Taken", "taken@mail.com"));
+        int[] completions = new int[1];
+        userService.addListener(new UserListener() {
+            @Override
+            public void writeCompleted() {
+                completions[0]++;
+            }
+        });
+        List<User> batch = List.of(
+                new Patient("jfox", "x", "John Fox", "johnfox8@gmail.com"),
+                new Doctor("rraux", "x", "Rita Raux", "rraux@mail.com"),
+                new Patient("jfox", "x", "Other", "other@mail.com"),
+                new Admin("taken", "x", "Other", "other@mail.com"));
+
+        // Act
+        boolean[] results = userService.createUsers(batch);
+
+        // Assert
+        assertArrayEquals(new boolean[] {true, true, false, false}, results);
+        assertSame(batch.get(0), userService.getUser("jfox"));
+        assertSame(batch.get(1), userService.getUser("rraux"));
+        assertEquals(3, userService.users.size());
+        assertEquals(1, completions[0]);
+    }
+}